@@ -16,40 +16,44 @@
 
 package org.bremersee.apiclient.webflux.spring.boot.autoconfigure;
 
+import static java.util.Objects.nonNull;
+
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.bremersee.apiclient.webflux.CircuitBreaker;
+import org.bremersee.apiclient.webflux.ConcurrencyLimiter;
 import org.bremersee.apiclient.webflux.Invocation;
 import org.bremersee.apiclient.webflux.ReactiveApiClient;
 import org.bremersee.apiclient.webflux.ReactiveContract;
 import org.bremersee.apiclient.webflux.ReactiveErrorHandler;
-import org.bremersee.apiclient.webflux.contract.HeadersConsumer;
+import org.bremersee.apiclient.webflux.Timeouts;
 import org.bremersee.apiclient.webflux.contract.RequestBodyInserter;
 import org.bremersee.apiclient.webflux.contract.RequestBodyInserterRegistry;
-import org.bremersee.apiclient.webflux.contract.RequestUriFunction;
-import org.bremersee.apiclient.webflux.contract.spring.AcceptResolver;
+import org.bremersee.apiclient.webflux.contract.spring.AdaptiveBufferSizeStrategy;
+import org.bremersee.apiclient.webflux.contract.spring.BufferSizeStrategy;
 import org.bremersee.apiclient.webflux.contract.spring.ContentTypeResolver;
 import org.bremersee.apiclient.webflux.contract.spring.DataBuffersInserter;
 import org.bremersee.apiclient.webflux.contract.spring.FormDataInserter;
 import org.bremersee.apiclient.webflux.contract.spring.MultipartDataInserter;
 import org.bremersee.apiclient.webflux.contract.spring.PageableRequestParameterResolver;
 import org.bremersee.apiclient.webflux.contract.spring.PartToHttpEntityConverter;
-import org.bremersee.apiclient.webflux.contract.spring.PathVariablesResolver;
 import org.bremersee.apiclient.webflux.contract.spring.PublisherInserter;
 import org.bremersee.apiclient.webflux.contract.spring.QueryParametersResolver;
 import org.bremersee.apiclient.webflux.contract.spring.ReactiveSpringContract;
-import org.bremersee.apiclient.webflux.contract.spring.RequestHeadersResolver;
 import org.bremersee.apiclient.webflux.contract.spring.RequestParametersResolver;
-import org.bremersee.apiclient.webflux.contract.spring.RequestPathResolver;
 import org.bremersee.apiclient.webflux.contract.spring.ResourceInserter;
 import org.bremersee.apiclient.webflux.contract.spring.SortRequestParameterResolver;
 import org.bremersee.apiclient.webflux.contract.spring.ValueInserter;
+import org.bremersee.apiclient.webflux.contract.spring.multipart.PartBuilder;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.event.EventListener;
@@ -70,9 +74,21 @@ import org.springframework.web.reactive.function.client.WebClient;
 @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
 @ConditionalOnClass({ReactiveApiClient.class, ReactiveSpringContract.class})
 @Configuration
+@EnableConfigurationProperties(ReactiveApiClientProperties.class)
 @Slf4j
 public class ReactiveApiClientAutoConfiguration {
 
+  private final ReactiveApiClientProperties properties;
+
+  /**
+   * Instantiates a new reactive api client autoconfiguration.
+   *
+   * @param properties the properties
+   */
+  public ReactiveApiClientAutoConfiguration(ReactiveApiClientProperties properties) {
+    this.properties = properties;
+  }
+
   /**
    * Init.
    */
@@ -176,13 +192,15 @@ public class ReactiveApiClientAutoConfiguration {
   /**
    * Resource inserter.
    *
+   * @param bufferSizeStrategy the buffer size strategy
    * @return the request body inserter
    */
   @Bean
   @Order(300)
-  public RequestBodyInserter resourceInserter() {
+  public RequestBodyInserter resourceInserter(BufferSizeStrategy bufferSizeStrategy) {
     log.info("Creating {} with order {}", ResourceInserter.class.getSimpleName(), 300);
-    return new ResourceInserter();
+    return new ResourceInserter()
+        .withBufferSizeStrategy(bufferSizeStrategy);
   }
 
   /**
@@ -265,21 +283,101 @@ public class ReactiveApiClientAutoConfiguration {
         "Creating {} with queryParametersResolvers {}",
         ReactiveContract.class.getSimpleName(),
         queryParametersResolverList);
-    ReactiveSpringContract reactiveSpringContract = new ReactiveSpringContract();
-    return ReactiveContract.builder()
-        .from(reactiveSpringContract)
-        .headersConsumer(HeadersConsumer.builder()
-            .contentTypeResolver(contentTypeResolver)
-            .acceptResolver(new AcceptResolver())
-            .headersResolver(new RequestHeadersResolver())
-            .build())
-        .requestUriFunction(RequestUriFunction.builder()
-            .requestPathResolver(new RequestPathResolver())
-            .pathVariablesResolver(new PathVariablesResolver())
-            .requestParametersResolvers(queryParametersResolverList)
-            .build())
-        .requestBodyInserterFunction(requestBodyInserterRegistry)
-        .build();
+    return new ReactiveSpringContract(
+        contentTypeResolver,
+        queryParametersResolverList,
+        requestBodyInserterRegistry);
+  }
+
+  /**
+   * Circuit breaker of all api clients.
+   *
+   * @return the circuit breaker
+   */
+  @ConditionalOnProperty(
+      prefix = "bremersee.api-client.circuit-breaker",
+      name = "enabled",
+      havingValue = "true")
+  @ConditionalOnMissingBean
+  @Bean
+  public CircuitBreaker apiClientCircuitBreaker() {
+    ReactiveApiClientProperties.CircuitBreakerProperties circuitBreakerProperties
+        = properties.getCircuitBreaker();
+    log.info("Creating {} with {}", CircuitBreaker.class.getSimpleName(), circuitBreakerProperties);
+    return new CircuitBreaker()
+        .withScope(circuitBreakerProperties.getScope())
+        .withSlidingWindow(
+            circuitBreakerProperties.getSlidingWindowSize(),
+            circuitBreakerProperties.getMinimumCalls())
+        .withFailureRateThreshold(circuitBreakerProperties.getFailureRateThreshold())
+        .withSlowCallRateThreshold(
+            circuitBreakerProperties.getSlowCallRateThreshold(),
+            circuitBreakerProperties.getSlowCallDuration())
+        .withOpenDuration(circuitBreakerProperties.getOpenDuration())
+        .withHalfOpenProbes(circuitBreakerProperties.getHalfOpenProbes());
+  }
+
+  /**
+   * Concurrency limiter of all api clients.
+   *
+   * @return the concurrency limiter
+   */
+  @ConditionalOnProperty(
+      prefix = "bremersee.api-client.concurrency-limiter",
+      name = "enabled",
+      havingValue = "true")
+  @ConditionalOnMissingBean
+  @Bean
+  public ConcurrencyLimiter apiClientConcurrencyLimiter() {
+    ReactiveApiClientProperties.ConcurrencyLimiterProperties concurrencyLimiterProperties
+        = properties.getConcurrencyLimiter();
+    log.info(
+        "Creating {} with {}",
+        ConcurrencyLimiter.class.getSimpleName(),
+        concurrencyLimiterProperties);
+    return new ConcurrencyLimiter()
+        .withScope(concurrencyLimiterProperties.getScope())
+        .withLimit(
+            concurrencyLimiterProperties.getInitialLimit(),
+            concurrencyLimiterProperties.getMinLimit(),
+            concurrencyLimiterProperties.getMaxLimit())
+        .withQueue(
+            concurrencyLimiterProperties.getMaxQueueSize(),
+            concurrencyLimiterProperties.getMaxWait());
+  }
+
+  /**
+   * The strategy, that chooses the size of the buffers, which are used to read files and
+   * resources.
+   *
+   * @return the buffer size strategy
+   */
+  @ConditionalOnMissingBean
+  @Bean
+  public BufferSizeStrategy apiClientBufferSizeStrategy() {
+    ReactiveApiClientProperties.BufferSizeProperties bufferSizeProperties
+        = properties.getBufferSize();
+    log.info(
+        "Creating {} with {}",
+        AdaptiveBufferSizeStrategy.class.getSimpleName(),
+        bufferSizeProperties);
+    return new AdaptiveBufferSizeStrategy()
+        .withBufferSize(
+            Math.toIntExact(bufferSizeProperties.getMin().toBytes()),
+            Math.toIntExact(bufferSizeProperties.getMax().toBytes()))
+        .withSendBufferSize(Math.toIntExact(bufferSizeProperties.getSendBuffer().toBytes()));
+  }
+
+  /**
+   * Part builder.
+   *
+   * @param bufferSizeStrategy the buffer size strategy
+   * @return the part builder
+   */
+  @ConditionalOnMissingBean
+  @Bean
+  public PartBuilder apiClientPartBuilder(BufferSizeStrategy bufferSizeStrategy) {
+    return new PartBuilder(bufferSizeStrategy);
   }
 
   /**
@@ -288,6 +386,8 @@ public class ReactiveApiClientAutoConfiguration {
    * @param configurers the configurers
    * @param reactiveContract the reactive contract
    * @param errorHandler the error handler
+   * @param circuitBreaker the circuit breaker
+   * @param concurrencyLimiter the concurrency limiter
    * @return the reactive api client
    */
   @ConditionalOnMissingBean
@@ -295,11 +395,48 @@ public class ReactiveApiClientAutoConfiguration {
   public ReactiveApiClient reactiveApiClient(
       ObjectProvider<ReactiveApiClientWebClientBuilderConfigurer> configurers,
       ReactiveContract reactiveContract,
-      ObjectProvider<ReactiveErrorHandler> errorHandler) {
+      ObjectProvider<ReactiveErrorHandler> errorHandler,
+      ObjectProvider<CircuitBreaker> circuitBreaker,
+      ObjectProvider<ConcurrencyLimiter> concurrencyLimiter) {
 
     WebClient.Builder webClientBuilder = WebClient.builder();
     configurers.orderedStream().forEach(configurer -> configurer.configure(webClientBuilder));
-    return new ReactiveApiClient(webClientBuilder, reactiveContract, errorHandler.getIfAvailable());
+    log.info(
+        "Creating {} with eager validation = {} and warm up iterations = {}",
+        ReactiveApiClient.class.getSimpleName(),
+        properties.isEagerValidation(),
+        properties.getWarmUpIterations());
+    return new ReactiveApiClient(webClientBuilder, reactiveContract, errorHandler.getIfAvailable())
+        .withEagerValidation(properties.isEagerValidation())
+        .withWarmUpIterations(properties.getWarmUpIterations())
+        .withCircuitBreaker(circuitBreaker.getIfAvailable())
+        .withConcurrencyLimiter(concurrencyLimiter.getIfAvailable())
+        .withTimeouts(createTimeouts());
+  }
+
+  /**
+   * Creates the timeouts of the properties. Without timeouts and with the default deadline header
+   * no timeouts are needed, so that the implementations, that were generated at build time, can
+   * be used.
+   *
+   * @return the timeouts (can be {@code null})
+   */
+  private Timeouts createTimeouts() {
+    if (nonNull(properties.getTimeout())
+        || !properties.getTimeouts().isEmpty()
+        || !Timeouts.DEFAULT_DEADLINE_HEADER.equals(properties.getDeadlineHeader())) {
+      log.info(
+          "Creating {} with timeout = {}, timeouts = {} and deadline header = {}",
+          Timeouts.class.getSimpleName(),
+          properties.getTimeout(),
+          properties.getTimeouts(),
+          properties.getDeadlineHeader());
+      return new Timeouts()
+          .withDefaultTimeout(properties.getTimeout())
+          .withTimeouts(properties.getTimeouts())
+          .withDeadlineHeader(properties.getDeadlineHeader());
+    }
+    return null;
   }
 
 }
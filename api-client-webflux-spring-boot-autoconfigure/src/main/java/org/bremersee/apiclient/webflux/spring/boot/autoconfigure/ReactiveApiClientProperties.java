@@ -0,0 +1,208 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.spring.boot.autoconfigure;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+import org.bremersee.apiclient.webflux.CircuitBreaker;
+import org.bremersee.apiclient.webflux.ConcurrencyLimiter;
+import org.bremersee.apiclient.webflux.Timeouts;
+import org.bremersee.apiclient.webflux.contract.spring.AdaptiveBufferSizeStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * The reactive api client properties.
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("SameNameButDifferent")
+@ConfigurationProperties(prefix = "bremersee.api-client")
+@Data
+public class ReactiveApiClientProperties {
+
+  /**
+   * Specifies whether all methods of an api interface are validated, when the api client is
+   * created. If enabled, a misconfigured method fails at startup and not on its first call.
+   */
+  private boolean eagerValidation = false;
+
+  /**
+   * The number of dry runs per api method, that are made after the eager validation to warm up
+   * the binding of the invocations. It has only an effect, if eager validation is enabled.
+   */
+  private int warmUpIterations = 0;
+
+  /**
+   * The timeout of all api methods, that have no other timeout.
+   */
+  private Duration timeout;
+
+  /**
+   * The timeouts by the name of the api interface or of the api method (like {@code
+   * org.example.OrderApi#getOrder}). Names with dots must be put in brackets, for example {@code
+   * bremersee.api-client.timeouts[org.example.OrderApi#getOrder]=200ms}.
+   */
+  private Map<String, Duration> timeouts = new LinkedHashMap<>();
+
+  /**
+   * The name of the header, that contains the remaining milliseconds of the deadline of an
+   * invocation. An empty name means, that the deadline is not sent.
+   */
+  private String deadlineHeader = Timeouts.DEFAULT_DEADLINE_HEADER;
+
+  /**
+   * The circuit breaker of all api clients.
+   */
+  private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+
+  /**
+   * The concurrency limiter of all api clients.
+   */
+  private ConcurrencyLimiterProperties concurrencyLimiter = new ConcurrencyLimiterProperties();
+
+  /**
+   * The sizes of the buffers, that are used to read files and resources.
+   */
+  private BufferSizeProperties bufferSize = new BufferSizeProperties();
+
+  /**
+   * The circuit breaker properties.
+   */
+  @Data
+  public static class CircuitBreakerProperties {
+
+    /**
+     * Specifies whether the calls of all api clients are protected by a circuit breaker.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Specifies whether there is one circuit per api interface or per api method.
+     */
+    private CircuitBreaker.Scope scope = CircuitBreaker.Scope.METHOD;
+
+    /**
+     * The number of the latest calls, that are recorded.
+     */
+    private int slidingWindowSize = CircuitBreaker.DEFAULT_SLIDING_WINDOW_SIZE;
+
+    /**
+     * The minimum number of recorded calls, that are needed to open a circuit.
+     */
+    private int minimumCalls = CircuitBreaker.DEFAULT_MINIMUM_CALLS;
+
+    /**
+     * The failure rate in percent, that opens a circuit.
+     */
+    private int failureRateThreshold = CircuitBreaker.DEFAULT_FAILURE_RATE_THRESHOLD;
+
+    /**
+     * The slow call rate in percent, that opens a circuit.
+     */
+    private int slowCallRateThreshold = CircuitBreaker.DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+
+    /**
+     * The duration, from which on a call is slow.
+     */
+    private Duration slowCallDuration = CircuitBreaker.DEFAULT_SLOW_CALL_DURATION;
+
+    /**
+     * The duration, a circuit stays open, before it lets probes through.
+     */
+    private Duration openDuration = CircuitBreaker.DEFAULT_OPEN_DURATION;
+
+    /**
+     * The number of calls, that are let through in the half open state.
+     */
+    private int halfOpenProbes = CircuitBreaker.DEFAULT_HALF_OPEN_PROBES;
+
+  }
+
+  /**
+   * The concurrency limiter properties.
+   */
+  @Data
+  public static class ConcurrencyLimiterProperties {
+
+    /**
+     * Specifies whether the requests of all api clients are gated by an adaptive concurrency
+     * limit.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Specifies whether there is one limit for all api clients, per api interface or per
+     * endpoint.
+     */
+    private ConcurrencyLimiter.Scope scope = ConcurrencyLimiter.Scope.CLIENT;
+
+    /**
+     * The initial limit.
+     */
+    private int initialLimit = ConcurrencyLimiter.DEFAULT_INITIAL_LIMIT;
+
+    /**
+     * The minimum limit.
+     */
+    private int minLimit = ConcurrencyLimiter.DEFAULT_MIN_LIMIT;
+
+    /**
+     * The maximum limit.
+     */
+    private int maxLimit = ConcurrencyLimiter.DEFAULT_MAX_LIMIT;
+
+    /**
+     * The maximum number of calls, that wait for a permit.
+     */
+    private int maxQueueSize = ConcurrencyLimiter.DEFAULT_MAX_QUEUE_SIZE;
+
+    /**
+     * The maximum time, a call waits for a permit.
+     */
+    private Duration maxWait = ConcurrencyLimiter.DEFAULT_MAX_WAIT;
+
+  }
+
+  /**
+   * The buffer size properties.
+   */
+  @Data
+  public static class BufferSizeProperties {
+
+    /**
+     * The minimum buffer size.
+     */
+    private DataSize min = DataSize.ofBytes(AdaptiveBufferSizeStrategy.DEFAULT_MIN_BUFFER_SIZE);
+
+    /**
+     * The maximum buffer size.
+     */
+    private DataSize max = DataSize.ofBytes(AdaptiveBufferSizeStrategy.DEFAULT_MAX_BUFFER_SIZE);
+
+    /**
+     * The size of the socket send buffer. Content, that is larger, is read with buffers of this
+     * size (limited by the minimum and maximum buffer size).
+     */
+    private DataSize sendBuffer = DataSize
+        .ofBytes(AdaptiveBufferSizeStrategy.DEFAULT_SEND_BUFFER_SIZE);
+
+  }
+
+}
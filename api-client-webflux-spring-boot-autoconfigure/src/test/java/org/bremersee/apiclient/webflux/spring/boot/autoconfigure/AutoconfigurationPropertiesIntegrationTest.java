@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.spring.boot.autoconfigure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.CircuitBreaker;
+import org.bremersee.apiclient.webflux.ConcurrencyLimiter;
+import org.bremersee.apiclient.webflux.ReactiveApiClient;
+import org.bremersee.apiclient.webflux.contract.spring.BufferSizeStrategy;
+import org.bremersee.apiclient.webflux.contract.spring.multipart.PartBuilder;
+import org.bremersee.apiclient.webflux.spring.boot.autoconfigure.app.ControllerApi;
+import org.bremersee.apiclient.webflux.spring.boot.autoconfigure.app.TestConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * The autoconfiguration properties integration test.
+ *
+ * @author Christian Bremer
+ */
+@SpringBootTest(
+    classes = {TestConfiguration.class},
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "security.basic.enabled=false",
+        "bremersee.api-client.eager-validation=true",
+        "bremersee.api-client.warm-up-iterations=2",
+        "bremersee.api-client.circuit-breaker.enabled=true",
+        "bremersee.api-client.circuit-breaker.minimum-calls=5",
+        "bremersee.api-client.concurrency-limiter.enabled=true",
+        "bremersee.api-client.concurrency-limiter.scope=endpoint",
+        "bremersee.api-client.buffer-size.send-buffer=128KB"
+    })
+@ExtendWith(SoftAssertionsExtension.class)
+public class AutoconfigurationPropertiesIntegrationTest {
+
+  /**
+   * The Port.
+   */
+  @LocalServerPort
+  int port;
+
+  /**
+   * The Circuit breaker.
+   */
+  @Autowired
+  CircuitBreaker circuitBreaker;
+
+  /**
+   * The Concurrency limiter.
+   */
+  @Autowired
+  ConcurrencyLimiter concurrencyLimiter;
+
+  /**
+   * The Buffer size strategy.
+   */
+  @Autowired
+  BufferSizeStrategy bufferSizeStrategy;
+
+  /**
+   * The Part builder.
+   */
+  @Autowired
+  PartBuilder partBuilder;
+
+  /**
+   * The Reactive api client.
+   */
+  @Autowired
+  ReactiveApiClient reactiveApiClient;
+
+  /**
+   * Context.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void context(SoftAssertions softly) {
+    softly.assertThat(circuitBreaker).isNotNull();
+    softly.assertThat(concurrencyLimiter).isNotNull();
+    softly.assertThat(bufferSizeStrategy.getBufferSize(-1L)).isEqualTo(128 * 1024);
+    softly.assertThat(bufferSizeStrategy.getBufferSize(100L)).isEqualTo(1024);
+    softly.assertThat(partBuilder).isNotNull();
+  }
+
+  /**
+   * Post publisher with eager validation, circuit breaker and concurrency limiter.
+   */
+  @Test
+  void postPublisher() {
+    ControllerApi controllerApi = reactiveApiClient
+        .newInstance(ControllerApi.class, "http://localhost:" + port);
+    StepVerifier
+        .create(controllerApi.postPublisher(Mono.just("OK")))
+        .assertNext(response -> assertThat(response).contains("OK"))
+        .expectNextCount(0)
+        .verifyComplete();
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.bremersee.apiclient.webflux.spring.boot.autoconfigure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.ReactiveApiClient;
+import org.bremersee.apiclient.webflux.spring.boot.autoconfigure.app.GeneratedControllerApi;
+import org.bremersee.apiclient.webflux.spring.boot.autoconfigure.app.TestConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import reactor.test.StepVerifier;
+
+/**
+ * The generated api client integration test. The implementation of the api interface is
+ * generated by the annotation processor, when the tests are compiled.
+ *
+ * @author Christian Bremer
+ */
+@SpringBootTest(
+    classes = {TestConfiguration.class},
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"security.basic.enabled=false"})
+@ExtendWith(SoftAssertionsExtension.class)
+public class GeneratedApiClientIntegrationTest {
+
+  /**
+   * The Port.
+   */
+  @LocalServerPort
+  int port;
+
+  /**
+   * The Reactive api client.
+   */
+  @Autowired
+  ReactiveApiClient reactiveApiClient;
+
+  /**
+   * Generated api client is used with the autoconfigured contract.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void generatedApiClientIsUsed(SoftAssertions softly) {
+    GeneratedControllerApi api = reactiveApiClient
+        .newInstance(GeneratedControllerApi.class, "http://localhost:" + port);
+    softly.assertThat(Proxy.isProxyClass(api.getClass()))
+        .isFalse();
+    softly.assertThat(api.getClass().getName())
+        .isEqualTo(GeneratedControllerApi.class.getName() + "ReactiveApiClient");
+
+    StepVerifier.create(api.putStringValue("generated", "Hello"))
+        .assertNext(response -> assertThat(response)
+            .isEqualTo(Map.of("name", "generated", "payload", "Hello")))
+        .verifyComplete();
+  }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.spring.boot.autoconfigure.app;
+
+import java.util.Map;
+import org.bremersee.apiclient.webflux.GenerateApiClient;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import reactor.core.publisher.Mono;
+
+/**
+ * The controller api, whose implementation is generated at build time.
+ *
+ * @author Christian Bremer
+ */
+@GenerateApiClient
+@RequestMapping(path = "/api")
+public interface GeneratedControllerApi {
+
+  /**
+   * Put string value mono.
+   *
+   * @param name the name
+   * @param payload the payload
+   * @return the mono
+   */
+  @PutMapping(path = "/value/{name}",
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.TEXT_PLAIN_VALUE)
+  Mono<Map<String, Object>> putStringValue(
+      @PathVariable("name") String name,
+      @RequestBody String payload);
+
+}
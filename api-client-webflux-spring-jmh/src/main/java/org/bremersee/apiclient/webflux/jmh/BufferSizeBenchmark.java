@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.jmh;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.bremersee.apiclient.webflux.contract.spring.AdaptiveBufferSizeStrategy;
+import org.bremersee.apiclient.webflux.contract.spring.BufferSizeStrategy;
+import org.bremersee.apiclient.webflux.contract.spring.multipart.PartBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.codec.multipart.Part;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The buffer size benchmark reads the content of a file part and of a resource part of a small,
+ * a medium and a multi-GB file with the fixed buffer size of 1 KiB, that was used before, and
+ * with the adaptive buffer size strategy. The files are sparse, so that the benchmark measures
+ * the costs of the buffers and of the reads and not the speed of the disk.
+ *
+ * @author Christian Bremer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BufferSizeBenchmark {
+
+  /**
+   * The size of the file in bytes: 16 KiB, 16 MiB and 4 GiB.
+   */
+  @Param({"16384", "16777216", "4294967296"})
+  public long fileSize;
+
+  /**
+   * The buffer size strategy.
+   */
+  @Param({"fixed", "adaptive"})
+  public String strategy;
+
+  /**
+   * The kind of the part.
+   */
+  @Param({"file", "resource"})
+  public String part;
+
+  private Path file;
+
+  private PartBuilder partBuilder;
+
+  private DataBufferFactory bufferFactory;
+
+  private Scheduler scheduler;
+
+  /**
+   * Creates the file and the part builder.
+   *
+   * @throws IOException if the file cannot be created
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    file = Files.createTempFile("part", ".bin");
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+      randomAccessFile.setLength(fileSize);
+    }
+    partBuilder = new PartBuilder("fixed".equals(strategy)
+        ? BufferSizeStrategy.fixed(1024)
+        : new AdaptiveBufferSizeStrategy());
+    bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    scheduler = Schedulers.boundedElastic();
+  }
+
+  /**
+   * Deletes the file.
+   *
+   * @throws IOException if the file cannot be deleted
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * Reads the content of the part.
+   *
+   * @return the number of read bytes
+   */
+  @Benchmark
+  public Long read() {
+    return buildPart().content()
+        .map(buffer -> {
+          long count = buffer.readableByteCount();
+          DataBufferUtils.release(buffer);
+          return count;
+        })
+        .reduce(0L, Long::sum)
+        .block();
+  }
+
+  private Part buildPart() {
+    if ("file".equals(part)) {
+      return partBuilder.part("file", file)
+          .withScheduler(scheduler)
+          .withDataBufferFactory(bufferFactory)
+          .build();
+    }
+    return partBuilder.part("file", new FileSystemResource(file))
+        .withDataBufferFactory(bufferFactory)
+        .build();
+  }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.jmh;
+
+import org.bremersee.apiclient.webflux.GenerateApiClient;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CookieValue;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Mono;
+
+/**
+ * The example api of the invocation benchmark. Its implementation is generated at compile time,
+ * so that the generated api client can be compared with the proxy.
+ *
+ * @author Christian Bremer
+ */
+@GenerateApiClient
+@RequestMapping(path = "/api")
+public interface ExampleApi {
+
+  /**
+   * Gets an example.
+   *
+   * @param tenant the tenant
+   * @param id the id
+   * @param query the query
+   * @param page the page
+   * @param requestId the request id
+   * @param session the session
+   * @return the example
+   */
+  @GetMapping(path = "/tenants/{tenant}/examples/{id}", produces = MediaType.TEXT_PLAIN_VALUE)
+  Mono<String> getExample(
+      @PathVariable("tenant") String tenant,
+      @PathVariable("id") String id,
+      @RequestParam(name = "q") String query,
+      @RequestParam(name = "page") Integer page,
+      @RequestHeader(name = "X-Request-Id") String requestId,
+      @CookieValue(name = "session") String session);
+
+}
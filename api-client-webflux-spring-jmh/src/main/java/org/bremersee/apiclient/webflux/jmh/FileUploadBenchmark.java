@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.jmh;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.bremersee.apiclient.webflux.ReactiveApiClient;
+import org.bremersee.apiclient.webflux.contract.RequestBodyInserterRegistry;
+import org.bremersee.apiclient.webflux.contract.spring.ReactiveSpringContract;
+import org.bremersee.apiclient.webflux.contract.spring.ResourceInserter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * The file upload benchmark uploads a file to a local netty server, that counts the received
+ * bytes, once with zero-copy and once with buffers, that are read from the file (as it is done
+ * with https). The throughput in bytes per second is the score multiplied with the file size.
+ *
+ * @author Christian Bremer
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileUploadBenchmark {
+
+  /**
+   * The size of the file in bytes.
+   */
+  @Param({"1048576", "67108864"})
+  public long fileSize;
+
+  /**
+   * Specifies whether the file is sent with zero-copy.
+   */
+  @Param({"true", "false"})
+  public boolean zeroCopy;
+
+  private Path file;
+
+  private DisposableServer server;
+
+  private UploadApi api;
+
+  /**
+   * Creates the file, starts the server and creates the api client.
+   *
+   * @throws IOException if the file cannot be created
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    file = Files.createTempFile("upload", ".bin");
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+      byte[] bytes = new byte[64 * 1024];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) i;
+      }
+      for (long written = 0L; written < fileSize; written += bytes.length) {
+        randomAccessFile.write(bytes, 0, (int) Math.min(bytes.length, fileSize - written));
+      }
+    }
+    server = HttpServer.create()
+        .host("localhost")
+        .port(0)
+        .handle((request, response) -> response
+            .header("Content-Type", MediaType.TEXT_PLAIN_VALUE)
+            .sendString(request.receive()
+                .map(buffer -> (long) buffer.readableBytes())
+                .reduce(0L, Long::sum)
+                .map(String::valueOf)))
+        .bindNow();
+    ReactiveSpringContract contract = new ReactiveSpringContract(
+        null,
+        null,
+        RequestBodyInserterRegistry.builder()
+            .addRequestBodyInserters(new ResourceInserter().withZeroCopy(zeroCopy))
+            .build());
+    api = new ReactiveApiClient(WebClient.builder(), contract)
+        .newInstance(UploadApi.class, "http://localhost:" + server.port());
+    String received = upload();
+    if (Long.parseLong(received) != fileSize) {
+      throw new IllegalStateException("The server received " + received + " bytes.");
+    }
+  }
+
+  /**
+   * Stops the server and deletes the file.
+   *
+   * @throws IOException if the file cannot be deleted
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    server.disposeNow();
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * Uploads the file.
+   *
+   * @return the number of received bytes
+   */
+  @Benchmark
+  public String upload() {
+    return api.upload(file).block();
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.bremersee.apiclient.webflux.ReactiveApiClient;
+import org.bremersee.apiclient.webflux.contract.spring.ReactiveSpringContract;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * The invocation benchmark measures the hot path of an api client: the binding of the arguments
+ * of a method with six parameters, the creation of the request and the decoding of the response.
+ * The web client answers without network, so only the costs of the api client and of the web
+ * client are measured. The proxy is compared with the implementation, that is generated at
+ * compile time, and a call, whose response is subscribed, with a call, whose response is never
+ * subscribed.
+ *
+ * <p>The allocations per call are shown with the gc profiler:
+ * <pre>
+ * java -jar target/benchmarks.jar InvocationBenchmark -prof gc
+ * </pre>
+ *
+ * @author Christian Bremer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvocationBenchmark {
+
+  private static final String BASE_URL = "http://localhost";
+
+  private ExampleApi proxy;
+
+  private ExampleApi generated;
+
+  /**
+   * Creates the api clients.
+   */
+  @Setup
+  public void setUp() {
+    WebClient.Builder webClientBuilder = WebClient.builder()
+        .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+            .body("value")
+            .build()));
+    ReactiveSpringContract contract = new ReactiveSpringContract();
+    proxy = ReactiveApiClient.builder()
+        .webClient(webClientBuilder.clone().baseUrl(BASE_URL).build())
+        .contract(contract)
+        .build(ExampleApi.class);
+    generated = new ReactiveApiClient(webClientBuilder, contract)
+        .newInstance(ExampleApi.class, BASE_URL);
+    if (generated.getClass() != ExampleApiReactiveApiClient.class) {
+      throw new IllegalStateException("The generated api client is not used.");
+    }
+  }
+
+  /**
+   * Calls the proxy and subscribes the response.
+   *
+   * @return the response
+   */
+  @Benchmark
+  public String proxy() {
+    return call(proxy).block();
+  }
+
+  /**
+   * Calls the generated api client and subscribes the response.
+   *
+   * @return the response
+   */
+  @Benchmark
+  public String generated() {
+    return call(generated).block();
+  }
+
+  /**
+   * Calls the proxy without subscribing the response.
+   *
+   * @return the response publisher
+   */
+  @Benchmark
+  public Mono<String> proxyWithoutSubscription() {
+    return call(proxy);
+  }
+
+  /**
+   * Calls the generated api client without subscribing the response.
+   *
+   * @return the response publisher
+   */
+  @Benchmark
+  public Mono<String> generatedWithoutSubscription() {
+    return call(generated);
+  }
+
+  private static Mono<String> call(ExampleApi api) {
+    return api.getExample("tenant", "4711", "name:value", 3, "request-id", "session-id");
+  }
+
+}
@@ -0,0 +1,619 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * The api client source writer creates the source of the implementation of an api interface.
+ *
+ * <p>Supported are
+ * <ul>
+ *   <li>{@code RequestMapping} on the interface (the path),</li>
+ *   <li>{@code RequestMapping}, {@code GetMapping}, {@code PostMapping}, {@code PutMapping},
+ *   {@code PatchMapping} and {@code DeleteMapping} on the methods,</li>
+ *   <li>{@code PathVariable}, {@code RequestParam}, {@code RequestHeader}, {@code CookieValue}
+ *   and {@code RequestBody} on the parameters and</li>
+ *   <li>{@code Mono}, {@code Flux} and {@code Publisher} as return types.</li>
+ * </ul>
+ *
+ * <p>Everything else (like form data, multipart requests, parameters without annotation, generic
+ * methods, cached responses, coalesced, batched, hedged or retried requests) is rejected with
+ * an {@link UnsupportedOperationException}.
+ *
+ * <p>The generated methods create their requests on subscription and cancel the responses, when
+ * the deadline in the context of the subscriber expires.
+ *
+ * @author Christian Bremer
+ */
+class ApiClientSourceWriter {
+
+  /**
+   * The suffix of the generated class name.
+   */
+  static final String CLASS_NAME_SUFFIX = "ReactiveApiClient";
+
+  private static final String ANNOTATION_PACKAGE = "org.springframework.web.bind.annotation.";
+
+  private static final String REQUEST_MAPPING = ANNOTATION_PACKAGE + "RequestMapping";
+
+  private static final List<String> METHOD_MAPPINGS = List.of(
+      REQUEST_MAPPING,
+      ANNOTATION_PACKAGE + "GetMapping",
+      ANNOTATION_PACKAGE + "PostMapping",
+      ANNOTATION_PACKAGE + "PutMapping",
+      ANNOTATION_PACKAGE + "PatchMapping",
+      ANNOTATION_PACKAGE + "DeleteMapping");
+
+  private static final String PATH_VARIABLE = ANNOTATION_PACKAGE + "PathVariable";
+
+  private static final String REQUEST_PARAM = ANNOTATION_PACKAGE + "RequestParam";
+
+  private static final String REQUEST_HEADER = ANNOTATION_PACKAGE + "RequestHeader";
+
+  private static final String COOKIE_VALUE = ANNOTATION_PACKAGE + "CookieValue";
+
+  private static final String REQUEST_BODY = ANNOTATION_PACKAGE + "RequestBody";
+
+  private static final Set<String> OBJECT_METHODS = Set.of("equals", "hashCode", "toString");
+
+  private static final String CACHE_RESPONSE = "org.bremersee.apiclient.webflux.CacheResponse";
+
+  private static final String COALESCE_REQUESTS
+      = "org.bremersee.apiclient.webflux.CoalesceRequests";
+
+  private static final String BATCH_WITH = "org.bremersee.apiclient.webflux.BatchWith";
+
+  private static final String HEDGE = "org.bremersee.apiclient.webflux.Hedge";
+
+  private static final String RETRYABLE = "org.bremersee.apiclient.webflux.Retryable";
+
+  private static final String RATE_LIMIT = "org.bremersee.apiclient.webflux.RateLimit";
+
+  private static final String TIMEOUT = "org.bremersee.apiclient.webflux.Timeout";
+
+  private static final String SUPPORT = "org.bremersee.apiclient.webflux.GeneratedApiClientSupport";
+
+  private static final String MONO = "reactor.core.publisher.Mono";
+
+  private static final String FLUX = "reactor.core.publisher.Flux";
+
+  private static final String PUBLISHER = "org.reactivestreams.Publisher";
+
+  private static final String PARAMETERIZED_TYPE_REFERENCE
+      = "org.springframework.core.ParameterizedTypeReference";
+
+  private final Elements elements;
+
+  private final Types types;
+
+  private final TypeElement api;
+
+  private final StringBuilder constants = new StringBuilder();
+
+  private final StringBuilder methods = new StringBuilder();
+
+  private int constantIndex;
+
+  /**
+   * Instantiates a new api client source writer.
+   *
+   * @param processingEnv the processing environment
+   * @param api the api interface
+   */
+  ApiClientSourceWriter(ProcessingEnvironment processingEnv, TypeElement api) {
+    this.elements = processingEnv.getElementUtils();
+    this.types = processingEnv.getTypeUtils();
+    this.api = api;
+  }
+
+  /**
+   * Gets package name.
+   *
+   * @return the package name
+   */
+  String getPackageName() {
+    return elements.getPackageOf(api).getQualifiedName().toString();
+  }
+
+  /**
+   * Gets simple class name of the generated class. The names of enclosing classes are joined with
+   * an underscore (like {@code Outer_ApiReactiveApiClient}).
+   *
+   * @return the simple class name
+   */
+  String getSimpleClassName() {
+    List<String> names = new ArrayList<>();
+    Element element = api;
+    while (element instanceof TypeElement) {
+      names.add(element.getSimpleName().toString());
+      element = element.getEnclosingElement();
+    }
+    Collections.reverse(names);
+    return String.join("_", names) + CLASS_NAME_SUFFIX;
+  }
+
+  /**
+   * Gets qualified class name of the generated class.
+   *
+   * @return the qualified class name
+   */
+  String getQualifiedClassName() {
+    String packageName = getPackageName();
+    return packageName.isEmpty()
+        ? getSimpleClassName()
+        : packageName + "." + getSimpleClassName();
+  }
+
+  /**
+   * Creates the source of the implementation.
+   *
+   * @return the source
+   * @throws UnsupportedOperationException if the api interface cannot be implemented
+   */
+  String createSource() {
+    if (!api.getTypeParameters().isEmpty()) {
+      throw new UnsupportedOperationException("Generic interfaces are not supported.");
+    }
+    if (findAnnotation(api, CACHE_RESPONSE).isPresent()) {
+      throw new UnsupportedOperationException("Cached responses are not supported.");
+    }
+    if (findAnnotation(api, COALESCE_REQUESTS).isPresent()) {
+      throw new UnsupportedOperationException("Coalesced requests are not supported.");
+    }
+    if (findAnnotation(api, HEDGE).isPresent()) {
+      throw new UnsupportedOperationException("Hedged requests are not supported.");
+    }
+    if (findAnnotation(api, RETRYABLE).isPresent()) {
+      throw new UnsupportedOperationException("Retried requests are not supported.");
+    }
+    if (findAnnotation(api, RATE_LIMIT).isPresent()) {
+      throw new UnsupportedOperationException("Rate limited requests are not supported.");
+    }
+    if (findAnnotation(api, TIMEOUT).isPresent()) {
+      throw new UnsupportedOperationException("Timeouts are not supported.");
+    }
+    String classPath = findClassPath(api).orElse("");
+    for (Element member : elements.getAllMembers(api)) {
+      if (member.getKind() == ElementKind.METHOD
+          && member.getModifiers().contains(Modifier.ABSTRACT)
+          && !OBJECT_METHODS.contains(member.getSimpleName().toString())) {
+        appendMethod(classPath, (ExecutableElement) member);
+      }
+    }
+    String packageName = getPackageName();
+    String className = getSimpleClassName();
+    StringBuilder source = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    return source
+        .append("@javax.annotation.processing.Generated(\"")
+        .append(ReactiveApiClientProcessor.class.getName()).append("\")\n")
+        .append("public class ").append(className)
+        .append(" implements ").append(api.getQualifiedName()).append(" {\n\n")
+        .append(constants)
+        .append("  private final org.springframework.web.reactive.function.client.WebClient")
+        .append(" webClient;\n\n")
+        .append("  private final org.bremersee.apiclient.webflux.ReactiveErrorHandler")
+        .append(" errorHandler;\n\n")
+        .append("  public ").append(className).append("(\n")
+        .append("      org.springframework.web.reactive.function.client.WebClient webClient,\n")
+        .append("      org.bremersee.apiclient.webflux.ReactiveErrorHandler errorHandler) {\n")
+        .append("    this.webClient = webClient;\n")
+        .append("    this.errorHandler = errorHandler;\n")
+        .append("  }\n")
+        .append(methods)
+        .append("\n  @Override\n")
+        .append("  public String toString() {\n")
+        .append("    return \"Generated reactive api client of ")
+        .append(api.getQualifiedName()).append("\";\n")
+        .append("  }\n\n")
+        .append("}\n")
+        .toString();
+  }
+
+  private Optional<String> findClassPath(TypeElement type) {
+    Optional<String> path = findAnnotation(type, REQUEST_MAPPING)
+        .map(mapping -> getStrings(mapping, "value", "path"))
+        .filter(values -> !values.isEmpty())
+        .map(values -> values.get(0));
+    if (path.isPresent()) {
+      return path;
+    }
+    for (TypeMirror superType : type.getInterfaces()) {
+      Element element = types.asElement(superType);
+      if (element instanceof TypeElement) {
+        path = findClassPath((TypeElement) element);
+        if (path.isPresent()) {
+          return path;
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
+  private void appendMethod(String classPath, ExecutableElement method) {
+    String methodName = method.getSimpleName().toString();
+    if (!method.getTypeParameters().isEmpty()) {
+      throw unsupported(methodName, "Generic methods are not supported.");
+    }
+    if (findAnnotation(method, CACHE_RESPONSE).isPresent()) {
+      throw unsupported(methodName, "Cached responses are not supported.");
+    }
+    if (findAnnotation(method, COALESCE_REQUESTS).isPresent()) {
+      throw unsupported(methodName, "Coalesced requests are not supported.");
+    }
+    if (findAnnotation(method, BATCH_WITH).isPresent()) {
+      throw unsupported(methodName, "Batched requests are not supported.");
+    }
+    if (findAnnotation(method, HEDGE).isPresent()) {
+      throw unsupported(methodName, "Hedged requests are not supported.");
+    }
+    if (findAnnotation(method, RETRYABLE).isPresent()) {
+      throw unsupported(methodName, "Retried requests are not supported.");
+    }
+    if (findAnnotation(method, RATE_LIMIT).isPresent()) {
+      throw unsupported(methodName, "Rate limited requests are not supported.");
+    }
+    if (findAnnotation(method, TIMEOUT).isPresent()) {
+      throw unsupported(methodName, "Timeouts are not supported.");
+    }
+    ExecutableType methodType = (ExecutableType) types
+        .asMemberOf((DeclaredType) api.asType(), method);
+    List<AnnotationMirror> mappings = METHOD_MAPPINGS.stream()
+        .map(name -> findAnnotation(method, name))
+        .flatMap(Optional::stream)
+        .collect(Collectors.toList());
+    String httpMethod = mappings.stream()
+        .map(this::getHttpMethod)
+        .flatMap(Optional::stream)
+        .findFirst()
+        .orElseThrow(() -> unsupported(methodName, "There is no request mapping."));
+    String path = classPath + getFirstStrings(mappings, "value", "path").stream()
+        .findFirst()
+        .orElse("");
+    List<String> consumes = getFirstStrings(mappings, "consumes");
+    if (consumes.stream().anyMatch(value -> value.startsWith("multipart/")
+        || value.startsWith("application/x-www-form-urlencoded"))) {
+      throw unsupported(methodName, "Form data and multipart requests are not supported.");
+    }
+    List<String> produces = getFirstStrings(mappings, "produces");
+    String responseType = getResponseType(methodName, methodType.getReturnType());
+    String decoder = types.isSameType(
+        types.erasure(methodType.getReturnType()),
+        types.erasure(getType(MONO))) ? "bodyToMono" : "bodyToFlux";
+
+    StringBuilder signature = new StringBuilder();
+    StringBuilder queryParams = new StringBuilder();
+    List<String> uriVariables = new ArrayList<>();
+    StringBuilder headers = new StringBuilder();
+    StringBuilder cookies = new StringBuilder();
+    String body = null;
+    List<? extends VariableElement> parameters = method.getParameters();
+    for (int i = 0; i < parameters.size(); i++) {
+      VariableElement parameter = parameters.get(i);
+      TypeMirror parameterType = methodType.getParameterTypes().get(i);
+      String parameterName = parameter.getSimpleName().toString();
+      if (i > 0) {
+        signature.append(", ");
+      }
+      signature.append(parameterType).append(' ').append(parameterName);
+      Optional<AnnotationMirror> requestBody = findAnnotation(parameter, REQUEST_BODY);
+      if (requestBody.isPresent()) {
+        if (body != null) {
+          throw unsupported(methodName, "There is more than one request body.");
+        }
+        body = getBody(methodName, parameterName, parameterType);
+        continue;
+      }
+      if (isAssignable(parameterType, "java.util.Map")) {
+        throw unsupported(methodName, "Map parameters are not supported.");
+      }
+      Optional<AnnotationMirror> annotation = findAnnotation(parameter, PATH_VARIABLE);
+      if (annotation.isPresent()) {
+        uriVariables.add(literal(getName(annotation.get(), parameterName)));
+        uriVariables.add(parameterName);
+        continue;
+      }
+      annotation = findAnnotation(parameter, REQUEST_PARAM);
+      if (annotation.isPresent()) {
+        queryParams.append("\n              .queryParam(")
+            .append(literal(getName(annotation.get(), parameterName))).append(", ")
+            .append(SUPPORT).append(".toList(").append(parameterName).append(").toArray())");
+        continue;
+      }
+      annotation = findAnnotation(parameter, REQUEST_HEADER);
+      if (annotation.isPresent()) {
+        headers.append("            $headers.addAll(")
+            .append(literal(getName(annotation.get(), parameterName))).append(", ")
+            .append(SUPPORT).append(".toStringList(").append(parameterName).append("));\n");
+        continue;
+      }
+      annotation = findAnnotation(parameter, COOKIE_VALUE);
+      if (annotation.isPresent()) {
+        cookies.append("            $cookies.addAll(")
+            .append(literal(getName(annotation.get(), parameterName))).append(", ")
+            .append(SUPPORT).append(".toStringList(").append(parameterName).append("));\n");
+        continue;
+      }
+      throw unsupported(methodName, "Parameter " + parameterName + " has no supported annotation.");
+    }
+
+    String accept = addConstant("org.springframework.http.MediaType", "ACCEPT",
+        SUPPORT + ".accept(" + literals(produces) + ")");
+    String contentType = consumes.isEmpty()
+        ? null
+        : addConstant("org.springframework.http.MediaType", "CONTENT_TYPE",
+            SUPPORT + ".contentType(" + literals(consumes) + ")");
+    String wrapper = decoder.equals("bodyToMono") ? "mono" : "flux";
+    methods.append("\n  @Override\n")
+        .append("  public ").append(methodType.getReturnType()).append(' ').append(methodName)
+        .append('(').append(signature).append(") {\n")
+        .append("    return ").append(SUPPORT).append('.').append(wrapper).append("(() -> {\n")
+        .append("      org.springframework.web.reactive.function.client.WebClient")
+        .append(".RequestBodySpec $spec = this.webClient\n")
+        .append("          .method(org.springframework.http.HttpMethod.").append(httpMethod)
+        .append(")\n")
+        .append("          .uri($uriBuilder -> $uriBuilder\n")
+        .append("              .path(").append(literal(path)).append(')')
+        .append(queryParams).append('\n')
+        .append("              .build(").append(SUPPORT).append(".uriVariables(")
+        .append(String.join(", ", uriVariables)).append(")))\n")
+        .append("          .headers($headers -> {\n");
+    if (contentType != null) {
+      methods.append("            if (").append(contentType).append(" != null) {\n")
+          .append("              $headers.setContentType(").append(contentType).append(");\n")
+          .append("            }\n");
+    }
+    methods.append("            $headers.setAccept(java.util.List.of(").append(accept)
+        .append("));\n")
+        .append(headers)
+        .append("          })\n")
+        .append("          .cookies($cookies -> {\n")
+        .append(cookies)
+        .append("          });\n")
+        .append("      return ").append(SUPPORT).append(".retrieve(")
+        .append(body != null ? body : "$spec").append(", this.errorHandler)\n")
+        .append("          .").append(decoder).append('(').append(responseType).append(");\n")
+        .append("    });\n")
+        .append("  }\n");
+  }
+
+  private Optional<String> getHttpMethod(AnnotationMirror mapping) {
+    String annotationName = ((TypeElement) mapping.getAnnotationType().asElement())
+        .getQualifiedName().toString();
+    if (REQUEST_MAPPING.equals(annotationName)) {
+      return getValues(mapping, "method").stream()
+          .filter(value -> value instanceof VariableElement)
+          .map(value -> ((VariableElement) value).getSimpleName().toString())
+          .findFirst();
+    }
+    String simpleName = mapping.getAnnotationType().asElement().getSimpleName().toString();
+    return Optional.of(simpleName.substring(0, simpleName.length() - "Mapping".length())
+        .toUpperCase());
+  }
+
+  private String getResponseType(String methodName, TypeMirror returnType) {
+    TypeMirror erasure = types.erasure(returnType);
+    if (!types.isSameType(erasure, types.erasure(getType(MONO)))
+        && !types.isSameType(erasure, types.erasure(getType(FLUX)))
+        && !types.isSameType(erasure, types.erasure(getType(PUBLISHER)))) {
+      throw unsupported(methodName, "Response class must be Mono, Flux or Publisher.");
+    }
+    TypeMirror elementType = getElementType(methodName, returnType);
+    return addConstant(PARAMETERIZED_TYPE_REFERENCE + "<" + elementType + ">", "RESPONSE_TYPE",
+        "new " + PARAMETERIZED_TYPE_REFERENCE + "<" + elementType + ">() {\n  }");
+  }
+
+  private String getBody(String methodName, String parameterName, TypeMirror parameterType) {
+    if (!isAssignable(parameterType, PUBLISHER)) {
+      return SUPPORT + ".body($spec, " + parameterName + ")";
+    }
+    TypeMirror erasure = types.erasure(parameterType);
+    if (!types.isSameType(erasure, types.erasure(getType(MONO)))
+        && !types.isSameType(erasure, types.erasure(getType(FLUX)))
+        && !types.isSameType(erasure, types.erasure(getType(PUBLISHER)))) {
+      throw unsupported(methodName, "Request body must be Mono, Flux or Publisher.");
+    }
+    TypeMirror elementType = getElementType(methodName, parameterType);
+    if (parameterType instanceof DeclaredType
+        && ((DeclaredType) parameterType).getTypeArguments().get(0).getKind()
+        == TypeKind.WILDCARD) {
+      throw unsupported(methodName, "Wildcard request bodies are not supported.");
+    }
+    String bodyType = addConstant(PARAMETERIZED_TYPE_REFERENCE + "<" + elementType + ">",
+        "BODY_TYPE",
+        "new " + PARAMETERIZED_TYPE_REFERENCE + "<" + elementType + ">() {\n  }");
+    return SUPPORT + ".body($spec, " + parameterName + ", " + bodyType + ")";
+  }
+
+  private TypeMirror getElementType(String methodName, TypeMirror publisherType) {
+    List<? extends TypeMirror> typeArguments = publisherType instanceof DeclaredType
+        ? ((DeclaredType) publisherType).getTypeArguments()
+        : List.of();
+    if (typeArguments.isEmpty()) {
+      throw unsupported(methodName, "Raw publishers are not supported.");
+    }
+    TypeMirror elementType = typeArguments.get(0);
+    if (elementType.getKind() == TypeKind.WILDCARD) {
+      WildcardType wildcardType = (WildcardType) elementType;
+      if (wildcardType.getExtendsBound() != null) {
+        elementType = wildcardType.getExtendsBound();
+      } else if (wildcardType.getSuperBound() != null) {
+        elementType = wildcardType.getSuperBound();
+      } else {
+        elementType = getType("java.lang.Object");
+      }
+    }
+    if (containsTypeVariable(elementType)) {
+      throw unsupported(methodName, "Type variables are not supported.");
+    }
+    return elementType;
+  }
+
+  private boolean containsTypeVariable(TypeMirror type) {
+    if (type.getKind() == TypeKind.TYPEVAR) {
+      return true;
+    }
+    if (type.getKind() == TypeKind.ARRAY) {
+      return containsTypeVariable(((ArrayType) type).getComponentType());
+    }
+    if (type.getKind() == TypeKind.WILDCARD) {
+      WildcardType wildcardType = (WildcardType) type;
+      return (wildcardType.getExtendsBound() != null
+          && containsTypeVariable(wildcardType.getExtendsBound()))
+          || (wildcardType.getSuperBound() != null
+          && containsTypeVariable(wildcardType.getSuperBound()));
+    }
+    return type instanceof DeclaredType
+        && ((DeclaredType) type).getTypeArguments().stream()
+        .anyMatch(this::containsTypeVariable);
+  }
+
+  private String addConstant(String type, String prefix, String initializer) {
+    String name = prefix + "_" + constantIndex++;
+    constants.append("  private static final ").append(type).append(' ').append(name)
+        .append(" = ").append(initializer).append(";\n\n");
+    return name;
+  }
+
+  private boolean isAssignable(TypeMirror type, String qualifiedName) {
+    TypeMirror other = getType(qualifiedName);
+    return other != null && types.isAssignable(types.erasure(type), types.erasure(other));
+  }
+
+  private TypeMirror getType(String qualifiedName) {
+    TypeElement typeElement = elements.getTypeElement(qualifiedName);
+    return typeElement != null ? typeElement.asType() : null;
+  }
+
+  private UnsupportedOperationException unsupported(String methodName, String reason) {
+    return new UnsupportedOperationException("Method " + methodName + ": " + reason);
+  }
+
+  private static Optional<AnnotationMirror> findAnnotation(Element element, String name) {
+    return element.getAnnotationMirrors().stream()
+        .filter(mirror -> ((TypeElement) mirror.getAnnotationType().asElement())
+            .getQualifiedName().contentEquals(name))
+        .findFirst()
+        .map(mirror -> (AnnotationMirror) mirror);
+  }
+
+  private String getName(AnnotationMirror annotation, String parameterName) {
+    return getStrings(annotation, "value", "name").stream()
+        .filter(name -> !name.isBlank())
+        .findFirst()
+        .orElse(parameterName);
+  }
+
+  private List<String> getFirstStrings(List<AnnotationMirror> mappings, String... names) {
+    return mappings.stream()
+        .map(mapping -> getStrings(mapping, names))
+        .filter(values -> !values.isEmpty())
+        .findFirst()
+        .orElseGet(List::of);
+  }
+
+  /**
+   * Gets the strings of the first attribute with the given names, that is not empty. Spring's
+   * aliases (like {@code value} and {@code path}) are not resolved at compile time, so all of
+   * them must be given.
+   */
+  private List<String> getStrings(AnnotationMirror annotation, String... names) {
+    for (String name : names) {
+      List<String> values = getValues(annotation, name).stream()
+          .filter(value -> value instanceof String)
+          .map(value -> (String) value)
+          .filter(value -> !value.isEmpty())
+          .collect(Collectors.toList());
+      if (!values.isEmpty()) {
+        return values;
+      }
+    }
+    return List.of();
+  }
+
+  private List<Object> getValues(AnnotationMirror annotation, String name) {
+    Map<? extends ExecutableElement, ? extends AnnotationValue> values = elements
+        .getElementValuesWithDefaults(annotation);
+    return values.entrySet().stream()
+        .filter(entry -> entry.getKey().getSimpleName().contentEquals(name))
+        .map(entry -> entry.getValue().getValue())
+        .flatMap(value -> value instanceof List
+            ? ((List<?>) value).stream().map(v -> ((AnnotationValue) v).getValue())
+            : Stream.of(value))
+        .collect(Collectors.toList());
+  }
+
+  private static String literals(List<String> values) {
+    return values.stream()
+        .map(ApiClientSourceWriter::literal)
+        .collect(Collectors.joining(", "));
+  }
+
+  private static String literal(String value) {
+    StringBuilder sb = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      switch (c) {
+        case '"':
+          sb.append("\\\"");
+          break;
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+}
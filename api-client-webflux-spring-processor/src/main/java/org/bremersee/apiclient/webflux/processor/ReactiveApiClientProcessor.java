@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * The reactive api client processor generates an implementation of every api interface, that is
+ * annotated with {@code org.bremersee.apiclient.webflux.GenerateApiClient}. The generated class
+ * calls the web client directly, so no proxy and no reflection is needed at runtime. It is picked
+ * up by {@code ReactiveApiClient.newInstance(Class, String)}.
+ *
+ * <p>Only a subset of the spring web annotations is supported (see {@link ApiClientSourceWriter}).
+ * If an interface uses something else, no class is generated and a note is printed. Such an
+ * interface is still served by the proxy of the reactive api client.
+ *
+ * @author Christian Bremer
+ */
+public class ReactiveApiClientProcessor extends AbstractProcessor {
+
+  /**
+   * The name of the annotation, that marks the api interfaces.
+   */
+  static final String GENERATE_API_CLIENT = "org.bremersee.apiclient.webflux.GenerateApiClient";
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Set.of(GENERATE_API_CLIENT);
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() != ElementKind.INTERFACE) {
+          processingEnv.getMessager().printMessage(Kind.ERROR,
+              "Only interfaces can be annotated with " + GENERATE_API_CLIENT, element);
+        } else {
+          process((TypeElement) element);
+        }
+      }
+    }
+    return true;
+  }
+
+  private void process(TypeElement api) {
+    ApiClientSourceWriter sourceWriter = new ApiClientSourceWriter(processingEnv, api);
+    String source;
+    try {
+      source = sourceWriter.createSource();
+    } catch (UnsupportedOperationException e) {
+      processingEnv.getMessager().printMessage(Kind.NOTE,
+          "No api client is generated for " + api.getQualifiedName() + ": " + e.getMessage()
+              + " The proxy of the reactive api client will be used instead.",
+          api);
+      return;
+    }
+    try {
+      JavaFileObject file = processingEnv.getFiler()
+          .createSourceFile(sourceWriter.getQualifiedClassName(), api);
+      try (Writer writer = file.openWriter()) {
+        writer.write(source);
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Kind.ERROR,
+          "Writing api client of " + api.getQualifiedName() + " failed: " + e.getMessage(),
+          api);
+    }
+  }
+
+}
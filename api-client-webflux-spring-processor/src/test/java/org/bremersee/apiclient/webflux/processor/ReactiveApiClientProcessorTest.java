@@ -0,0 +1,232 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.ReactiveApiClient;
+import org.bremersee.apiclient.webflux.contract.spring.ReactiveSpringContract;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * The reactive api client processor test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class ReactiveApiClientProcessorTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10L);
+
+  private static final String SOURCE = String.join("\n",
+      "package example;",
+      "",
+      "import java.util.List;",
+      "import java.util.Map;",
+      "import org.bremersee.apiclient.webflux.GenerateApiClient;",
+      "import org.springframework.web.bind.annotation.*;",
+      "import reactor.core.publisher.Flux;",
+      "import reactor.core.publisher.Mono;",
+      "",
+      "public interface Apis {",
+      "",
+      "  @GenerateApiClient",
+      "  @RequestMapping(\"/api\")",
+      "  interface SupportedApi {",
+      "",
+      "    @GetMapping(path = \"/{id}\", produces = \"application/json\")",
+      "    Mono<Map<String, Object>> get(",
+      "        @PathVariable(\"id\") String id,",
+      "        @RequestParam(name = \"q\", required = false) List<String> q,",
+      "        @RequestHeader(\"X-Value\") String value);",
+      "",
+      "    @PostMapping(consumes = \"application/json\")",
+      "    Flux<String> post(@RequestBody Flux<String> body);",
+      "  }",
+      "",
+      "  @GenerateApiClient",
+      "  interface UnsupportedApi {",
+      "",
+      "    @PostMapping(consumes = \"multipart/form-data\")",
+      "    Mono<Void> upload(@RequestBody Object body);",
+      "  }",
+      "}",
+      "");
+
+  /**
+   * Compiles the source with the processor.
+   *
+   * @param tempDir the temp dir
+   * @param messages the messages of the compiler
+   * @return {@code true}, if the source was compiled
+   * @throws Exception the exception
+   */
+  private static boolean compile(Path tempDir, StringBuilder messages) throws Exception {
+    Path sourceDir = Files.createDirectories(tempDir.resolve("src").resolve("example"));
+    Path sourceFile = Files.writeString(sourceDir.resolve("Apis.java"), SOURCE);
+    Path generatedDir = Files.createDirectories(tempDir.resolve("generated"));
+    Path classesDir = Files.createDirectories(tempDir.resolve("classes"));
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    boolean result;
+    try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+      result = compiler.getTask(writer, null, null, List.of(
+              "-classpath", System.getProperty("java.class.path"),
+              "-processor", ReactiveApiClientProcessor.class.getName(),
+              "-s", generatedDir.toString(),
+              "-d", classesDir.toString()),
+          null,
+          compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)
+              .getJavaFileObjects(sourceFile))
+          .call();
+    }
+    messages.append(out.toString(StandardCharsets.UTF_8));
+    return result;
+  }
+
+  /**
+   * Process.
+   *
+   * @param softly the softly
+   * @param tempDir the temp dir
+   * @throws Exception the exception
+   */
+  @Test
+  void process(SoftAssertions softly, @TempDir Path tempDir) throws Exception {
+    StringBuilder messages = new StringBuilder();
+    boolean result = compile(tempDir, messages);
+    Path generatedDir = tempDir.resolve("generated");
+    Path classesDir = tempDir.resolve("classes");
+    softly.assertThat(result)
+        .as(messages.toString())
+        .isTrue();
+
+    Path generated = generatedDir.resolve("example")
+        .resolve("Apis_SupportedApiReactiveApiClient.java");
+    softly.assertThat(generated)
+        .exists();
+    softly.assertThat(classesDir.resolve("example")
+            .resolve("Apis_SupportedApiReactiveApiClient.class"))
+        .exists();
+    softly.assertThat(Files.readString(generated))
+        .contains("implements example.Apis.SupportedApi")
+        .contains(".path(\"/api/{id}\")")
+        .contains(".queryParam(\"q\"")
+        .contains("$headers.addAll(\"X-Value\"")
+        .contains("GeneratedApiClientSupport.mono(() -> {")
+        .contains("GeneratedApiClientSupport.flux(() -> {")
+        .contains(".bodyToMono(")
+        .contains(".bodyToFlux(");
+
+    softly.assertThat(generatedDir.resolve("example")
+            .resolve("Apis_UnsupportedApiReactiveApiClient.java"))
+        .doesNotExist();
+    softly.assertThat(messages.toString())
+        .contains("Form data and multipart requests are not supported.");
+  }
+
+  /**
+   * The generated api client sends its requests to a server.
+   *
+   * @param softly the softly
+   * @param tempDir the temp dir
+   * @throws Exception the exception
+   */
+  @Test
+  void generatedApiClientCallsServer(SoftAssertions softly, @TempDir Path tempDir)
+      throws Exception {
+
+    StringBuilder messages = new StringBuilder();
+    assertThat(compile(tempDir, messages))
+        .as(messages.toString())
+        .isTrue();
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    DisposableServer server = HttpServer.create()
+        .host("localhost")
+        .port(0)
+        .route(routes -> routes
+            .get("/api/{id}", (request, response) -> {
+              Map<String, Object> body = new LinkedHashMap<>();
+              body.put("id", request.param("id"));
+              body.put("q", UriComponentsBuilder.fromUriString(request.uri()).build()
+                  .getQueryParams().get("q"));
+              body.put("value", request.requestHeaders().get("X-Value"));
+              return response
+                  .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                  .sendString(Mono.fromCallable(() -> objectMapper.writeValueAsString(body)));
+            })
+            .post("/api", (request, response) -> response
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+                .send(request.receive().retain())))
+        .bindNow();
+    try (URLClassLoader classLoader = new URLClassLoader(
+        new URL[]{tempDir.resolve("classes").toUri().toURL()},
+        getClass().getClassLoader())) {
+
+      Class<?> apiClass = classLoader.loadClass("example.Apis$SupportedApi");
+      Object api = new ReactiveApiClient(WebClient.builder(), new ReactiveSpringContract())
+          .newInstance(apiClass, "http://localhost:" + server.port());
+      softly.assertThat(api.getClass().getName())
+          .isEqualTo("example.Apis_SupportedApiReactiveApiClient");
+
+      Mono<?> response = (Mono<?>) apiClass
+          .getMethod("get", String.class, List.class, String.class)
+          .invoke(api, "42", List.of("a", "b"), "v");
+      softly.assertThat(response.block(TIMEOUT))
+          .isEqualTo(Map.of("id", "42", "q", List.of("a", "b"), "value", "v"));
+
+      Flux<?> posted = (Flux<?>) apiClass
+          .getMethod("post", Flux.class)
+          .invoke(api, Flux.just("hello"));
+      softly.assertThat(posted.collectList().block(TIMEOUT))
+          .hasSize(1)
+          .allSatisfy(value -> assertThat(value.toString()).contains("hello"));
+    } finally {
+      server.disposeNow();
+    }
+  }
+
+}
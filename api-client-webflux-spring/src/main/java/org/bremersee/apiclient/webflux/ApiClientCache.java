@@ -0,0 +1,194 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.util.Assert;
+
+/**
+ * The api client cache keeps the api clients, that were created by the reactive api client, by
+ * api interface and base url. It is bounded: if there are more entries than the maximum size, the
+ * oldest entries are evicted. A maximum size of zero or less disables the cache.
+ *
+ * <p>The counts of hits, misses and evictions are recorded, so that the effect of the cache can
+ * be monitored.
+ *
+ * @author Christian Bremer
+ */
+public class ApiClientCache {
+
+  /**
+   * The default maximum size.
+   */
+  public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+  private final int maximumSize;
+
+  private final ConcurrentMap<Key, Object> instances = new ConcurrentHashMap<>();
+
+  private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+
+  private final LongAdder hitCount = new LongAdder();
+
+  private final LongAdder missCount = new LongAdder();
+
+  private final LongAdder evictionCount = new LongAdder();
+
+  /**
+   * Instantiates a new api client cache with the default maximum size.
+   */
+  public ApiClientCache() {
+    this(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Instantiates a new api client cache.
+   *
+   * @param maximumSize the maximum size (zero or less disables the cache)
+   */
+  public ApiClientCache(int maximumSize) {
+    this.maximumSize = Math.max(maximumSize, 0);
+  }
+
+  /**
+   * Gets the api client of the given interface and base url. If it is not cached, it will be
+   * created with the given factory.
+   *
+   * @param <T> the api interface type
+   * @param target the api interface
+   * @param baseUrl the base url
+   * @param factory the factory
+   * @return the api client
+   */
+  public <T> T get(Class<T> target, String baseUrl, Supplier<T> factory) {
+    Assert.notNull(target, "Target must be present.");
+    Assert.notNull(factory, "Factory must be present.");
+    if (maximumSize == 0) {
+      missCount.increment();
+      return factory.get();
+    }
+    Key key = new Key(target, baseUrl);
+    Object instance = instances.get(key);
+    if (nonNull(instance)) {
+      hitCount.increment();
+      return target.cast(instance);
+    }
+    instance = instances.computeIfAbsent(key, k -> {
+      missCount.increment();
+      insertionOrder.add(k);
+      return factory.get();
+    });
+    evict();
+    return target.cast(instance);
+  }
+
+  private void evict() {
+    while (instances.size() > maximumSize) {
+      Key eldest = insertionOrder.poll();
+      if (isNull(eldest)) {
+        return;
+      }
+      if (nonNull(instances.remove(eldest))) {
+        evictionCount.increment();
+      }
+    }
+  }
+
+  /**
+   * Removes all entries.
+   */
+  public void clear() {
+    instances.clear();
+    insertionOrder.clear();
+  }
+
+  /**
+   * Gets the maximum size.
+   *
+   * @return the maximum size
+   */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * Gets the number of cached api clients.
+   *
+   * @return the size
+   */
+  public int size() {
+    return instances.size();
+  }
+
+  /**
+   * Gets the number of calls, that returned a cached api client.
+   *
+   * @return the hit count
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Gets the number of calls, that created a new api client.
+   *
+   * @return the miss count
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Gets the number of evicted api clients.
+   *
+   * @return the eviction count
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ApiClientCache{"
+        + "maximumSize=" + maximumSize
+        + ", size=" + size()
+        + ", hitCount=" + getHitCount()
+        + ", missCount=" + getMissCount()
+        + ", evictionCount=" + getEvictionCount()
+        + '}';
+  }
+
+  @EqualsAndHashCode
+  @RequiredArgsConstructor
+  private static final class Key {
+
+    private final Class<?> target;
+
+    private final String baseUrl;
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a parameter of an api method, whose value ({@link String} or {@link java.net.URI})
+ * replaces the base url of the api client for this one invocation. So one api client can call
+ * many hosts, that serve the same api, without building a web client per host. If the value is
+ * {@code null} or empty, the base url of the api client is used.
+ *
+ * <pre>
+ * &#64;GetMapping("/shards/{id}")
+ * Mono&lt;Shard&gt; getShard(&#64;BaseUrl String host, &#64;PathVariable("id") String id);
+ * </pre>
+ *
+ * <p>Without such a parameter the base url can also be given in the context of the subscriber
+ * under the key {@link #CONTEXT_KEY}:
+ *
+ * <pre>
+ * api.getShard("1234").contextWrite(Context.of(BaseUrl.CONTEXT_KEY, "http://shard-7:8080"));
+ * </pre>
+ *
+ * @author Christian Bremer
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BaseUrl {
+
+  /**
+   * The key of the base url in the context of the subscriber.
+   */
+  String CONTEXT_KEY = "org.bremersee.apiclient.webflux.BaseUrl";
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ReflectionUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * The batch policy of a single item method (see {@link BatchWith}). It is resolved once per
+ * method plan.
+ *
+ * @author Christian Bremer
+ */
+final class BatchPolicy {
+
+  /**
+   * The policy of methods, that are not batched.
+   */
+  static final BatchPolicy DISABLED = new BatchPolicy(null, null, ResultType.ITEMS);
+
+  private final BatchWith annotation;
+
+  private final MethodPlan bulkMethodPlan;
+
+  private final ResultType resultType;
+
+  private BatchPolicy(BatchWith annotation, MethodPlan bulkMethodPlan, ResultType resultType) {
+    this.annotation = annotation;
+    this.bulkMethodPlan = bulkMethodPlan;
+    this.resultType = resultType;
+  }
+
+  /**
+   * Resolves the batch policy of the given single item method.
+   *
+   * @param methodPlan the method plan of the single item method
+   * @param methodPlanResolver the resolver of the method plan of the bulk method
+   * @return the batch policy
+   * @throws IllegalStateException if there is no suitable bulk method
+   */
+  static BatchPolicy resolve(
+      MethodPlan methodPlan,
+      Function<Method, MethodPlan> methodPlanResolver) {
+
+    Method method = methodPlan.getMethod();
+    BatchWith annotation = AnnotationUtils.findAnnotation(method, BatchWith.class);
+    if (isNull(annotation)) {
+      return DISABLED;
+    }
+    int keyIndex = annotation.keyIndex();
+    if (!Mono.class.isAssignableFrom(method.getReturnType())
+        || keyIndex < 0
+        || keyIndex >= method.getParameterCount()) {
+      throw new IllegalStateException(String.format(
+          "Method '%s' must return a mono and must have a key parameter at index %d.",
+          method.getName(), keyIndex));
+    }
+    Method bulkMethod = Arrays.stream(methodPlan.getTargetClass().getMethods())
+        .filter(candidate -> candidate.getName().equals(annotation.value()))
+        .filter(candidate -> candidate.getParameterCount() == method.getParameterCount())
+        .filter(candidate -> candidate.getParameterTypes()[keyIndex]
+            .isAssignableFrom(List.class))
+        .filter(candidate -> Publisher.class.isAssignableFrom(candidate.getReturnType()))
+        .findFirst()
+        .orElseThrow(() -> new IllegalStateException(String.format(
+            "There is no bulk method '%s' for method '%s', that has a list of keys at index %d.",
+            annotation.value(), method.getName(), keyIndex)));
+    ResultType resultType = ResultType.ITEMS;
+    if (Mono.class.isAssignableFrom(bulkMethod.getReturnType())) {
+      Class<?> bodyClass = ResolvableType.forMethodReturnType(bulkMethod).getGeneric(0).resolve();
+      if (nonNull(bodyClass) && Map.class.isAssignableFrom(bodyClass)) {
+        resultType = ResultType.MAP;
+      } else if (nonNull(bodyClass) && Collection.class.isAssignableFrom(bodyClass)) {
+        resultType = ResultType.COLLECTION;
+      }
+    }
+    return new BatchPolicy(annotation, methodPlanResolver.apply(bulkMethod), resultType);
+  }
+
+  /**
+   * Specifies whether the invocations of the method are batched.
+   *
+   * @return {@code true} if the invocations are batched, otherwise {@code false}
+   */
+  boolean isEnabled() {
+    return nonNull(annotation);
+  }
+
+  /**
+   * Gets the method plan of the bulk method.
+   *
+   * @return the method plan of the bulk method
+   */
+  MethodPlan getBulkMethodPlan() {
+    return bulkMethodPlan;
+  }
+
+  /**
+   * Gets the index of the key parameter.
+   *
+   * @return the key index
+   */
+  int getKeyIndex() {
+    return annotation.keyIndex();
+  }
+
+  /**
+   * Gets the window in milliseconds.
+   *
+   * @return the window
+   */
+  long getWindow() {
+    return Math.max(annotation.window(), 0L);
+  }
+
+  /**
+   * Gets the maximum number of keys of a bulk call.
+   *
+   * @return the maximum size
+   */
+  int getMaxSize() {
+    return Math.max(annotation.maxSize(), 1);
+  }
+
+  /**
+   * Creates the key of the batch of the given invocation.
+   *
+   * @param webClient the web client
+   * @param invocation the invocation
+   * @param contextBaseUrl the base url of the context
+   * @param contextValues the values of the context keys of the request batcher
+   * @return the batch key
+   */
+  RequestBatcher.Key createBatchKey(
+      Object webClient,
+      Invocation invocation,
+      Object contextBaseUrl,
+      List<Object> contextValues) {
+
+    List<Object> otherArgs = new ArrayList<>(Arrays.asList(invocation.getArgs()));
+    otherArgs.set(getKeyIndex(), null);
+    return new RequestBatcher.Key(
+        webClient,
+        invocation.getMethodPlan(),
+        otherArgs,
+        contextBaseUrl,
+        contextValues);
+  }
+
+  /**
+   * Creates the arguments of the bulk call.
+   *
+   * @param args the arguments of the single item invocation
+   * @param keys the keys
+   * @return the arguments of the bulk call
+   */
+  Object[] createBulkArgs(Object[] args, List<Object> keys) {
+    Object[] bulkArgs = args.clone();
+    bulkArgs[getKeyIndex()] = keys;
+    return bulkArgs;
+  }
+
+  /**
+   * Converts the response of the bulk method into a map of the items by key.
+   *
+   * @param response the response of the bulk method
+   * @param context the context of the bulk call
+   * @return the items by key
+   */
+  Mono<Map<?, ?>> toItemsByKey(Publisher<?> response, ContextView context) {
+    Mono<Map<?, ?>> itemsByKey;
+    switch (resultType) {
+      case MAP:
+        itemsByKey = Mono.from(response).map(map -> (Map<?, ?>) map);
+        break;
+      case COLLECTION:
+        itemsByKey = Mono.from(response)
+            .flatMapIterable(items -> (Collection<?>) items)
+            .filter(Objects::nonNull)
+            .collectMap(this::getKey)
+            .map(map -> map);
+        break;
+      default:
+        itemsByKey = Flux.from(response)
+            .collectMap(this::getKey)
+            .map(map -> map);
+    }
+    return itemsByKey.contextWrite(context);
+  }
+
+  private Object getKey(Object item) {
+    PropertyDescriptor descriptor = BeanUtils
+        .getPropertyDescriptor(item.getClass(), annotation.keyProperty());
+    if (isNull(descriptor) || isNull(descriptor.getReadMethod())) {
+      throw new IllegalStateException(String.format(
+          "Item class '%s' has no readable property '%s'.",
+          item.getClass().getName(), annotation.keyProperty()));
+    }
+    return ReflectionUtils.invokeMethod(descriptor.getReadMethod(), item);
+  }
+
+  private enum ResultType {
+    MAP,
+    COLLECTION,
+    ITEMS
+  }
+
+}
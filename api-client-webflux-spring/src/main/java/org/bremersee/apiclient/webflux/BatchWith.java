@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a single item method of an api interface, whose concurrent invocations are collected
+ * and sent as one call of a companion bulk method of the same interface (see
+ * {@link RequestBatcher}). The bulk method has the same parameters as the single item method,
+ * except that the parameter of the key is a collection (or list) of keys. It returns either a
+ * mono of a map (key to item), a mono of a collection of items or a flux of items. The items of a
+ * collection or flux are assigned to the keys by the property {@link #keyProperty()}. Keys are
+ * compared by their string values, so that a {@code Long} argument matches a {@code String}
+ * property.
+ *
+ * <pre>
+ * &#64;BatchWith(value = "getItems", keyProperty = "id", window = 5, maxSize = 50)
+ * &#64;GetMapping("/items/{id}")
+ * Mono&lt;Item&gt; getItem(&#64;PathVariable("id") String id);
+ *
+ * &#64;PostMapping("/items/batch")
+ * Flux&lt;Item&gt; getItems(&#64;RequestBody List&lt;String&gt; ids);
+ * </pre>
+ *
+ * <p>Only invocations with equal other arguments are collected into the same bulk call. The
+ * result of a key, for which the bulk method returns no item, is empty.
+ *
+ * @author Christian Bremer
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BatchWith {
+
+  /**
+   * The name of the bulk method.
+   *
+   * @return the name of the bulk method
+   */
+  String value();
+
+  /**
+   * The index of the parameter, that contains the key.
+   *
+   * @return the index of the key parameter
+   */
+  int keyIndex() default 0;
+
+  /**
+   * The name of the property of an item, that contains the key. It is not used, if the bulk
+   * method returns a map.
+   *
+   * @return the name of the key property
+   */
+  String keyProperty() default "id";
+
+  /**
+   * The number of milliseconds the invocations are collected before the bulk method is called.
+   *
+   * @return the window in milliseconds
+   */
+  long window() default 10L;
+
+  /**
+   * The maximum number of keys of a bulk call. If it is reached, the bulk method is called
+   * immediately.
+   *
+   * @return the maximum size
+   */
+  int maxSize() default 100;
+
+}
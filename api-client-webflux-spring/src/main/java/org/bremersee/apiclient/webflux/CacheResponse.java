@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET method of an api interface (or all GET methods of an api interface), whose decoded
+ * responses are kept in the {@link ResponseCache} of the api client. The response headers
+ * {@code Cache-Control} and {@code Expires} decide, how long a response is fresh. A stale response
+ * with an {@code ETag} or a {@code Last-Modified} header is revalidated with
+ * {@code If-None-Match} or {@code If-Modified-Since}.
+ *
+ * <pre>
+ * &#64;CacheResponse(defaultMaxAge = 60)
+ * &#64;GetMapping("/countries/{code}")
+ * Mono&lt;Country&gt; getCountry(&#64;PathVariable("code") String code);
+ * </pre>
+ *
+ * <p>If a response cache is set on the api client, the responses of all GET methods, that return
+ * a {@link reactor.core.publisher.Mono}, are cached without this annotation; then it can be used
+ * to exclude a method ({@code @CacheResponse(false)}). The responses of methods, that return a
+ * {@link reactor.core.publisher.Flux}, are only cached, if the method is annotated, because the
+ * whole stream is collected.
+ *
+ * <p><strong>A cached response is not copied:</strong> every caller, that gets it from the cache,
+ * gets the same decoded instance (or the same instances of the list of a flux), even if the
+ * response was revalidated with {@code 304 Not Modified}. So the response types of cached methods
+ * should be immutable or the callers must treat the returned values as read-only; a modification
+ * would be seen by all following callers until the response is evicted.
+ *
+ * @author Christian Bremer
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CacheResponse {
+
+  /**
+   * Specifies whether the responses are cached.
+   *
+   * @return {@code false} to exclude the method from the response cache
+   */
+  boolean value() default true;
+
+  /**
+   * The number of seconds a response is fresh, if it has neither a {@code Cache-Control} header
+   * with {@code max-age} nor an {@code Expires} header.
+   *
+   * @return the default max age in seconds
+   */
+  long defaultMaxAge() default 0L;
+
+}
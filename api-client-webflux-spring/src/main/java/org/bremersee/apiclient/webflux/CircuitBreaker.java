@@ -0,0 +1,572 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The circuit breaker stops sending requests to an upstream, that degrades, so that it neither
+ * exhausts the connection pool, that is shared with other api clients, nor gets more load. There
+ * is one circuit per api interface or per api method (see {@link Scope}).
+ *
+ * <p>A circuit records the outcomes of the latest calls in a sliding window. If the window has
+ * at least the minimum number of calls and the rate of the failed calls or of the slow calls
+ * reaches its threshold, the circuit opens: every call fails fast with a
+ * {@link CircuitBreakerOpenException} without sending a request. After the open duration the
+ * circuit is half open and lets the given number of probes through. If the rate of the failed
+ * or slow probes is below the failure rate threshold, the circuit closes again, otherwise it
+ * opens again.
+ *
+ * <p>A failure is by default a connect or request error, an expired deadline or a response with
+ * a status of 5xx. The circuits are lock-free; their counts are updated with atomic operations,
+ * so that they can be slightly inaccurate under contention. The settings should be made before
+ * the circuit breaker is used; the window size of an existing circuit does not change.
+ *
+ * @author Christian Bremer
+ */
+public class CircuitBreaker {
+
+  /**
+   * The default number of calls of the sliding window.
+   */
+  public static final int DEFAULT_SLIDING_WINDOW_SIZE = 100;
+
+  /**
+   * The default minimum number of calls, that are needed to open a circuit.
+   */
+  public static final int DEFAULT_MINIMUM_CALLS = 10;
+
+  /**
+   * The default failure rate threshold in percent.
+   */
+  public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+
+  /**
+   * The default slow call rate threshold in percent.
+   */
+  public static final int DEFAULT_SLOW_CALL_RATE_THRESHOLD = 100;
+
+  /**
+   * The default duration of a slow call.
+   */
+  public static final Duration DEFAULT_SLOW_CALL_DURATION = Duration.ofSeconds(2L);
+
+  /**
+   * The default duration of the open state.
+   */
+  public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30L);
+
+  /**
+   * The default number of probes in the half open state.
+   */
+  public static final int DEFAULT_HALF_OPEN_PROBES = 5;
+
+  private static final int RECORDED = 1;
+
+  private static final int FAILED = 2;
+
+  private static final int SLOW = 4;
+
+  private static final long HALF_OPENING = Long.MIN_VALUE;
+
+  private final Clock clock;
+
+  private final ConcurrentMap<Key, Circuit> circuits = new ConcurrentHashMap<>();
+
+  private Scope scope = Scope.METHOD;
+
+  private int slidingWindowSize = DEFAULT_SLIDING_WINDOW_SIZE;
+
+  private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+
+  private int failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+
+  private int slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+
+  private long slowCallNanos = DEFAULT_SLOW_CALL_DURATION.toNanos();
+
+  private long openMillis = DEFAULT_OPEN_DURATION.toMillis();
+
+  private int halfOpenProbes = DEFAULT_HALF_OPEN_PROBES;
+
+  private Predicate<Throwable> failurePredicate = LoadBalancer::isFailure;
+
+  /**
+   * Instantiates a new circuit breaker.
+   */
+  public CircuitBreaker() {
+    this(Clock.systemUTC());
+  }
+
+  /**
+   * Instantiates a new circuit breaker.
+   *
+   * @param clock the clock
+   */
+  CircuitBreaker(Clock clock) {
+    Assert.notNull(clock, "Clock must be present.");
+    this.clock = clock;
+  }
+
+  /**
+   * With scope.
+   *
+   * @param scope the scope of a circuit (default is {@link Scope#METHOD})
+   * @return the circuit breaker
+   */
+  public CircuitBreaker withScope(Scope scope) {
+    this.scope = isNull(scope) ? Scope.METHOD : scope;
+    return this;
+  }
+
+  /**
+   * With sliding window.
+   *
+   * @param slidingWindowSize the number of the latest calls, that are recorded (default is
+   *     {@value #DEFAULT_SLIDING_WINDOW_SIZE})
+   * @param minimumCalls the minimum number of recorded calls, that are needed to open a circuit
+   *     (default is {@value #DEFAULT_MINIMUM_CALLS})
+   * @return the circuit breaker
+   */
+  public CircuitBreaker withSlidingWindow(int slidingWindowSize, int minimumCalls) {
+    this.slidingWindowSize = Math.max(slidingWindowSize, 1);
+    this.minimumCalls = Math.min(Math.max(minimumCalls, 1), this.slidingWindowSize);
+    return this;
+  }
+
+  /**
+   * With failure rate threshold.
+   *
+   * @param failureRateThreshold the failure rate in percent, that opens a circuit (default is
+   *     {@value #DEFAULT_FAILURE_RATE_THRESHOLD})
+   * @return the circuit breaker
+   */
+  public CircuitBreaker withFailureRateThreshold(int failureRateThreshold) {
+    this.failureRateThreshold = Math.min(Math.max(failureRateThreshold, 1), 100);
+    return this;
+  }
+
+  /**
+   * With slow call rate threshold.
+   *
+   * @param slowCallRateThreshold the slow call rate in percent, that opens a circuit (default
+   *     is {@value #DEFAULT_SLOW_CALL_RATE_THRESHOLD})
+   * @param slowCallDuration the duration, from which on a call is slow (default is 2 seconds)
+   * @return the circuit breaker
+   */
+  public CircuitBreaker withSlowCallRateThreshold(
+      int slowCallRateThreshold,
+      Duration slowCallDuration) {
+
+    Assert.notNull(slowCallDuration, "Slow call duration must be present.");
+    this.slowCallRateThreshold = Math.min(Math.max(slowCallRateThreshold, 1), 100);
+    this.slowCallNanos = Math.max(slowCallDuration.toNanos(), 0L);
+    return this;
+  }
+
+  /**
+   * With open duration.
+   *
+   * @param openDuration the duration, a circuit stays open, before it lets probes through
+   *     (default is 30 seconds)
+   * @return the circuit breaker
+   */
+  public CircuitBreaker withOpenDuration(Duration openDuration) {
+    Assert.notNull(openDuration, "Open duration must be present.");
+    this.openMillis = Math.max(openDuration.toMillis(), 0L);
+    return this;
+  }
+
+  /**
+   * With half open probes.
+   *
+   * @param halfOpenProbes the number of calls, that are let through in the half open state
+   *     (default is {@value #DEFAULT_HALF_OPEN_PROBES})
+   * @return the circuit breaker
+   */
+  public CircuitBreaker withHalfOpenProbes(int halfOpenProbes) {
+    this.halfOpenProbes = Math.max(halfOpenProbes, 1);
+    return this;
+  }
+
+  /**
+   * With failure predicate. It decides whether an error counts as a failed call.
+   *
+   * @param failurePredicate the failure predicate
+   * @return the circuit breaker
+   */
+  public CircuitBreaker withFailurePredicate(Predicate<Throwable> failurePredicate) {
+    Assert.notNull(failurePredicate, "Failure predicate must be present.");
+    this.failurePredicate = failurePredicate;
+    return this;
+  }
+
+  /**
+   * Gets the circuit of the given api method. With {@link Scope#API} all methods of an api
+   * interface share one circuit.
+   *
+   * @param targetClass the api interface
+   * @param method the api method
+   * @return the circuit
+   */
+  public Circuit getCircuit(Class<?> targetClass, Method method) {
+    Assert.notNull(targetClass, "Target class must be present.");
+    Key key = new Key(targetClass, scope == Scope.METHOD ? method : null);
+    return circuits.computeIfAbsent(key, k -> new Circuit(
+        isNull(k.method)
+            ? targetClass.getName()
+            : targetClass.getName() + "#" + k.method.getName(),
+        slidingWindowSize));
+  }
+
+  /**
+   * Gets all circuits.
+   *
+   * @return the circuits
+   */
+  public Collection<Circuit> getCircuits() {
+    return Collections.unmodifiableCollection(circuits.values());
+  }
+
+  /**
+   * Sends the request with the given exchange function, if the given circuit permits it, and
+   * records its outcome.
+   *
+   * @param circuit the circuit
+   * @param mono specifies whether the response is a mono or a flux
+   * @param exchange the function, that sends the request
+   * @return the response or a {@link CircuitBreakerOpenException}
+   */
+  Publisher<?> protect(Circuit circuit, boolean mono, Supplier<? extends Publisher<?>> exchange) {
+    Assert.notNull(circuit, "Circuit must be present.");
+    Assert.notNull(exchange, "Exchange must be present.");
+    if (mono) {
+      return Mono.defer(() -> {
+        State permit = circuit.tryAcquire();
+        if (isNull(permit)) {
+          return Mono.error(new CircuitBreakerOpenException(circuit.getName()));
+        }
+        long start = System.nanoTime();
+        return Mono.defer(() -> Mono.<Object>from(exchange.get()))
+            .doOnSuccess(value -> circuit.onResult(permit, start, null))
+            .doOnError(error -> circuit.onResult(permit, start, error))
+            .doOnCancel(() -> circuit.onCancel(permit));
+      });
+    }
+    return Flux.defer(() -> {
+      State permit = circuit.tryAcquire();
+      if (isNull(permit)) {
+        return Flux.error(new CircuitBreakerOpenException(circuit.getName()));
+      }
+      long start = System.nanoTime();
+      return Flux.defer(() -> Flux.<Object>from(exchange.get()))
+          .doOnComplete(() -> circuit.onResult(permit, start, null))
+          .doOnError(error -> circuit.onResult(permit, start, error))
+          .doOnCancel(() -> circuit.onCancel(permit));
+    });
+  }
+
+  @Override
+  public String toString() {
+    return "CircuitBreaker{"
+        + "scope=" + scope
+        + ", circuits=" + circuits.values()
+        + '}';
+  }
+
+  /**
+   * The scope of a circuit.
+   */
+  public enum Scope {
+
+    /**
+     * All methods of an api interface share one circuit.
+     */
+    API,
+
+    /**
+     * Every method of an api interface has its own circuit.
+     */
+    METHOD
+  }
+
+  /**
+   * The state of a circuit.
+   */
+  public enum State {
+
+    /**
+     * All calls are permitted.
+     */
+    CLOSED,
+
+    /**
+     * All calls fail fast.
+     */
+    OPEN,
+
+    /**
+     * Only the probes are permitted.
+     */
+    HALF_OPEN
+  }
+
+  @EqualsAndHashCode
+  @RequiredArgsConstructor
+  private static final class Key {
+
+    private final Class<?> targetClass;
+
+    private final Method method;
+  }
+
+  /**
+   * A circuit of the circuit breaker.
+   */
+  public final class Circuit {
+
+    @Getter
+    private final String name;
+
+    private final AtomicIntegerArray outcomes;
+
+    private final AtomicLong nextIndex = new AtomicLong();
+
+    private final AtomicInteger callCount = new AtomicInteger();
+
+    private final AtomicInteger failureCount = new AtomicInteger();
+
+    private final AtomicInteger slowCallCount = new AtomicInteger();
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    private final AtomicInteger permittedProbes = new AtomicInteger();
+
+    private final AtomicInteger completedProbes = new AtomicInteger();
+
+    private final AtomicInteger failedProbes = new AtomicInteger();
+
+    private final LongAdder openedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final AtomicLong openedAt = new AtomicLong();
+
+    private Circuit(String name, int slidingWindowSize) {
+      this.name = name;
+      this.outcomes = new AtomicIntegerArray(slidingWindowSize);
+    }
+
+    /**
+     * Gets the state.
+     *
+     * @return the state
+     */
+    public State getState() {
+      return state.get();
+    }
+
+    /**
+     * Gets the failure rate of the sliding window in percent.
+     *
+     * @return the failure rate
+     */
+    public int getFailureRate() {
+      return rate(failureCount.get());
+    }
+
+    /**
+     * Gets the slow call rate of the sliding window in percent.
+     *
+     * @return the slow call rate
+     */
+    public int getSlowCallRate() {
+      return rate(slowCallCount.get());
+    }
+
+    /**
+     * Gets how many times the circuit was opened.
+     *
+     * @return the opened count
+     */
+    public long getOpenedCount() {
+      return openedCount.sum();
+    }
+
+    /**
+     * Gets the number of calls, that failed fast.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+      return rejectedCount.sum();
+    }
+
+    private int rate(int count) {
+      int calls = callCount.get();
+      return calls <= 0 ? 0 : (int) (Math.max(count, 0) * 100L / calls);
+    }
+
+    /**
+     * Tries to acquire a permit.
+     *
+     * @return the state, in which the permit was acquired, or {@code null}, if the call is not
+     *     permitted
+     */
+    State tryAcquire() {
+      State current = state.get();
+      if (current == State.OPEN) {
+        long opened = openedAt.get();
+        if (opened == HALF_OPENING || clock.millis() < opened + openMillis) {
+          rejectedCount.increment();
+          return null;
+        }
+        // Only the thread, that claims the transition, resets the probes and then publishes the
+        // half open state, so that no probe is counted in the probes of another half open state.
+        if (openedAt.compareAndSet(opened, HALF_OPENING)) {
+          permittedProbes.set(0);
+          completedProbes.set(0);
+          failedProbes.set(0);
+          state.set(State.HALF_OPEN);
+        }
+        current = state.get();
+      }
+      if (current == State.HALF_OPEN) {
+        if (permittedProbes.incrementAndGet() > halfOpenProbes) {
+          permittedProbes.decrementAndGet();
+          rejectedCount.increment();
+          return null;
+        }
+        return State.HALF_OPEN;
+      }
+      if (current == State.OPEN) {
+        rejectedCount.increment();
+        return null;
+      }
+      return State.CLOSED;
+    }
+
+    /**
+     * Records the outcome of a call.
+     *
+     * @param permit the state, in which the permit was acquired
+     * @param start the start time of the call in nanoseconds
+     * @param error the error of the call (can be {@code null})
+     */
+    void onResult(State permit, long start, Throwable error) {
+      boolean failed = nonNull(error) && failurePredicate.test(error);
+      boolean slow = System.nanoTime() - start >= slowCallNanos;
+      if (permit == State.HALF_OPEN) {
+        onProbeResult(failed || slow);
+      } else {
+        record(RECORDED | (failed ? FAILED : 0) | (slow ? SLOW : 0));
+      }
+    }
+
+    /**
+     * Releases the permit of a cancelled call.
+     *
+     * @param permit the state, in which the permit was acquired
+     */
+    void onCancel(State permit) {
+      if (permit == State.HALF_OPEN) {
+        permittedProbes.decrementAndGet();
+      }
+    }
+
+    private void record(int outcome) {
+      int index = (int) (nextIndex.getAndIncrement() % outcomes.length());
+      int previous = outcomes.getAndSet(index, outcome);
+      int calls = previous == 0 ? callCount.incrementAndGet() : callCount.get();
+      int failures = failureCount.addAndGet(flag(outcome, FAILED) - flag(previous, FAILED));
+      int slowCalls = slowCallCount.addAndGet(flag(outcome, SLOW) - flag(previous, SLOW));
+      if (calls >= minimumCalls
+          && (failures * 100L >= (long) failureRateThreshold * calls
+          || slowCalls * 100L >= (long) slowCallRateThreshold * calls)) {
+        open(State.CLOSED);
+      }
+    }
+
+    private int flag(int outcome, int flag) {
+      return (outcome & flag) == 0 ? 0 : 1;
+    }
+
+    private void onProbeResult(boolean failed) {
+      int failures = failed ? failedProbes.incrementAndGet() : failedProbes.get();
+      int completed = completedProbes.incrementAndGet();
+      if (completed < halfOpenProbes) {
+        return;
+      }
+      if (failures * 100L >= (long) failureRateThreshold * completed) {
+        open(State.HALF_OPEN);
+      } else if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+        for (int i = 0; i < outcomes.length(); i++) {
+          outcomes.set(i, 0);
+        }
+        callCount.set(0);
+        failureCount.set(0);
+        slowCallCount.set(0);
+      }
+    }
+
+    private void open(State expected) {
+      long now = clock.millis();
+      if (state.get() == expected) {
+        openedAt.set(now);
+        if (state.compareAndSet(expected, State.OPEN)) {
+          openedCount.increment();
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "Circuit{"
+          + "name=" + name
+          + ", state=" + getState()
+          + ", failureRate=" + getFailureRate()
+          + ", slowCallRate=" + getSlowCallRate()
+          + ", openedCount=" + getOpenedCount()
+          + ", rejectedCount=" + getRejectedCount()
+          + '}';
+    }
+  }
+
+}
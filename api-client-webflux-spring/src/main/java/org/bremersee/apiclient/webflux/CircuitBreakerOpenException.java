@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import lombok.Getter;
+
+/**
+ * The exception, that is returned instead of sending a request, while the circuit of an api or
+ * of an api method is open (see {@link CircuitBreaker}).
+ *
+ * @author Christian Bremer
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The name of the open circuit.
+   */
+  @Getter
+  private final String circuitName;
+
+  /**
+   * Instantiates a new circuit breaker open exception.
+   *
+   * @param circuitName the name of the open circuit
+   */
+  public CircuitBreakerOpenException(String circuitName) {
+    super(String.format("Circuit '%s' is open.", circuitName));
+    this.circuitName = circuitName;
+  }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET method of an api interface (or all GET methods of an api interface), whose
+ * concurrent invocations with equal arguments share one request (see {@link RequestCoalescer}).
+ * If a request coalescer is set on the api client, all GET methods are coalesced without this
+ * annotation; then it can be used to exclude a method ({@code @CoalesceRequests(false)}).
+ *
+ * @author Christian Bremer
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CoalesceRequests {
+
+  /**
+   * Specifies whether concurrent invocations with equal arguments share one request.
+   *
+   * @return {@code false} to exclude the method from coalescing
+   */
+  boolean value() default true;
+
+}
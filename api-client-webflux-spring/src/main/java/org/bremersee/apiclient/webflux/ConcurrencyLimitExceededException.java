@@ -0,0 +1,48 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import lombok.Getter;
+
+/**
+ * The exception, that is returned instead of sending a request, if the concurrency limit of an
+ * api client or of an endpoint is reached and the call could not wait for a permit (see {@link
+ * ConcurrencyLimiter}).
+ *
+ * @author Christian Bremer
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The name of the exceeded limit.
+   */
+  @Getter
+  private final String limitName;
+
+  /**
+   * Instantiates a new concurrency limit exceeded exception.
+   *
+   * @param limitName the name of the exceeded limit
+   */
+  public ConcurrencyLimitExceededException(String limitName) {
+    super(String.format("Concurrency limit '%s' is exceeded.", limitName));
+    this.limitName = limitName;
+  }
+
+}
@@ -0,0 +1,555 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.Getter;
+import org.reactivestreams.Publisher;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * The concurrency limiter gates how many requests may be in flight at the same time. The limit is
+ * not static, it adapts to the measured round trip times (RTT) with a gradient algorithm: as long
+ * as the latest RTT is not notably longer than the long term average RTT, the limit grows by the
+ * square root of itself; if the latest RTT rises, the gradient of both RTTs shrinks the limit, so
+ * that requests do not pile up in the queues of a slow upstream. A dropped call (a connect or
+ * request error, a timeout or a response with status 429 or 503) shrinks the limit by ten
+ * percent.
+ *
+ * <p>A call, that exceeds the limit, waits in a short queue for a permit. If the queue is full or
+ * the call waited longer than the maximum wait, it fails fast with a {@link
+ * ConcurrencyLimitExceededException}. There is one limit per reactive api client, per api
+ * interface or per endpoint (see {@link Scope}).
+ *
+ * <p>The settings should be made before the concurrency limiter is used; the settings of an
+ * existing limit do not change.
+ *
+ * @author Christian Bremer
+ */
+public class ConcurrencyLimiter {
+
+  /**
+   * The default initial limit.
+   */
+  public static final int DEFAULT_INITIAL_LIMIT = 20;
+
+  /**
+   * The default minimum limit.
+   */
+  public static final int DEFAULT_MIN_LIMIT = 1;
+
+  /**
+   * The default maximum limit.
+   */
+  public static final int DEFAULT_MAX_LIMIT = 200;
+
+  /**
+   * The default maximum number of calls, that wait for a permit.
+   */
+  public static final int DEFAULT_MAX_QUEUE_SIZE = 50;
+
+  /**
+   * The default maximum time, a call waits for a permit.
+   */
+  public static final Duration DEFAULT_MAX_WAIT = Duration.ofMillis(100L);
+
+  private static final String CLIENT_LIMIT_NAME = "client";
+
+  /**
+   * The number of samples, over which the long term RTT is averaged.
+   */
+  private static final int LONG_WINDOW = 600;
+
+  /**
+   * The latest RTT may exceed the long term RTT by this factor, before the limit shrinks.
+   */
+  private static final double TOLERANCE = 1.5;
+
+  /**
+   * The weight of a new limit; it smooths the changes of the limit.
+   */
+  private static final double SMOOTHING = 0.2;
+
+  /**
+   * The factor, by which a dropped call shrinks the limit.
+   */
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<>();
+
+  private Scope scope = Scope.CLIENT;
+
+  private int initialLimit = DEFAULT_INITIAL_LIMIT;
+
+  private int minLimit = DEFAULT_MIN_LIMIT;
+
+  private int maxLimit = DEFAULT_MAX_LIMIT;
+
+  private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+
+  private Duration maxWait = DEFAULT_MAX_WAIT;
+
+  private Predicate<Throwable> dropPredicate = ConcurrencyLimiter::isDropped;
+
+  /**
+   * With scope.
+   *
+   * @param scope the scope of a limit (default is {@link Scope#CLIENT})
+   * @return the concurrency limiter
+   */
+  public ConcurrencyLimiter withScope(Scope scope) {
+    this.scope = isNull(scope) ? Scope.CLIENT : scope;
+    return this;
+  }
+
+  /**
+   * With limit.
+   *
+   * @param initialLimit the initial limit (default is {@value #DEFAULT_INITIAL_LIMIT})
+   * @param minLimit the minimum limit (default is {@value #DEFAULT_MIN_LIMIT})
+   * @param maxLimit the maximum limit (default is {@value #DEFAULT_MAX_LIMIT})
+   * @return the concurrency limiter
+   */
+  public ConcurrencyLimiter withLimit(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = Math.max(minLimit, 1);
+    this.maxLimit = Math.max(maxLimit, this.minLimit);
+    this.initialLimit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+    return this;
+  }
+
+  /**
+   * With queue.
+   *
+   * @param maxQueueSize the maximum number of calls, that wait for a permit (default is {@value
+   *     #DEFAULT_MAX_QUEUE_SIZE}); zero rejects every call, that exceeds the limit
+   * @param maxWait the maximum time, a call waits for a permit (default is 100 milliseconds);
+   *     zero rejects every call, that exceeds the limit
+   * @return the concurrency limiter
+   */
+  public ConcurrencyLimiter withQueue(int maxQueueSize, Duration maxWait) {
+    Assert.notNull(maxWait, "Maximum wait must be present.");
+    this.maxQueueSize = Math.max(maxQueueSize, 0);
+    this.maxWait = maxWait.isNegative() ? Duration.ZERO : maxWait;
+    return this;
+  }
+
+  /**
+   * With drop predicate. It decides whether an error is a dropped call, that shrinks the limit.
+   *
+   * @param dropPredicate the drop predicate
+   * @return the concurrency limiter
+   */
+  public ConcurrencyLimiter withDropPredicate(Predicate<Throwable> dropPredicate) {
+    Assert.notNull(dropPredicate, "Drop predicate must be present.");
+    this.dropPredicate = dropPredicate;
+    return this;
+  }
+
+  /**
+   * Gets the limit of a request of the given api interface to the given uri.
+   *
+   * @param targetClass the api interface
+   * @param uri the request uri (can be {@code null})
+   * @return the limit
+   */
+  public Limit getLimit(Class<?> targetClass, URI uri) {
+    Assert.notNull(targetClass, "Target class must be present.");
+    String name;
+    if (scope == Scope.CLIENT) {
+      name = CLIENT_LIMIT_NAME;
+    } else if (scope == Scope.ENDPOINT && nonNull(uri) && nonNull(uri.getRawAuthority())) {
+      name = uri.getScheme() + "://" + uri.getRawAuthority();
+    } else {
+      name = targetClass.getName();
+    }
+    return limits.computeIfAbsent(name, Limit::new);
+  }
+
+  /**
+   * Gets all limits.
+   *
+   * @return the limits
+   */
+  public Collection<Limit> getLimits() {
+    return Collections.unmodifiableCollection(limits.values());
+  }
+
+  /**
+   * Sends the request with the given exchange function, when the given limit permits it. The
+   * round trip time is measured until the first signal of the response.
+   *
+   * @param limit the limit
+   * @param mono specifies whether the response is a mono or a flux
+   * @param exchange the function, that sends the request
+   * @return the response or a {@link ConcurrencyLimitExceededException}
+   */
+  Publisher<?> limit(Limit limit, boolean mono, Supplier<? extends Publisher<?>> exchange) {
+    Assert.notNull(limit, "Limit must be present.");
+    Assert.notNull(exchange, "Exchange must be present.");
+    if (mono) {
+      return limit.acquire().flatMap(permit -> Mono.defer(() -> Mono.<Object>from(exchange.get()))
+          .doOnSuccess(value -> permit.release(null))
+          .doOnError(permit::release)
+          .doOnCancel(permit::cancel));
+    }
+    return limit.acquire().flatMapMany(permit -> Flux.defer(() -> Flux.<Object>from(exchange.get()))
+        .doOnNext(value -> permit.sample(null))
+        .doOnComplete(() -> permit.release(null))
+        .doOnError(permit::release)
+        .doOnCancel(permit::cancel));
+  }
+
+  /**
+   * Determines whether the given error is a dropped call: a connect or request error, a timeout
+   * or a response with status 429 (too many requests) or 503 (service unavailable).
+   *
+   * @param error the error
+   * @return {@code true} if the call was dropped, otherwise {@code false}
+   */
+  static boolean isDropped(Throwable error) {
+    if (error instanceof WebClientResponseException) {
+      int status = ((WebClientResponseException) error).getRawStatusCode();
+      return status == 429 || status == 503;
+    }
+    return error instanceof WebClientRequestException || error instanceof TimeoutException;
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrencyLimiter{"
+        + "scope=" + scope
+        + ", limits=" + limits.values()
+        + '}';
+  }
+
+  /**
+   * The scope of a limit.
+   */
+  public enum Scope {
+
+    /**
+     * All api interfaces share one limit.
+     */
+    CLIENT,
+
+    /**
+     * Every api interface has its own limit.
+     */
+    API,
+
+    /**
+     * Every endpoint (scheme, host and port of the request uri) has its own limit.
+     */
+    ENDPOINT
+  }
+
+  /**
+   * A limit of the concurrency limiter.
+   */
+  public final class Limit {
+
+    @Getter
+    private final String name;
+
+    private final int minimum = minLimit;
+
+    private final int maximum = maxLimit;
+
+    private final int queueCapacity = maxQueueSize;
+
+    private final Duration queueTimeout = maxWait;
+
+    private final Predicate<Throwable> dropped = dropPredicate;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private volatile double limit = initialLimit;
+
+    private double longRtt;
+
+    private Limit(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+      return (int) limit;
+    }
+
+    /**
+     * Gets the number of requests in flight.
+     *
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+      return inFlight.get();
+    }
+
+    /**
+     * Gets the number of calls, that wait for a permit.
+     *
+     * @return the queue size
+     */
+    public int getQueueSize() {
+      return queued.get();
+    }
+
+    /**
+     * Gets the number of calls, that were rejected.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+      return rejectedCount.sum();
+    }
+
+    /**
+     * Gets the number of dropped calls, that shrank the limit.
+     *
+     * @return the dropped count
+     */
+    public long getDroppedCount() {
+      return droppedCount.sum();
+    }
+
+    /**
+     * Acquires a permit. If the limit is reached, the call waits in the queue.
+     *
+     * @return the permit or a {@link ConcurrencyLimitExceededException}
+     */
+    Mono<Permit> acquire() {
+      return Mono.defer(() -> {
+        if (waiters.isEmpty() && tryAcquire()) {
+          return Mono.just(new Permit(this));
+        }
+        if (queueCapacity <= 0 || queueTimeout.isZero()) {
+          return reject();
+        }
+        if (queued.incrementAndGet() > queueCapacity) {
+          queued.decrementAndGet();
+          return reject();
+        }
+        return Mono.<Permit>create(sink -> {
+          Waiter waiter = new Waiter(sink);
+          sink.onCancel(waiter::cancel);
+          waiters.offer(waiter);
+          drain();
+        }).timeout(queueTimeout, Mono.defer(this::reject));
+      });
+    }
+
+    private Mono<Permit> reject() {
+      rejectedCount.increment();
+      return Mono.error(new ConcurrencyLimitExceededException(name));
+    }
+
+    private boolean tryAcquire() {
+      for (;;) {
+        int current = inFlight.get();
+        if (current >= (int) limit) {
+          return false;
+        }
+        if (inFlight.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+
+    private void release() {
+      inFlight.decrementAndGet();
+      drain();
+    }
+
+    private void drain() {
+      while (!waiters.isEmpty() && tryAcquire()) {
+        Waiter waiter = waiters.poll();
+        if (nonNull(waiter)) {
+          queued.decrementAndGet();
+        }
+        if (nonNull(waiter) && waiter.grant()) {
+          waiter.sink.success(new Permit(this));
+        } else {
+          inFlight.decrementAndGet();
+        }
+      }
+    }
+
+    /**
+     * Adapts the limit to the given sample.
+     *
+     * @param rttNanos the round trip time in nanoseconds
+     * @param inFlightOnStart the number of requests in flight, when the request was sent
+     * @param drop specifies whether the call was dropped
+     */
+    synchronized void onSample(long rttNanos, int inFlightOnStart, boolean drop) {
+      double current = limit;
+      if (drop) {
+        droppedCount.increment();
+        limit = Math.max(minimum, current * BACKOFF_RATIO);
+        return;
+      }
+      double shortRtt = Math.max(rttNanos, 1L);
+      longRtt = longRtt <= 0.0
+          ? shortRtt
+          : longRtt + (shortRtt - longRtt) * 2.0 / (LONG_WINDOW + 1);
+      if (longRtt / shortRtt > 2.0) {
+        // the upstream got faster; let the long term rtt catch up
+        longRtt = longRtt * 0.95;
+      }
+      if (inFlightOnStart < current / 2.0) {
+        // the limit is not the bottleneck, so the rtt tells nothing about it
+        return;
+      }
+      double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+      double next = current * gradient + Math.sqrt(current);
+      next = current * (1.0 - SMOOTHING) + next * SMOOTHING;
+      limit = Math.max(minimum, Math.min(maximum, next));
+    }
+
+    @Override
+    public String toString() {
+      return "Limit{"
+          + "name=" + name
+          + ", limit=" + getLimit()
+          + ", inFlight=" + getInFlight()
+          + ", queueSize=" + getQueueSize()
+          + ", rejectedCount=" + getRejectedCount()
+          + ", droppedCount=" + getDroppedCount()
+          + '}';
+    }
+
+    private final class Waiter {
+
+      private static final int WAITING = 0;
+
+      private static final int GRANTED = 1;
+
+      private static final int CANCELLED = 2;
+
+      private final MonoSink<Permit> sink;
+
+      private final AtomicInteger state = new AtomicInteger(WAITING);
+
+      private Waiter(MonoSink<Permit> sink) {
+        this.sink = sink;
+      }
+
+      private boolean grant() {
+        return state.compareAndSet(WAITING, GRANTED);
+      }
+
+      private void cancel() {
+        if (state.compareAndSet(WAITING, CANCELLED)) {
+          if (waiters.remove(this)) {
+            queued.decrementAndGet();
+          }
+        } else if (state.get() == GRANTED) {
+          // the permit was granted, but the sink discards it
+          release();
+        }
+      }
+    }
+  }
+
+  /**
+   * A permit of a limit.
+   */
+  static final class Permit {
+
+    private final Limit limit;
+
+    private final long start = System.nanoTime();
+
+    private final int inFlightOnStart;
+
+    private final AtomicBoolean sampled = new AtomicBoolean();
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(Limit limit) {
+      this.limit = limit;
+      this.inFlightOnStart = limit.getInFlight();
+    }
+
+    /**
+     * Records the round trip time, if it is the first signal of the response.
+     *
+     * @param error the error of the call (can be {@code null})
+     */
+    void sample(Throwable error) {
+      if (sampled.compareAndSet(false, true)) {
+        limit.onSample(
+            System.nanoTime() - start,
+            inFlightOnStart,
+            nonNull(error) && limit.dropped.test(error));
+      }
+    }
+
+    /**
+     * Records the outcome of the call and releases the permit.
+     *
+     * @param error the error of the call (can be {@code null})
+     */
+    void release(Throwable error) {
+      sample(error);
+      cancel();
+    }
+
+    /**
+     * Releases the permit without recording the call.
+     */
+    void cancel() {
+      if (released.compareAndSet(false, true)) {
+        limit.release();
+      }
+    }
+  }
+
+}
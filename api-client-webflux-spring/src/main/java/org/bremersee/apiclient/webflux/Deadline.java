@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.springframework.util.Assert;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * The deadline of an invocation. It is given as {@link Instant} in the context of the subscriber
+ * under the key {@link #CONTEXT_KEY}:
+ *
+ * <pre>
+ * api.getOrder("1234").contextWrite(Deadline.after(Duration.ofMillis(300)));
+ * </pre>
+ *
+ * <p>The earlier one of the deadline and of the timeout of the method (see {@link Timeout} and
+ * {@link Timeouts}) applies: the exchange is cancelled, when it expires, and the remaining
+ * milliseconds are sent in a request header (see {@link Timeouts#withDeadlineHeader(String)}),
+ * so that the upstream can shed work, nobody waits for anymore. The implementations, that were
+ * generated at build time, cancel the response, too, but do not send the header.
+ *
+ * @author Christian Bremer
+ */
+public final class Deadline {
+
+  /**
+   * The key of the deadline in the context of the subscriber.
+   */
+  public static final String CONTEXT_KEY = "org.bremersee.apiclient.webflux.Deadline";
+
+  private Deadline() {
+  }
+
+  /**
+   * Creates a context with a deadline, that expires after the given timeout.
+   *
+   * @param timeout the timeout
+   * @return the context
+   */
+  public static Context after(Duration timeout) {
+    Assert.notNull(timeout, "Timeout must be present.");
+    return Context.of(CONTEXT_KEY, Instant.now().plus(timeout));
+  }
+
+  /**
+   * Gets the deadline of the given context.
+   *
+   * @param context the context
+   * @return the deadline (can be {@code null})
+   */
+  static Instant get(ContextView context) {
+    Object value = context.getOrDefault(CONTEXT_KEY, null);
+    return value instanceof Instant ? (Instant) value : null;
+  }
+
+  /**
+   * Gets the remaining time until the given deadline.
+   *
+   * @param deadline the deadline
+   * @return the remaining time (zero, if the deadline has expired)
+   */
+  static Duration remaining(Instant deadline) {
+    Duration remaining = Duration.between(Instant.now(), deadline);
+    return remaining.isNegative() ? Duration.ZERO : remaining;
+  }
+
+}
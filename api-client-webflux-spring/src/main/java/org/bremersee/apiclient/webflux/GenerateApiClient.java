@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an api interface, for which the annotation processor of the module
+ * {@code api-client-webflux-spring-processor} generates an implementation at build time. The
+ * generated class is named like the interface with the suffix {@code ReactiveApiClient} (the names
+ * of enclosing classes are joined with an underscore) and is preferred by
+ * {@link ReactiveApiClient#newInstance(Class, String)} over a proxy, if the reactive api client
+ * has the default contract and settings.
+ *
+ * <p>The generated implementation uses the web client with constant paths, http methods, media
+ * types and type references. It does not use the contract of the api client, but it creates the
+ * request on subscription and respects the {@link Deadline} of the subscriber. If the interface
+ * contains something the processor cannot generate (like pageable or multipart parameters), no
+ * implementation is generated and the proxy is used.
+ *
+ * @author Christian Bremer
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+@Documented
+public @interface GenerateApiClient {
+
+}
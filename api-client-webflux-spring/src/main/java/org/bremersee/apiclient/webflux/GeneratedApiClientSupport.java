@@ -0,0 +1,273 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.springframework.util.ObjectUtils.isArray;
+import static org.springframework.util.ObjectUtils.toObjectArray;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient.RequestBodySpec;
+import org.springframework.web.reactive.function.client.WebClient.RequestHeadersSpec;
+import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Helper methods, that are called by the implementations generated for api interfaces annotated
+ * with {@link GenerateApiClient}. They do the same as the resolvers and inserters of the reactive
+ * spring contract, but without reflection.
+ *
+ * @author Christian Bremer
+ */
+public abstract class GeneratedApiClientSupport {
+
+  private GeneratedApiClientSupport() {
+  }
+
+  /**
+   * Returns the first concrete media type of the given {@code consumes} values.
+   *
+   * @param consumes the consumes values of the mapping annotation
+   * @return the content type (can be {@code null})
+   */
+  public static MediaType contentType(String... consumes) {
+    for (String value : consumes) {
+      MediaType mediaType = parseMediaType(value);
+      if (nonNull(mediaType) && mediaType.isConcrete()) {
+        return mediaType;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the first media type of the given {@code produces} values or {@link MediaType#ALL}.
+   *
+   * @param produces the produces values of the mapping annotation
+   * @return the accepted media type
+   */
+  public static MediaType accept(String... produces) {
+    return produces.length > 0
+        ? Optional.ofNullable(parseMediaType(produces[0])).orElse(MediaType.ALL)
+        : MediaType.ALL;
+  }
+
+  private static MediaType parseMediaType(String mediaType) {
+    try {
+      return MediaType.parseMediaType(mediaType);
+    } catch (RuntimeException ignored) {
+      return null;
+    }
+  }
+
+  /**
+   * Creates the uri variables from the given names and values.
+   *
+   * @param namesAndValues the names and values (name, value, name, value, ...)
+   * @return the uri variables
+   */
+  public static Map<String, Object> uriVariables(Object... namesAndValues) {
+    Assert.isTrue(namesAndValues.length % 2 == 0, "Names and values must be pairs.");
+    Map<String, Object> uriVariables = new LinkedHashMap<>();
+    for (int i = 0; i < namesAndValues.length; i = i + 2) {
+      uriVariables.put(String.valueOf(namesAndValues[i]), toString(namesAndValues[i + 1]));
+    }
+    return uriVariables;
+  }
+
+  private static String toString(Object value) {
+    List<String> values = toStringList(value);
+    return values.isEmpty() ? null : values.get(0);
+  }
+
+  /**
+   * Converts the given value into a list. An array or a collection is converted into a list of
+   * its elements without {@code null} values.
+   *
+   * @param value the value
+   * @return the list
+   */
+  public static List<Object> toList(Object value) {
+    List<Object> list = new ArrayList<>();
+    if (isNull(value)) {
+      return list;
+    }
+    if (isArray(value)) {
+      for (Object element : toObjectArray(value)) {
+        if (nonNull(element)) {
+          list.add(element);
+        }
+      }
+      return list;
+    }
+    if (value instanceof Collection<?>) {
+      for (Object element : (Collection<?>) value) {
+        if (nonNull(element)) {
+          list.add(element);
+        }
+      }
+      return list;
+    }
+    list.add(value);
+    return list;
+  }
+
+  /**
+   * Converts the given value into a list of strings.
+   *
+   * @param value the value
+   * @return the list of strings
+   * @see #toList(Object)
+   */
+  public static List<String> toStringList(Object value) {
+    return toList(value).stream()
+        .map(String::valueOf)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Inserts the given value as body. A {@link Resource} is inserted as resource. If the value is
+   * {@code null}, no body is inserted.
+   *
+   * @param requestBodySpec the request body spec
+   * @param value the value
+   * @return the request headers spec
+   */
+  public static RequestHeadersSpec<?> body(RequestBodySpec requestBodySpec, Object value) {
+    if (isNull(value)) {
+      return requestBodySpec;
+    }
+    if (value instanceof Resource) {
+      return requestBodySpec.body(BodyInserters.fromResource((Resource) value));
+    }
+    return requestBodySpec.body(BodyInserters.fromValue(value));
+  }
+
+  /**
+   * Inserts the given publisher as body. If the element type is a {@link DataBuffer}, the
+   * publisher is inserted as data buffers. If the publisher is {@code null}, no body is inserted.
+   *
+   * @param <T> the element type
+   * @param requestBodySpec the request body spec
+   * @param publisher the publisher
+   * @param elementType the element type
+   * @return the request headers spec
+   */
+  public static <T> RequestHeadersSpec<?> body(
+      RequestBodySpec requestBodySpec,
+      Publisher<T> publisher,
+      ParameterizedTypeReference<T> elementType) {
+
+    if (isNull(publisher)) {
+      return requestBodySpec;
+    }
+    if (elementType.getType() instanceof Class
+        && DataBuffer.class.isAssignableFrom((Class<?>) elementType.getType())) {
+      //noinspection unchecked
+      return requestBodySpec
+          .body(BodyInserters.fromDataBuffers((Publisher<DataBuffer>) publisher));
+    }
+    return requestBodySpec.body(publisher, elementType);
+  }
+
+  /**
+   * Retrieves the response and applies the error handler.
+   *
+   * @param requestHeadersSpec the request headers spec
+   * @param errorHandler the error handler (can be {@code null})
+   * @return the response spec
+   */
+  public static ResponseSpec retrieve(
+      RequestHeadersSpec<?> requestHeadersSpec,
+      ReactiveErrorHandler errorHandler) {
+
+    ResponseSpec responseSpec = requestHeadersSpec.retrieve();
+    if (nonNull(errorHandler)
+        && nonNull(errorHandler.getErrorPredicate())
+        && nonNull(errorHandler.getErrorFunction())) {
+      responseSpec = responseSpec
+          .onStatus(errorHandler.getErrorPredicate(), errorHandler.getErrorFunction());
+    }
+    return responseSpec;
+  }
+
+  /**
+   * Creates the request on subscription and cancels the response, when the deadline in the
+   * context of the subscriber (see {@link Deadline}) expires.
+   *
+   * @param <T> the element type
+   * @param request the request
+   * @return the response
+   */
+  public static <T> Mono<T> mono(Supplier<Mono<T>> request) {
+    return Mono.deferContextual(context -> {
+      Instant deadline = Deadline.get(context);
+      if (isNull(deadline)) {
+        return request.get();
+      }
+      Duration remaining = Deadline.remaining(deadline);
+      if (remaining.isZero()) {
+        return Mono.error(new TimeoutException("The deadline has expired."));
+      }
+      return request.get().timeout(remaining);
+    });
+  }
+
+  /**
+   * Creates the request on subscription and cancels the response, when the deadline in the
+   * context of the subscriber (see {@link Deadline}) expires.
+   *
+   * @param <T> the element type
+   * @param request the request
+   * @return the response
+   */
+  public static <T> Flux<T> flux(Supplier<Flux<T>> request) {
+    return Flux.deferContextual(context -> {
+      Instant deadline = Deadline.get(context);
+      if (isNull(deadline)) {
+        return request.get();
+      }
+      Duration remaining = Deadline.remaining(deadline);
+      if (remaining.isZero()) {
+        return Flux.error(new TimeoutException("The deadline has expired."));
+      }
+      return request.get().timeout(
+          Mono.delay(remaining),
+          item -> Mono.delay(Deadline.remaining(deadline)));
+    });
+  }
+
+}
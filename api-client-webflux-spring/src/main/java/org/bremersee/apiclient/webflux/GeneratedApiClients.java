@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.reflect.Constructor;
+import java.util.Optional;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * The generated api clients look up implementations, that were generated at build time for api
+ * interfaces annotated with {@link GenerateApiClient}.
+ *
+ * @author Christian Bremer
+ */
+abstract class GeneratedApiClients {
+
+  /**
+   * The suffix of the name of a generated implementation.
+   */
+  static final String CLASS_NAME_SUFFIX = "ReactiveApiClient";
+
+  private static final ClassValue<Optional<Constructor<?>>> constructors = new ClassValue<>() {
+    @Override
+    protected Optional<Constructor<?>> computeValue(Class<?> target) {
+      return findConstructor(target);
+    }
+  };
+
+  private GeneratedApiClients() {
+  }
+
+  /**
+   * Creates a new instance of the generated implementation of the target interface, if there is
+   * one.
+   *
+   * @param <T> the api interface type
+   * @param target the target
+   * @param webClient the web client with the base url
+   * @param errorHandler the error handler (can be {@code null})
+   * @return the generated implementation or empty, if there is none
+   */
+  static <T> Optional<T> newInstance(
+      Class<T> target,
+      WebClient webClient,
+      ReactiveErrorHandler errorHandler) {
+
+    return constructors.get(target)
+        .map(constructor -> BeanUtils.instantiateClass(constructor, webClient, errorHandler))
+        .map(target::cast);
+  }
+
+  /**
+   * Gets the name of the generated implementation of the target interface.
+   *
+   * @param target the target
+   * @return the class name
+   */
+  static String getClassName(Class<?> target) {
+    StringBuilder simpleName = new StringBuilder(target.getSimpleName());
+    Class<?> enclosingClass = target.getEnclosingClass();
+    while (enclosingClass != null) {
+      simpleName.insert(0, '_').insert(0, enclosingClass.getSimpleName());
+      enclosingClass = enclosingClass.getEnclosingClass();
+    }
+    String packageName = ClassUtils.getPackageName(target);
+    return packageName.isEmpty()
+        ? simpleName + CLASS_NAME_SUFFIX
+        : packageName + "." + simpleName + CLASS_NAME_SUFFIX;
+  }
+
+  private static Optional<Constructor<?>> findConstructor(Class<?> target) {
+    if (!target.isInterface()) {
+      return Optional.empty();
+    }
+    try {
+      Class<?> cls = ClassUtils.forName(getClassName(target), target.getClassLoader());
+      if (!target.isAssignableFrom(cls)) {
+        return Optional.empty();
+      }
+      return Optional.of(cls.getConstructor(WebClient.class, ReactiveErrorHandler.class));
+    } catch (ClassNotFoundException | LinkageError | NoSuchMethodException ignored) {
+      return Optional.empty();
+    }
+  }
+
+}
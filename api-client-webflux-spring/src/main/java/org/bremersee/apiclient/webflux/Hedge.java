@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET or HEAD method of an api interface (or all such methods of an api interface), that
+ * returns a mono and whose requests are hedged (see {@link RequestHedger}): if there is no
+ * response after the hedge delay, a second request is sent and the first response wins. If a
+ * request hedger is set on the api client, all GET and HEAD methods, that return a mono, are
+ * hedged without this annotation; then it can be used to exclude a method ({@code
+ * @Hedge(false)}).
+ *
+ * @author Christian Bremer
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Hedge {
+
+  /**
+   * Specifies whether the requests are hedged.
+   *
+   * @return {@code false} to exclude the method from hedging
+   */
+  boolean value() default true;
+
+  /**
+   * The hedge delay in milliseconds. If it is zero or less, the delay is the given percentile of
+   * the observed latencies of the method.
+   *
+   * @return the hedge delay in milliseconds
+   */
+  long delay() default 0L;
+
+  /**
+   * The percentile of the observed latencies, that is used as hedge delay, if no fixed delay is
+   * given.
+   *
+   * @return the percentile (greater than 0 and less than 100)
+   */
+  double percentile() default 95.;
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.bremersee.apiclient.webflux.contract.HttpRequestMethod;
+import org.springframework.core.annotation.AnnotationUtils;
+import reactor.core.publisher.Mono;
+
+/**
+ * The hedge policy of an api method. It is resolved once per method plan and keeps the latest
+ * latencies of the method to compute the hedge delay.
+ *
+ * @author Christian Bremer
+ */
+final class HedgePolicy {
+
+  /**
+   * The policy of methods, whose requests are not hedged.
+   */
+  static final HedgePolicy DISABLED = new HedgePolicy(false, 0L, 0.);
+
+  /**
+   * The number of latencies, that are kept.
+   */
+  static final int SAMPLE_SIZE = 128;
+
+  /**
+   * The number of latencies, that must be recorded before the percentile is used.
+   */
+  static final int MIN_SAMPLES = 20;
+
+  private static final int RECALCULATION_INTERVAL = 10;
+
+  private final boolean enabled;
+
+  private final long fixedDelay;
+
+  private final double percentile;
+
+  private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_SIZE);
+
+  private final AtomicLong sampleCount = new AtomicLong();
+
+  private volatile long percentileDelay = -1L;
+
+  private HedgePolicy(boolean enabled, long fixedDelay, double percentile) {
+    this.enabled = enabled;
+    this.fixedDelay = fixedDelay;
+    this.percentile = percentile;
+  }
+
+  /**
+   * Resolves the hedge policy of the given method.
+   *
+   * @param methodPlan the method plan
+   * @param httpMethod the http method (can be {@code null}, if it is unknown)
+   * @param hedgeGetMethods specifies whether all GET and HEAD methods, that return a mono, are
+   *     hedged without annotation
+   * @return the hedge policy
+   */
+  static HedgePolicy resolve(
+      MethodPlan methodPlan,
+      HttpRequestMethod httpMethod,
+      boolean hedgeGetMethods) {
+
+    Method method = methodPlan.getMethod();
+    Hedge annotation = AnnotationUtils.findAnnotation(method, Hedge.class);
+    if (isNull(annotation)) {
+      annotation = AnnotationUtils.findAnnotation(methodPlan.getTargetClass(), Hedge.class);
+    }
+    if (nonNull(annotation) && !annotation.value()) {
+      return DISABLED;
+    }
+    if (nonNull(httpMethod)
+        && httpMethod != HttpRequestMethod.GET
+        && httpMethod != HttpRequestMethod.HEAD) {
+      return DISABLED;
+    }
+    if (!Mono.class.isAssignableFrom(method.getReturnType())) {
+      return DISABLED;
+    }
+    if (isNull(annotation)) {
+      return hedgeGetMethods && nonNull(httpMethod)
+          ? new HedgePolicy(true, 0L, 95.)
+          : DISABLED;
+    }
+    double percentile = annotation.percentile();
+    return new HedgePolicy(
+        true,
+        Math.max(annotation.delay(), 0L),
+        percentile > 0. && percentile < 100. ? percentile : 95.);
+  }
+
+  /**
+   * Specifies whether the requests are hedged.
+   *
+   * @return {@code true} if the requests are hedged, otherwise {@code false}
+   */
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Gets the hedge delay. It is the fixed delay of the method or the percentile of the recorded
+   * latencies. As long as there are not enough latencies, the given initial delay is returned.
+   *
+   * @param initialDelay the initial delay
+   * @return the hedge delay
+   */
+  Duration getDelay(Duration initialDelay) {
+    if (fixedDelay > 0L) {
+      return Duration.ofMillis(fixedDelay);
+    }
+    long delay = percentileDelay;
+    return delay < 0L ? initialDelay : Duration.ofNanos(delay);
+  }
+
+  /**
+   * Records the latency of a response.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  void record(long nanos) {
+    long count = sampleCount.getAndIncrement() + 1;
+    samples.set((int) ((count - 1) % SAMPLE_SIZE), nanos);
+    if (fixedDelay <= 0L && count >= MIN_SAMPLES && count % RECALCULATION_INTERVAL == 0) {
+      percentileDelay = calculatePercentile((int) Math.min(count, SAMPLE_SIZE));
+    }
+  }
+
+  private long calculatePercentile(int size) {
+    long[] values = new long[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = samples.get(i);
+    }
+    Arrays.sort(values);
+    int index = (int) Math.ceil(percentile / 100. * size) - 1;
+    return values[Math.min(Math.max(index, 0), size - 1)];
+  }
+
+}
@@ -16,24 +16,28 @@
 
 package org.bremersee.apiclient.webflux;
 
+import static java.util.Objects.isNull;
 import static org.springframework.core.annotation.AnnotationUtils.findAnnotation;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 import org.springframework.util.Assert;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
 
 /**
  * The invocation.
@@ -43,7 +47,6 @@ import org.springframework.util.Assert;
 @SuppressWarnings("SameNameButDifferent")
 @Getter
 @EqualsAndHashCode
-@AllArgsConstructor
 public class Invocation {
 
   @NonNull
@@ -54,18 +57,112 @@ public class Invocation {
 
   private final Object[] args;
 
+  @EqualsAndHashCode.Exclude
+  private final MethodPlan methodPlan;
+
+  @EqualsAndHashCode.Exclude
+  private final ContextView context;
+
+  @Getter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  private volatile List<InvocationParameter> invocationParameters;
+
+  /**
+   * Instantiates a new invocation.
+   *
+   * @param targetClass the target class
+   * @param method the method
+   * @param args the args
+   */
+  public Invocation(@NonNull Class<?> targetClass, @NonNull Method method, Object[] args) {
+    this(new MethodPlan(targetClass, method), args);
+  }
+
+  /**
+   * Instantiates a new invocation with an existing method plan.
+   *
+   * @param methodPlan the method plan
+   * @param args the args
+   */
+  public Invocation(@NonNull MethodPlan methodPlan, Object[] args) {
+    this(methodPlan, args, Context.empty());
+  }
+
+  /**
+   * Instantiates a new invocation with an existing method plan and the context of the subscriber
+   * of the response.
+   *
+   * @param methodPlan the method plan
+   * @param args the args
+   * @param context the context of the subscriber
+   */
+  public Invocation(@NonNull MethodPlan methodPlan, Object[] args, @NonNull ContextView context) {
+    this.targetClass = methodPlan.getTargetClass();
+    this.method = methodPlan.getMethod();
+    this.args = args;
+    this.methodPlan = methodPlan;
+    this.context = context;
+  }
+
   /**
-   * To method parameter stream.
+   * To method parameter stream. The invocation parameters are created only once per invocation,
+   * so that all resolvers and inserters share them.
    *
    * @return the stream
    */
   public Stream<InvocationParameter> toMethodParameterStream() {
-    List<InvocationParameter> invocationParameters = new ArrayList<>();
-    Parameter[] parameters = method.getParameters();
-    for (int i = 0; i < parameters.length; i++) {
-      invocationParameters.add(new InvocationParameter(this, parameters[i], args[i], i));
+    List<InvocationParameter> result = invocationParameters;
+    if (isNull(result)) {
+      List<ParameterPlan> parameters = methodPlan.getParameters();
+      result = new ArrayList<>(parameters.size());
+      for (ParameterPlan parameter : parameters) {
+        result.add(new InvocationParameter(this, parameter, args[parameter.getIndex()]));
+      }
+      invocationParameters = result;
+    }
+    return result.stream();
+  }
+
+  /**
+   * Binds the arguments of all parameters, that are annotated with the given annotation type, in
+   * one pass to the given consumer. The annotated parameters are taken from the method plan, so
+   * no other parameter is visited and no invocation parameter is created. An argument, that is a
+   * map, is bound entry by entry; any other argument is bound with the name of the annotation or
+   * the name of the parameter.
+   *
+   * @param <E> the type of the bound values
+   * @param <A> the type of the annotation
+   * @param annotationType the annotation type
+   * @param keyExtractor the key extractor
+   * @param valueMapper the value mapper
+   * @param consumer the consumer, that gets the key and the values
+   */
+  public <E, A extends Annotation> void bindParameters(
+      Class<A> annotationType,
+      Function<A, String> keyExtractor,
+      Function<Object, E> valueMapper,
+      BiConsumer<String, List<E>> consumer) {
+
+    Assert.notNull(keyExtractor, "Key extractor must be present.");
+    Assert.notNull(valueMapper, "Value mapper must be present.");
+    Assert.notNull(consumer, "Consumer must be present.");
+    for (ParameterPlan parameter : methodPlan.getParameters(annotationType)) {
+      Object value = args[parameter.getIndex()];
+      if (value instanceof Map<?, ?>) {
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          List<E> values = InvocationParameter.toList(entry.getValue(), valueMapper);
+          if (!values.isEmpty()) {
+            consumer.accept(String.valueOf(entry.getKey()), values);
+          }
+        }
+      } else {
+        String key = parameter.findAnnotation(annotationType)
+            .map(keyExtractor)
+            .filter(name -> !name.isBlank())
+            .orElseGet(parameter::getName);
+        consumer.accept(key, InvocationParameter.toList(value, valueMapper));
+      }
     }
-    return invocationParameters.stream();
   }
 
   @Override
@@ -127,9 +224,14 @@ public class Invocation {
       Class<A> annotationType,
       Predicate<A> condition,
       Function<A, T> mapper) {
-    Parameter[] parameters = method.getParameters();
-    if (parameterIndex >= 0 && parameterIndex < parameters.length) {
-      return findAnnotationValue(parameters[parameterIndex], annotationType, condition, mapper);
+    Assert.notNull(annotationType, "Annotation type must be present.");
+    Assert.notNull(condition, "Condition must be present.");
+    Assert.notNull(mapper, "Mapper must be present.");
+    List<ParameterPlan> parameters = methodPlan.getParameters();
+    if (parameterIndex >= 0 && parameterIndex < parameters.size()) {
+      return parameters.get(parameterIndex).findAnnotation(annotationType)
+          .filter(condition)
+          .map(mapper);
     }
     return Optional.empty();
   }
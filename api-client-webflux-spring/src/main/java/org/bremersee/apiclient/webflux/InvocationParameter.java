@@ -16,8 +16,6 @@
 
 package org.bremersee.apiclient.webflux;
 
-import static java.util.Objects.nonNull;
-import static org.springframework.core.annotation.AnnotationUtils.findAnnotation;
 import static org.springframework.util.ObjectUtils.isArray;
 import static org.springframework.util.ObjectUtils.isEmpty;
 import static org.springframework.util.ObjectUtils.toObjectArray;
@@ -36,8 +34,7 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import org.springframework.core.DefaultParameterNameDiscoverer;
-import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
+import org.springframework.core.ResolvableType;
 import org.springframework.util.Assert;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -58,6 +55,9 @@ public class InvocationParameter extends Invocation {
 
   private final int index;
 
+  @EqualsAndHashCode.Exclude
+  private final ParameterPlan parameterPlan;
+
   /**
    * Instantiates a new invocation parameter.
    *
@@ -67,14 +67,31 @@ public class InvocationParameter extends Invocation {
    * @param index the index
    */
   public InvocationParameter(Invocation invocation, Parameter parameter, Object value, int index) {
-    super(invocation.getTargetClass(), invocation.getMethod(), invocation.getArgs());
+    super(invocation.getMethodPlan(), invocation.getArgs(), invocation.getContext());
     Assert.notNull(parameter, "Parameter must be present.");
     Assert.isTrue(
-        index >= 0 && index < invocation.getMethod().getParameters().length,
+        index >= 0 && index < invocation.getMethod().getParameterCount(),
         String.format("Illegal index [%s].", index));
     this.parameter = parameter;
     this.value = value;
     this.index = index;
+    this.parameterPlan = invocation.getMethodPlan().getParameters().get(index);
+  }
+
+  /**
+   * Instantiates a new invocation parameter with an existing parameter plan.
+   *
+   * @param invocation the invocation
+   * @param parameterPlan the parameter plan
+   * @param value the value
+   */
+  public InvocationParameter(Invocation invocation, ParameterPlan parameterPlan, Object value) {
+    super(invocation.getMethodPlan(), invocation.getArgs(), invocation.getContext());
+    Assert.notNull(parameterPlan, "Parameter plan must be present.");
+    this.parameter = parameterPlan.getParameter();
+    this.value = value;
+    this.index = parameterPlan.getIndex();
+    this.parameterPlan = parameterPlan;
   }
 
   /**
@@ -83,25 +100,16 @@ public class InvocationParameter extends Invocation {
    * @return the parameter name
    */
   public String getParameterName() {
-    try {
-      String[] names = new DefaultParameterNameDiscoverer().getParameterNames(getMethod());
-      if (nonNull(names) && index >= 0 && index < names.length && !isEmpty(names[index])) {
-        return names[index];
-      }
-    } catch (Exception ignored) {
-      // ignored
-    }
-    try {
-      String[] names = new LocalVariableTableParameterNameDiscoverer()
-          .getParameterNames(getMethod());
-      if (nonNull(names) && index >= 0 && index < names.length && !isEmpty(names[index])) {
-        return names[index];
-      }
-    } catch (Exception ignored) {
-      // ignored
-    }
-    String name = parameter.getName();
-    return isEmpty(name) ? "arg" + index : name;
+    return parameterPlan.getName();
+  }
+
+  /**
+   * Gets the resolvable type of the parameter.
+   *
+   * @return the resolvable type
+   */
+  public ResolvableType getResolvableType() {
+    return parameterPlan.getResolvableType();
   }
 
   /**
@@ -135,7 +143,7 @@ public class InvocationParameter extends Invocation {
    * @return the optional
    */
   public <A extends Annotation> Optional<A> findParameterAnnotation(Class<A> annotationType) {
-    return Optional.ofNullable(findAnnotation(parameter, annotationType));
+    return parameterPlan.findAnnotation(annotationType);
   }
 
   private <A extends Annotation> String getKey(
@@ -195,7 +203,16 @@ public class InvocationParameter extends Invocation {
     return multiValueMap;
   }
 
-  private <E> List<E> toList(Object value, Function<Object, E> valueMapper) {
+  /**
+   * Converts the given value into a list. Arrays and collections are flattened, {@code null}
+   * elements are removed.
+   *
+   * @param <E> the type of the list elements
+   * @param value the value
+   * @param valueMapper the value mapper
+   * @return the list
+   */
+  static <E> List<E> toList(Object value, Function<Object, E> valueMapper) {
     List<E> list = new ArrayList<>();
     if (isEmpty(value)) {
       return list;
@@ -0,0 +1,481 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import org.reactivestreams.Publisher;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The load balancer spreads the invocations of an api client over several base urls, that serve
+ * the same api. An endpoint is selected on every subscription of a response publisher, so a
+ * retried call can be sent to another endpoint. The selected base url is given to the contract
+ * under the context key {@link BaseUrl#CONTEXT_KEY}; an invocation, that already has a base url
+ * (a {@link BaseUrl} parameter or a base url in the context), is not balanced.
+ *
+ * <p>The strategies are:
+ * <ul>
+ *   <li>{@link Strategy#ROUND_ROBIN} selects the endpoints one after the other,</li>
+ *   <li>{@link Strategy#POWER_OF_TWO_CHOICES} selects two endpoints at random and takes the one
+ *   with fewer requests in flight,</li>
+ *   <li>{@link Strategy#EWMA} selects two endpoints at random and takes the one with the lower
+ *   product of the exponentially weighted moving average of its latency and its requests in
+ *   flight, so that slow endpoints get fewer requests.</li>
+ * </ul>
+ *
+ * <p>The latency of an endpoint, that has no sample yet, is the initial latency, so that an
+ * unknown endpoint does not win every selection. A cancelled request charges its elapsed time,
+ * if it is longer than the average, because its latency is at least the elapsed time.
+ *
+ * <p>Outliers are ejected passively: an endpoint, that failed the given number of times in a
+ * row, is not selected for the ejection time. A failure is by default a connect or request error
+ * ({@link WebClientRequestException}), an expired deadline ({@link TimeoutException}) or a
+ * response with a status of 5xx. If all endpoints are ejected, all are selected again, so that
+ * the api client never stops sending requests.
+ *
+ * @author Christian Bremer
+ */
+public class LoadBalancer {
+
+  /**
+   * The default number of failures in a row, that ejects an endpoint.
+   */
+  public static final int DEFAULT_CONSECUTIVE_FAILURES = 5;
+
+  /**
+   * The default ejection time.
+   */
+  public static final Duration DEFAULT_EJECTION_TIME = Duration.ofSeconds(30L);
+
+  /**
+   * The default latency of an endpoint, that has no sample yet.
+   */
+  public static final Duration DEFAULT_INITIAL_LATENCY = Duration.ofSeconds(1L);
+
+  private static final double SMOOTHING_FACTOR = 0.3;
+
+  private final List<Endpoint> endpoints;
+
+  @Getter
+  private final Strategy strategy;
+
+  private final Clock clock;
+
+  private final AtomicInteger nextIndex = new AtomicInteger();
+
+  private int consecutiveFailures = DEFAULT_CONSECUTIVE_FAILURES;
+
+  private long ejectionMillis = DEFAULT_EJECTION_TIME.toMillis();
+
+  private Predicate<Throwable> failurePredicate = LoadBalancer::isFailure;
+
+  private double initialLatencyNanos = DEFAULT_INITIAL_LATENCY.toNanos();
+
+  /**
+   * Instantiates a new load balancer with round robin.
+   *
+   * @param baseUrls the base urls
+   */
+  public LoadBalancer(List<String> baseUrls) {
+    this(baseUrls, Strategy.ROUND_ROBIN);
+  }
+
+  /**
+   * Instantiates a new load balancer.
+   *
+   * @param baseUrls the base urls
+   * @param strategy the strategy
+   */
+  public LoadBalancer(List<String> baseUrls, Strategy strategy) {
+    this(baseUrls, strategy, Clock.systemUTC());
+  }
+
+  /**
+   * Instantiates a new load balancer.
+   *
+   * @param baseUrls the base urls
+   * @param strategy the strategy
+   * @param clock the clock
+   */
+  LoadBalancer(List<String> baseUrls, Strategy strategy, Clock clock) {
+    Assert.notEmpty(baseUrls, "Base urls must be present.");
+    Assert.noNullElements(baseUrls, "Base urls must not contain null.");
+    Assert.notNull(clock, "Clock must be present.");
+    this.endpoints = baseUrls.stream()
+        .distinct()
+        .map(Endpoint::new)
+        .collect(Collectors.toUnmodifiableList());
+    this.strategy = isNull(strategy) ? Strategy.ROUND_ROBIN : strategy;
+    this.clock = clock;
+  }
+
+  /**
+   * With outlier ejection. An endpoint, that failed the given number of times in a row, is not
+   * selected for the given ejection time. A number of zero or less disables the ejection.
+   *
+   * @param consecutiveFailures the number of failures in a row (default is {@value
+   *     #DEFAULT_CONSECUTIVE_FAILURES})
+   * @param ejectionTime the ejection time (default is 30 seconds)
+   * @return the load balancer
+   */
+  public LoadBalancer withOutlierEjection(int consecutiveFailures, Duration ejectionTime) {
+    Assert.notNull(ejectionTime, "Ejection time must be present.");
+    this.consecutiveFailures = Math.max(consecutiveFailures, 0);
+    this.ejectionMillis = Math.max(ejectionTime.toMillis(), 0L);
+    return this;
+  }
+
+  /**
+   * With failure predicate. It decides whether an error of a request counts as a failure of the
+   * endpoint.
+   *
+   * @param failurePredicate the failure predicate
+   * @return the load balancer
+   */
+  public LoadBalancer withFailurePredicate(Predicate<Throwable> failurePredicate) {
+    Assert.notNull(failurePredicate, "Failure predicate must be present.");
+    this.failurePredicate = failurePredicate;
+    return this;
+  }
+
+  /**
+   * With initial latency. It is the latency of an endpoint, that has no sample yet, and is used
+   * by the strategy {@link Strategy#EWMA}.
+   *
+   * @param initialLatency the initial latency (default is 1 second)
+   * @return the load balancer
+   */
+  public LoadBalancer withInitialLatency(Duration initialLatency) {
+    Assert.notNull(initialLatency, "Initial latency must be present.");
+    this.initialLatencyNanos = Math.max(initialLatency.toNanos(), 0L);
+    return this;
+  }
+
+  /**
+   * Gets the endpoints.
+   *
+   * @return the endpoints
+   */
+  public List<Endpoint> getEndpoints() {
+    return endpoints;
+  }
+
+  /**
+   * Gets the first base url. It is the base url of the web client of a load balanced api client.
+   *
+   * @return the first base url
+   */
+  String getDefaultBaseUrl() {
+    return endpoints.get(0).getBaseUrl();
+  }
+
+  /**
+   * Sends a request to the endpoint, that is selected on subscription, and records its outcome.
+   *
+   * @param mono specifies whether the response is a mono or a flux
+   * @param exchange the function, that sends the request to the given base url
+   * @return the response publisher
+   */
+  Publisher<?> exchange(boolean mono, Function<String, ? extends Publisher<?>> exchange) {
+    Assert.notNull(exchange, "Exchange must be present.");
+    if (mono) {
+      return Mono.defer(() -> {
+        Endpoint endpoint = select();
+        long start = onStart(endpoint);
+        return Mono.<Object>from(exchange.apply(endpoint.getBaseUrl()))
+            .doOnSuccess(value -> onComplete(endpoint, start, null))
+            .doOnError(error -> onComplete(endpoint, start, error))
+            .doOnCancel(() -> onCancel(endpoint, start));
+      });
+    }
+    return Flux.defer(() -> {
+      Endpoint endpoint = select();
+      long start = onStart(endpoint);
+      return Flux.<Object>from(exchange.apply(endpoint.getBaseUrl()))
+          .doOnComplete(() -> onComplete(endpoint, start, null))
+          .doOnError(error -> onComplete(endpoint, start, error))
+          .doOnCancel(() -> onCancel(endpoint, start));
+    });
+  }
+
+  /**
+   * Selects an endpoint with the strategy of this load balancer.
+   *
+   * @return the endpoint
+   */
+  Endpoint select() {
+    List<Endpoint> available = getAvailableEndpoints();
+    int size = available.size();
+    if (size == 1) {
+      return available.get(0);
+    }
+    if (strategy == Strategy.ROUND_ROBIN) {
+      return available.get(Math.floorMod(nextIndex.getAndIncrement(), size));
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(size);
+    int second = random.nextInt(size - 1);
+    second = second >= first ? second + 1 : second;
+    Endpoint a = available.get(first);
+    Endpoint b = available.get(second);
+    return getCost(b) < getCost(a) ? b : a;
+  }
+
+  private List<Endpoint> getAvailableEndpoints() {
+    long now = clock.millis();
+    List<Endpoint> available = null;
+    for (int i = 0; i < endpoints.size(); i++) {
+      Endpoint endpoint = endpoints.get(i);
+      if (endpoint.isEjected(now)) {
+        if (isNull(available)) {
+          available = new ArrayList<>(endpoints.subList(0, i));
+        }
+      } else if (nonNull(available)) {
+        available.add(endpoint);
+      }
+    }
+    if (isNull(available)) {
+      return endpoints;
+    }
+    return available.isEmpty() ? endpoints : Collections.unmodifiableList(available);
+  }
+
+  private double getCost(Endpoint endpoint) {
+    int inFlight = endpoint.getInFlightCount();
+    if (strategy == Strategy.EWMA) {
+      double latency = endpoint.getLatencyNanos();
+      return (latency == 0. ? initialLatencyNanos : latency) * (inFlight + 1);
+    }
+    return inFlight;
+  }
+
+  /**
+   * Records the start of a request to the given endpoint.
+   *
+   * @param endpoint the endpoint
+   * @return the start time in nanoseconds
+   */
+  long onStart(Endpoint endpoint) {
+    endpoint.inFlightCount.incrementAndGet();
+    endpoint.requestCount.increment();
+    return System.nanoTime();
+  }
+
+  /**
+   * Records the outcome of a request to the given endpoint.
+   *
+   * @param endpoint the endpoint
+   * @param start the start time in nanoseconds
+   * @param error the error of the request (can be {@code null})
+   */
+  void onComplete(Endpoint endpoint, long start, Throwable error) {
+    endpoint.inFlightCount.decrementAndGet();
+    endpoint.updateLatency(System.nanoTime() - start);
+    if (isNull(error) || !failurePredicate.test(error)) {
+      endpoint.consecutiveFailures.set(0);
+      return;
+    }
+    endpoint.failureCount.increment();
+    if (consecutiveFailures > 0
+        && endpoint.consecutiveFailures.incrementAndGet() >= consecutiveFailures) {
+      endpoint.consecutiveFailures.set(0);
+      endpoint.ejectedUntil = clock.millis() + ejectionMillis;
+      endpoint.ejectionCount.increment();
+    }
+  }
+
+  /**
+   * Records the cancellation of a request to the given endpoint. The elapsed time is charged, if
+   * it is longer than the average latency.
+   *
+   * @param endpoint the endpoint
+   * @param start the start time in nanoseconds
+   */
+  void onCancel(Endpoint endpoint, long start) {
+    endpoint.inFlightCount.decrementAndGet();
+    long nanos = System.nanoTime() - start;
+    if (nanos > endpoint.getLatencyNanos()) {
+      endpoint.updateLatency(nanos);
+    }
+  }
+
+  /**
+   * Determines whether the given error is a failure of the endpoint: a connect or request
+   * error, an expired deadline or a response with a status of 5xx.
+   *
+   * @param error the error
+   * @return {@code true} if the error is a failure of the endpoint, otherwise {@code false}
+   */
+  static boolean isFailure(Throwable error) {
+    if (error instanceof WebClientResponseException) {
+      return ((WebClientResponseException) error).getRawStatusCode() >= 500;
+    }
+    return error instanceof WebClientRequestException || error instanceof TimeoutException;
+  }
+
+  @Override
+  public String toString() {
+    return "LoadBalancer{"
+        + "strategy=" + strategy
+        + ", endpoints=" + endpoints
+        + '}';
+  }
+
+  /**
+   * The load balancing strategy.
+   */
+  public enum Strategy {
+
+    /**
+     * Selects the endpoints one after the other.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Selects the endpoint with fewer requests in flight of two random endpoints.
+     */
+    POWER_OF_TWO_CHOICES,
+
+    /**
+     * Selects the endpoint with the lower weighted latency of two random endpoints.
+     */
+    EWMA
+  }
+
+  /**
+   * An endpoint of the load balancer.
+   */
+  public static final class Endpoint {
+
+    @Getter
+    private final String baseUrl;
+
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+
+    private final AtomicLong latency = new AtomicLong(Double.doubleToLongBits(0.));
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder failureCount = new LongAdder();
+
+    private final LongAdder ejectionCount = new LongAdder();
+
+    private volatile long ejectedUntil;
+
+    private Endpoint(String baseUrl) {
+      this.baseUrl = baseUrl;
+    }
+
+    private void updateLatency(long nanos) {
+      long current;
+      double next;
+      do {
+        current = latency.get();
+        double average = Double.longBitsToDouble(current);
+        next = average == 0. ? nanos : average + SMOOTHING_FACTOR * (nanos - average);
+      } while (!latency.compareAndSet(current, Double.doubleToLongBits(next)));
+    }
+
+    private double getLatencyNanos() {
+      return Double.longBitsToDouble(latency.get());
+    }
+
+    private boolean isEjected(long now) {
+      return ejectedUntil > now;
+    }
+
+    /**
+     * Gets the exponentially weighted moving average of the latency.
+     *
+     * @return the latency
+     */
+    public Duration getLatency() {
+      return Duration.ofNanos((long) getLatencyNanos());
+    }
+
+    /**
+     * Gets the number of requests, that are in flight.
+     *
+     * @return the in flight count
+     */
+    public int getInFlightCount() {
+      return inFlightCount.get();
+    }
+
+    /**
+     * Gets the number of requests, that were sent to this endpoint.
+     *
+     * @return the request count
+     */
+    public long getRequestCount() {
+      return requestCount.sum();
+    }
+
+    /**
+     * Gets the number of failed requests.
+     *
+     * @return the failure count
+     */
+    public long getFailureCount() {
+      return failureCount.sum();
+    }
+
+    /**
+     * Gets the number of ejections.
+     *
+     * @return the ejection count
+     */
+    public long getEjectionCount() {
+      return ejectionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+      return "Endpoint{"
+          + "baseUrl=" + baseUrl
+          + ", inFlightCount=" + getInFlightCount()
+          + ", latency=" + getLatency()
+          + ", requestCount=" + getRequestCount()
+          + ", failureCount=" + getFailureCount()
+          + ", ejectionCount=" + getEjectionCount()
+          + '}';
+    }
+  }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.springframework.util.ObjectUtils.isEmpty;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.util.Assert;
+
+/**
+ * The method plan.
+ *
+ * <p>A method plan is created once per method of a target class. It keeps everything that can be
+ * resolved without the arguments of an invocation (like the http method, the request path, the
+ * content type, the accept header, the response decoder or the metadata of the parameters), so
+ * that the annotations are only scanned on the first invocation of a method.
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("SameNameButDifferent")
+@EqualsAndHashCode(of = {"targetClass", "method"})
+public class MethodPlan {
+
+  private static final ParameterNameDiscoverer defaultParameterNameDiscoverer
+      = new DefaultParameterNameDiscoverer();
+
+  private static final ParameterNameDiscoverer localVariableTableParameterNameDiscoverer
+      = new LocalVariableTableParameterNameDiscoverer();
+
+  @Getter
+  private final Class<?> targetClass;
+
+  @Getter
+  private final Method method;
+
+  private final Map<Object, Object> resolved = new ConcurrentHashMap<>();
+
+  private volatile List<ParameterPlan> parameters;
+
+  private final Map<Class<? extends Annotation>, List<ParameterPlan>> annotatedParameters
+      = new ConcurrentHashMap<>();
+
+  /**
+   * Instantiates a new method plan.
+   *
+   * @param targetClass the target class
+   * @param method the method
+   */
+  public MethodPlan(Class<?> targetClass, Method method) {
+    Assert.notNull(targetClass, "Target class must be present.");
+    Assert.notNull(method, "Method must be present.");
+    this.targetClass = targetClass;
+    this.method = method;
+  }
+
+  /**
+   * Returns the value that is stored under the given key. If there is no such value, it will be
+   * resolved with the given resolver and stored. A resolved {@code null} value is not stored.
+   *
+   * @param <T> the type of the value
+   * @param key the key (normally the class of the resolver)
+   * @param resolver the resolver
+   * @return the resolved value
+   */
+  public <T> T resolve(Object key, Function<MethodPlan, T> resolver) {
+    Assert.notNull(key, "Key must be present.");
+    Assert.notNull(resolver, "Resolver must be present.");
+    Object value = resolved.get(key);
+    if (isNull(value)) {
+      value = resolver.apply(this);
+      if (nonNull(value)) {
+        Object existing = resolved.putIfAbsent(key, value);
+        value = isNull(existing) ? value : existing;
+      }
+    }
+    //noinspection unchecked
+    return (T) value;
+  }
+
+  /**
+   * Gets the plans of the method parameters. They are created on the first call.
+   *
+   * @return the parameter plans
+   */
+  public List<ParameterPlan> getParameters() {
+    List<ParameterPlan> result = parameters;
+    if (isNull(result)) {
+      result = createParameterPlans();
+      parameters = result;
+    }
+    return result;
+  }
+
+  /**
+   * Gets the plans of the method parameters, that are annotated with the given annotation type.
+   *
+   * @param annotationType the annotation type
+   * @return the parameter plans
+   */
+  public List<ParameterPlan> getParameters(Class<? extends Annotation> annotationType) {
+    Assert.notNull(annotationType, "Annotation type must be present.");
+    return annotatedParameters.computeIfAbsent(annotationType, type -> getParameters().stream()
+        .filter(parameter -> parameter.findAnnotation(type).isPresent())
+        .collect(Collectors.toUnmodifiableList()));
+  }
+
+  private List<ParameterPlan> createParameterPlans() {
+    Parameter[] methodParameters = method.getParameters();
+    int count = methodParameters.length;
+    if (count == 0) {
+      return Collections.emptyList();
+    }
+    String[] defaultNames = discoverParameterNames(defaultParameterNameDiscoverer);
+    String[] localVariableNames = null;
+    List<ParameterPlan> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String name = getName(defaultNames, i);
+      if (isNull(name)) {
+        if (isNull(localVariableNames)) {
+          localVariableNames = discoverParameterNames(localVariableTableParameterNameDiscoverer);
+        }
+        name = getName(localVariableNames, i);
+      }
+      if (isNull(name)) {
+        name = methodParameters[i].getName();
+        name = isEmpty(name) ? "arg" + i : name;
+      }
+      result.add(new ParameterPlan(method, methodParameters[i], i, name));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  private String[] discoverParameterNames(ParameterNameDiscoverer parameterNameDiscoverer) {
+    try {
+      String[] names = parameterNameDiscoverer.getParameterNames(method);
+      return isNull(names) ? new String[0] : names;
+    } catch (Exception ignored) {
+      return new String[0];
+    }
+  }
+
+  private static String getName(String[] names, int index) {
+    return index < names.length && !isEmpty(names[index]) ? names[index] : null;
+  }
+
+  @Override
+  public String toString() {
+    return "MethodPlan{"
+        + "targetClass=" + targetClass.getName()
+        + ", method=" + method.getName()
+        + ", resolved=" + resolved.keySet()
+        + '}';
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.Assert;
+
+/**
+ * The parameter plan keeps the metadata of a method parameter (the name, the resolvable type and
+ * the annotations), so that it is only discovered once per method and not on every invocation.
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("SameNameButDifferent")
+@Getter
+@EqualsAndHashCode(of = {"method", "index"})
+public class ParameterPlan {
+
+  private final Method method;
+
+  private final Parameter parameter;
+
+  private final int index;
+
+  private final String name;
+
+  private final ResolvableType resolvableType;
+
+  @Getter(AccessLevel.NONE)
+  private final Map<Class<? extends Annotation>, Optional<Annotation>> annotations
+      = new ConcurrentHashMap<>();
+
+  /**
+   * Instantiates a new parameter plan.
+   *
+   * @param method the method
+   * @param parameter the parameter
+   * @param index the index
+   * @param name the name
+   */
+  ParameterPlan(Method method, Parameter parameter, int index, String name) {
+    Assert.notNull(method, "Method must be present.");
+    Assert.notNull(parameter, "Parameter must be present.");
+    Assert.isTrue(
+        index >= 0 && index < method.getParameterCount(),
+        String.format("Illegal index [%s].", index));
+    Assert.hasText(name, "Name must be present.");
+    this.method = method;
+    this.parameter = parameter;
+    this.index = index;
+    this.name = name;
+    this.resolvableType = ResolvableType.forMethodParameter(method, index);
+  }
+
+  /**
+   * Find annotation of the parameter.
+   *
+   * @param <A> the type of the annotation
+   * @param annotationType the annotation type
+   * @return the annotation
+   */
+  public <A extends Annotation> Optional<A> findAnnotation(Class<A> annotationType) {
+    Assert.notNull(annotationType, "Annotation type must be present.");
+    return annotations
+        .computeIfAbsent(
+            annotationType,
+            type -> Optional.ofNullable(AnnotationUtils.findAnnotation(parameter, type)))
+        .map(annotationType::cast);
+  }
+
+  @Override
+  public String toString() {
+    return "ParameterPlan{"
+        + "method=" + method.getName()
+        + ", index=" + index
+        + ", name=" + name
+        + ", resolvableType=" + resolvableType
+        + '}';
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the rate of the requests of a method of an api interface (or of all methods of an api
+ * interface) with a token bucket (see {@link RateLimiter}). A call, that exceeds the rate, is
+ * delayed without blocking a thread; if it had to wait longer than the maximum wait, it fails
+ * with a {@link RateLimitExceededException} instead.
+ *
+ * <p>On an api interface all methods share one bucket, on a method the method has its own bucket.
+ * Methods with the same {@link #name()} share their bucket. With a {@link #keyIndex()} there is
+ * one bucket per value of the argument at this index, for example per tenant:
+ *
+ * <pre>
+ * &#64;RateLimit(value = 10, burst = 20, keyIndex = 0)
+ * &#64;GetMapping("/tenants/{tenant}/orders")
+ * Flux&lt;Order&gt; getOrders(&#64;PathVariable("tenant") String tenant);
+ * </pre>
+ *
+ * @author Christian Bremer
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimit {
+
+  /**
+   * The permitted requests per second.
+   *
+   * @return the permitted requests per second
+   */
+  double value();
+
+  /**
+   * The number of requests, that may be sent at once after a quiet period. Zero or less means
+   * the permitted requests per second (but at least one).
+   *
+   * @return the burst
+   */
+  int burst() default 0;
+
+  /**
+   * The maximum time in milliseconds, a call is delayed. A call, that had to wait longer, is
+   * rejected. Zero rejects every call, that exceeds the rate.
+   *
+   * @return the maximum wait in milliseconds
+   */
+  long maxWait() default 1000L;
+
+  /**
+   * The index of the parameter, whose argument selects the bucket. A negative value means, that
+   * all calls share one bucket.
+   *
+   * @return the index of the key parameter
+   */
+  int keyIndex() default -1;
+
+  /**
+   * The name of the bucket. Methods with the same name share their bucket (and the rate of the
+   * first resolved method applies). An empty name means the name of the api interface or of the
+   * method.
+   *
+   * @return the name of the bucket
+   */
+  String name() default "";
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import lombok.Getter;
+
+/**
+ * The exception, that is returned instead of sending a request, if the request exceeds the rate
+ * limit of an api or of an api method and would have to wait longer than the maximum wait (see
+ * {@link RateLimit} and {@link RateLimiter}).
+ *
+ * @author Christian Bremer
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The name of the exceeded rate limit.
+   */
+  @Getter
+  private final String rateLimitName;
+
+  /**
+   * Instantiates a new rate limit exceeded exception.
+   *
+   * @param rateLimitName the name of the exceeded rate limit
+   */
+  public RateLimitExceededException(String rateLimitName) {
+    super(String.format("Rate limit '%s' is exceeded.", rateLimitName));
+    this.rateLimitName = rateLimitName;
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.springframework.core.annotation.AnnotationUtils;
+
+/**
+ * The rate limit policy of an api method. It is resolved once per method plan from the {@link
+ * RateLimit} annotation of the method or of its api interface.
+ *
+ * @author Christian Bremer
+ */
+final class RateLimitPolicy {
+
+  /**
+   * The policy of methods, whose requests are not rate limited.
+   */
+  static final RateLimitPolicy DISABLED = new RateLimitPolicy(null, 0L, 0, 0L, -1);
+
+  private static final double NANOS_PER_SECOND = 1_000_000_000.;
+
+  private final String name;
+
+  private final long intervalNanos;
+
+  private final int burst;
+
+  private final long maxWaitNanos;
+
+  private final int keyIndex;
+
+  private RateLimitPolicy(
+      String name,
+      long intervalNanos,
+      int burst,
+      long maxWaitNanos,
+      int keyIndex) {
+
+    this.name = name;
+    this.intervalNanos = intervalNanos;
+    this.burst = burst;
+    this.maxWaitNanos = maxWaitNanos;
+    this.keyIndex = keyIndex;
+  }
+
+  /**
+   * Resolves the rate limit policy of the given method.
+   *
+   * @param methodPlan the method plan
+   * @return the rate limit policy
+   * @throws IllegalStateException if the rate is not greater than zero or the key index is
+   *     invalid
+   */
+  static RateLimitPolicy resolve(MethodPlan methodPlan) {
+    Method method = methodPlan.getMethod();
+    String name = methodPlan.getTargetClass().getName() + "#" + method.getName();
+    RateLimit annotation = AnnotationUtils.findAnnotation(method, RateLimit.class);
+    if (isNull(annotation)) {
+      annotation = AnnotationUtils.findAnnotation(methodPlan.getTargetClass(), RateLimit.class);
+      name = methodPlan.getTargetClass().getName();
+    }
+    if (isNull(annotation)) {
+      return DISABLED;
+    }
+    double rate = annotation.value();
+    if (!(rate > 0.)) {
+      throw new IllegalStateException(String.format(
+          "The rate limit of method '%s' must be greater than zero.", method.getName()));
+    }
+    int keyIndex = annotation.keyIndex();
+    if (keyIndex >= method.getParameterCount()) {
+      throw new IllegalStateException(String.format(
+          "Method '%s' has no key parameter at index %d.", method.getName(), keyIndex));
+    }
+    return new RateLimitPolicy(
+        annotation.name().isBlank() ? name : annotation.name(),
+        Math.max((long) (NANOS_PER_SECOND / rate), 1L),
+        annotation.burst() > 0 ? annotation.burst() : Math.max((int) Math.ceil(rate), 1),
+        TimeUnit.MILLISECONDS.toNanos(Math.max(annotation.maxWait(), 0L)),
+        Math.max(keyIndex, -1));
+  }
+
+  /**
+   * Specifies whether the requests are rate limited.
+   *
+   * @return {@code true} if the requests are rate limited, otherwise {@code false}
+   */
+  boolean isEnabled() {
+    return intervalNanos > 0L;
+  }
+
+  /**
+   * Gets the name of the bucket.
+   *
+   * @return the name
+   */
+  String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the interval between two requests in nanoseconds.
+   *
+   * @return the interval in nanoseconds
+   */
+  long getIntervalNanos() {
+    return intervalNanos;
+  }
+
+  /**
+   * Gets the number of requests, that may be sent at once.
+   *
+   * @return the burst
+   */
+  int getBurst() {
+    return burst;
+  }
+
+  /**
+   * Gets the maximum wait in nanoseconds.
+   *
+   * @return the maximum wait in nanoseconds
+   */
+  long getMaxWaitNanos() {
+    return maxWaitNanos;
+  }
+
+  /**
+   * Gets the argument, that selects the bucket.
+   *
+   * @param args the arguments of the invocation
+   * @return the key (can be {@code null})
+   */
+  Object getKey(Object[] args) {
+    return keyIndex < 0 || isNull(args) || keyIndex >= args.length ? null : args[keyIndex];
+  }
+
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The rate limiter keeps the requests of the methods with {@link RateLimit} within their quota.
+ * Every bucket is a lock-free token bucket (implemented as generic cell rate algorithm): a
+ * request reserves the next free slot of its bucket and is delayed on the scheduler until the
+ * slot is due, so no thread is blocked. If the delay would exceed the maximum wait of the method,
+ * the request fails with a {@link RateLimitExceededException} and reserves nothing. A request,
+ * that is cancelled while it is delayed, does not give its slot back.
+ *
+ * <p>The number of the currently delayed requests (the queue size), the number of delayed and of
+ * rejected requests and the total throttle time are recorded, so that the effect can be
+ * monitored.
+ *
+ * @author Christian Bremer
+ */
+public class RateLimiter {
+
+  /**
+   * The default maximum number of buckets.
+   */
+  public static final int DEFAULT_MAX_BUCKETS = 10_000;
+
+  private final Scheduler scheduler;
+
+  private final LongSupplier nanoTime;
+
+  private final ConcurrentMap<Key, Bucket> buckets = new ConcurrentHashMap<>();
+
+  private final AtomicInteger queueSize = new AtomicInteger();
+
+  private final LongAdder requestCount = new LongAdder();
+
+  private final LongAdder throttledCount = new LongAdder();
+
+  private final LongAdder rejectedCount = new LongAdder();
+
+  private final LongAdder throttleNanos = new LongAdder();
+
+  private int maxBuckets = DEFAULT_MAX_BUCKETS;
+
+  /**
+   * Instantiates a new rate limiter, that uses the parallel scheduler for the delays.
+   */
+  public RateLimiter() {
+    this(Schedulers.parallel(), System::nanoTime);
+  }
+
+  /**
+   * Instantiates a new rate limiter.
+   *
+   * @param scheduler the scheduler of the delays
+   * @param nanoTime the source of the current time in nanoseconds
+   */
+  RateLimiter(Scheduler scheduler, LongSupplier nanoTime) {
+    Assert.notNull(scheduler, "Scheduler must be present.");
+    Assert.notNull(nanoTime, "Nano time must be present.");
+    this.scheduler = scheduler;
+    this.nanoTime = nanoTime;
+  }
+
+  /**
+   * With max buckets. If there are more buckets (for example because of many different keys),
+   * the idle buckets are removed.
+   *
+   * @param maxBuckets the maximum number of buckets (default is {@value #DEFAULT_MAX_BUCKETS})
+   * @return the rate limiter
+   */
+  public RateLimiter withMaxBuckets(int maxBuckets) {
+    this.maxBuckets = Math.max(maxBuckets, 1);
+    return this;
+  }
+
+  /**
+   * Gets the number of requests, that are currently delayed.
+   *
+   * @return the queue size
+   */
+  public int getQueueSize() {
+    return queueSize.get();
+  }
+
+  /**
+   * Gets the number of rate limited requests.
+   *
+   * @return the request count
+   */
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  /**
+   * Gets the number of requests, that were delayed.
+   *
+   * @return the throttled count
+   */
+  public long getThrottledCount() {
+    return throttledCount.sum();
+  }
+
+  /**
+   * Gets the number of requests, that were rejected.
+   *
+   * @return the rejected count
+   */
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  /**
+   * Gets the total time, the requests were delayed.
+   *
+   * @return the throttle time
+   */
+  public Duration getThrottleTime() {
+    return Duration.ofNanos(throttleNanos.sum());
+  }
+
+  /**
+   * Gets the number of buckets.
+   *
+   * @return the bucket count
+   */
+  public int getBucketCount() {
+    return buckets.size();
+  }
+
+  /**
+   * Sends the request with the given exchange function, when the bucket of the invocation has a
+   * free slot.
+   *
+   * @param policy the rate limit policy of the method
+   * @param args the arguments of the invocation
+   * @param mono specifies whether the response is a mono or a flux
+   * @param exchange the function, that sends the request
+   * @return the response or a {@link RateLimitExceededException}
+   */
+  Publisher<?> limit(
+      RateLimitPolicy policy,
+      Object[] args,
+      boolean mono,
+      Supplier<? extends Publisher<?>> exchange) {
+
+    Assert.notNull(policy, "Rate limit policy must be present.");
+    Assert.notNull(exchange, "Exchange must be present.");
+    Mono<Void> permit = Mono.defer(() -> acquire(policy, policy.getKey(args)));
+    if (mono) {
+      return permit.then(Mono.defer(() -> Mono.<Object>from(exchange.get())));
+    }
+    return permit.thenMany(Flux.defer(() -> Flux.<Object>from(exchange.get())));
+  }
+
+  private Mono<Void> acquire(RateLimitPolicy policy, Object key) {
+    requestCount.increment();
+    long now = nanoTime.getAsLong();
+    Bucket bucket = getBucket(policy, key, now);
+    long delay = bucket.reserve(now, policy.getMaxWaitNanos());
+    if (delay < 0L) {
+      rejectedCount.increment();
+      return Mono.error(new RateLimitExceededException(bucket.name));
+    }
+    if (delay == 0L) {
+      return Mono.empty();
+    }
+    throttledCount.increment();
+    throttleNanos.add(delay);
+    queueSize.incrementAndGet();
+    return Mono.delay(Duration.ofNanos(delay), scheduler)
+        .doFinally(signal -> queueSize.decrementAndGet())
+        .then();
+  }
+
+  private Bucket getBucket(RateLimitPolicy policy, Object key, long now) {
+    Key bucketKey = new Key(policy.getName(), key);
+    Bucket bucket = buckets.get(bucketKey);
+    if (isNull(bucket)) {
+      if (buckets.size() >= maxBuckets) {
+        buckets.values().removeIf(candidate -> candidate.isIdle(now));
+      }
+      bucket = buckets.computeIfAbsent(bucketKey, k -> new Bucket(
+          isNull(key) ? k.name : k.name + "[" + key + "]",
+          policy.getIntervalNanos(),
+          policy.getBurst(),
+          now));
+    }
+    return bucket;
+  }
+
+  @Override
+  public String toString() {
+    return "RateLimiter{"
+        + "buckets=" + getBucketCount()
+        + ", queueSize=" + getQueueSize()
+        + ", requestCount=" + getRequestCount()
+        + ", throttledCount=" + getThrottledCount()
+        + ", rejectedCount=" + getRejectedCount()
+        + ", throttleTime=" + getThrottleTime()
+        + '}';
+  }
+
+  @EqualsAndHashCode
+  @RequiredArgsConstructor
+  private static final class Key {
+
+    private final String name;
+
+    private final Object key;
+  }
+
+  private static final class Bucket {
+
+    private final String name;
+
+    private final long interval;
+
+    private final long tolerance;
+
+    /**
+     * The theoretical arrival time of the next request. If it is in the past, the bucket is
+     * full.
+     */
+    private final AtomicLong arrival;
+
+    private Bucket(String name, long interval, int burst, long now) {
+      this.name = name;
+      this.interval = interval;
+      this.tolerance = (Math.max(burst, 1) - 1) * interval;
+      this.arrival = new AtomicLong(now);
+    }
+
+    /**
+     * Reserves the next free slot.
+     *
+     * @param now the current time in nanoseconds
+     * @param maxWait the maximum wait in nanoseconds
+     * @return the delay of the request in nanoseconds or {@code -1}, if it would exceed the
+     *     maximum wait
+     */
+    private long reserve(long now, long maxWait) {
+      for (;;) {
+        long current = arrival.get();
+        long next = Math.max(current, now);
+        long delay = Math.max(next - tolerance - now, 0L);
+        if (delay > maxWait) {
+          return -1L;
+        }
+        if (arrival.compareAndSet(current, next + interval)) {
+          return delay;
+        }
+      }
+    }
+
+    private boolean isIdle(long now) {
+      return arrival.get() <= now;
+    }
+  }
+
+}
@@ -18,14 +18,23 @@ package org.bremersee.apiclient.webflux;
 
 import static java.util.Objects.isNull;
 
-import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
 import org.bremersee.apiclient.ApiClient;
+import org.bremersee.apiclient.webflux.contract.spring.ReactiveSpringContract;
 import org.springframework.util.Assert;
 import org.springframework.web.reactive.function.client.WebClient;
 
 /**
- * The reactive api client.
+ * The reactive api client. Its settings are immutable, so that it can be shared by many
+ * threads; every {@code with} method returns a new reactive api client with an empty cache of api
+ * clients.
+ *
+ * <p>An api client is a {@link Proxy} of the api interface. If the api interface is annotated
+ * with {@link GenerateApiClient}, the implementation, that is generated at compile time, is used
+ * instead, as long as the contract and the settings allow it; it calls the web client without
+ * reflection and without the invocation handler.
  *
  * @author Christian Bremer
  */
@@ -33,10 +42,16 @@ public class ReactiveApiClient extends ApiClient {
 
   private final WebClient.Builder webClientBuilder;
 
-  private final ReactiveContract contract;
-
   private final ReactiveErrorHandler errorHandler;
 
+  private final boolean defaultContract;
+
+  private final Builder settings;
+
+  private final ApiClientCache cache;
+
+  private final LoadBalancer.Strategy loadBalancingStrategy;
+
   /**
    * Instantiates a new reactive api client.
    *
@@ -51,7 +66,8 @@ public class ReactiveApiClient extends ApiClient {
   }
 
   /**
-   * Instantiates a new reactive api client.
+   * Instantiates a new reactive api client. The given contract is copied into an immutable
+   * snapshot, so that its functions are only created once for all proxies of this client.
    *
    * @param webClientBuilder the web client builder
    * @param contract the contract
@@ -62,17 +78,337 @@ public class ReactiveApiClient extends ApiClient {
       ReactiveContract contract,
       ReactiveErrorHandler errorHandler) {
 
-    this.webClientBuilder = isNull(webClientBuilder) ? WebClient.builder() : webClientBuilder;
-    this.contract = contract;
+    this(
+        isNull(webClientBuilder) ? WebClient.builder() : webClientBuilder,
+        errorHandler,
+        contract instanceof ReactiveSpringContract
+            && ((ReactiveSpringContract) contract).isGeneratedApiClientCompatible(),
+        new Builder()
+            .contract(isNull(contract) ? null : ImmutableReactiveContract.copyOf(contract))
+            .errorHandler(errorHandler),
+        new ApiClientCache(),
+        LoadBalancer.Strategy.ROUND_ROBIN);
+  }
+
+  private ReactiveApiClient(
+      WebClient.Builder webClientBuilder,
+      ReactiveErrorHandler errorHandler,
+      boolean defaultContract,
+      Builder settings,
+      ApiClientCache cache,
+      LoadBalancer.Strategy loadBalancingStrategy) {
+
+    this.webClientBuilder = webClientBuilder;
     this.errorHandler = errorHandler;
+    this.defaultContract = defaultContract;
+    this.settings = settings;
+    this.cache = cache;
+    this.loadBalancingStrategy = loadBalancingStrategy;
+  }
+
+  private ReactiveApiClient with(Builder settings) {
+    return new ReactiveApiClient(
+        webClientBuilder,
+        errorHandler,
+        defaultContract,
+        settings,
+        new ApiClientCache(cache.getMaximumSize()),
+        loadBalancingStrategy);
+  }
+
+  /**
+   * With eager validation. If enabled, all methods of an api interface are validated and their
+   * annotations are resolved, when the proxy is created, so that a misconfigured method fails at
+   * startup and not on its first call.
+   *
+   * @param eagerValidation {@code true} to validate the api methods eagerly (default is {@code
+   *     false})
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withEagerValidation(boolean eagerValidation) {
+    return with(settings.copy().eagerValidation(eagerValidation));
+  }
+
+  /**
+   * With warm up iterations. Every method of an api interface is bound the given number of times
+   * with empty arguments, when the proxy is created, so that the first real requests are not
+   * slower than the following ones. It has only an effect, if eager validation is enabled.
+   *
+   * @param warmUpIterations the warm up iterations (default is {@code 0})
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withWarmUpIterations(int warmUpIterations) {
+    return with(settings.copy().warmUpIterations(warmUpIterations));
+  }
+
+  /**
+   * With response cache. If it is present, the decoded responses of all GET methods, that return
+   * a mono, are cached in the given response cache (see {@link CacheResponse}). Without a response
+   * cache only the responses of methods with {@link CacheResponse} are cached. The response cache
+   * is shared by all api clients of this reactive api client. The implementations, that were
+   * generated at build time, are not used, if a response cache is present.
+   *
+   * <p><strong>The cached values are shared:</strong> all callers of a cached method get the same
+   * decoded instances, so they must not modify them (see {@link CacheResponse}).
+   *
+   * @param responseCache the response cache
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withResponseCache(ResponseCache responseCache) {
+    return with(settings.copy().responseCache(responseCache));
+  }
+
+  /**
+   * With request coalescer. If it is present, concurrent invocations of all GET methods with
+   * equal arguments share one request (see {@link CoalesceRequests}). Without a request coalescer
+   * only the invocations of methods with {@link CoalesceRequests} are coalesced. The
+   * implementations, that were generated at build time, are not used, if a request coalescer is
+   * present.
+   *
+   * @param requestCoalescer the request coalescer
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withRequestCoalescer(RequestCoalescer requestCoalescer) {
+    return with(settings.copy().requestCoalescer(requestCoalescer));
+  }
+
+  /**
+   * With request batcher. It collects the invocations of all methods with {@link BatchWith} of
+   * all api clients of this reactive api client. Without a request batcher every api client,
+   * that has such methods, uses its own request batcher.
+   *
+   * @param requestBatcher the request batcher
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withRequestBatcher(RequestBatcher requestBatcher) {
+    return with(settings.copy().requestBatcher(requestBatcher));
+  }
+
+  /**
+   * With request hedger. If it is present, the requests of all GET and HEAD methods, that return
+   * a mono, are hedged (see {@link Hedge}). Without a request hedger only the requests of methods
+   * with {@link Hedge} are hedged. The implementations, that were generated at build time, are
+   * not used, if a request hedger is present.
+   *
+   * @param requestHedger the request hedger
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withRequestHedger(RequestHedger requestHedger) {
+    return with(settings.copy().requestHedger(requestHedger));
+  }
+
+  /**
+   * With retry budget. It limits the retries of all api clients of this reactive api client.
+   * Without a retry budget every api client, that retries requests, uses its own retry budget.
+   * The retry policy of all methods is set on the error handler (see {@link
+   * ReactiveErrorHandler#getRetryPolicy()}) and the retry policy of a single method with
+   * {@link Retryable}.
+   *
+   * @param retryBudget the retry budget
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withRetryBudget(RetryBudget retryBudget) {
+    return with(settings.copy().retryBudget(retryBudget));
+  }
+
+  /**
+   * With circuit breaker. If it is present, the calls of all methods of all api clients of this
+   * reactive api client are protected by the circuits of the given circuit breaker. The
+   * implementations, that were generated at build time, are not used, if a circuit breaker is
+   * present.
+   *
+   * @param circuitBreaker the circuit breaker
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withCircuitBreaker(CircuitBreaker circuitBreaker) {
+    return with(settings.copy().circuitBreaker(circuitBreaker));
+  }
+
+  /**
+   * With concurrency limiter. If it is present, the requests of all api clients of this reactive
+   * api client are gated by the adaptive limits of the given concurrency limiter. The
+   * implementations, that were generated at build time, are not used, if a concurrency limiter is
+   * present.
+   *
+   * @param concurrencyLimiter the concurrency limiter
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+    return with(settings.copy().concurrencyLimiter(concurrencyLimiter));
+  }
+
+  /**
+   * With rate limiter. It keeps the requests of the methods with {@link RateLimit} of all api
+   * clients of this reactive api client within their quotas, so that api clients of the same api
+   * interface with different base urls share their buckets. Without a rate limiter every api
+   * client, that has such methods, uses its own rate limiter.
+   *
+   * @param rateLimiter the rate limiter
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withRateLimiter(RateLimiter rateLimiter) {
+    return with(settings.copy().rateLimiter(rateLimiter));
   }
 
+  /**
+   * With timeouts. They set the timeouts of the methods of all api clients of this reactive api
+   * client in addition to {@link Timeout} and the header, that sends the deadline. The
+   * implementations, that were generated at build time, are not used, if timeouts are present.
+   *
+   * @param timeouts the timeouts
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withTimeouts(Timeouts timeouts) {
+    return with(settings.copy().timeouts(timeouts));
+  }
+
+  /**
+   * With load balancing strategy. It is used by the api clients, that are created with more than
+   * one base url (see {@link #newInstance(Class, List)}).
+   *
+   * @param loadBalancingStrategy the load balancing strategy (default is {@link
+   *     LoadBalancer.Strategy#ROUND_ROBIN})
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withLoadBalancingStrategy(LoadBalancer.Strategy loadBalancingStrategy) {
+    if (isNull(loadBalancingStrategy)) {
+      return this;
+    }
+    return new ReactiveApiClient(
+        webClientBuilder,
+        errorHandler,
+        defaultContract,
+        settings,
+        new ApiClientCache(cache.getMaximumSize()),
+        loadBalancingStrategy);
+  }
+
+  /**
+   * With maximum cache size. The api clients, that are created by {@link #newInstance(Class,
+   * String)}, are cached by api interface and base url. A maximum size of zero or less disables
+   * the cache.
+   *
+   * @param maximumCacheSize the maximum cache size (default is {@value
+   *     ApiClientCache#DEFAULT_MAXIMUM_SIZE})
+   * @return a new reactive api client with the given setting
+   */
+  public ReactiveApiClient withMaximumCacheSize(int maximumCacheSize) {
+    return new ReactiveApiClient(
+        webClientBuilder,
+        errorHandler,
+        defaultContract,
+        settings,
+        new ApiClientCache(maximumCacheSize),
+        loadBalancingStrategy);
+  }
+
+  /**
+   * Gets the cache of the api clients.
+   *
+   * @return the cache
+   */
+  public ApiClientCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Creates new instance of the api interface. If an implementation was generated at build time
+   * (see {@link GenerateApiClient}), it is preferred over a proxy, as long as the contract is a
+   * {@link ReactiveSpringContract} and all other settings have their default values. Otherwise the
+   * proxy is used, so that no setting is ignored. The instances are cached by
+   * api interface and base url (see {@link #withMaximumCacheSize(int)}), so that the web client is
+   * only built once per base url.
+   *
+   * @param <T> the api interface type
+   * @param target the target
+   * @param baseUrl the base url
+   * @return the api client
+   */
   @Override
   public <T> T newInstance(Class<T> target, String baseUrl) {
-    return new Builder()
-        .webClient(webClientBuilder.baseUrl(baseUrl).build())
-        .contract(contract)
-        .errorHandler(errorHandler)
+    return cache.get(target, baseUrl, () -> createInstance(target, baseUrl));
+  }
+
+  /**
+   * Creates new instance of the api interface, that spreads its invocations over the given base
+   * urls with a {@link LoadBalancer} (see {@link #withLoadBalancingStrategy(
+   * LoadBalancer.Strategy)}). The instances are cached by api interface and base urls, so that
+   * the statistics of the endpoints are kept.
+   *
+   * @param <T> the api interface type
+   * @param target the target
+   * @param baseUrls the base urls
+   * @return the api client
+   */
+  public <T> T newInstance(Class<T> target, List<String> baseUrls) {
+    Assert.notEmpty(baseUrls, "Base urls must be present.");
+    if (baseUrls.size() == 1) {
+      return newInstance(target, baseUrls.get(0));
+    }
+    return cache.get(target, String.join(" ", baseUrls), () -> createInstance(
+        target,
+        new LoadBalancer(baseUrls, loadBalancingStrategy)));
+  }
+
+  /**
+   * Creates new instance of the api interface, that spreads its invocations over the endpoints
+   * of the given load balancer. The instance is not cached.
+   *
+   * @param <T> the api interface type
+   * @param target the target
+   * @param loadBalancer the load balancer
+   * @return the api client
+   */
+  public <T> T newInstance(Class<T> target, LoadBalancer loadBalancer) {
+    Assert.notNull(loadBalancer, "Load balancer must be present.");
+    return createInstance(target, loadBalancer);
+  }
+
+  private <T> T createInstance(Class<T> target, String baseUrl) {
+    WebClient webClient = webClientBuilder.clone().baseUrl(baseUrl).build();
+    boolean generate = isGeneratedApiClientAllowed();
+    Optional<T> generated = generate
+        ? GeneratedApiClients.newInstance(target, webClient, errorHandler)
+        : Optional.empty();
+    return generated.orElseGet(() -> createProxy(target, webClient, null));
+  }
+
+  /**
+   * Determines whether an implementation, that was generated at build time, may be used. It only
+   * uses the web client and the error handler, so the contract must be a reactive spring contract
+   * with the default resolvers and inserters (see {@link
+   * ReactiveSpringContract#isGeneratedApiClientCompatible()}) and all other settings must have
+   * their default values.
+   *
+   * @return {@code true}, if a generated implementation may be used
+   */
+  private boolean isGeneratedApiClientAllowed() {
+    return defaultContract
+        && !settings.eagerValidation
+        && settings.warmUpIterations == 0
+        && isNull(settings.responseCache)
+        && isNull(settings.requestCoalescer)
+        && isNull(settings.requestBatcher)
+        && isNull(settings.requestHedger)
+        && isNull(settings.retryBudget)
+        && isNull(settings.circuitBreaker)
+        && isNull(settings.concurrencyLimiter)
+        && isNull(settings.rateLimiter)
+        && isNull(settings.timeouts)
+        && (isNull(errorHandler) || isNull(errorHandler.getRetryPolicy()));
+  }
+
+  private <T> T createInstance(Class<T> target, LoadBalancer loadBalancer) {
+    WebClient webClient = webClientBuilder.clone()
+        .baseUrl(loadBalancer.getDefaultBaseUrl())
+        .build();
+    return createProxy(target, webClient, loadBalancer);
+  }
+
+  private <T> T createProxy(Class<T> target, WebClient webClient, LoadBalancer loadBalancer) {
+    return settings.copy()
+        .webClient(webClient)
+        .loadBalancer(loadBalancer)
         .build(target);
   }
 
@@ -96,12 +432,60 @@ public class ReactiveApiClient extends ApiClient {
 
     private ReactiveErrorHandler errorHandler;
 
+    private boolean eagerValidation;
+
+    private int warmUpIterations;
+
+    private ResponseCache responseCache;
+
+    private RequestCoalescer requestCoalescer;
+
+    private RequestBatcher requestBatcher;
+
+    private LoadBalancer loadBalancer;
+
+    private RequestHedger requestHedger;
+
+    private RetryBudget retryBudget;
+
+    private CircuitBreaker circuitBreaker;
+
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    private RateLimiter rateLimiter;
+
+    private Timeouts timeouts;
+
     /**
      * Instantiates a new builder.
      */
     Builder() {
     }
 
+    /**
+     * Creates a copy of this builder.
+     *
+     * @return the copy
+     */
+    Builder copy() {
+      return new Builder()
+          .webClient(webClient)
+          .contract(contract)
+          .errorHandler(errorHandler)
+          .eagerValidation(eagerValidation)
+          .warmUpIterations(warmUpIterations)
+          .responseCache(responseCache)
+          .requestCoalescer(requestCoalescer)
+          .requestBatcher(requestBatcher)
+          .loadBalancer(loadBalancer)
+          .requestHedger(requestHedger)
+          .retryBudget(retryBudget)
+          .circuitBreaker(circuitBreaker)
+          .concurrencyLimiter(concurrencyLimiter)
+          .rateLimiter(rateLimiter)
+          .timeouts(timeouts);
+    }
+
     /**
      * Sets the web client with the base url.
      *
@@ -136,19 +520,185 @@ public class ReactiveApiClient extends ApiClient {
     }
 
     /**
-     * Builds proxy.
+     * Eager validation builder. If enabled, all methods of the api interface are validated, when
+     * the proxy is built.
+     *
+     * @param eagerValidation {@code true} to validate the api methods eagerly (default is {@code
+     *     false})
+     * @return the builder
+     */
+    public Builder eagerValidation(boolean eagerValidation) {
+      this.eagerValidation = eagerValidation;
+      return this;
+    }
+
+    /**
+     * Warm up iterations builder. The number of dry runs per method, that are made after the
+     * eager validation.
+     *
+     * @param warmUpIterations the warm up iterations (default is {@code 0})
+     * @return the builder
+     */
+    public Builder warmUpIterations(int warmUpIterations) {
+      this.warmUpIterations = Math.max(warmUpIterations, 0);
+      return this;
+    }
+
+    /**
+     * Response cache builder. If a response cache is present, the decoded responses of all GET
+     * methods, that return a mono, are cached. Otherwise only the responses of methods with
+     * {@link CacheResponse} are cached.
+     *
+     * @param responseCache the response cache
+     * @return the builder
+     */
+    public Builder responseCache(ResponseCache responseCache) {
+      this.responseCache = responseCache;
+      return this;
+    }
+
+    /**
+     * Request coalescer builder. If a request coalescer is present, concurrent invocations of all
+     * GET methods with equal arguments share one request. Otherwise only the invocations of
+     * methods with {@link CoalesceRequests} are coalesced.
+     *
+     * @param requestCoalescer the request coalescer
+     * @return the builder
+     */
+    public Builder requestCoalescer(RequestCoalescer requestCoalescer) {
+      this.requestCoalescer = requestCoalescer;
+      return this;
+    }
+
+    /**
+     * Request batcher builder. It collects the invocations of the methods with {@link BatchWith}.
+     * If it is not present, but there are such methods, the api client uses its own request
+     * batcher.
+     *
+     * @param requestBatcher the request batcher
+     * @return the builder
+     */
+    public Builder requestBatcher(RequestBatcher requestBatcher) {
+      this.requestBatcher = requestBatcher;
+      return this;
+    }
+
+    /**
+     * Load balancer builder. If a load balancer is present, the base url of every request is
+     * selected by the load balancer and the base url of the web client is only used, if the
+     * contract does not support a base url per invocation.
+     *
+     * @param loadBalancer the load balancer
+     * @return the builder
+     */
+    public Builder loadBalancer(LoadBalancer loadBalancer) {
+      this.loadBalancer = loadBalancer;
+      return this;
+    }
+
+    /**
+     * Request hedger builder. If a request hedger is present, the requests of all GET and HEAD
+     * methods, that return a mono, are hedged. Otherwise only the requests of methods with
+     * {@link Hedge} are hedged.
+     *
+     * @param requestHedger the request hedger
+     * @return the builder
+     */
+    public Builder requestHedger(RequestHedger requestHedger) {
+      this.requestHedger = requestHedger;
+      return this;
+    }
+
+    /**
+     * Retry budget builder. It limits the retries of the methods, that are retried (see {@link
+     * ReactiveErrorHandler#getRetryPolicy()} and {@link Retryable}). If it is not present, but
+     * there are such methods, the api client uses its own retry budget.
+     *
+     * @param retryBudget the retry budget
+     * @return the builder
+     */
+    public Builder retryBudget(RetryBudget retryBudget) {
+      this.retryBudget = retryBudget;
+      return this;
+    }
+
+    /**
+     * Circuit breaker builder. If a circuit breaker is present, the calls of all methods are
+     * protected by its circuits.
+     *
+     * @param circuitBreaker the circuit breaker
+     * @return the builder
+     */
+    public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+      this.circuitBreaker = circuitBreaker;
+      return this;
+    }
+
+    /**
+     * Concurrency limiter builder. If a concurrency limiter is present, the number of requests in
+     * flight is limited by its adaptive limits.
+     *
+     * @param concurrencyLimiter the concurrency limiter
+     * @return the builder
+     */
+    public Builder concurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+      this.concurrencyLimiter = concurrencyLimiter;
+      return this;
+    }
+
+    /**
+     * Rate limiter builder. It keeps the requests of the methods with {@link RateLimit} within
+     * their quotas. If it is not present, but there are such methods, the api client uses its own
+     * rate limiter.
+     *
+     * @param rateLimiter the rate limiter
+     * @return the builder
+     */
+    public Builder rateLimiter(RateLimiter rateLimiter) {
+      this.rateLimiter = rateLimiter;
+      return this;
+    }
+
+    /**
+     * Timeouts builder. They set the timeouts of the methods in addition to {@link Timeout} and
+     * the header, that sends the deadline.
+     *
+     * @param timeouts the timeouts
+     * @return the builder
+     */
+    public Builder timeouts(Timeouts timeouts) {
+      this.timeouts = timeouts;
+      return this;
+    }
+
+    /**
+     * Builds proxy. If eager validation is enabled, all api methods are validated first.
      *
      * @param <T> the type parameter
      * @param target the target
      * @return the t
+     * @throws IllegalStateException if eager validation is enabled and an api method is invalid
      */
     public <T> T build(Class<T> target) {
       Assert.notNull(target, "Target must be present.");
-      InvocationHandler handler = new ReactiveInvocationHandler(
+      ReactiveInvocationHandler handler = new ReactiveInvocationHandler(
           target,
           webClient,
           contract,
-          errorHandler);
+          errorHandler,
+          responseCache,
+          requestCoalescer,
+          requestBatcher,
+          loadBalancer,
+          requestHedger,
+          retryBudget,
+          circuitBreaker,
+          concurrencyLimiter,
+          rateLimiter,
+          timeouts);
+      if (eagerValidation) {
+        handler.validate(warmUpIterations);
+      }
       //noinspection unchecked
       return (T) Proxy.newProxyInstance(target.getClassLoader(), new Class<?>[]{target}, handler);
     }
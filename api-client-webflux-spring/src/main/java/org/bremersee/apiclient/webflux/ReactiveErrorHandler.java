@@ -65,4 +65,14 @@ public interface ReactiveErrorHandler {
   @Nullable
   Function<ClientResponse, Mono<? extends Throwable>> getErrorFunction();
 
+  /**
+   * Gets the retry policy of all methods of the api client. The errors of the error function
+   * are only retried, if they match the retryable error predicate of the policy. If it is not
+   * present, only the methods with {@link Retryable} are retried.
+   *
+   * @return the retry policy
+   */
+  @Nullable
+  RetryPolicy getRetryPolicy();
+
 }
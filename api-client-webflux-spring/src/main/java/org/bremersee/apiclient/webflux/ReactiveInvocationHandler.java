@@ -16,16 +16,43 @@
 
 package org.bremersee.apiclient.webflux;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static org.springframework.core.annotation.AnnotatedElementUtils.hasAnnotation;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.bremersee.apiclient.webflux.contract.HttpRequestMethod;
+import org.bremersee.apiclient.webflux.contract.RequestUriSpecFunction;
+import org.reactivestreams.Publisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClient.RequestBodyUriSpec;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersUriSpec;
 import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
+import org.springframework.web.util.UriBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
 
 /**
  * The api client invocation handler.
@@ -34,35 +61,218 @@ import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
  */
 class ReactiveInvocationHandler implements InvocationHandler {
 
+  /**
+   * The time after the deadline, when a response publisher is cancelled, that has not failed
+   * with an expired deadline by itself.
+   */
+  private static final Duration DEADLINE_GRACE = Duration.ofMillis(50L);
+
   private final Class<?> targetClass;
 
   private final WebClient webClient;
 
-  private final ReactiveContract contract;
+  private final BiFunction<Invocation, WebClient, RequestHeadersUriSpec<?>> requestUriSpecFunction;
+
+  private final BiFunction<Invocation, UriBuilder, URI> requestUriFunction;
+
+  private final BiConsumer<Invocation, HttpHeaders> headersConsumer;
+
+  private final BiConsumer<Invocation, MultiValueMap<String, String>> cookiesConsumer;
+
+  private final BiFunction<Invocation, RequestBodyUriSpec, RequestHeadersUriSpec<?>>
+      requestBodyInserterFunction;
+
+  private final BiFunction<Invocation, ResponseSpec, Publisher<?>> responseFunction;
 
   private final ReactiveErrorHandler errorHandler;
 
+  private final ResponseCache responseCache;
+
+  private final boolean cacheGetMethods;
+
+  private final RequestCoalescer requestCoalescer;
+
+  private final boolean coalesceGetMethods;
+
+  private final RequestBatcher requestBatcher;
+
+  private final LoadBalancer loadBalancer;
+
+  private final RequestHedger requestHedger;
+
+  private final boolean hedgeGetMethods;
+
+  private final RetryBudget retryBudget;
+
+  private final CircuitBreaker circuitBreaker;
+
+  private final ConcurrencyLimiter concurrencyLimiter;
+
+  private final RateLimiter rateLimiter;
+
+  private final Timeouts timeouts;
+
+  private final Map<Method, MethodPlan> methodPlans = new ConcurrentHashMap<>();
+
   /**
-   * Instantiates a new reactive invocation handler.
+   * Instantiates a new reactive invocation handler. The functions of the contract are resolved
+   * once here, so that a contract, that creates its functions on demand, is not called on every
+   * invocation.
    *
    * @param targetClass the target class
    * @param webClient the web client
    * @param contract the contract
    * @param errorHandler the error handler
+   * @param responseCache the response cache; if it is present, the responses of all GET methods
+   *     are cached, otherwise only the responses of methods with {@link CacheResponse} are cached
+   *     in a response cache of this handler
+   * @param requestCoalescer the request coalescer; if it is present, the requests of all GET
+   *     methods are coalesced, otherwise only the requests of methods with {@link
+   *     CoalesceRequests} are coalesced by a request coalescer of this handler
+   * @param requestBatcher the request batcher of the methods with {@link BatchWith}; if it is
+   *     not present, but there are such methods, this handler uses its own request batcher
+   * @param loadBalancer the load balancer, that selects the base url of every request (can be
+   *     {@code null})
+   * @param requestHedger the request hedger; if it is present, the requests of all GET and HEAD
+   *     methods, that return a mono, are hedged, otherwise only the requests of methods with
+   *     {@link Hedge} are hedged by a request hedger of this handler
+   * @param retryBudget the retry budget of the methods, that are retried (see {@link
+   *     ReactiveErrorHandler#getRetryPolicy()} and {@link Retryable}); if it is not present,
+   *     but there are such methods, this handler uses its own retry budget
+   * @param circuitBreaker the circuit breaker of all methods (can be {@code null})
+   * @param concurrencyLimiter the concurrency limiter of all requests (can be {@code null})
+   * @param rateLimiter the rate limiter of the methods with {@link RateLimit}; if it is not
+   *     present, but there are such methods, this handler uses its own rate limiter
+   * @param timeouts the timeouts of the methods; if they are not present, only the timeouts,
+   *     that are set with {@link Timeout}, apply
    */
   ReactiveInvocationHandler(
       Class<?> targetClass,
       WebClient webClient,
       ReactiveContract contract,
-      ReactiveErrorHandler errorHandler) {
+      ReactiveErrorHandler errorHandler,
+      ResponseCache responseCache,
+      RequestCoalescer requestCoalescer,
+      RequestBatcher requestBatcher,
+      LoadBalancer loadBalancer,
+      RequestHedger requestHedger,
+      RetryBudget retryBudget,
+      CircuitBreaker circuitBreaker,
+      ConcurrencyLimiter concurrencyLimiter,
+      RateLimiter rateLimiter,
+      Timeouts timeouts) {
 
     Assert.notNull(targetClass, "Target class must be present.");
     Assert.notNull(webClient, "Web client must be present.");
     Assert.notNull(contract, "Contract must be present.");
     this.targetClass = targetClass;
     this.webClient = webClient;
-    this.contract = contract;
+    this.requestUriSpecFunction = contract.getRequestUriSpecFunction();
+    this.requestUriFunction = contract.getRequestUriFunction();
+    this.headersConsumer = contract.getHeadersConsumer();
+    this.cookiesConsumer = contract.getCookiesConsumer();
+    this.requestBodyInserterFunction = contract.getRequestBodyInserterFunction();
+    this.responseFunction = contract.getResponseFunction();
     this.errorHandler = errorHandler;
+    boolean cached = hasAnnotation(targetClass, CacheResponse.class);
+    boolean coalesced = hasAnnotation(targetClass, CoalesceRequests.class);
+    boolean batched = false;
+    boolean hedged = hasAnnotation(targetClass, Hedge.class);
+    boolean retried = hasAnnotation(targetClass, Retryable.class)
+        || (nonNull(errorHandler) && nonNull(errorHandler.getRetryPolicy()));
+    boolean rateLimited = hasAnnotation(targetClass, RateLimit.class);
+    for (Method method : targetClass.getMethods()) {
+      if (!ReflectionUtils.isObjectMethod(method)) {
+        methodPlans.put(method, new MethodPlan(targetClass, method));
+        cached = cached || hasAnnotation(method, CacheResponse.class);
+        coalesced = coalesced || hasAnnotation(method, CoalesceRequests.class);
+        batched = batched || hasAnnotation(method, BatchWith.class);
+        hedged = hedged || hasAnnotation(method, Hedge.class);
+        retried = retried || hasAnnotation(method, Retryable.class);
+        rateLimited = rateLimited || hasAnnotation(method, RateLimit.class);
+      }
+    }
+    this.cacheGetMethods = nonNull(responseCache);
+    this.responseCache = isNull(responseCache) && cached ? new ResponseCache() : responseCache;
+    this.coalesceGetMethods = nonNull(requestCoalescer);
+    this.requestCoalescer = isNull(requestCoalescer) && coalesced
+        ? new RequestCoalescer()
+        : requestCoalescer;
+    this.requestBatcher = isNull(requestBatcher) && batched
+        ? new RequestBatcher()
+        : requestBatcher;
+    this.loadBalancer = loadBalancer;
+    this.hedgeGetMethods = nonNull(requestHedger);
+    this.requestHedger = isNull(requestHedger) && hedged ? new RequestHedger() : requestHedger;
+    this.retryBudget = isNull(retryBudget) && retried ? new RetryBudget() : retryBudget;
+    this.circuitBreaker = circuitBreaker;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.rateLimiter = isNull(rateLimiter) && rateLimited ? new RateLimiter() : rateLimiter;
+    this.timeouts = isNull(timeouts) ? new Timeouts() : timeouts;
+  }
+
+  /**
+   * Gets the method plan of the given method.
+   *
+   * @param method the method
+   * @return the method plan
+   */
+  MethodPlan getMethodPlan(Method method) {
+    return methodPlans.computeIfAbsent(method, m -> new MethodPlan(targetClass, m));
+  }
+
+  /**
+   * Validates all api methods of the target class by binding every method once with empty
+   * arguments. So all annotations are resolved and all method plans are filled before the first
+   * real invocation, and a misconfigured method fails here and not on its first call. No request
+   * is sent: the returned response publishers are never subscribed.
+   *
+   * @param warmUpIterations the number of additional dry runs per method to warm up the code
+   *     paths of the binding
+   * @throws IllegalStateException if a method of the target class is invalid
+   */
+  void validate(int warmUpIterations) {
+    for (MethodPlan methodPlan : methodPlans.values()) {
+      Method method = methodPlan.getMethod();
+      if (!Modifier.isAbstract(method.getModifiers())) {
+        continue;
+      }
+      for (int i = 0; i <= Math.max(warmUpIterations, 0); i++) {
+        try {
+          dryRun(methodPlan);
+        } catch (RuntimeException e) {
+          throw new IllegalStateException(String.format(
+              "Method '%s' of api '%s' is invalid: %s",
+              method.getName(), targetClass.getName(), e.getMessage()), e);
+        }
+      }
+    }
+  }
+
+  private void dryRun(MethodPlan methodPlan) {
+    Invocation invocation = new Invocation(
+        methodPlan,
+        new Object[methodPlan.getMethod().getParameterCount()],
+        Context.empty());
+    getBatchPolicy(invocation);
+    getResponseCachePolicy(invocation);
+    isCoalesced(invocation);
+    getHedgePolicy(invocation);
+    getRetryPolicy(invocation);
+    getRateLimitPolicy(invocation);
+    getTimeout(methodPlan);
+    RequestHeadersUriSpec<?> uriSpec = requestUriSpecFunction.apply(invocation, webClient);
+    try {
+      requestUriFunction.apply(invocation, UriComponentsBuilder.newInstance());
+    } catch (IllegalArgumentException ignored) {
+      // the values of the uri variables are missing in a dry run
+    }
+    headersConsumer.accept(invocation, new HttpHeaders());
+    cookiesConsumer.accept(invocation, new LinkedMultiValueMap<>());
+    if (uriSpec instanceof RequestBodyUriSpec) {
+      uriSpec = requestBodyInserterFunction.apply(invocation, (RequestBodyUriSpec) uriSpec);
+    }
+    responseFunction.apply(invocation, uriSpec.uri("/").retrieve());
   }
 
   @SuppressWarnings("SuspiciousInvocationHandlerImplementation")
@@ -74,34 +284,482 @@ class ReactiveInvocationHandler implements InvocationHandler {
       } else if (ReflectionUtils.isHashCodeMethod(method)) {
         return this.hashCode();
       } else if (ReflectionUtils.isToStringMethod(method)) {
-        return String.format("Reactive api client of %s", targetClass.getName());
+        return toString();
       } else {
         return ReflectionUtils.invokeMethod(method, this, args);
       }
     }
-    Invocation invocation = new Invocation(targetClass, method, args);
-    RequestHeadersUriSpec<?> uriSpec = contract
-        .getRequestUriSpecFunction()
-        .apply(invocation, webClient);
-    uriSpec = (RequestHeadersUriSpec<?>) uriSpec.uri(uriBuilder -> contract
-            .getRequestUriFunction()
-            .apply(invocation, uriBuilder))
-        .headers(httpHeaders -> contract.getHeadersConsumer().accept(invocation, httpHeaders))
-        .cookies(cookies -> contract.getCookiesConsumer().accept(invocation, cookies));
+    return invoke(getMethodPlan(method), args);
+  }
+
+  /**
+   * Invokes the given method plan with the given arguments. If the method returns a publisher,
+   * the request is not built here, but when the returned publisher is subscribed, and it is
+   * built again on every subscription (so {@code retry} or {@code repeat} send a new request). A
+   * publisher, that is never subscribed, costs nothing.
+   *
+   * @param methodPlan the method plan
+   * @param args the arguments
+   * @return the response publisher
+   */
+  Object invoke(MethodPlan methodPlan, Object[] args) {
+    Class<?> returnType = methodPlan.getMethod().getReturnType();
+    if (Mono.class.isAssignableFrom(returnType)) {
+      return Mono.deferContextual(context -> Mono.from(exchange(methodPlan, args, context)));
+    }
+    if (Publisher.class.isAssignableFrom(returnType)) {
+      return Flux.deferContextual(context -> exchange(methodPlan, args, context));
+    }
+    return exchange(methodPlan, args, Context.empty());
+  }
+
+  /**
+   * Sends the request of an invocation. If the invocation has a deadline (see {@link Deadline}
+   * and {@link Timeout}), it is put into the context of the invocation. A request, that is in
+   * flight, when the deadline expires, fails with a {@link TimeoutException} (see
+   * {@link #expire(Invocation, Supplier)}). The response publisher is cancelled a short grace
+   * period later, if it is still waiting, for example for a batch or a permit.
+   *
+   * @param methodPlan the method plan
+   * @param args the arguments
+   * @param context the context of the subscriber
+   * @return the response publisher
+   */
+  private Publisher<?> exchange(MethodPlan methodPlan, Object[] args, ContextView context) {
+    Instant deadline = getDeadline(methodPlan, context);
+    if (isNull(deadline)) {
+      return dispatch(methodPlan, args, context);
+    }
+    Duration remaining = Deadline.remaining(deadline);
+    boolean mono = Mono.class.isAssignableFrom(methodPlan.getMethod().getReturnType());
+    if (remaining.isZero()) {
+      TimeoutException error = deadlineExpired(methodPlan);
+      return mono ? Mono.error(error) : Flux.error(error);
+    }
+    Publisher<?> response = dispatch(
+        methodPlan,
+        args,
+        Context.of(context).put(Deadline.CONTEXT_KEY, deadline));
+    if (mono) {
+      return Mono.from(response).timeout(remaining.plus(DEADLINE_GRACE));
+    }
+    return Flux.from(response).timeout(
+        Mono.delay(remaining.plus(DEADLINE_GRACE)),
+        item -> Mono.delay(Deadline.remaining(deadline).plus(DEADLINE_GRACE)));
+  }
+
+  /**
+   * Sends the request with the given exchange function and lets its response fail with a
+   * {@link TimeoutException}, when the deadline of the invocation expires. The error is
+   * signalled inside the concurrency limiter, the load balancer, the circuit breaker and the
+   * request hedger, so that they record the expired request as a timeout and not as a cancelled
+   * call.
+   *
+   * @param invocation the invocation
+   * @param exchange the function, that sends the request
+   * @return the response publisher
+   */
+  private Publisher<?> expire(Invocation invocation, Supplier<? extends Publisher<?>> exchange) {
+    Instant deadline = Deadline.get(invocation.getContext());
+    if (isNull(deadline)) {
+      return exchange.get();
+    }
+    MethodPlan methodPlan = invocation.getMethodPlan();
+    Duration remaining = Deadline.remaining(deadline);
+    if (isMono(invocation)) {
+      return remaining.isZero()
+          ? Mono.error(deadlineExpired(methodPlan))
+          : Mono.<Object>from(exchange.get())
+              .timeout(remaining, Mono.error(() -> deadlineExpired(methodPlan)));
+    }
+    return remaining.isZero()
+        ? Flux.error(deadlineExpired(methodPlan))
+        : Flux.<Object>from(exchange.get()).timeout(
+            Mono.delay(remaining),
+            item -> Mono.delay(Deadline.remaining(deadline)),
+            Flux.error(() -> deadlineExpired(methodPlan)));
+  }
+
+  private TimeoutException deadlineExpired(MethodPlan methodPlan) {
+    return new TimeoutException(String.format(
+        "The deadline of method '%s' of api '%s' has expired.",
+        methodPlan.getMethod().getName(), targetClass.getName()));
+  }
+
+  /**
+   * Gets the deadline of an invocation of the given method. It is the earlier one of the
+   * deadline in the context and of the timeout of the method.
+   *
+   * @param methodPlan the method plan
+   * @param context the context
+   * @return the deadline or {@code null}, if there is none
+   */
+  private Instant getDeadline(MethodPlan methodPlan, ContextView context) {
+    Instant deadline = Deadline.get(context);
+    Optional<Duration> timeout = getTimeout(methodPlan);
+    if (timeout.isPresent()) {
+      Instant methodDeadline = Instant.now().plus(timeout.get());
+      if (isNull(deadline) || methodDeadline.isBefore(deadline)) {
+        deadline = methodDeadline;
+      }
+    }
+    return deadline;
+  }
+
+  private Publisher<?> dispatch(MethodPlan methodPlan, Object[] args, ContextView context) {
+    Invocation invocation = new Invocation(methodPlan, args, context);
+    BatchPolicy batchPolicy = getBatchPolicy(invocation);
+    if (batchPolicy.isEnabled() && nonNull(args[batchPolicy.getKeyIndex()])) {
+      return requestBatcher.add(
+          batchPolicy.createBatchKey(
+              webClient,
+              invocation,
+              context.getOrDefault(BaseUrl.CONTEXT_KEY, null),
+              requestBatcher.getContextValues(context)),
+          args[batchPolicy.getKeyIndex()],
+          batchPolicy.getWindow(),
+          batchPolicy.getMaxSize(),
+          keys -> batchPolicy.toItemsByKey(
+              (Publisher<?>) invoke(
+                  batchPolicy.getBulkMethodPlan(),
+                  batchPolicy.createBulkArgs(args, keys)),
+              Context.of(context).delete(Deadline.CONTEXT_KEY)));
+    }
+    if (isCoalesced(invocation)) {
+      RequestCoalescer.Key key = new RequestCoalescer.Key(
+          webClient,
+          invocation,
+          context.getOrDefault(BaseUrl.CONTEXT_KEY, null),
+          requestCoalescer.getContextValues(context));
+      return requestCoalescer.coalesce(
+          key,
+          Mono.class.isAssignableFrom(methodPlan.getMethod().getReturnType()),
+          () -> exchange(new Invocation(
+              methodPlan,
+              args,
+              Context.of(context).delete(Deadline.CONTEXT_KEY))));
+    }
+    return exchange(invocation);
+  }
+
+  private Publisher<?> exchange(Invocation invocation) {
+    ResponseCachePolicy cachePolicy = getResponseCachePolicy(invocation);
+    if (cachePolicy.isEnabled()) {
+      return exchangeWithCache(invocation, cachePolicy);
+    }
+    return exchange(invocation, this::send);
+  }
+
+  /**
+   * Sends the request of an invocation with the given send function through the retry budget,
+   * the circuit breaker, the request hedger and the load balancer.
+   *
+   * @param invocation the invocation
+   * @param send the function, that sends the request of the (balanced) invocation
+   * @return the response publisher
+   */
+  private Publisher<?> exchange(
+      Invocation invocation,
+      Function<Invocation, ? extends Publisher<?>> send) {
+
+    Optional<RetryPolicy> retryPolicy = getRetryPolicy(invocation);
+    if (retryPolicy.isPresent()) {
+      return retryBudget.retry(
+          retryPolicy.get(),
+          isMono(invocation),
+          () -> protect(invocation, send));
+    }
+    return protect(invocation, send);
+  }
+
+  private Publisher<?> protect(
+      Invocation invocation,
+      Function<Invocation, ? extends Publisher<?>> send) {
+
+    if (nonNull(circuitBreaker)) {
+      CircuitBreaker.Circuit circuit = invocation.getMethodPlan().resolve(
+          CircuitBreaker.class,
+          methodPlan -> circuitBreaker.getCircuit(targetClass, methodPlan.getMethod()));
+      return circuitBreaker.protect(circuit, isMono(invocation), () -> hedge(invocation, send));
+    }
+    return hedge(invocation, send);
+  }
+
+  private Publisher<?> hedge(
+      Invocation invocation,
+      Function<Invocation, ? extends Publisher<?>> send) {
+
+    HedgePolicy hedgePolicy = getHedgePolicy(invocation);
+    if (hedgePolicy.isEnabled()) {
+      return requestHedger.hedge(hedgePolicy, () -> balance(invocation, send));
+    }
+    return balance(invocation, send);
+  }
+
+  private Publisher<?> balance(
+      Invocation invocation,
+      Function<Invocation, ? extends Publisher<?>> send) {
+
+    if (nonNull(loadBalancer) && !hasBaseUrl(invocation)) {
+      MethodPlan methodPlan = invocation.getMethodPlan();
+      return loadBalancer.exchange(
+          isMono(invocation),
+          baseUrl -> send.apply(new Invocation(
+              methodPlan,
+              invocation.getArgs(),
+              Context.of(invocation.getContext()).put(BaseUrl.CONTEXT_KEY, baseUrl))));
+    }
+    return send.apply(invocation);
+  }
+
+  private static boolean isMono(Invocation invocation) {
+    return Mono.class.isAssignableFrom(invocation.getMethod().getReturnType());
+  }
+
+  private static boolean hasBaseUrl(Invocation invocation) {
+    for (ParameterPlan parameter : invocation.getMethodPlan().getParameters(BaseUrl.class)) {
+      Object value = invocation.getArgs()[parameter.getIndex()];
+      if (nonNull(value) && !String.valueOf(value).isBlank()) {
+        return true;
+      }
+    }
+    return invocation.getContext().hasKey(BaseUrl.CONTEXT_KEY);
+  }
+
+  private Publisher<?> send(Invocation invocation) {
+    AtomicReference<URI> uri = new AtomicReference<>();
+    RequestHeadersUriSpec<?> uriSpec = createRequest(invocation, uri);
+    return limit(
+        invocation,
+        uri.get(),
+        () -> responseFunction.apply(invocation, retrieve(invocation, uriSpec)));
+  }
+
+  /**
+   * Sends the request with the given exchange function, when the rate limiter and the
+   * concurrency limiter permit it, until the deadline of the invocation expires. A response, that
+   * is served from the response cache, is not limited.
+   *
+   * @param invocation the invocation
+   * @param uri the request uri
+   * @param exchange the function, that sends the request
+   * @return the response publisher
+   */
+  private Publisher<?> limit(
+      Invocation invocation,
+      URI uri,
+      Supplier<? extends Publisher<?>> exchange) {
+
+    Supplier<Publisher<?>> expiringExchange = () -> expire(invocation, exchange);
+    RateLimitPolicy rateLimitPolicy = getRateLimitPolicy(invocation);
+    if (rateLimitPolicy.isEnabled()) {
+      return rateLimiter.limit(
+          rateLimitPolicy,
+          invocation.getArgs(),
+          isMono(invocation),
+          () -> limitConcurrency(invocation, uri, expiringExchange));
+    }
+    return limitConcurrency(invocation, uri, expiringExchange);
+  }
+
+  private Publisher<?> limitConcurrency(
+      Invocation invocation,
+      URI uri,
+      Supplier<? extends Publisher<?>> exchange) {
+
+    if (nonNull(concurrencyLimiter)) {
+      return concurrencyLimiter.limit(
+          concurrencyLimiter.getLimit(targetClass, uri),
+          isMono(invocation),
+          exchange);
+    }
+    return exchange.get();
+  }
+
+  /**
+   * Sends the request of a method, whose responses are cached. A fresh cached response is
+   * returned without a request, before the request would be balanced or recorded by the other
+   * stages; a stale one is revalidated. The key of the cache is built from the invocation
+   * without the base url of the load balancer, so that all endpoints share the cached responses.
+   *
+   * @param invocation the invocation
+   * @param cachePolicy the response cache policy of the method
+   * @return the response publisher
+   */
+  private Publisher<?> exchangeWithCache(Invocation invocation, ResponseCachePolicy cachePolicy) {
+    AtomicReference<URI> uri = new AtomicReference<>();
+    RequestHeadersUriSpec<?> uriSpec = createRequest(invocation, uri);
+    HttpHeaders requestHeaders = new HttpHeaders();
+    uriSpec.headers(requestHeaders::putAll);
+    MultiValueMap<String, String> cookies = new LinkedMultiValueMap<>();
+    uriSpec.cookies(cookies::putAll);
+    ResponseCache.Key key = new ResponseCache.Key(
+        invocation.getMethodPlan(), uri.get(), requestHeaders, cookies);
+    ResponseCache.Entry entry = responseCache.get(key, requestHeaders);
+    if (nonNull(entry) && responseCache.isFresh(entry)) {
+      responseCache.recordHit();
+      return cachePolicy.toPublisher(Mono.justOrEmpty(entry.getValue()));
+    }
+    responseCache.recordMiss();
+    return exchange(
+        invocation,
+        balanced -> revalidate(balanced, cachePolicy, key, requestHeaders, entry));
+  }
+
+  /**
+   * Sends the request of a method, whose responses are cached, and puts the response into the
+   * cache. The body is decoded here and not by the response function of the contract, because
+   * the response headers are needed.
+   *
+   * @param invocation the invocation
+   * @param cachePolicy the response cache policy of the method
+   * @param key the key of the cache
+   * @param requestHeaders the request headers
+   * @param entry the stale entry of the cache (can be {@code null})
+   * @return the response publisher
+   */
+  private Publisher<?> revalidate(
+      Invocation invocation,
+      ResponseCachePolicy cachePolicy,
+      ResponseCache.Key key,
+      HttpHeaders requestHeaders,
+      ResponseCache.Entry entry) {
+
+    AtomicReference<URI> uri = new AtomicReference<>();
+    RequestHeadersUriSpec<?> uriSpec = createRequest(invocation, uri);
+    if (nonNull(entry)) {
+      uriSpec.headers(entry::addConditionalHeaders);
+    }
+    return limit(invocation, uri.get(), () -> cachePolicy.toPublisher(
+        cachePolicy.toEntity(retrieve(invocation, uriSpec))
+            .flatMap(response -> Mono.justOrEmpty(responseCache.put(
+                key, requestHeaders, entry, response, cachePolicy.getDefaultMaxAge())))));
+  }
+
+  private BatchPolicy getBatchPolicy(Invocation invocation) {
+    if (isNull(requestBatcher)) {
+      return BatchPolicy.DISABLED;
+    }
+    return invocation.getMethodPlan().resolve(
+        BatchPolicy.class,
+        methodPlan -> BatchPolicy.resolve(methodPlan, this::getMethodPlan));
+  }
+
+  private boolean isCoalesced(Invocation invocation) {
+    if (isNull(requestCoalescer)) {
+      return false;
+    }
+    return invocation.getMethodPlan().resolve(
+        RequestCoalescer.class,
+        methodPlan -> RequestCoalescer.isCoalesced(
+            methodPlan, getHttpMethod(invocation), coalesceGetMethods));
+  }
+
+  private Optional<RetryPolicy> getRetryPolicy(Invocation invocation) {
+    if (isNull(retryBudget)) {
+      return Optional.empty();
+    }
+    return invocation.getMethodPlan().resolve(
+        RetryPolicy.class,
+        methodPlan -> RetryPolicyResolver.resolve(
+            methodPlan,
+            getHttpMethod(invocation),
+            isNull(errorHandler) ? null : errorHandler.getRetryPolicy()));
+  }
+
+  private Optional<Duration> getTimeout(MethodPlan methodPlan) {
+    return methodPlan.resolve(
+        Timeouts.class,
+        plan -> Optional.ofNullable(timeouts.getTimeout(plan)));
+  }
+
+  private RateLimitPolicy getRateLimitPolicy(Invocation invocation) {
+    if (isNull(rateLimiter)) {
+      return RateLimitPolicy.DISABLED;
+    }
+    return invocation.getMethodPlan().resolve(RateLimitPolicy.class, RateLimitPolicy::resolve);
+  }
+
+  private HedgePolicy getHedgePolicy(Invocation invocation) {
+    if (isNull(requestHedger)) {
+      return HedgePolicy.DISABLED;
+    }
+    return invocation.getMethodPlan().resolve(
+        HedgePolicy.class,
+        methodPlan -> HedgePolicy.resolve(
+            methodPlan, getHttpMethod(invocation), hedgeGetMethods));
+  }
+
+  private ResponseCachePolicy getResponseCachePolicy(Invocation invocation) {
+    if (isNull(responseCache)) {
+      return ResponseCachePolicy.DISABLED;
+    }
+    return invocation.getMethodPlan().resolve(
+        ResponseCachePolicy.class,
+        methodPlan -> ResponseCachePolicy.resolve(
+            methodPlan, getHttpMethod(invocation), cacheGetMethods));
+  }
+
+  private HttpRequestMethod getHttpMethod(Invocation invocation) {
+    if (requestUriSpecFunction instanceof RequestUriSpecFunction) {
+      return ((RequestUriSpecFunction) requestUriSpecFunction)
+          .getHttpMethodResolver()
+          .apply(invocation);
+    }
+    return null;
+  }
+
+  private RequestHeadersUriSpec<?> createRequest(
+      Invocation invocation,
+      AtomicReference<URI> uri) {
+
+    RequestHeadersUriSpec<?> uriSpec = requestUriSpecFunction.apply(invocation, webClient);
+    uriSpec = (RequestHeadersUriSpec<?>) uriSpec
+        .uri(uriBuilder -> {
+          URI requestUri = requestUriFunction.apply(invocation, uriBuilder);
+          uri.set(requestUri);
+          return requestUri;
+        })
+        .headers(httpHeaders -> headersConsumer.accept(invocation, httpHeaders))
+        .cookies(cookies -> cookiesConsumer.accept(invocation, cookies));
     if (uriSpec instanceof RequestBodyUriSpec) {
-      uriSpec = contract
-          .getRequestBodyInserterFunction()
-          .apply(invocation, (RequestBodyUriSpec) uriSpec);
+      uriSpec = requestBodyInserterFunction.apply(invocation, (RequestBodyUriSpec) uriSpec);
     }
-    ResponseSpec responseSpec = uriSpec.retrieve();
+    return uriSpec;
+  }
+
+  private void addDeadlineHeader(Invocation invocation, HttpHeaders httpHeaders) {
+    String deadlineHeader = timeouts.getDeadlineHeader();
+    Instant deadline = Deadline.get(invocation.getContext());
+    if (nonNull(deadline) && nonNull(deadlineHeader) && !deadlineHeader.isBlank()) {
+      httpHeaders.set(deadlineHeader, String.valueOf(Deadline.remaining(deadline).toMillis()));
+    }
+  }
+
+  /**
+   * Retrieves the response of the request. The deadline header is set here and not when the
+   * request is created, because the request may have waited for the rate limiter and the
+   * concurrency limiter in the meantime.
+   *
+   * @param invocation the invocation
+   * @param uriSpec the request
+   * @return the response spec
+   */
+  private ResponseSpec retrieve(Invocation invocation, RequestHeadersUriSpec<?> uriSpec) {
+    ResponseSpec responseSpec = uriSpec
+        .headers(httpHeaders -> addDeadlineHeader(invocation, httpHeaders))
+        .retrieve();
     if (nonNull(errorHandler)
         && nonNull(errorHandler.getErrorPredicate())
         && nonNull(errorHandler.getErrorFunction())) {
       responseSpec = responseSpec
           .onStatus(errorHandler.getErrorPredicate(), errorHandler.getErrorFunction());
     }
-    return contract
-        .getResponseFunction()
-        .apply(invocation, responseSpec);
+    return responseSpec;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Reactive api client of %s", targetClass.getName());
   }
 }
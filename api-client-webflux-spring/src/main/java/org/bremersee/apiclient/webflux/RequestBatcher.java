@@ -0,0 +1,321 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+
+/**
+ * The request batcher collects concurrent invocations of a single item method (see
+ * {@link BatchWith}) and sends them as one call of the bulk method. A batch is sent, when its
+ * window has elapsed or when it has reached its maximum size. Invocations with equal keys share
+ * one entry of the batch. The results of the bulk call are routed back to the invocations by
+ * the string values of their keys, so that the type of a key argument (like {@code Long}) may
+ * differ from the type of the key property of the items (like {@code String}).
+ *
+ * <p>An invocation, that is cancelled, is removed from its batch; if all invocations of a batch
+ * are cancelled, the bulk call is not sent or it is cancelled. The bulk call is sent with the
+ * context of the first invocation, but without its deadline; every invocation waits only until
+ * its own deadline. Context entries, that change the request or its response (like an
+ * authentication or a tenant), must be added as context keys (see
+ * {@link #withContextKeys(Object...)}), so that only invocations with equal values are batched.
+ *
+ * <p>The counts of the collected invocations and of the sent batches are recorded, so that the
+ * effect can be monitored.
+ *
+ * @author Christian Bremer
+ */
+public class RequestBatcher {
+
+  private final Scheduler scheduler;
+
+  private final ConcurrentMap<Key, Batch> batches = new ConcurrentHashMap<>();
+
+  private final LongAdder invocationCount = new LongAdder();
+
+  private final LongAdder batchCount = new LongAdder();
+
+  private List<Object> contextKeys = List.of();
+
+  /**
+   * Instantiates a new request batcher, that uses the parallel scheduler to send the batches.
+   */
+  public RequestBatcher() {
+    this(Schedulers.parallel());
+  }
+
+  /**
+   * Instantiates a new request batcher.
+   *
+   * @param scheduler the scheduler, that sends the batches, whose window has elapsed
+   */
+  public RequestBatcher(Scheduler scheduler) {
+    Assert.notNull(scheduler, "Scheduler must be present.");
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * With context keys. Only invocations, whose contexts have equal values under the given keys,
+   * are collected in one batch.
+   *
+   * @param contextKeys the context keys
+   * @return the request batcher
+   */
+  public RequestBatcher withContextKeys(Object... contextKeys) {
+    Assert.noNullElements(contextKeys, "Context keys must not be null.");
+    this.contextKeys = List.copyOf(Arrays.asList(contextKeys));
+    return this;
+  }
+
+  /**
+   * Gets the values of the context keys of the given context.
+   *
+   * @param context the context of the subscriber
+   * @return the context values
+   */
+  List<Object> getContextValues(ContextView context) {
+    if (contextKeys.isEmpty()) {
+      return List.of();
+    }
+    List<Object> contextValues = new ArrayList<>(contextKeys.size());
+    for (Object contextKey : contextKeys) {
+      contextValues.add(context.getOrDefault(contextKey, null));
+    }
+    return contextValues;
+  }
+
+  /**
+   * Adds the key of a single item invocation to the current batch of the given batch key. The
+   * first invocation of a batch decides the bulk call.
+   *
+   * @param batchKey the key of the batch (the invocations with equal other arguments)
+   * @param key the key of the item
+   * @param window the window in milliseconds
+   * @param maxSize the maximum number of keys of a batch
+   * @param bulkCall the bulk call, that gets the keys and returns the items by key
+   * @return the item
+   */
+  Mono<Object> add(
+      Key batchKey,
+      Object key,
+      long window,
+      int maxSize,
+      Function<List<Object>, Mono<Map<?, ?>>> bulkCall) {
+
+    return Mono.create(sink -> {
+      invocationCount.increment();
+      while (true) {
+        Batch batch = batches.computeIfAbsent(batchKey, k -> {
+          Batch newBatch = new Batch(bulkCall);
+          scheduler.schedule(() -> send(k, newBatch), window, TimeUnit.MILLISECONDS);
+          return newBatch;
+        });
+        int size = batch.add(key, sink);
+        if (size >= 0) {
+          sink.onCancel(() -> batch.remove(key, sink));
+          if (size >= maxSize) {
+            send(batchKey, batch);
+          }
+          return;
+        }
+      }
+    });
+  }
+
+  private void send(Key batchKey, Batch batch) {
+    batches.remove(batchKey, batch);
+    List<Object> keys = batch.close();
+    if (isNull(keys) || keys.isEmpty()) {
+      return;
+    }
+    batchCount.increment();
+    batch.setDisposable(batch.bulkCall.apply(keys)
+        .defaultIfEmpty(Collections.emptyMap())
+        .subscribe(batch::complete, batch::fail));
+  }
+
+  /**
+   * Gets the number of collected invocations.
+   *
+   * @return the invocation count
+   */
+  public long getInvocationCount() {
+    return invocationCount.sum();
+  }
+
+  /**
+   * Gets the number of sent batches.
+   *
+   * @return the batch count
+   */
+  public long getBatchCount() {
+    return batchCount.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "RequestBatcher{"
+        + "invocationCount=" + getInvocationCount()
+        + ", batchCount=" + getBatchCount()
+        + '}';
+  }
+
+  /**
+   * The key of a batch. Besides the single item method it contains the web client (the base url
+   * of the api client), the other arguments of the invocation, the base url of the context and the
+   * values of the context keys.
+   */
+  @EqualsAndHashCode
+  @RequiredArgsConstructor
+  static final class Key {
+
+    private final Object webClient;
+
+    private final MethodPlan methodPlan;
+
+    private final List<Object> otherArgs;
+
+    private final Object contextBaseUrl;
+
+    private final List<Object> contextValues;
+  }
+
+  private static final class Batch {
+
+    private final Function<List<Object>, Mono<Map<?, ?>>> bulkCall;
+
+    private final Map<Object, List<MonoSink<Object>>> pending = new LinkedHashMap<>();
+
+    private boolean closed;
+
+    private boolean done;
+
+    private Disposable disposable;
+
+    private Batch(Function<List<Object>, Mono<Map<?, ?>>> bulkCall) {
+      this.bulkCall = bulkCall;
+    }
+
+    /**
+     * Adds the sink of the given key.
+     *
+     * @return the number of keys or {@code -1}, if the batch was already sent
+     */
+    synchronized int add(Object key, MonoSink<Object> sink) {
+      if (closed) {
+        return -1;
+      }
+      pending.computeIfAbsent(key, k -> new ArrayList<>(1)).add(sink);
+      return pending.size();
+    }
+
+    /**
+     * Removes the sink of a cancelled invocation. If it was the last one of a sent batch, the
+     * bulk call is cancelled.
+     */
+    void remove(Object key, MonoSink<Object> sink) {
+      Disposable cancel = null;
+      synchronized (this) {
+        List<MonoSink<Object>> sinks = pending.get(key);
+        if (nonNull(sinks) && sinks.remove(sink) && sinks.isEmpty()) {
+          pending.remove(key);
+          if (pending.isEmpty() && closed && !done) {
+            done = true;
+            cancel = disposable;
+          }
+        }
+      }
+      if (nonNull(cancel)) {
+        cancel.dispose();
+      }
+    }
+
+    /**
+     * Closes the batch.
+     *
+     * @return the keys of the batch or {@code null}, if it was already closed
+     */
+    synchronized List<Object> close() {
+      if (closed) {
+        return null;
+      }
+      closed = true;
+      done = pending.isEmpty();
+      return new ArrayList<>(pending.keySet());
+    }
+
+    void setDisposable(Disposable disposable) {
+      boolean cancelled;
+      synchronized (this) {
+        this.disposable = disposable;
+        cancelled = done && pending.isEmpty();
+      }
+      if (cancelled) {
+        disposable.dispose();
+      }
+    }
+
+    void complete(Map<?, ?> results) {
+      Map<String, Object> itemsByKey = new HashMap<>();
+      results.forEach((key, item) -> itemsByKey.put(String.valueOf(key), item));
+      drain().forEach((key, sinks) -> {
+        Object item = itemsByKey.get(String.valueOf(key));
+        for (MonoSink<Object> sink : sinks) {
+          if (isNull(item)) {
+            sink.success();
+          } else {
+            sink.success(item);
+          }
+        }
+      });
+    }
+
+    void fail(Throwable error) {
+      drain().values().forEach(sinks -> sinks.forEach(sink -> sink.error(error)));
+    }
+
+    private synchronized Map<Object, List<MonoSink<Object>>> drain() {
+      done = true;
+      Map<Object, List<MonoSink<Object>>> result = new LinkedHashMap<>(pending);
+      pending.clear();
+      return result;
+    }
+  }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.bremersee.apiclient.webflux.contract.HttpRequestMethod;
+import org.reactivestreams.Publisher;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+
+/**
+ * The request coalescer lets concurrent invocations of a GET method with equal arguments share
+ * one request ("single flight"). The first invocation sends the request; every equal invocation,
+ * that is subscribed before the response is complete, gets the same decoded response (or the
+ * same error) without sending a request. As soon as the response is complete, the next
+ * invocation sends a new request again, so nothing is cached beyond the time of the request.
+ *
+ * <p>A shared request is not cancelled, if one of its subscribers cancels, because the other
+ * subscribers still wait for the response. It is cancelled with a timeout exception, if it takes
+ * longer than the maximum in flight time, so that an entry is never kept forever.
+ *
+ * <p>The shared request is sent with the context of the first subscriber, but without its
+ * deadline; every subscriber waits only until its own deadline. Context entries, that change the
+ * request or its response (like an authentication or a tenant), must be added as context keys
+ * (see {@link #withContextKeys(Object...)}), so that only invocations with equal values share a
+ * request. Other entries, like the ones of tracing, are taken from the first subscriber.
+ *
+ * <p>The counts of the sent and of the coalesced requests are recorded, so that the effect can be
+ * monitored.
+ *
+ * @author Christian Bremer
+ */
+public class RequestCoalescer {
+
+  /**
+   * The default maximum in flight time of a shared request.
+   */
+  public static final Duration DEFAULT_MAX_IN_FLIGHT_TIME = Duration.ofSeconds(30L);
+
+  private final Scheduler scheduler;
+
+  private final ConcurrentMap<Object, Publisher<?>> inFlight = new ConcurrentHashMap<>();
+
+  private final LongAdder requestCount = new LongAdder();
+
+  private final LongAdder coalescedCount = new LongAdder();
+
+  private List<Object> contextKeys = List.of();
+
+  private Duration maxInFlightTime = DEFAULT_MAX_IN_FLIGHT_TIME;
+
+  /**
+   * Instantiates a new request coalescer, that uses the parallel scheduler for the maximum in
+   * flight time.
+   */
+  public RequestCoalescer() {
+    this(Schedulers.parallel());
+  }
+
+  /**
+   * Instantiates a new request coalescer.
+   *
+   * @param scheduler the scheduler of the maximum in flight time
+   */
+  public RequestCoalescer(Scheduler scheduler) {
+    Assert.notNull(scheduler, "Scheduler must be present.");
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * With context keys. Only invocations, whose contexts have equal values under the given keys,
+   * share a request.
+   *
+   * @param contextKeys the context keys
+   * @return the request coalescer
+   */
+  public RequestCoalescer withContextKeys(Object... contextKeys) {
+    Assert.noNullElements(contextKeys, "Context keys must not be null.");
+    this.contextKeys = List.copyOf(Arrays.asList(contextKeys));
+    return this;
+  }
+
+  /**
+   * With max in flight time. A shared request, that takes longer, is cancelled with a timeout
+   * exception.
+   *
+   * @param maxInFlightTime the maximum in flight time (default is 30 seconds)
+   * @return the request coalescer
+   */
+  public RequestCoalescer withMaxInFlightTime(Duration maxInFlightTime) {
+    Assert.isTrue(
+        nonNull(maxInFlightTime) && !maxInFlightTime.isNegative() && !maxInFlightTime.isZero(),
+        "Maximum in flight time must be positive.");
+    this.maxInFlightTime = maxInFlightTime;
+    return this;
+  }
+
+  /**
+   * Gets the values of the context keys of the given context.
+   *
+   * @param context the context of the subscriber
+   * @return the context values
+   */
+  List<Object> getContextValues(ContextView context) {
+    if (contextKeys.isEmpty()) {
+      return List.of();
+    }
+    List<Object> contextValues = new ArrayList<>(contextKeys.size());
+    for (Object contextKey : contextKeys) {
+      contextValues.add(context.getOrDefault(contextKey, null));
+    }
+    return contextValues;
+  }
+
+  /**
+   * Determines whether concurrent invocations of the given method are coalesced.
+   *
+   * @param methodPlan the method plan
+   * @param httpMethod the http method (can be {@code null}, if it is unknown)
+   * @param coalesceGetMethods specifies whether all GET methods are coalesced without annotation
+   * @return {@code true} if the invocations are coalesced, otherwise {@code false}
+   */
+  static boolean isCoalesced(
+      MethodPlan methodPlan,
+      HttpRequestMethod httpMethod,
+      boolean coalesceGetMethods) {
+
+    CoalesceRequests annotation = AnnotationUtils
+        .findAnnotation(methodPlan.getMethod(), CoalesceRequests.class);
+    if (isNull(annotation)) {
+      annotation = AnnotationUtils
+          .findAnnotation(methodPlan.getTargetClass(), CoalesceRequests.class);
+    }
+    if (nonNull(annotation) && !annotation.value()) {
+      return false;
+    }
+    if (nonNull(httpMethod) && httpMethod != HttpRequestMethod.GET) {
+      return false;
+    }
+    if (!Publisher.class.isAssignableFrom(methodPlan.getMethod().getReturnType())) {
+      return false;
+    }
+    return nonNull(annotation) || (coalesceGetMethods && nonNull(httpMethod));
+  }
+
+  /**
+   * Returns the response of the request, that is in flight under the given key, or sends a new
+   * request with the given exchange function.
+   *
+   * @param key the key of equal invocations
+   * @param mono specifies whether the response is a mono or a flux
+   * @param exchange the function, that sends the request
+   * @return the shared response
+   */
+  Publisher<?> coalesce(Key key, boolean mono, Supplier<? extends Publisher<?>> exchange) {
+    Assert.notNull(key, "Key must be present.");
+    Assert.notNull(exchange, "Exchange must be present.");
+    Publisher<?> response = inFlight.get(key);
+    if (nonNull(response)) {
+      coalescedCount.increment();
+      return response;
+    }
+    AtomicReference<Publisher<?>> reference = new AtomicReference<>();
+    Runnable remove = () -> inFlight.remove(key, reference.get());
+    Duration timeout = maxInFlightTime;
+    Publisher<?> shared;
+    if (mono) {
+      shared = Mono.defer(() -> Mono.<Object>from(exchange.get()))
+          .timeout(timeout, scheduler)
+          .doFinally(signal -> remove.run())
+          .cache();
+    } else {
+      shared = Flux.defer(() -> {
+            Mono<Long> expired = Mono.delay(timeout, scheduler).cache();
+            return Flux.<Object>from(exchange.get()).timeout(expired, item -> expired);
+          })
+          .doFinally(signal -> remove.run())
+          .cache();
+    }
+    reference.set(shared);
+    response = inFlight.putIfAbsent(key, shared);
+    if (nonNull(response)) {
+      coalescedCount.increment();
+      return response;
+    }
+    requestCount.increment();
+    return shared;
+  }
+
+  /**
+   * Gets the number of requests, that are in flight.
+   *
+   * @return the in flight count
+   */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  /**
+   * Gets the number of invocations, that sent a request.
+   *
+   * @return the request count
+   */
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  /**
+   * Gets the number of invocations, that shared the request of another invocation.
+   *
+   * @return the coalesced count
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "RequestCoalescer{"
+        + "inFlightCount=" + getInFlightCount()
+        + ", requestCount=" + getRequestCount()
+        + ", coalescedCount=" + getCoalescedCount()
+        + '}';
+  }
+
+  /**
+   * The key of equal invocations. Besides the invocation (target class, method and arguments) it
+   * contains the web client (the base url of the api client), the base url of the context and the
+   * values of the context keys.
+   */
+  @EqualsAndHashCode
+  @RequiredArgsConstructor
+  static final class Key {
+
+    private final Object webClient;
+
+    private final Invocation invocation;
+
+    private final Object contextBaseUrl;
+
+    private final List<Object> contextValues;
+  }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.reactivestreams.Publisher;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The request hedger cuts the tail latency of idempotent requests: if there is no response after
+ * the hedge delay (a fixed delay or a percentile of the observed latencies of the method, see
+ * {@link Hedge}), a second request is sent, the first successful response wins and the other
+ * request is cancelled, so that its connection is released. With a {@link LoadBalancer} the
+ * second request selects its endpoint again, so it is normally sent to another base url. A
+ * request, that fails before the hedge delay, is not hedged: the error is emitted, because
+ * retrying a failed request is the job of the {@link RetryBudget}.
+ *
+ * <p>The extra load is limited by a hedge budget: every request earns the given percentage of a
+ * hedge and a hedge is only sent, if a whole one was earned. The earned hedges are capped, so
+ * that a long quiet period does not allow a burst of hedges.
+ *
+ * <p>The counts of the requests, of the sent hedges, of the hedges, that won, and of the hedges,
+ * that were not sent because of the budget, are recorded, so that the effect can be monitored.
+ *
+ * @author Christian Bremer
+ */
+public class RequestHedger {
+
+  /**
+   * The default hedge budget in percent of the requests.
+   */
+  public static final int DEFAULT_BUDGET_PERCENT = 10;
+
+  /**
+   * The default hedge delay, as long as there are not enough observed latencies.
+   */
+  public static final Duration DEFAULT_INITIAL_DELAY = Duration.ofMillis(100L);
+
+  private static final int MAX_HEDGES = 10;
+
+  private static final int IN_FLIGHT = 0;
+
+  private static final int HEDGED = 1;
+
+  private static final int TERMINATED = 2;
+
+  private final Scheduler scheduler;
+
+  private final TokenBucket budget = new TokenBucket(MAX_HEDGES, false);
+
+  private final LongAdder requestCount = new LongAdder();
+
+  private final LongAdder hedgeCount = new LongAdder();
+
+  private final LongAdder hedgeWonCount = new LongAdder();
+
+  private final LongAdder budgetExhaustedCount = new LongAdder();
+
+  private int budgetPercent = DEFAULT_BUDGET_PERCENT;
+
+  private Duration initialDelay = DEFAULT_INITIAL_DELAY;
+
+  /**
+   * Instantiates a new request hedger, that uses the parallel scheduler for the hedge delay.
+   */
+  public RequestHedger() {
+    this(Schedulers.parallel());
+  }
+
+  /**
+   * Instantiates a new request hedger.
+   *
+   * @param scheduler the scheduler of the hedge delay
+   */
+  public RequestHedger(Scheduler scheduler) {
+    Assert.notNull(scheduler, "Scheduler must be present.");
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * With budget.
+   *
+   * @param budgetPercent the maximum number of hedges in percent of the requests (default is
+   *     {@value #DEFAULT_BUDGET_PERCENT})
+   * @return the request hedger
+   */
+  public RequestHedger withBudget(int budgetPercent) {
+    this.budgetPercent = Math.min(Math.max(budgetPercent, 0), 100);
+    return this;
+  }
+
+  /**
+   * With initial delay. It is the hedge delay of a method without fixed delay, as long as there
+   * are not enough observed latencies.
+   *
+   * @param initialDelay the initial delay (default is 100 milliseconds)
+   * @return the request hedger
+   */
+  public RequestHedger withInitialDelay(Duration initialDelay) {
+    Assert.notNull(initialDelay, "Initial delay must be present.");
+    this.initialDelay = initialDelay;
+    return this;
+  }
+
+  /**
+   * Sends the request with the given exchange function and, if it is still in flight after the
+   * hedge delay and the budget allows it, a second request. The first successful response wins
+   * and the other request is cancelled; an error is only emitted, if both requests fail or if the
+   * failed request was not hedged. If the request fails before the hedge delay, the hedge timer
+   * is cancelled and the error is emitted.
+   *
+   * @param policy the hedge policy of the method
+   * @param exchange the function, that sends a request
+   * @return the first response
+   */
+  Mono<Object> hedge(HedgePolicy policy, Supplier<? extends Publisher<?>> exchange) {
+    Assert.notNull(policy, "Policy must be present.");
+    Assert.notNull(exchange, "Exchange must be present.");
+    return Mono.defer(() -> {
+      requestCount.increment();
+      budget.deposit(budgetPercent);
+      long start = System.nanoTime();
+      AtomicInteger state = new AtomicInteger(IN_FLIGHT);
+      Mono<Signal<Object>> request = Mono.defer(() -> Mono.<Object>from(exchange.get()))
+          .materialize();
+      Mono<Signal<Object>> primary = request
+          .doOnNext(signal -> state.compareAndSet(IN_FLIGHT, TERMINATED));
+      Mono<Signal<Object>> hedge = Mono.delay(policy.getDelay(initialDelay), scheduler)
+          .flatMap(tick -> {
+            if (!state.compareAndSet(IN_FLIGHT, HEDGED)) {
+              return Mono.empty();
+            }
+            if (!budget.tryAcquire()) {
+              budgetExhaustedCount.increment();
+              return Mono.empty();
+            }
+            hedgeCount.increment();
+            return request.doOnNext(signal -> {
+              if (!signal.isOnError()) {
+                hedgeWonCount.increment();
+              }
+            });
+          });
+      return Flux.merge(primary, hedge)
+          .takeUntil(signal -> !signal.isOnError() || state.get() == TERMINATED)
+          .last()
+          .<Object>dematerialize()
+          .doOnSuccess(value -> policy.record(System.nanoTime() - start));
+    });
+  }
+
+  /**
+   * Gets the number of hedged invocations.
+   *
+   * @return the request count
+   */
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  /**
+   * Gets the number of sent hedges.
+   *
+   * @return the hedge count
+   */
+  public long getHedgeCount() {
+    return hedgeCount.sum();
+  }
+
+  /**
+   * Gets the number of hedges, whose response was faster than the response of the first request.
+   *
+   * @return the hedge won count
+   */
+  public long getHedgeWonCount() {
+    return hedgeWonCount.sum();
+  }
+
+  /**
+   * Gets the number of hedges, that were not sent, because the budget was exhausted.
+   *
+   * @return the budget exhausted count
+   */
+  public long getBudgetExhaustedCount() {
+    return budgetExhaustedCount.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "RequestHedger{"
+        + "budgetPercent=" + budgetPercent
+        + ", requestCount=" + getRequestCount()
+        + ", hedgeCount=" + getHedgeCount()
+        + ", hedgeWonCount=" + getHedgeWonCount()
+        + ", budgetExhaustedCount=" + getBudgetExhaustedCount()
+        + '}';
+  }
+
+}
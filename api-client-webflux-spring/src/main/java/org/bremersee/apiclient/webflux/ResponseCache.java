@@ -0,0 +1,449 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.net.URI;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+
+/**
+ * The response cache keeps the decoded responses of GET methods by method and request uri, so
+ * that a hit neither sends a request nor decodes a body. It follows the rules of a private http
+ * cache:
+ * <ul>
+ *   <li>a response is fresh as long as the {@code max-age} of the {@code Cache-Control} header
+ *   (minus the {@code Age} header) or the {@code Expires} header says; if there is neither, the
+ *   default max age of the method (see {@link CacheResponse#defaultMaxAge()}) is used,</li>
+ *   <li>responses with {@code Cache-Control: no-store}, {@code Cache-Control: private} or
+ *   {@code Vary: *} are not stored, because the cache is shared by all callers of the api
+ *   client,</li>
+ *   <li>responses with {@code Cache-Control: no-cache} are stored, but revalidated on every
+ *   call,</li>
+ *   <li>a stale response is revalidated with {@code If-None-Match} and
+ *   {@code If-Modified-Since}, if it has an {@code ETag} or a {@code Last-Modified} header;
+ *   on {@code 304 Not Modified} the stored value is returned and its freshness is renewed,</li>
+ *   <li>the request headers, that are named by the {@code Vary} header of a response, must be
+ *   equal to select the stored response.</li>
+ * </ul>
+ *
+ * <p>The {@code Authorization} header and the cookies of a request are part of the key, so that
+ * the response of one user is never returned to another one. Credentials, that are added by a
+ * filter or by the default headers of the web client, are not known here; the responses of such
+ * requests must be marked as private by the server or their methods must not be cached.
+ *
+ * <p>The cache is bounded: if there are more entries than the maximum size, the oldest entries
+ * are evicted. A maximum size of zero or less disables the cache. The cached values are returned
+ * as they are, without a copy, so every caller gets the same instance and must not modify it.
+ *
+ * @author Christian Bremer
+ */
+public class ResponseCache {
+
+  /**
+   * The default maximum size.
+   */
+  public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+  private final int maximumSize;
+
+  private final Clock clock;
+
+  private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+
+  private final LongAdder hitCount = new LongAdder();
+
+  private final LongAdder missCount = new LongAdder();
+
+  private final LongAdder revalidationCount = new LongAdder();
+
+  private final LongAdder evictionCount = new LongAdder();
+
+  /**
+   * Instantiates a new response cache with the default maximum size.
+   */
+  public ResponseCache() {
+    this(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Instantiates a new response cache.
+   *
+   * @param maximumSize the maximum size (zero or less disables the cache)
+   */
+  public ResponseCache(int maximumSize) {
+    this(maximumSize, Clock.systemUTC());
+  }
+
+  /**
+   * Instantiates a new response cache.
+   *
+   * @param maximumSize the maximum size (zero or less disables the cache)
+   * @param clock the clock
+   */
+  ResponseCache(int maximumSize, Clock clock) {
+    Assert.notNull(clock, "Clock must be present.");
+    this.maximumSize = Math.max(maximumSize, 0);
+    this.clock = clock;
+  }
+
+  /**
+   * Gets the stored response of the given key, if the request headers match the {@code Vary}
+   * header of the stored response.
+   *
+   * @param key the key
+   * @param requestHeaders the request headers
+   * @return the entry (can be stale) or {@code null}
+   */
+  Entry get(Key key, HttpHeaders requestHeaders) {
+    if (maximumSize == 0) {
+      return null;
+    }
+    Entry entry = entries.get(key);
+    return nonNull(entry) && entry.matches(requestHeaders) ? entry : null;
+  }
+
+  /**
+   * Determines whether the given entry is fresh. A fresh entry is returned without a request.
+   *
+   * @param entry the entry
+   * @return {@code true} if the entry is fresh, otherwise {@code false}
+   */
+  boolean isFresh(Entry entry) {
+    return clock.millis() < entry.getExpiresAt();
+  }
+
+  /**
+   * Records a call, that was answered with a fresh entry.
+   */
+  void recordHit() {
+    hitCount.increment();
+  }
+
+  /**
+   * Records a call, that sent a request.
+   */
+  void recordMiss() {
+    missCount.increment();
+  }
+
+  /**
+   * Stores the response of a request and returns the value, that is emitted to the caller. If the
+   * response is {@code 304 Not Modified}, this is the value of the previous entry.
+   *
+   * @param key the key
+   * @param requestHeaders the request headers
+   * @param previous the previous entry, that was revalidated (can be {@code null})
+   * @param response the response
+   * @param defaultMaxAge the default max age in milliseconds
+   * @return the value (can be {@code null})
+   */
+  Object put(
+      Key key,
+      HttpHeaders requestHeaders,
+      Entry previous,
+      ResponseEntity<?> response,
+      long defaultMaxAge) {
+
+    Object value = response.getBody();
+    String etag = response.getHeaders().getETag();
+    long lastModified = response.getHeaders().getLastModified();
+    if (response.getStatusCodeValue() == HttpStatus.NOT_MODIFIED.value() && nonNull(previous)) {
+      revalidationCount.increment();
+      value = previous.getValue();
+      etag = isNull(etag) ? previous.getEtag() : etag;
+      lastModified = lastModified < 0 ? previous.getLastModified() : lastModified;
+    } else if (response.getStatusCodeValue() != HttpStatus.OK.value()) {
+      return value;
+    }
+    if (maximumSize > 0) {
+      Entry entry = createEntry(
+          requestHeaders, response.getHeaders(), value, etag, lastModified, defaultMaxAge);
+      if (isNull(entry)) {
+        if (nonNull(entries.remove(key))) {
+          insertionOrder.remove(key);
+        }
+      } else if (isNull(entries.put(key, entry))) {
+        insertionOrder.add(key);
+        evict();
+      }
+    }
+    return value;
+  }
+
+  private Entry createEntry(
+      HttpHeaders requestHeaders,
+      HttpHeaders responseHeaders,
+      Object value,
+      String etag,
+      long lastModified,
+      long defaultMaxAge) {
+
+    Map<String, String> cacheControl = parseCacheControl(responseHeaders.getCacheControl());
+    List<String> vary = responseHeaders.getVary();
+    if (cacheControl.containsKey("no-store")
+        || cacheControl.containsKey("private")
+        || vary.contains("*")) {
+      return null;
+    }
+    long now = clock.millis();
+    long maxAge;
+    if (cacheControl.containsKey("no-cache")) {
+      maxAge = 0L;
+    } else if (cacheControl.containsKey("max-age")) {
+      long age = parseSeconds(responseHeaders.getFirst(HttpHeaders.AGE));
+      maxAge = TimeUnit.SECONDS.toMillis(parseSeconds(cacheControl.get("max-age")) - age);
+    } else if (responseHeaders.containsKey(HttpHeaders.EXPIRES)) {
+      long date = responseHeaders.getDate();
+      maxAge = responseHeaders.getExpires() - (date < 0 ? now : date);
+    } else {
+      maxAge = defaultMaxAge;
+    }
+    if (maxAge <= 0L && isNull(etag) && lastModified < 0) {
+      return null;
+    }
+    Map<String, List<String>> varyValues = new LinkedHashMap<>();
+    for (String name : vary) {
+      varyValues.put(name, requestHeaders.getOrEmpty(name));
+    }
+    return new Entry(value, etag, lastModified, varyValues, now + Math.max(maxAge, 0L));
+  }
+
+  private static Map<String, String> parseCacheControl(String cacheControl) {
+    if (!StringUtils.hasText(cacheControl)) {
+      return Collections.emptyMap();
+    }
+    Map<String, String> directives = new LinkedHashMap<>();
+    for (String directive : StringUtils.commaDelimitedListToStringArray(cacheControl)) {
+      int index = directive.indexOf('=');
+      String name = (index < 0 ? directive : directive.substring(0, index))
+          .trim()
+          .toLowerCase(Locale.ROOT);
+      String value = index < 0 ? "" : directive.substring(index + 1).trim();
+      if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+        value = value.substring(1, value.length() - 1);
+      }
+      directives.put(name, value);
+    }
+    return directives;
+  }
+
+  private static long parseSeconds(String value) {
+    try {
+      return StringUtils.hasText(value) ? Math.max(Long.parseLong(value.trim()), 0L) : 0L;
+    } catch (NumberFormatException e) {
+      return 0L;
+    }
+  }
+
+  private void evict() {
+    while (entries.size() > maximumSize) {
+      Key eldest = insertionOrder.poll();
+      if (isNull(eldest)) {
+        return;
+      }
+      if (nonNull(entries.remove(eldest))) {
+        evictionCount.increment();
+      }
+    }
+  }
+
+  /**
+   * Removes all entries.
+   */
+  public void clear() {
+    entries.clear();
+    insertionOrder.clear();
+  }
+
+  /**
+   * Gets the maximum size.
+   *
+   * @return the maximum size
+   */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * Gets the number of cached responses.
+   *
+   * @return the size
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the number of calls, that were answered from the cache without a request.
+   *
+   * @return the hit count
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Gets the number of calls, that sent a request (including the revalidations).
+   *
+   * @return the miss count
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Gets the number of revalidations, that were answered with {@code 304 Not Modified}.
+   *
+   * @return the revalidation count
+   */
+  public long getRevalidationCount() {
+    return revalidationCount.sum();
+  }
+
+  /**
+   * Gets the number of evicted responses.
+   *
+   * @return the eviction count
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ResponseCache{"
+        + "maximumSize=" + maximumSize
+        + ", size=" + size()
+        + ", hitCount=" + getHitCount()
+        + ", missCount=" + getMissCount()
+        + ", revalidationCount=" + getRevalidationCount()
+        + ", evictionCount=" + getEvictionCount()
+        + '}';
+  }
+
+  /**
+   * The key of a cached response.
+   */
+  @EqualsAndHashCode
+  static final class Key {
+
+    private final MethodPlan methodPlan;
+
+    private final URI uri;
+
+    private final Map<String, List<String>> credentials;
+
+    /**
+     * Instantiates a new key.
+     *
+     * @param methodPlan the method plan
+     * @param uri the request uri
+     * @param requestHeaders the request headers
+     * @param cookies the cookies of the request
+     */
+    Key(
+        MethodPlan methodPlan,
+        URI uri,
+        HttpHeaders requestHeaders,
+        MultiValueMap<String, String> cookies) {
+
+      this.methodPlan = methodPlan;
+      this.uri = uri;
+      this.credentials = new LinkedHashMap<>();
+      if (requestHeaders.containsKey(HttpHeaders.AUTHORIZATION)) {
+        credentials.put(HttpHeaders.AUTHORIZATION, requestHeaders.get(HttpHeaders.AUTHORIZATION));
+      }
+      if (requestHeaders.containsKey(HttpHeaders.COOKIE)) {
+        credentials.put(HttpHeaders.COOKIE, requestHeaders.get(HttpHeaders.COOKIE));
+      }
+      cookies.forEach((name, values) -> credentials.put(name + '=', values));
+    }
+  }
+
+  /**
+   * A cached response.
+   */
+  @Getter
+  @RequiredArgsConstructor
+  static final class Entry {
+
+    private final Object value;
+
+    private final String etag;
+
+    private final long lastModified;
+
+    private final Map<String, List<String>> varyValues;
+
+    private final long expiresAt;
+
+    /**
+     * Determines whether the given request headers match the {@code Vary} header of this entry.
+     *
+     * @param requestHeaders the request headers
+     * @return {@code true} if the request headers match, otherwise {@code false}
+     */
+    boolean matches(HttpHeaders requestHeaders) {
+      for (Map.Entry<String, List<String>> varyValue : varyValues.entrySet()) {
+        if (!Objects.equals(varyValue.getValue(), requestHeaders.getOrEmpty(varyValue.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Adds the conditional headers to revalidate this entry.
+     *
+     * @param requestHeaders the request headers
+     */
+    void addConditionalHeaders(HttpHeaders requestHeaders) {
+      if (nonNull(etag)) {
+        requestHeaders.setIfNoneMatch(etag);
+      }
+      if (lastModified >= 0) {
+        requestHeaders.setIfModifiedSince(lastModified);
+      }
+    }
+  }
+
+}
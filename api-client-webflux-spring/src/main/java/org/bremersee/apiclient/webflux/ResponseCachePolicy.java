@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bremersee.apiclient.webflux.contract.HttpRequestMethod;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
+import reactor.core.publisher.Mono;
+
+/**
+ * The response cache policy of an api method. It is resolved once per method plan.
+ *
+ * @author Christian Bremer
+ */
+final class ResponseCachePolicy {
+
+  /**
+   * The policy of methods, whose responses are not cached.
+   */
+  static final ResponseCachePolicy DISABLED = new ResponseCachePolicy(false, false, null, 0L);
+
+  private final boolean enabled;
+
+  private final boolean multiValue;
+
+  private final ParameterizedTypeReference<Object> bodyType;
+
+  private final long defaultMaxAge;
+
+  private ResponseCachePolicy(
+      boolean enabled,
+      boolean multiValue,
+      ParameterizedTypeReference<Object> bodyType,
+      long defaultMaxAge) {
+    this.enabled = enabled;
+    this.multiValue = multiValue;
+    this.bodyType = bodyType;
+    this.defaultMaxAge = defaultMaxAge;
+  }
+
+  /**
+   * Resolves the response cache policy of the given method.
+   *
+   * @param methodPlan the method plan
+   * @param httpMethod the http method (can be {@code null}, if it is unknown)
+   * @param cacheGetMethods specifies whether the responses of all GET methods, that return a
+   *     mono, are cached without annotation
+   * @return the response cache policy
+   */
+  static ResponseCachePolicy resolve(
+      MethodPlan methodPlan,
+      HttpRequestMethod httpMethod,
+      boolean cacheGetMethods) {
+
+    Method method = methodPlan.getMethod();
+    CacheResponse annotation = AnnotationUtils.findAnnotation(method, CacheResponse.class);
+    if (isNull(annotation)) {
+      annotation = AnnotationUtils.findAnnotation(methodPlan.getTargetClass(), CacheResponse.class);
+    }
+    if (nonNull(annotation) && !annotation.value()) {
+      return DISABLED;
+    }
+    if (nonNull(httpMethod) && httpMethod != HttpRequestMethod.GET) {
+      return DISABLED;
+    }
+    Class<?> returnType = method.getReturnType();
+    boolean mono = Mono.class.isAssignableFrom(returnType);
+    if (!mono && !Publisher.class.isAssignableFrom(returnType)) {
+      return DISABLED;
+    }
+    if (isNull(annotation) && (!cacheGetMethods || !mono || isNull(httpMethod))) {
+      return DISABLED;
+    }
+    ResolvableType bodyType = ResolvableType.forMethodReturnType(method).getGeneric(0);
+    Type type = isNull(bodyType.resolve()) ? Object.class : bodyType.getType();
+    long defaultMaxAge = isNull(annotation)
+        ? 0L
+        : TimeUnit.SECONDS.toMillis(Math.max(annotation.defaultMaxAge(), 0L));
+    return new ResponseCachePolicy(
+        true,
+        !mono,
+        ParameterizedTypeReference.forType(type),
+        defaultMaxAge);
+  }
+
+  /**
+   * Specifies whether the responses are cached.
+   *
+   * @return {@code true} if the responses are cached, otherwise {@code false}
+   */
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Gets the number of milliseconds a response is fresh, if it has no freshness information.
+   *
+   * @return the default max age in milliseconds
+   */
+  long getDefaultMaxAge() {
+    return defaultMaxAge;
+  }
+
+  /**
+   * Retrieves the response entity. The body of a method, that returns a flux, is collected into a
+   * list.
+   *
+   * @param responseSpec the response spec
+   * @return the response entity
+   */
+  Mono<? extends ResponseEntity<?>> toEntity(ResponseSpec responseSpec) {
+    return multiValue ? responseSpec.toEntityList(bodyType) : responseSpec.toEntity(bodyType);
+  }
+
+  /**
+   * Converts the (cached) value into the publisher, that is returned by the api method.
+   *
+   * @param value the value
+   * @return the publisher
+   */
+  Publisher<?> toPublisher(Mono<Object> value) {
+    return multiValue ? value.flatMapIterable(list -> (List<?>) list) : value;
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.reactivestreams.Publisher;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * The retry budget sends failed requests again with the {@link RetryPolicy} of the method and
+ * makes sure, that retries cannot amplify an outage: every request earns the given percentage of
+ * a retry and a retry is only sent, if a whole one was earned. The bucket starts full and is
+ * capped, so that a few retries are always possible, but a failing upstream gets at most the
+ * given percentage of extra requests.
+ *
+ * <p>Every attempt builds and sends a new request. A flux is only retried, as long as it has not
+ * emitted an element, so that no element is emitted twice.
+ *
+ * <p>The counts of the retries and of the retries, that were not sent because of the budget, are
+ * recorded, so that the effect can be monitored.
+ *
+ * @author Christian Bremer
+ */
+public class RetryBudget {
+
+  /**
+   * The default retry budget in percent of the requests.
+   */
+  public static final int DEFAULT_BUDGET_PERCENT = 20;
+
+  /**
+   * The default maximum number of retries, that can be saved up.
+   */
+  public static final int DEFAULT_MAX_RETRIES = 10;
+
+  private final Scheduler scheduler;
+
+  private final int budgetPercent;
+
+  private final TokenBucket bucket;
+
+  private final LongAdder retryCount = new LongAdder();
+
+  private final LongAdder budgetExhaustedCount = new LongAdder();
+
+  /**
+   * Instantiates a new retry budget with the default values, that uses the parallel scheduler
+   * for the backoff.
+   */
+  public RetryBudget() {
+    this(DEFAULT_BUDGET_PERCENT, DEFAULT_MAX_RETRIES);
+  }
+
+  /**
+   * Instantiates a new retry budget, that uses the parallel scheduler for the backoff.
+   *
+   * @param budgetPercent the number of retries in percent of the requests
+   * @param maxRetries the maximum number of retries, that can be saved up
+   */
+  public RetryBudget(int budgetPercent, int maxRetries) {
+    this(budgetPercent, maxRetries, Schedulers.parallel());
+  }
+
+  /**
+   * Instantiates a new retry budget.
+   *
+   * @param budgetPercent the number of retries in percent of the requests
+   * @param maxRetries the maximum number of retries, that can be saved up
+   * @param scheduler the scheduler of the backoff
+   */
+  public RetryBudget(int budgetPercent, int maxRetries, Scheduler scheduler) {
+    Assert.notNull(scheduler, "Scheduler must be present.");
+    this.scheduler = scheduler;
+    this.budgetPercent = Math.max(budgetPercent, 0);
+    this.bucket = new TokenBucket(maxRetries, true);
+  }
+
+  /**
+   * Sends the request with the given exchange function and retries it with the given policy.
+   *
+   * @param policy the retry policy of the method
+   * @param mono specifies whether the response is a mono or a flux
+   * @param exchange the function, that sends a request
+   * @return the response
+   */
+  Publisher<?> retry(RetryPolicy policy, boolean mono, Supplier<? extends Publisher<?>> exchange) {
+    Assert.notNull(policy, "Policy must be present.");
+    Assert.notNull(exchange, "Exchange must be present.");
+    if (mono) {
+      return Mono.defer(() -> {
+        bucket.deposit(budgetPercent);
+        return Mono.defer(() -> Mono.<Object>from(exchange.get()))
+            .retryWhen(toRetry(policy, new AtomicBoolean()));
+      });
+    }
+    return Flux.defer(() -> {
+      bucket.deposit(budgetPercent);
+      AtomicBoolean emitted = new AtomicBoolean();
+      return Flux.defer(() -> Flux.<Object>from(exchange.get()))
+          .doOnNext(value -> emitted.set(true))
+          .retryWhen(toRetry(policy, emitted));
+    });
+  }
+
+  private Retry toRetry(RetryPolicy policy, AtomicBoolean emitted) {
+    return Retry.from(signals -> signals.concatMap(signal -> {
+      Throwable error = signal.failure();
+      long attempts = signal.totalRetries() + 1L;
+      if (emitted.get() || attempts >= policy.getMaxAttempts() || !policy.isRetryable(error)) {
+        return Mono.error(error);
+      }
+      if (!bucket.tryAcquire()) {
+        budgetExhaustedCount.increment();
+        return Mono.error(error);
+      }
+      retryCount.increment();
+      return Mono.delay(getBackoff(policy, attempts), scheduler);
+    }));
+  }
+
+  private static Duration getBackoff(RetryPolicy policy, long attempts) {
+    long max = policy.getMaxBackoff().toMillis();
+    long backoff = policy.getInitialBackoff().toMillis();
+    for (long i = 1L; i < attempts && backoff < max; i++) {
+      backoff = backoff * 2L;
+    }
+    backoff = Math.min(backoff, max);
+    double jitter = Math.min(Math.max(policy.getJitter(), 0.), 1.);
+    if (jitter > 0. && backoff > 0L) {
+      double factor = 1. + jitter * (2. * ThreadLocalRandom.current().nextDouble() - 1.);
+      backoff = Math.min((long) (backoff * factor), max);
+    }
+    return Duration.ofMillis(Math.max(backoff, 0L));
+  }
+
+  /**
+   * Gets the number of sent retries.
+   *
+   * @return the retry count
+   */
+  public long getRetryCount() {
+    return retryCount.sum();
+  }
+
+  /**
+   * Gets the number of retries, that were not sent, because the budget was exhausted.
+   *
+   * @return the budget exhausted count
+   */
+  public long getBudgetExhaustedCount() {
+    return budgetExhaustedCount.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "RetryBudget{"
+        + "budgetPercent=" + budgetPercent
+        + ", retryCount=" + getRetryCount()
+        + ", budgetExhaustedCount=" + getBudgetExhaustedCount()
+        + '}';
+  }
+
+}
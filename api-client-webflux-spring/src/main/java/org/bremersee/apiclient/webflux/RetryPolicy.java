@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.Predicate;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import org.immutables.value.Value;
+import org.immutables.value.Value.Style.ImplementationVisibility;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * The retry policy of an api client (see {@link ReactiveErrorHandler#getRetryPolicy()}) or of an
+ * api method (see {@link Retryable}). A failed request is sent again, if the error is retryable,
+ * the maximum number of attempts is not reached and the {@link RetryBudget} allows it. The delay
+ * between two attempts grows exponentially from the initial backoff up to the maximum backoff and
+ * is randomized by the jitter factor.
+ *
+ * <p>Only idempotent methods (GET, HEAD, PUT, DELETE and OPTIONS) are retried, unless
+ * {@link #isRetryNonIdempotentMethods()} is {@code true}.
+ *
+ * @author Christian Bremer
+ */
+@Value.Immutable
+@Value.Style(visibility = ImplementationVisibility.PACKAGE)
+@Valid
+public interface RetryPolicy {
+
+  /**
+   * Builder.
+   *
+   * @return the immutable retry policy builder
+   */
+  static ImmutableRetryPolicy.Builder builder() {
+    return ImmutableRetryPolicy.builder();
+  }
+
+  /**
+   * Gets the maximum number of attempts (including the first one).
+   *
+   * @return the maximum attempts
+   */
+  @Value.Default
+  default int getMaxAttempts() {
+    return 3;
+  }
+
+  /**
+   * Gets the delay before the first retry.
+   *
+   * @return the initial backoff
+   */
+  @Value.Default
+  @NotNull
+  default Duration getInitialBackoff() {
+    return Duration.ofMillis(100L);
+  }
+
+  /**
+   * Gets the maximum delay between two attempts.
+   *
+   * @return the maximum backoff
+   */
+  @Value.Default
+  @NotNull
+  default Duration getMaxBackoff() {
+    return Duration.ofSeconds(2L);
+  }
+
+  /**
+   * Gets the jitter factor (between 0 and 1). The delay is randomly changed by up to this
+   * fraction.
+   *
+   * @return the jitter factor
+   */
+  @Value.Default
+  default double getJitter() {
+    return 0.5;
+  }
+
+  /**
+   * Gets the status codes of the responses, that are retried, if the error handler does not map
+   * them to own exceptions.
+   *
+   * @return the retryable statuses
+   */
+  @Value.Default
+  @NotNull
+  default Set<Integer> getRetryableStatuses() {
+    return Set.of(502, 503, 504);
+  }
+
+  /**
+   * Gets the predicate of the other errors, that are retried, like connect errors or the
+   * exceptions of the error handler.
+   *
+   * @return the retryable error predicate
+   */
+  @Value.Default
+  @NotNull
+  default Predicate<Throwable> getRetryableErrorPredicate() {
+    return WebClientRequestException.class::isInstance;
+  }
+
+  /**
+   * Specifies whether methods, that are not idempotent (like POST and PATCH), are retried, too.
+   *
+   * @return {@code true} if non idempotent methods are retried, otherwise {@code false}
+   */
+  @Value.Default
+  default boolean isRetryNonIdempotentMethods() {
+    return false;
+  }
+
+  /**
+   * Determines whether the given error is retryable.
+   *
+   * @param error the error
+   * @return {@code true} if the error is retryable, otherwise {@code false}
+   */
+  default boolean isRetryable(Throwable error) {
+    if (error instanceof WebClientResponseException
+        && getRetryableStatuses()
+        .contains(((WebClientResponseException) error).getRawStatusCode())) {
+      return true;
+    }
+    return getRetryableErrorPredicate().test(error);
+  }
+
+}
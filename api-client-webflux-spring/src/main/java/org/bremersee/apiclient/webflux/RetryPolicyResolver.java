@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.bremersee.apiclient.webflux.contract.HttpRequestMethod;
+import org.reactivestreams.Publisher;
+import org.springframework.core.annotation.AnnotationUtils;
+
+/**
+ * The retry policy resolver merges the retry policy of the api client with the {@link Retryable}
+ * annotation of an api method. It is called once per method plan.
+ *
+ * @author Christian Bremer
+ */
+final class RetryPolicyResolver {
+
+  private static final Set<HttpRequestMethod> IDEMPOTENT_METHODS = EnumSet.of(
+      HttpRequestMethod.GET,
+      HttpRequestMethod.HEAD,
+      HttpRequestMethod.PUT,
+      HttpRequestMethod.DELETE,
+      HttpRequestMethod.OPTIONS);
+
+  private RetryPolicyResolver() {
+  }
+
+  /**
+   * Resolves the retry policy of the given method.
+   *
+   * @param methodPlan the method plan
+   * @param httpMethod the http method (can be {@code null}, if it is unknown)
+   * @param clientPolicy the retry policy of the api client (can be {@code null})
+   * @return the retry policy or empty, if the requests of the method are not retried
+   */
+  static Optional<RetryPolicy> resolve(
+      MethodPlan methodPlan,
+      HttpRequestMethod httpMethod,
+      RetryPolicy clientPolicy) {
+
+    if (!Publisher.class.isAssignableFrom(methodPlan.getMethod().getReturnType())) {
+      return Optional.empty();
+    }
+    Retryable annotation = AnnotationUtils
+        .findAnnotation(methodPlan.getMethod(), Retryable.class);
+    if (isNull(annotation)) {
+      annotation = AnnotationUtils.findAnnotation(methodPlan.getTargetClass(), Retryable.class);
+    }
+    if (isNull(annotation)) {
+      return Optional.ofNullable(clientPolicy)
+          .filter(policy -> isIdempotent(httpMethod, policy));
+    }
+    if (!annotation.value()) {
+      return Optional.empty();
+    }
+    ImmutableRetryPolicy.Builder builder = ImmutableRetryPolicy.builder();
+    if (nonNull(clientPolicy)) {
+      builder.from(clientPolicy);
+    }
+    if (annotation.maxAttempts() > 0) {
+      builder.maxAttempts(annotation.maxAttempts());
+    }
+    if (annotation.backoff() >= 0L) {
+      builder.initialBackoff(Duration.ofMillis(annotation.backoff()));
+    }
+    if (annotation.maxBackoff() >= 0L) {
+      builder.maxBackoff(Duration.ofMillis(annotation.maxBackoff()));
+    }
+    if (annotation.jitter() >= 0.) {
+      builder.jitter(Math.min(annotation.jitter(), 1.));
+    }
+    if (annotation.statuses().length > 0) {
+      builder.retryableStatuses(Arrays.stream(annotation.statuses())
+          .boxed()
+          .collect(Collectors.toUnmodifiableSet()));
+    }
+    if (annotation.idempotent()) {
+      builder.retryNonIdempotentMethods(true);
+    }
+    return Optional.of((RetryPolicy) builder.build())
+        .filter(policy -> isIdempotent(httpMethod, policy));
+  }
+
+  private static boolean isIdempotent(HttpRequestMethod httpMethod, RetryPolicy policy) {
+    return policy.isRetryNonIdempotentMethods()
+        || (nonNull(httpMethod) && IDEMPOTENT_METHODS.contains(httpMethod));
+  }
+
+}
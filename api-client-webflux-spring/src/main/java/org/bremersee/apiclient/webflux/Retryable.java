@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of an api interface (or all methods of an api interface), whose failed requests
+ * are retried (see {@link RetryPolicy}). The attributes, that are not set, are taken from the
+ * retry policy of the error handler of the api client (see
+ * {@link ReactiveErrorHandler#getRetryPolicy()}) or from the defaults of {@link RetryPolicy}.
+ * {@code @Retryable(false)} excludes a method from the retry policy of the error handler.
+ *
+ * @author Christian Bremer
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Retryable {
+
+  /**
+   * Specifies whether failed requests are retried.
+   *
+   * @return {@code false} to exclude the method from retrying
+   */
+  boolean value() default true;
+
+  /**
+   * The maximum number of attempts (including the first one). Zero or less means not set.
+   *
+   * @return the maximum attempts
+   */
+  int maxAttempts() default 0;
+
+  /**
+   * The delay before the first retry in milliseconds. A negative value means not set.
+   *
+   * @return the initial backoff in milliseconds
+   */
+  long backoff() default -1L;
+
+  /**
+   * The maximum delay between two attempts in milliseconds. A negative value means not set.
+   *
+   * @return the maximum backoff in milliseconds
+   */
+  long maxBackoff() default -1L;
+
+  /**
+   * The jitter factor (between 0 and 1). A negative value means not set.
+   *
+   * @return the jitter factor
+   */
+  double jitter() default -1.;
+
+  /**
+   * The status codes of the responses, that are retried. An empty array means not set.
+   *
+   * @return the retryable statuses
+   */
+  int[] statuses() default {};
+
+  /**
+   * Specifies that the method is idempotent, although its http method is not (like a POST with
+   * an idempotency key), so that it is retried.
+   *
+   * @return {@code true} if the method is idempotent
+   */
+  boolean idempotent() default false;
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the time, in which a method of an api interface (or every method of an api interface)
+ * must complete (including its retries). If the response does not complete in time, the exchange
+ * is cancelled and the returned publisher fails with a {@link
+ * java.util.concurrent.TimeoutException}. The timeout is also sent as deadline to the upstream
+ * (see {@link Deadline}).
+ *
+ * <pre>
+ * &#64;Timeout(200)
+ * &#64;GetMapping("/orders/{id}")
+ * Mono&lt;Order&gt; getOrder(&#64;PathVariable("id") String id);
+ * </pre>
+ *
+ * <p>A timeout, that is set on the api client (see {@link Timeouts}), takes precedence over the
+ * annotation of the same method or api interface.
+ *
+ * @author Christian Bremer
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Timeout {
+
+  /**
+   * The timeout in milliseconds. Zero or less means no timeout, so that a method can be excluded
+   * from the timeout of its api interface.
+   *
+   * @return the timeout in milliseconds
+   */
+  long value();
+
+}
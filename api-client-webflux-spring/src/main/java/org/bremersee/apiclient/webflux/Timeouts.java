@@ -0,0 +1,160 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.Assert;
+
+/**
+ * The timeouts of the api methods, that are set on the api client (for example from the
+ * properties of an application) instead of with {@link Timeout}. A timeout is given for a single
+ * method (by the name of the api interface and the name of the method, separated by {@code #}),
+ * for all methods of an api interface (by the name of the api interface) or for all methods of
+ * all api interfaces (the default timeout). The most specific one applies:
+ *
+ * <ol>
+ *   <li>the timeout of the method, that is set here,</li>
+ *   <li>the timeout of the method, that is set with {@link Timeout},</li>
+ *   <li>the timeout of the api interface, that is set here,</li>
+ *   <li>the timeout of the api interface, that is set with {@link Timeout},</li>
+ *   <li>the default timeout.</li>
+ * </ol>
+ *
+ * <p>A timeout of zero or less means no timeout.
+ *
+ * @author Christian Bremer
+ */
+public class Timeouts {
+
+  /**
+   * The default name of the header, that contains the remaining milliseconds of the deadline.
+   */
+  public static final String DEFAULT_DEADLINE_HEADER = "X-Request-Timeout";
+
+  private final Map<String, Duration> timeouts = new ConcurrentHashMap<>();
+
+  private Duration defaultTimeout;
+
+  private String deadlineHeader = DEFAULT_DEADLINE_HEADER;
+
+  /**
+   * With default timeout.
+   *
+   * @param defaultTimeout the timeout of all methods (can be {@code null})
+   * @return the timeouts
+   */
+  public Timeouts withDefaultTimeout(Duration defaultTimeout) {
+    this.defaultTimeout = defaultTimeout;
+    return this;
+  }
+
+  /**
+   * With timeout of an api interface or of an api method.
+   *
+   * @param name the name of the api interface (like {@code org.example.OrderApi}) or of the api
+   *     method (like {@code org.example.OrderApi#getOrder})
+   * @param timeout the timeout
+   * @return the timeouts
+   */
+  public Timeouts withTimeout(String name, Duration timeout) {
+    Assert.hasText(name, "Name must be present.");
+    Assert.notNull(timeout, "Timeout must be present.");
+    this.timeouts.put(name, timeout);
+    return this;
+  }
+
+  /**
+   * With timeouts of api interfaces or of api methods.
+   *
+   * @param timeouts the timeouts by the name of the api interface or of the api method
+   * @return the timeouts
+   */
+  public Timeouts withTimeouts(Map<String, Duration> timeouts) {
+    if (nonNull(timeouts)) {
+      timeouts.forEach(this::withTimeout);
+    }
+    return this;
+  }
+
+  /**
+   * With deadline header.
+   *
+   * @param deadlineHeader the name of the header, that contains the remaining milliseconds of
+   *     the deadline (default is {@value #DEFAULT_DEADLINE_HEADER}); {@code null} or an empty
+   *     name means, that the deadline is not sent
+   * @return the timeouts
+   */
+  public Timeouts withDeadlineHeader(String deadlineHeader) {
+    this.deadlineHeader = deadlineHeader;
+    return this;
+  }
+
+  /**
+   * Gets the name of the deadline header.
+   *
+   * @return the deadline header (can be {@code null})
+   */
+  public String getDeadlineHeader() {
+    return deadlineHeader;
+  }
+
+  /**
+   * Gets the timeout of the given method.
+   *
+   * @param methodPlan the method plan
+   * @return the timeout or {@code null}, if the method has no timeout
+   */
+  Duration getTimeout(MethodPlan methodPlan) {
+    Class<?> targetClass = methodPlan.getTargetClass();
+    Method method = methodPlan.getMethod();
+    Duration timeout = timeouts.get(targetClass.getName() + "#" + method.getName());
+    if (isNull(timeout)) {
+      timeout = toDuration(AnnotationUtils.findAnnotation(method, Timeout.class));
+    }
+    if (isNull(timeout)) {
+      timeout = timeouts.get(targetClass.getName());
+    }
+    if (isNull(timeout)) {
+      timeout = toDuration(AnnotationUtils.findAnnotation(targetClass, Timeout.class));
+    }
+    if (isNull(timeout)) {
+      timeout = defaultTimeout;
+    }
+    return isNull(timeout) || timeout.isNegative() || timeout.isZero() ? null : timeout;
+  }
+
+  private static Duration toDuration(Timeout annotation) {
+    return isNull(annotation) ? null : Duration.ofMillis(annotation.value());
+  }
+
+  @Override
+  public String toString() {
+    return "Timeouts{"
+        + "defaultTimeout=" + defaultTimeout
+        + ", timeouts=" + timeouts
+        + ", deadlineHeader=" + deadlineHeader
+        + '}';
+  }
+
+}
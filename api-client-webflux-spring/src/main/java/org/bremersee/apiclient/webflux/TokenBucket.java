@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket, that limits extra requests (like hedges or retries) to a percentage
+ * of the requests: every request deposits the given percentage of a permit and an extra request
+ * needs a whole permit. The permits are capped, so that a long quiet period does not allow a
+ * burst of extra requests.
+ *
+ * @author Christian Bremer
+ */
+final class TokenBucket {
+
+  private static final long TOKENS_PER_PERMIT = 100L;
+
+  private final long maxTokens;
+
+  private final AtomicLong tokens;
+
+  /**
+   * Instantiates a new token bucket.
+   *
+   * @param maxPermits the maximum number of permits
+   * @param full specifies whether the bucket starts with the maximum number of permits or empty
+   */
+  TokenBucket(int maxPermits, boolean full) {
+    this.maxTokens = Math.max(maxPermits, 1) * TOKENS_PER_PERMIT;
+    this.tokens = new AtomicLong(full ? maxTokens : 0L);
+  }
+
+  /**
+   * Deposits the given percentage of a permit.
+   *
+   * @param percent the percentage of a permit
+   */
+  void deposit(int percent) {
+    if (percent > 0) {
+      tokens.getAndUpdate(current -> Math.min(current + percent, maxTokens));
+    }
+  }
+
+  /**
+   * Tries to acquire a permit.
+   *
+   * @return {@code true} if a permit was acquired, otherwise {@code false}
+   */
+  boolean tryAcquire() {
+    long current;
+    do {
+      current = tokens.get();
+      if (current < TOKENS_PER_PERMIT) {
+        return false;
+      }
+    } while (!tokens.compareAndSet(current, current - TOKENS_PER_PERMIT));
+    return true;
+  }
+
+}
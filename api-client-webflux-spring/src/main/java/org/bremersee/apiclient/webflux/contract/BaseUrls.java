@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract;
+
+import java.util.Map;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.web.util.UriBuilder;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * The base urls replace the base url of the uri builder of a web client. The uri builder is kept,
+ * so that its encoding mode and default uri variables apply, and every base url is only parsed
+ * once.
+ *
+ * @author Christian Bremer
+ */
+abstract class BaseUrls {
+
+  private static final Map<String, UriComponents> components
+      = new ConcurrentReferenceHashMap<>();
+
+  private BaseUrls() {
+  }
+
+  /**
+   * Replaces scheme, user info, host, port, path and query of the given uri builder with the ones
+   * of the given base url.
+   *
+   * @param uriBuilder the uri builder of the web client
+   * @param baseUrl the base url
+   * @return the uri builder
+   */
+  static UriBuilder replaceBaseUrl(UriBuilder uriBuilder, String baseUrl) {
+    UriComponents baseUrlComponents = components.computeIfAbsent(
+        baseUrl,
+        url -> UriComponentsBuilder.fromUriString(url).build());
+    return uriBuilder
+        .scheme(baseUrlComponents.getScheme())
+        .userInfo(baseUrlComponents.getUserInfo())
+        .host(baseUrlComponents.getHost())
+        .port(baseUrlComponents.getPort())
+        .replacePath(baseUrlComponents.getPath())
+        .replaceQuery(baseUrlComponents.getQuery());
+  }
+
+}
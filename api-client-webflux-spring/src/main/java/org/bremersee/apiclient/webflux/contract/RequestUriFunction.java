@@ -19,6 +19,7 @@ package org.bremersee.apiclient.webflux.contract;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import javax.validation.Valid;
@@ -74,15 +75,25 @@ public interface RequestUriFunction extends BiFunction<Invocation, UriBuilder, U
   @NotEmpty
   List<Function<Invocation, MultiValueMap<String, Object>>> getRequestParametersResolvers();
 
+  /**
+   * Gets base url resolver. If it returns a base url, it replaces the base url of the web client
+   * for this invocation. The uri builder of the web client is still used, so that its encoding
+   * mode and default uri variables apply.
+   *
+   * @return the base url resolver
+   */
+  Optional<Function<Invocation, Optional<String>>> getBaseUrlResolver();
+
   @Override
   default URI apply(Invocation invocation, UriBuilder uriBuilder) {
-    UriBuilder builder = uriBuilder.path(getRequestPathResolver().apply(invocation));
-    MultiValueMap<String, Object> requestParameters = getRequestParametersResolvers().stream()
-        .map(resolver -> resolver.apply(invocation))
-        .collect(
-            LinkedMultiValueMap::new,
-            LinkedMultiValueMap::putAll,
-            LinkedMultiValueMap::putAll);
+    UriBuilder builder = getBaseUrlResolver()
+        .flatMap(resolver -> resolver.apply(invocation))
+        .map(baseUrl -> BaseUrls.replaceBaseUrl(uriBuilder, baseUrl))
+        .orElse(uriBuilder)
+        .path(getRequestPathResolver().apply(invocation));
+    MultiValueMap<String, Object> requestParameters = new LinkedMultiValueMap<>();
+    getRequestParametersResolvers()
+        .forEach(resolver -> requestParameters.putAll(resolver.apply(invocation)));
     for (Map.Entry<String, List<Object>> entry : requestParameters.entrySet()) {
       builder = builder.queryParam(entry.getKey(), entry.getValue());
     }
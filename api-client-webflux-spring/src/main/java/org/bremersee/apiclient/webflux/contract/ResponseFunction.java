@@ -21,6 +21,7 @@ import static org.springframework.core.GenericTypeResolver.resolveReturnTypeArgu
 
 import java.lang.reflect.Method;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.bremersee.apiclient.webflux.Invocation;
 import org.reactivestreams.Publisher;
 import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
@@ -36,26 +37,29 @@ public class ResponseFunction implements BiFunction<Invocation, ResponseSpec, Pu
 
   @Override
   public Publisher<?> apply(Invocation invocation, ResponseSpec responseSpec) {
+    return invocation.getMethodPlan()
+        .resolve(getClass(), methodPlan -> resolveDecoder(methodPlan.getMethod()))
+        .apply(responseSpec);
+  }
 
-    Method method = invocation.getMethod();
+  /**
+   * Resolves the decoder of the response from the return type of the given method.
+   *
+   * @param method the method
+   * @return the decoder of the response
+   */
+  protected Function<ResponseSpec, Publisher<?>> resolveDecoder(Method method) {
     Class<?> responseClass = method.getReturnType();
     if (Mono.class.isAssignableFrom(responseClass)) {
       Class<?> typeClass = resolveReturnTypeArgument(method, responseClass);
-      return nonNull(typeClass)
-          ? responseSpec.bodyToMono(typeClass)
-          : responseSpec.bodyToMono(responseClass);
-    }
-    if (Flux.class.isAssignableFrom(responseClass)) {
-      Class<?> typeClass = resolveReturnTypeArgument(method, responseClass);
-      return nonNull(typeClass)
-          ? responseSpec.bodyToFlux(typeClass)
-          : responseSpec.bodyToFlux(responseClass);
+      Class<?> bodyClass = nonNull(typeClass) ? typeClass : responseClass;
+      return responseSpec -> responseSpec.bodyToMono(bodyClass);
     }
-    if (Publisher.class.isAssignableFrom(responseClass)) {
+    if (Flux.class.isAssignableFrom(responseClass)
+        || Publisher.class.isAssignableFrom(responseClass)) {
       Class<?> typeClass = resolveReturnTypeArgument(method, responseClass);
-      return nonNull(typeClass)
-          ? responseSpec.bodyToFlux(typeClass)
-          : responseSpec.bodyToFlux(responseClass);
+      Class<?> bodyClass = nonNull(typeClass) ? typeClass : responseClass;
+      return responseSpec -> responseSpec.bodyToFlux(bodyClass);
     }
     throw new IllegalStateException(
         "Response class must be Mono, Flux or Publisher.");
@@ -36,6 +36,16 @@ public class AcceptResolver implements Function<Invocation, MediaType> {
 
   @Override
   public MediaType apply(Invocation invocation) {
+    return invocation.getMethodPlan().resolve(getClass(), methodPlan -> resolve(invocation));
+  }
+
+  /**
+   * Resolves the accepted media type from the mapping annotations of the method of the given invocation.
+   *
+   * @param invocation the invocation
+   * @return the accepted media type
+   */
+  protected MediaType resolve(Invocation invocation) {
     return Arrays.stream(
             invocation.findAnnotationValueOnMethod(
                     RequestMapping.class, a -> a.produces().length > 0, RequestMapping::produces)
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring;
+
+import lombok.ToString;
+import org.springframework.util.Assert;
+
+/**
+ * A buffer size strategy, that chooses the buffer size from the length of the content and the
+ * size of the socket send buffer.
+ *
+ * <p>A buffer, that is larger than the content, wastes memory, so small content is read with a
+ * buffer, whose size is the next power of two of the content length (but at least the minimum
+ * buffer size). A buffer, that is larger than the send buffer of the socket, does not save any
+ * system call, because the connection cannot take more bytes at once. Therefore large content
+ * and content of unknown length is read with buffers of the size of the send buffer (limited by
+ * the minimum and maximum buffer size).
+ *
+ * @author Christian Bremer
+ */
+@ToString
+public class AdaptiveBufferSizeStrategy implements BufferSizeStrategy {
+
+  /**
+   * The default minimum buffer size.
+   */
+  public static final int DEFAULT_MIN_BUFFER_SIZE = 1024;
+
+  /**
+   * The default maximum buffer size.
+   */
+  public static final int DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024;
+
+  /**
+   * The default size of the socket send buffer.
+   */
+  public static final int DEFAULT_SEND_BUFFER_SIZE = 64 * 1024;
+
+  private int minBufferSize = DEFAULT_MIN_BUFFER_SIZE;
+
+  private int maxBufferSize = DEFAULT_MAX_BUFFER_SIZE;
+
+  private int sendBufferSize = DEFAULT_SEND_BUFFER_SIZE;
+
+  /**
+   * With buffer size limits.
+   *
+   * @param minBufferSize the minimum buffer size
+   * @param maxBufferSize the maximum buffer size
+   * @return the adaptive buffer size strategy
+   */
+  public AdaptiveBufferSizeStrategy withBufferSize(int minBufferSize, int maxBufferSize) {
+    Assert.isTrue(minBufferSize > 0, "Minimum buffer size must be greater than zero.");
+    Assert.isTrue(
+        maxBufferSize >= minBufferSize,
+        "Maximum buffer size must not be less than minimum buffer size.");
+    this.minBufferSize = minBufferSize;
+    this.maxBufferSize = maxBufferSize;
+    return this;
+  }
+
+  /**
+   * With send buffer size.
+   *
+   * @param sendBufferSize the size of the socket send buffer (like the value of the option
+   *     {@code SO_SNDBUF} of the connector)
+   * @return the adaptive buffer size strategy
+   */
+  public AdaptiveBufferSizeStrategy withSendBufferSize(int sendBufferSize) {
+    Assert.isTrue(sendBufferSize > 0, "Send buffer size must be greater than zero.");
+    this.sendBufferSize = sendBufferSize;
+    return this;
+  }
+
+  @Override
+  public int getBufferSize(long contentLength) {
+    int upperBound = Math.max(minBufferSize, Math.min(maxBufferSize, sendBufferSize));
+    if (contentLength < 0L || contentLength >= upperBound) {
+      return upperBound;
+    }
+    int length = (int) Math.max(contentLength, 1L);
+    int powerOfTwo = length == 1 ? 1 : Integer.highestOneBit(length - 1) << 1;
+    return Math.min(upperBound, Math.max(minBufferSize, powerOfTwo));
+  }
+
+}
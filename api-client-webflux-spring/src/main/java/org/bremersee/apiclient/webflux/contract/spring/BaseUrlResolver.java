@@ -0,0 +1,49 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring;
+
+import static java.util.Objects.nonNull;
+
+import java.util.Optional;
+import java.util.function.Function;
+import org.bremersee.apiclient.webflux.BaseUrl;
+import org.bremersee.apiclient.webflux.Invocation;
+import org.bremersee.apiclient.webflux.ParameterPlan;
+
+/**
+ * The base url resolver returns the value of the first parameter, that is annotated with
+ * {@link BaseUrl} and not empty. If there is no such parameter, the value of the key
+ * {@link BaseUrl#CONTEXT_KEY} in the context of the subscriber is returned.
+ *
+ * @author Christian Bremer
+ */
+public class BaseUrlResolver implements Function<Invocation, Optional<String>> {
+
+  @Override
+  public Optional<String> apply(Invocation invocation) {
+    for (ParameterPlan parameter : invocation.getMethodPlan().getParameters(BaseUrl.class)) {
+      Object value = invocation.getArgs()[parameter.getIndex()];
+      if (nonNull(value) && !String.valueOf(value).isBlank()) {
+        return Optional.of(String.valueOf(value));
+      }
+    }
+    return invocation.getContext().getOrEmpty(BaseUrl.CONTEXT_KEY)
+        .map(String::valueOf)
+        .filter(baseUrl -> !baseUrl.isBlank());
+  }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring;
+
+import org.springframework.util.Assert;
+
+/**
+ * The strategy, that chooses the size of the buffers, which are used to read the content of a
+ * file or of a resource.
+ *
+ * @author Christian Bremer
+ */
+@FunctionalInterface
+public interface BufferSizeStrategy {
+
+  /**
+   * Gets the buffer size.
+   *
+   * @param contentLength the length of the content or a negative value, if it is unknown
+   * @return the buffer size
+   */
+  int getBufferSize(long contentLength);
+
+  /**
+   * Creates a strategy, that always returns the given buffer size.
+   *
+   * @param bufferSize the buffer size
+   * @return the buffer size strategy
+   */
+  static BufferSizeStrategy fixed(int bufferSize) {
+    Assert.isTrue(bufferSize > 0, "Buffer size must be greater than zero.");
+    return contentLength -> bufferSize;
+  }
+
+}
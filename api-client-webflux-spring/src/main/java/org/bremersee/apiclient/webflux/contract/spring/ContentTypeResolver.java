@@ -37,6 +37,16 @@ public class ContentTypeResolver implements Function<Invocation, Optional<MediaT
 
   @Override
   public Optional<MediaType> apply(Invocation invocation) {
+    return invocation.getMethodPlan().resolve(getClass(), methodPlan -> resolve(invocation));
+  }
+
+  /**
+   * Resolves the content type from the mapping annotations of the method of the given invocation.
+   *
+   * @param invocation the invocation
+   * @return the content type
+   */
+  protected Optional<MediaType> resolve(Invocation invocation) {
     return Arrays.stream(
             invocation.findAnnotationValueOnMethod(
                     RequestMapping.class, a -> a.consumes().length > 0, RequestMapping::consumes)
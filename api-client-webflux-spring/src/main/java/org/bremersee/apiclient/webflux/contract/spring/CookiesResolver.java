@@ -32,15 +32,13 @@ public class CookiesResolver implements
 
   @Override
   public MultiValueMap<String, String> apply(Invocation invocation) {
-    return invocation.toMethodParameterStream()
-        .map(invocationParameter -> invocationParameter.toMultiValueMap(
-            CookieValue.class,
-            CookieValue::value,
-            String::valueOf))
-        .collect(
-            LinkedMultiValueMap::new,
-            LinkedMultiValueMap::addAll,
-            LinkedMultiValueMap::addAll);
+    MultiValueMap<String, String> cookies = new LinkedMultiValueMap<>();
+    invocation.bindParameters(
+        CookieValue.class,
+        CookieValue::value,
+        String::valueOf,
+        cookies::addAll);
+    return cookies;
   }
 
 }
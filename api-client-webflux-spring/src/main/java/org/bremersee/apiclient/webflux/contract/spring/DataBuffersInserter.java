@@ -16,7 +16,6 @@
 
 package org.bremersee.apiclient.webflux.contract.spring;
 
-import java.lang.reflect.Method;
 import java.util.Optional;
 import org.bremersee.apiclient.webflux.InvocationParameter;
 import org.reactivestreams.Publisher;
@@ -40,9 +39,7 @@ public class DataBuffersInserter extends SingleBodyInserter<Publisher<DataBuffer
   }
 
   private boolean isDataBuffer(InvocationParameter invocationParameter) {
-    Method method = invocationParameter.getMethod();
-    int index = invocationParameter.getIndex();
-    return Optional.of(ResolvableType.forMethodParameter(method, index))
+    return Optional.of(invocationParameter.getResolvableType())
         .filter(ResolvableType::hasGenerics)
         .map(resolvableType -> resolvableType.resolveGeneric(0))
         .filter(DataBuffer.class::isAssignableFrom)
@@ -2,12 +2,10 @@ package org.bremersee.apiclient.webflux.contract.spring;
 
 import static java.util.Objects.nonNull;
 
-import java.lang.reflect.Method;
 import java.util.Optional;
 import java.util.function.Function;
 import org.bremersee.apiclient.webflux.Invocation;
 import org.bremersee.apiclient.webflux.InvocationParameter;
-import org.springframework.core.ResolvableType;
 import org.springframework.http.MediaType;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
@@ -67,9 +65,7 @@ public class FormDataInserter extends SingleBodyInserter<MultiValueMap<String, ?
   }
 
   private boolean isString(InvocationParameter invocationParameter) {
-    Method method = invocationParameter.getMethod();
-    int index = invocationParameter.getIndex();
-    return Optional.of(ResolvableType.forMethodParameter(method, index))
+    return Optional.of(invocationParameter.getResolvableType())
         .filter(resolvableType -> resolvableType.getGenerics().length >= 2)
         .map(resolvableType -> resolvableType.resolveGeneric(0))
         .filter(String.class::isAssignableFrom)
@@ -42,7 +42,17 @@ public class HttpMethodResolver implements Function<Invocation, HttpRequestMetho
   public HttpRequestMethod apply(Invocation invocation) {
 
     Assert.notNull(invocation, "Invocation must be present.");
-    Method method = invocation.getMethod();
+    return invocation.getMethodPlan()
+        .resolve(getClass(), methodPlan -> resolve(methodPlan.getMethod()));
+  }
+
+  /**
+   * Resolves the http method from the mapping annotations of the given method.
+   *
+   * @param method the method
+   * @return the http request method
+   */
+  protected HttpRequestMethod resolve(Method method) {
     return Optional.ofNullable(findAnnotation(method, RequestMapping.class))
         .filter(requestMapping -> requestMapping.method().length > 0)
         .flatMap(requestMapping -> HttpRequestMethod.resolve(requestMapping.method()[0].name()))
@@ -18,13 +18,13 @@ package org.bremersee.apiclient.webflux.contract.spring;
 
 import static java.util.Objects.nonNull;
 
-import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.bremersee.apiclient.webflux.Invocation;
 import org.bremersee.apiclient.webflux.InvocationParameter;
+import org.bremersee.apiclient.webflux.contract.spring.multipart.StreamingMultipartInserter;
 import org.reactivestreams.Publisher;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.ResolvableType;
@@ -44,6 +44,10 @@ import reactor.core.publisher.Mono;
 /**
  * The multipart data inserter.
  *
+ * <p>By default the parts are written with a {@link StreamingMultipartInserter} as they are
+ * emitted. If streaming is turned off, all parts are collected and converted into http entities
+ * with the part converter before the first byte of the request is written.
+ *
  * @author Christian Bremer
  */
 public class MultipartDataInserter extends AbstractRequestBodyInserter {
@@ -52,6 +56,8 @@ public class MultipartDataInserter extends AbstractRequestBodyInserter {
 
   private Converter<Part, HttpEntity<?>> partConverter = new PartToHttpEntityConverter();
 
+  private boolean streaming = true;
+
   /**
    * With content type resolver.
    *
@@ -80,6 +86,18 @@ public class MultipartDataInserter extends AbstractRequestBodyInserter {
     return this;
   }
 
+  /**
+   * With streaming.
+   *
+   * @param streaming {@code true} to write every part as soon as it is emitted (default), or
+   *     {@code false} to collect all parts before the request is written
+   * @return the multipart data inserter
+   */
+  public MultipartDataInserter withStreaming(boolean streaming) {
+    this.streaming = streaming;
+    return this;
+  }
+
   @Override
   public boolean canInsert(Invocation invocation) {
     return isMultipartFormData(invocation) && super.canInsert(invocation);
@@ -115,10 +133,8 @@ public class MultipartDataInserter extends AbstractRequestBodyInserter {
    * @return the boolean
    */
   protected boolean isRequestBody(InvocationParameter invocationParameter) {
-    Method method = invocationParameter.getMethod();
-    int index = invocationParameter.getIndex();
     if (invocationParameter.getValue() instanceof MultiValueMap) {
-      return Optional.of(ResolvableType.forMethodParameter(method, index))
+      return Optional.of(invocationParameter.getResolvableType())
           .filter(resolvableType -> resolvableType.getGenerics().length >= 2)
           .map(resolvableType -> {
             Class<?> r0 = resolvableType.resolveGeneric(0);
@@ -135,10 +151,8 @@ public class MultipartDataInserter extends AbstractRequestBodyInserter {
   }
 
   private boolean isMonoWithMultiValueMap(InvocationParameter invocationParameter) {
-    Method method = invocationParameter.getMethod();
-    int index = invocationParameter.getIndex();
     return invocationParameter.getValue() instanceof Mono && Optional
-        .of(ResolvableType.forMethodParameter(method, index))
+        .of(invocationParameter.getResolvableType())
         .filter(ResolvableType::hasGenerics)
         .map(resolvableType -> resolvableType.getGeneric(0))
         .filter(resolvableType -> resolvableType.getGenerics().length >= 2)
@@ -152,10 +166,8 @@ public class MultipartDataInserter extends AbstractRequestBodyInserter {
   }
 
   private boolean isFluxWithPart(InvocationParameter invocationParameter) {
-    Method method = invocationParameter.getMethod();
-    int index = invocationParameter.getIndex();
     return invocationParameter.getValue() instanceof Flux && Optional
-        .of(ResolvableType.forMethodParameter(method, index))
+        .of(invocationParameter.getResolvableType())
         .filter(ResolvableType::hasGenerics)
         .map(resolvableType -> resolvableType.resolveGeneric(0))
         .filter(Part.class::isAssignableFrom)
@@ -177,9 +189,7 @@ public class MultipartDataInserter extends AbstractRequestBodyInserter {
     if (invocationParameter.getValue() instanceof Part) {
       return true;
     } else if (invocationParameter.getValue() instanceof Publisher) {
-      Method method = invocationParameter.getMethod();
-      int index = invocationParameter.getIndex();
-      return Optional.of(ResolvableType.forMethodParameter(method, index))
+      return Optional.of(invocationParameter.getResolvableType())
           .filter(ResolvableType::hasGenerics)
           .map(resolvableType -> resolvableType.resolveGeneric(0))
           .filter(Part.class::isAssignableFrom)
@@ -197,6 +207,19 @@ public class MultipartDataInserter extends AbstractRequestBodyInserter {
             || isFluxWithPart(invocationParameter))
         .map(invocationParameter -> toPublisher(invocationParameter.getValue()))
         .collect(Collectors.toList());
+    if (streaming) {
+      Flux<Part> parts;
+      if (!partPublishers.isEmpty()) {
+        parts = Flux.concat(partPublishers);
+      } else {
+        parts = Flux.from(findRequestBody(possibleBodies))
+            .concatMapIterable(MultiValueMap::values)
+            .concatMapIterable(partList -> partList);
+      }
+      //noinspection rawtypes
+      return (RequestHeadersUriSpec) requestBodyUriSpec
+          .body(new StreamingMultipartInserter(parts));
+    }
     Mono<MultiValueMap<String, HttpEntity<?>>> httpEntityMap;
     if (!partPublishers.isEmpty()) {
       httpEntityMap = toHttpEntityMap(partPublishers);
@@ -24,14 +24,17 @@ import org.springframework.http.codec.multipart.Part;
 /**
  * The part to http entity converter.
  *
+ * <p>Every conversion uses its own {@link MultipartBodyBuilder}, so the converter has no mutable
+ * state and can be shared by concurrent requests. The builder creates the entity with the type
+ * information of the content, that the multipart writer needs to find the part writer.
+ *
  * @author Christian Bremer
  */
 public class PartToHttpEntityConverter implements Converter<Part, HttpEntity<?>> {
 
-  private final MultipartBodyBuilder multipartBodyBuilder = new MultipartBodyBuilder();
-
   @Override
   public HttpEntity<?> convert(Part source) {
+    MultipartBodyBuilder multipartBodyBuilder = new MultipartBodyBuilder();
     multipartBodyBuilder.part(source.name(), source);
     return multipartBodyBuilder.build().getFirst(source.name());
   }
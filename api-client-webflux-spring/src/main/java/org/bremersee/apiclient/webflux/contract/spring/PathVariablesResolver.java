@@ -31,14 +31,16 @@ public class PathVariablesResolver implements Function<Invocation, Map<String, O
 
   @Override
   public Map<String, Object> apply(Invocation invocation) {
-    return invocation.toMethodParameterStream()
-        .map(invocationParameter -> invocationParameter.toMultiValueMap(
-            PathVariable.class,
-            PathVariable::value,
-            String::valueOf))
-        .collect(
-            LinkedHashMap::new,
-            (a, b) -> a.putAll(b.toSingleValueMap()),
-            LinkedHashMap::putAll);
+    Map<String, Object> pathVariables = new LinkedHashMap<>();
+    invocation.bindParameters(
+        PathVariable.class,
+        PathVariable::value,
+        String::valueOf,
+        (name, values) -> {
+          if (!values.isEmpty()) {
+            pathVariables.put(name, values.get(0));
+          }
+        });
+    return pathVariables;
   }
 }
@@ -16,7 +16,6 @@
 
 package org.bremersee.apiclient.webflux.contract.spring;
 
-import java.lang.reflect.Method;
 import java.util.Optional;
 import org.bremersee.apiclient.webflux.InvocationParameter;
 import org.reactivestreams.Publisher;
@@ -47,10 +46,8 @@ public class PublisherInserter extends SingleBodyInserter<InvocationParameter> {
       InvocationParameter invocationParameter,
       RequestBodyUriSpec requestBodyUriSpec) {
 
-    Method method = invocationParameter.getMethod();
-    int index = invocationParameter.getIndex();
     //noinspection rawtypes
-    return Optional.of(ResolvableType.forMethodParameter(method, index))
+    return Optional.of(invocationParameter.getResolvableType())
         .filter(ResolvableType::hasGenerics)
         .map(resolvableType -> resolvableType.resolveGeneric(0))
         .map(ParameterizedTypeReference::forType)
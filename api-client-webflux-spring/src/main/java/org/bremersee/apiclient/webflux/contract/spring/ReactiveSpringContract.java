@@ -16,9 +16,13 @@
 
 package org.bremersee.apiclient.webflux.contract.spring;
 
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -46,7 +50,69 @@ import org.springframework.web.util.UriBuilder;
  */
 public class ReactiveSpringContract implements ReactiveContract {
 
-  private final ContentTypeResolver contentTypeResolver = new ContentTypeResolver();
+  private static final Set<Class<?>> DEFAULT_RESOLVER_CLASSES = Set.of(
+      RequestParametersResolver.class,
+      SortRequestParameterResolver.class,
+      PageableRequestParameterResolver.class,
+      FormDataInserter.class,
+      MultipartDataInserter.class,
+      ResourceInserter.class,
+      DataBuffersInserter.class,
+      PublisherInserter.class,
+      ValueInserter.class);
+
+  private final ContentTypeResolver contentTypeResolver;
+
+  private final List<Function<Invocation, MultiValueMap<String, Object>>>
+      requestParametersResolvers;
+
+  private final RequestBodyInserterRegistry requestBodyInserterRegistry;
+
+  /**
+   * Instantiates a new reactive spring contract with the default resolvers and inserters.
+   */
+  public ReactiveSpringContract() {
+    this(null, null, null);
+  }
+
+  /**
+   * Instantiates a new reactive spring contract with the given resolvers and inserters.
+   *
+   * @param contentTypeResolver the content type resolver (can be {@code null})
+   * @param requestParametersResolvers the request parameters resolvers (can be {@code null})
+   * @param requestBodyInserterRegistry the request body inserter registry (can be {@code
+   *     null})
+   */
+  public ReactiveSpringContract(
+      ContentTypeResolver contentTypeResolver,
+      List<Function<Invocation, MultiValueMap<String, Object>>> requestParametersResolvers,
+      RequestBodyInserterRegistry requestBodyInserterRegistry) {
+
+    this.contentTypeResolver = isNull(contentTypeResolver)
+        ? new ContentTypeResolver()
+        : contentTypeResolver;
+    this.requestParametersResolvers = isNull(requestParametersResolvers)
+        ? null
+        : List.copyOf(requestParametersResolvers);
+    this.requestBodyInserterRegistry = requestBodyInserterRegistry;
+  }
+
+  /**
+   * Determines whether the requests of this contract are the same as the requests of the
+   * implementations, that are generated at build time (see {@code GenerateApiClient}). That is
+   * the case, if this is not a subclass and all resolvers and inserters are the default ones.
+   *
+   * @return {@code true}, if generated api clients may be used instead of this contract
+   */
+  public boolean isGeneratedApiClientCompatible() {
+    return getClass() == ReactiveSpringContract.class
+        && contentTypeResolver.getClass() == ContentTypeResolver.class
+        && (isNull(requestParametersResolvers) || requestParametersResolvers.stream()
+        .allMatch(resolver -> DEFAULT_RESOLVER_CLASSES.contains(resolver.getClass())))
+        && (isNull(requestBodyInserterRegistry)
+        || requestBodyInserterRegistry.getRequestBodyInserters().stream()
+        .allMatch(inserter -> DEFAULT_RESOLVER_CLASSES.contains(inserter.getClass())));
+  }
 
   @Override
   public BiConsumer<Invocation, MultiValueMap<String, String>> getCookiesConsumer() {
@@ -70,6 +136,7 @@ public class ReactiveSpringContract implements ReactiveContract {
         .requestPathResolver(new RequestPathResolver())
         .pathVariablesResolver(new PathVariablesResolver())
         .requestParametersResolvers(getRequestParametersResolvers())
+        .baseUrlResolver(new BaseUrlResolver())
         .build();
   }
 
@@ -81,6 +148,9 @@ public class ReactiveSpringContract implements ReactiveContract {
   protected List<Function<Invocation, MultiValueMap<String, Object>>>
   getRequestParametersResolvers() {
 
+    if (nonNull(requestParametersResolvers)) {
+      return requestParametersResolvers;
+    }
     List<Function<Invocation, MultiValueMap<String, Object>>> list = new ArrayList<>();
     list.add(new RequestParametersResolver());
     if (Extensions.isSortPresent) {
@@ -103,6 +173,9 @@ public class ReactiveSpringContract implements ReactiveContract {
   public BiFunction<Invocation, RequestBodyUriSpec, RequestHeadersUriSpec<?>>
   getRequestBodyInserterFunction() {
 
+    if (nonNull(requestBodyInserterRegistry)) {
+      return requestBodyInserterRegistry;
+    }
     return RequestBodyInserterRegistry.builder()
         .addRequestBodyInserters(new FormDataInserter()
             .withContentTypeResolver(contentTypeResolver))
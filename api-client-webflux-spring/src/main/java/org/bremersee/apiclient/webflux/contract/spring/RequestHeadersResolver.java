@@ -32,15 +32,13 @@ public class RequestHeadersResolver implements
 
   @Override
   public MultiValueMap<String, String> apply(Invocation invocation) {
-    return invocation.toMethodParameterStream()
-        .map(invocationParameter -> invocationParameter.toMultiValueMap(
-            RequestHeader.class,
-            RequestHeader::value,
-            String::valueOf))
-        .collect(
-            LinkedMultiValueMap::new,
-            LinkedMultiValueMap::addAll,
-            LinkedMultiValueMap::addAll);
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+    invocation.bindParameters(
+        RequestHeader.class,
+        RequestHeader::value,
+        String::valueOf,
+        headers::addAll);
+    return headers;
   }
 
 }
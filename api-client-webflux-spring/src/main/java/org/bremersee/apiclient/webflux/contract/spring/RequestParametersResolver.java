@@ -30,14 +30,12 @@ public class RequestParametersResolver implements QueryParametersResolver {
 
   @Override
   public MultiValueMap<String, Object> apply(Invocation invocation) {
-    return invocation.toMethodParameterStream()
-        .map(invocationParameter -> invocationParameter.toMultiValueMap(
-            RequestParam.class,
-            RequestParam::value,
-            v -> v))
-        .collect(
-            LinkedMultiValueMap::new,
-            LinkedMultiValueMap::putAll,
-            LinkedMultiValueMap::putAll);
+    MultiValueMap<String, Object> requestParameters = new LinkedMultiValueMap<>();
+    invocation.bindParameters(
+        RequestParam.class,
+        RequestParam::value,
+        v -> v,
+        requestParameters::put);
+    return requestParameters;
   }
 }
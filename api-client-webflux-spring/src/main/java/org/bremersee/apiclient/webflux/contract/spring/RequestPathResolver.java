@@ -35,6 +35,17 @@ public class RequestPathResolver implements Function<Invocation, String> {
 
   @Override
   public String apply(Invocation invocation) {
+    return invocation.getMethodPlan().resolve(getClass(), methodPlan -> resolve(invocation));
+  }
+
+  /**
+   * Resolves the request path from the mapping annotations of the target class and the method of
+   * the given invocation.
+   *
+   * @param invocation the invocation
+   * @return the request path
+   */
+  protected String resolve(Invocation invocation) {
     // Request mapping on class
     String clsPath = invocation
         .findAnnotationValueOnTargetClass(
@@ -16,28 +16,99 @@
 
 package org.bremersee.apiclient.webflux.contract.spring;
 
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import org.bremersee.apiclient.webflux.InvocationParameter;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient.RequestBodyUriSpec;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersUriSpec;
+import reactor.core.publisher.Mono;
 
 /**
  * The resource inserter.
  *
+ * <p>Besides a {@link Resource} a {@link Path} is accepted as body, too. The content of a file
+ * is sent with zero-copy (the connector transfers the file region directly to the socket, like
+ * reactor netty does with {@code FileChannel.transferTo}), if the request supports it and the
+ * connection is not secured. With tls the bytes must be encrypted in user space anyway, so the
+ * file is read asynchronously with buffers of the connector's buffer factory, whose size is
+ * chosen by the buffer size strategy.
+ *
  * @author Christian Bremer
  */
 public class ResourceInserter extends SingleBodyInserter<Resource> {
 
+  private boolean zeroCopy = true;
+
+  private BufferSizeStrategy bufferSizeStrategy = new AdaptiveBufferSizeStrategy();
+
+  /**
+   * With zero copy.
+   *
+   * @param zeroCopy {@code true} to send files with zero-copy, if it is possible (default is
+   *     {@code true})
+   * @return the resource inserter
+   */
+  public ResourceInserter withZeroCopy(boolean zeroCopy) {
+    this.zeroCopy = zeroCopy;
+    return this;
+  }
+
+  /**
+   * With buffer size.
+   *
+   * @param bufferSize the size of the buffers, that are used to read a file, if zero-copy is not
+   *     possible
+   * @return the resource inserter
+   */
+  public ResourceInserter withBufferSize(int bufferSize) {
+    if (bufferSize > 0) {
+      this.bufferSizeStrategy = BufferSizeStrategy.fixed(bufferSize);
+    }
+    return this;
+  }
+
+  /**
+   * With buffer size strategy.
+   *
+   * @param bufferSizeStrategy the strategy, that chooses the size of the buffers, which are used
+   *     to read a file, if zero-copy is not possible
+   * @return the resource inserter
+   */
+  public ResourceInserter withBufferSizeStrategy(BufferSizeStrategy bufferSizeStrategy) {
+    if (nonNull(bufferSizeStrategy)) {
+      this.bufferSizeStrategy = bufferSizeStrategy;
+    }
+    return this;
+  }
+
   @Override
   protected boolean isPossibleBodyValue(InvocationParameter invocationParameter) {
-    return invocationParameter.getValue() instanceof Resource;
+    return invocationParameter.getValue() instanceof Resource
+        || invocationParameter.getValue() instanceof Path;
   }
 
   @Override
   protected Resource mapBody(InvocationParameter invocationParameter) {
-    //noinspection
-    return (Resource) invocationParameter.getValue();
+    Object value = invocationParameter.getValue();
+    if (value instanceof Path) {
+      return new FileSystemResource((Path) value);
+    }
+    return (Resource) value;
   }
 
   @Override
@@ -45,8 +116,62 @@ public class ResourceInserter extends SingleBodyInserter<Resource> {
       Resource body,
       RequestBodyUriSpec requestBodyUriSpec) {
 
+    if (body.isFile()) {
+      //noinspection rawtypes
+      return (RequestHeadersUriSpec) requestBodyUriSpec.body(fromFile(body));
+    }
     //noinspection rawtypes
     return (RequestHeadersUriSpec) requestBodyUriSpec.body(BodyInserters.fromResource(body));
   }
 
+  /**
+   * Creates a body inserter for a file resource.
+   *
+   * @param resource the file resource
+   * @return the body inserter
+   */
+  protected BodyInserter<Resource, ReactiveHttpOutputMessage> fromFile(Resource resource) {
+    return (outputMessage, context) -> {
+      Path file;
+      long length;
+      try {
+        File resourceFile = resource.getFile();
+        file = resourceFile.toPath();
+        length = resourceFile.length();
+      } catch (IOException e) {
+        return Mono.error(e);
+      }
+      HttpHeaders headers = outputMessage.getHeaders();
+      if (isNull(headers.getContentType())) {
+        headers.setContentType(MediaTypeFactory.getMediaType(resource)
+            .orElse(MediaType.APPLICATION_OCTET_STREAM));
+      }
+      headers.setContentLength(length);
+      if (isZeroCopyPossible(outputMessage)) {
+        return ((ZeroCopyHttpOutputMessage) outputMessage).writeWith(file, 0L, length);
+      }
+      return outputMessage.writeWith(
+          DataBufferUtils.read(file, outputMessage.bufferFactory(),
+              bufferSizeStrategy.getBufferSize(length)));
+    };
+  }
+
+  /**
+   * Determines whether the file can be sent with zero-copy.
+   *
+   * @param outputMessage the output message
+   * @return {@code true} if zero-copy is enabled, the message supports it and the request is
+   *     not secured, otherwise {@code false}
+   */
+  protected boolean isZeroCopyPossible(ReactiveHttpOutputMessage outputMessage) {
+    return zeroCopy
+        && outputMessage instanceof ZeroCopyHttpOutputMessage
+        && !isSecure(outputMessage);
+  }
+
+  private static boolean isSecure(ReactiveHttpOutputMessage outputMessage) {
+    return outputMessage instanceof ClientHttpRequest
+        && "https".equalsIgnoreCase(((ClientHttpRequest) outputMessage).getURI().getScheme());
+  }
+
 }
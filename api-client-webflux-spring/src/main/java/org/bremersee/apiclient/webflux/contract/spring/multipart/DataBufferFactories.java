@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring.multipart;
+
+import io.netty.buffer.ByteBufAllocator;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.util.ClassUtils;
+
+/**
+ * The default data buffer factory of the parts.
+ *
+ * <p>If reactor netty is present, the buffers are allocated with the default allocator of netty,
+ * which is the pooled allocator of the connector. The content of a part can then be written to
+ * the connection without copying it from the heap. Otherwise the shared heap buffer factory is
+ * used.
+ *
+ * @author Christian Bremer
+ */
+abstract class DataBufferFactories {
+
+  private static final boolean nettyPresent = ClassUtils.isPresent(
+      "reactor.netty.http.client.HttpClient", DataBufferFactories.class.getClassLoader());
+
+  private DataBufferFactories() {
+  }
+
+  /**
+   * Gets the default data buffer factory.
+   *
+   * @return the default data buffer factory
+   */
+  static DataBufferFactory getDefault() {
+    return nettyPresent
+        ? NettyHolder.nettyDataBufferFactory
+        : DefaultDataBufferFactory.sharedInstance;
+  }
+
+  /**
+   * Keeps the netty classes away from the class loader, if netty is not present.
+   */
+  private static class NettyHolder {
+
+    private static final DataBufferFactory nettyDataBufferFactory
+        = new NettyDataBufferFactory(ByteBufAllocator.DEFAULT);
+  }
+
+}
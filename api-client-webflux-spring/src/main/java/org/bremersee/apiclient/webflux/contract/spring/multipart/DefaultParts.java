@@ -1,13 +1,16 @@
 package org.bremersee.apiclient.webflux.contract.spring.multipart;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.concurrent.Callable;
+import org.bremersee.apiclient.webflux.contract.spring.AdaptiveBufferSizeStrategy;
+import org.bremersee.apiclient.webflux.contract.spring.BufferSizeStrategy;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.codec.multipart.FilePart;
@@ -33,10 +36,24 @@ abstract class DefaultParts {
    * @return the created part
    */
   public static FormFieldPart formFieldPart(HttpHeaders headers, String value) {
+    return formFieldPart(headers, value, DataBufferFactories.getDefault());
+  }
+
+  /**
+   * Create a new {@link FormFieldPart} with the given parameters.
+   *
+   * @param headers the part headers
+   * @param value the form field value
+   * @param bufferFactory the factory that allocates the buffer of the value
+   * @return the created part
+   */
+  public static FormFieldPart formFieldPart(HttpHeaders headers, String value,
+      DataBufferFactory bufferFactory) {
     Assert.notNull(headers, "Headers must not be null");
     Assert.notNull(value, "Value must not be null");
+    Assert.notNull(bufferFactory, "DataBufferFactory must not be null");
 
-    return new DefaultParts.DefaultFormFieldPart(headers, value);
+    return new DefaultParts.DefaultFormFieldPart(headers, value, bufferFactory);
   }
 
   /**
@@ -66,11 +83,32 @@ abstract class DefaultParts {
    * @return {@link Part} or {@link FilePart}, depending on {@link HttpHeaders#getContentDisposition()}
    */
   public static Part part(HttpHeaders headers, Path file, Scheduler scheduler) {
+    return part(headers, file, scheduler, DataBufferFactories.getDefault(),
+        new AdaptiveBufferSizeStrategy());
+  }
+
+  /**
+   * Create a new {@link Part} or {@link FilePart} based on the given file. Returns {@link FilePart}
+   * if the {@code Content-Disposition} of the given headers contains a filename, or a "normal"
+   * {@link Part} otherwise
+   *
+   * @param headers the part headers
+   * @param file the file
+   * @param scheduler the scheduler used for blocking file operations
+   * @param bufferFactory the factory that allocates the buffers of the file content
+   * @param bufferSizeStrategy the strategy that chooses the size of the buffers
+   * @return {@link Part} or {@link FilePart}, depending on {@link HttpHeaders#getContentDisposition()}
+   */
+  public static Part part(HttpHeaders headers, Path file, Scheduler scheduler,
+      DataBufferFactory bufferFactory, BufferSizeStrategy bufferSizeStrategy) {
     Assert.notNull(headers, "Headers must not be null");
     Assert.notNull(file, "File must not be null");
     Assert.notNull(scheduler, "Scheduler must not be null");
+    Assert.notNull(bufferFactory, "DataBufferFactory must not be null");
+    Assert.notNull(bufferSizeStrategy, "BufferSizeStrategy must not be null");
 
-    return partInternal(headers, new DefaultParts.FileContent(file, scheduler));
+    return partInternal(headers,
+        new DefaultParts.FileContent(file, scheduler, bufferFactory, bufferSizeStrategy));
   }
 
 
@@ -120,17 +158,23 @@ abstract class DefaultParts {
 
     private final String value;
 
-    public DefaultFormFieldPart(HttpHeaders headers, String value) {
+    private final DataBufferFactory bufferFactory;
+
+    public DefaultFormFieldPart(HttpHeaders headers, String value,
+        DataBufferFactory bufferFactory) {
       super(headers);
       this.value = value;
+      this.bufferFactory = bufferFactory;
     }
 
     @Override
     public Flux<DataBuffer> content() {
-      return Flux.defer(() -> {
+      // The buffer is allocated on demand, so that a pooled buffer is not leaked, if the
+      // subscription is cancelled before the value is requested.
+      return Mono.fromCallable(() -> {
         byte[] bytes = this.value.getBytes(MultipartUtils.charset(headers()));
-        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes));
-      });
+        return this.bufferFactory.allocateBuffer(bytes.length).write(bytes);
+      }).flux();
     }
 
     @Override
@@ -275,19 +319,37 @@ abstract class DefaultParts {
 
     private final Scheduler scheduler;
 
+    private final DataBufferFactory bufferFactory;
+
+    private final BufferSizeStrategy bufferSizeStrategy;
 
-    public FileContent(Path file, Scheduler scheduler) {
+
+    public FileContent(Path file, Scheduler scheduler, DataBufferFactory bufferFactory,
+        BufferSizeStrategy bufferSizeStrategy) {
       this.file = file;
       this.scheduler = scheduler;
+      this.bufferFactory = bufferFactory;
+      this.bufferSizeStrategy = bufferSizeStrategy;
     }
 
 
     @Override
     public Flux<DataBuffer> content() {
-      return DataBufferUtils.readByteChannel(
-              () -> Files.newByteChannel(this.file, StandardOpenOption.READ),
-              DefaultDataBufferFactory.sharedInstance, 1024)
-          .subscribeOn(this.scheduler);
+      // The multipart framing rules out zero-copy, so the file is read asynchronously with
+      // buffers, whose size fits the file. Only the size is determined on the scheduler, because
+      // it is a blocking call.
+      return Mono.fromCallable(this::size)
+          .subscribeOn(this.scheduler)
+          .flatMapMany(size -> DataBufferUtils.read(this.file, this.bufferFactory,
+              this.bufferSizeStrategy.getBufferSize(size), StandardOpenOption.READ));
+    }
+
+    private long size() {
+      try {
+        return Files.size(this.file);
+      } catch (IOException e) {
+        return -1L;
+      }
     }
 
     @Override
@@ -18,14 +18,16 @@ package org.bremersee.apiclient.webflux.contract.spring.multipart;
 
 import static org.springframework.util.ObjectUtils.isEmpty;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.function.Consumer;
+import org.bremersee.apiclient.webflux.contract.spring.AdaptiveBufferSizeStrategy;
+import org.bremersee.apiclient.webflux.contract.spring.BufferSizeStrategy;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.multipart.FormFieldPart;
@@ -42,10 +44,24 @@ import reactor.core.scheduler.Schedulers;
  */
 public class PartBuilder {
 
+  private final BufferSizeStrategy bufferSizeStrategy;
+
   /**
-   * Instantiates a new part builder.
+   * Instantiates a new part builder with an {@link AdaptiveBufferSizeStrategy}.
    */
   public PartBuilder() {
+    this(new AdaptiveBufferSizeStrategy());
+  }
+
+  /**
+   * Instantiates a new part builder.
+   *
+   * @param bufferSizeStrategy the strategy, that chooses the size of the buffers, which are used
+   *     to read files and resources
+   */
+  public PartBuilder(BufferSizeStrategy bufferSizeStrategy) {
+    Assert.notNull(bufferSizeStrategy, "Buffer size strategy must be present.");
+    this.bufferSizeStrategy = bufferSizeStrategy;
   }
 
   /**
@@ -67,7 +83,9 @@ public class PartBuilder {
    * @return the file part builder
    */
   public FilePartBuilder part(String name, Path file) {
-    return new FilePartBuilder(name, file);
+    FilePartBuilder builder = new FilePartBuilder(name, file);
+    builder.withBufferSizeStrategy(bufferSizeStrategy);
+    return builder;
   }
 
   /**
@@ -78,7 +96,9 @@ public class PartBuilder {
    * @return the resource part builder
    */
   public ResourcePartBuilder part(String name, Resource resource) {
-    return new ResourcePartBuilder(name, resource);
+    ResourcePartBuilder builder = new ResourcePartBuilder(name, resource);
+    builder.withBufferSizeStrategy(bufferSizeStrategy);
+    return builder;
   }
 
   /**
@@ -111,9 +131,9 @@ public class PartBuilder {
    */
   public abstract static class AbstractPartBuilder<T extends Part> {
 
-    private DataBufferFactory dataBufferFactory = new DefaultDataBufferFactory();
+    private DataBufferFactory dataBufferFactory = DataBufferFactories.getDefault();
 
-    private int bufferSize = 1024;
+    private BufferSizeStrategy bufferSizeStrategy = new AdaptiveBufferSizeStrategy();
 
     private final HttpHeaders headers = new HttpHeaders();
 
@@ -132,13 +152,24 @@ public class PartBuilder {
       return dataBufferFactory;
     }
 
+    /**
+     * Gets buffer size strategy.
+     *
+     * @return the buffer size strategy
+     */
+    protected BufferSizeStrategy getBufferSizeStrategy() {
+      return bufferSizeStrategy;
+    }
+
     /**
      * Gets buffer size.
      *
-     * @return the buffer size
+     * @return the buffer size of content with unknown length
+     * @deprecated use {@link #getBufferSizeStrategy()}
      */
+    @Deprecated
     protected int getBufferSize() {
-      return bufferSize;
+      return getBufferSizeStrategy().getBufferSize(-1L);
     }
 
     /**
@@ -153,7 +184,8 @@ public class PartBuilder {
     /**
      * With data buffer factory.
      *
-     * @param dataBufferFactory the data buffer factory
+     * @param dataBufferFactory the data buffer factory (default is the pooled netty buffer
+     *     factory, if reactor netty is present, otherwise a heap buffer factory)
      * @return the abstract part builder
      */
     public AbstractPartBuilder<T> withDataBufferFactory(DataBufferFactory dataBufferFactory) {
@@ -171,7 +203,21 @@ public class PartBuilder {
      */
     public AbstractPartBuilder<T> withBufferSize(int bufferSize) {
       if (bufferSize > 0) {
-        this.bufferSize = bufferSize;
+        this.bufferSizeStrategy = BufferSizeStrategy.fixed(bufferSize);
+      }
+      return this;
+    }
+
+    /**
+     * With buffer size strategy.
+     *
+     * @param bufferSizeStrategy the strategy, that chooses the buffer size from the length of
+     *     the content
+     * @return the abstract part builder
+     */
+    public AbstractPartBuilder<T> withBufferSizeStrategy(BufferSizeStrategy bufferSizeStrategy) {
+      if (!isEmpty(bufferSizeStrategy)) {
+        this.bufferSizeStrategy = bufferSizeStrategy;
       }
       return this;
     }
@@ -245,7 +291,7 @@ public class PartBuilder {
 
     @Override
     public FormFieldPart build() {
-      return DefaultParts.formFieldPart(getHeaders(), value);
+      return DefaultParts.formFieldPart(getHeaders(), value, getDataBufferFactory());
     }
   }
 
@@ -314,7 +360,8 @@ public class PartBuilder {
 
     @Override
     public Part build() {
-      return DefaultParts.part(getHeaders(), file, blockingOperationScheduler);
+      return DefaultParts.part(getHeaders(), file, blockingOperationScheduler,
+          getDataBufferFactory(), getBufferSizeStrategy());
     }
   }
 
@@ -340,8 +387,18 @@ public class PartBuilder {
 
     @Override
     public Part build() {
-      return DefaultParts.part(getHeaders(),
-          DataBufferUtils.read(resource, getDataBufferFactory(), getBufferSize()));
+      DataBufferFactory dataBufferFactory = getDataBufferFactory();
+      BufferSizeStrategy bufferSizeStrategy = getBufferSizeStrategy();
+      return DefaultParts.part(getHeaders(), Flux.defer(() -> DataBufferUtils.read(
+          resource, dataBufferFactory, bufferSizeStrategy.getBufferSize(contentLength()))));
+    }
+
+    private long contentLength() {
+      try {
+        return resource.contentLength();
+      } catch (IOException e) {
+        return -1L;
+      }
     }
   }
 
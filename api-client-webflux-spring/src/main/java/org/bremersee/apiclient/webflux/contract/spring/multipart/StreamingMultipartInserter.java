@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring.multipart;
+
+import static java.util.Objects.nonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A body inserter, that writes a multipart request part by part.
+ *
+ * <p>The boundary, the headers and the content of a part are written as soon as the part is
+ * emitted by the publisher. The next part is requested not before the content of the current
+ * part has been written, so the memory usage does not depend on the number or the size of the
+ * parts and the backpressure of the connection is propagated to the part publisher.
+ *
+ * @author Christian Bremer
+ */
+public class StreamingMultipartInserter
+    implements BodyInserter<Publisher<Part>, ReactiveHttpOutputMessage> {
+
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  private static final byte[] HEADER_SEPARATOR = {':', ' '};
+
+  private static final byte[] DOUBLE_DASH = {'-', '-'};
+
+  private final Publisher<Part> parts;
+
+  private final Charset headersCharset;
+
+  /**
+   * Instantiates a new streaming multipart inserter, that writes the headers of the parts with
+   * utf-8.
+   *
+   * @param parts the parts
+   */
+  public StreamingMultipartInserter(Publisher<Part> parts) {
+    this(parts, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Instantiates a new streaming multipart inserter.
+   *
+   * @param parts the parts
+   * @param headersCharset the charset of the part headers
+   */
+  public StreamingMultipartInserter(Publisher<Part> parts, Charset headersCharset) {
+    Assert.notNull(parts, "Parts must be present.");
+    Assert.notNull(headersCharset, "Headers charset must be present.");
+    this.parts = parts;
+    this.headersCharset = headersCharset;
+  }
+
+  @Override
+  public Mono<Void> insert(ReactiveHttpOutputMessage outputMessage, Context context) {
+    byte[] boundary = MimeTypeUtils.generateMultipartBoundary();
+    HttpHeaders headers = outputMessage.getHeaders();
+    headers.setContentType(getContentType(headers.getContentType(), boundary));
+    DataBufferFactory bufferFactory = outputMessage.bufferFactory();
+    Flux<DataBuffer> body = Flux.from(parts)
+        .concatMap(part -> encodePart(part, boundary, bufferFactory), 1)
+        .concatWith(Mono.fromCallable(() -> bufferFactory.wrap(lastLine(boundary))));
+    return outputMessage.writeWith(body);
+  }
+
+  private MediaType getContentType(MediaType contentType, byte[] boundary) {
+    Map<String, String> parameters = new LinkedHashMap<>();
+    MediaType type = MediaType.MULTIPART_FORM_DATA;
+    if (nonNull(contentType) && "multipart".equalsIgnoreCase(contentType.getType())) {
+      parameters.putAll(contentType.getParameters());
+      type = contentType;
+    }
+    parameters.put("boundary", new String(boundary, StandardCharsets.US_ASCII));
+    return new MediaType(type, parameters);
+  }
+
+  private Flux<DataBuffer> encodePart(Part part, byte[] boundary, DataBufferFactory bufferFactory) {
+    return Flux.concat(
+        Mono.fromCallable(() -> bufferFactory.wrap(head(part, boundary))),
+        part.content(),
+        Mono.fromCallable(() -> bufferFactory.wrap(CRLF)));
+  }
+
+  private byte[] head(Part part, byte[] boundary) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(part.headers());
+    if (!headers.containsKey(HttpHeaders.CONTENT_DISPOSITION)) {
+      String filename = part instanceof FilePart ? ((FilePart) part).filename() : null;
+      headers.setContentDispositionFormData(part.name(), filename);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+    out.writeBytes(DOUBLE_DASH);
+    out.writeBytes(boundary);
+    out.writeBytes(CRLF);
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      byte[] name = header.getKey().getBytes(headersCharset);
+      for (String value : header.getValue()) {
+        out.writeBytes(name);
+        out.writeBytes(HEADER_SEPARATOR);
+        out.writeBytes(value.getBytes(headersCharset));
+        out.writeBytes(CRLF);
+      }
+    }
+    out.writeBytes(CRLF);
+    return out.toByteArray();
+  }
+
+  private static byte[] lastLine(byte[] boundary) {
+    byte[] result = new byte[boundary.length + 6];
+    result[0] = '-';
+    result[1] = '-';
+    System.arraycopy(boundary, 0, result, 2, boundary.length);
+    result[boundary.length + 2] = '-';
+    result[boundary.length + 3] = '-';
+    result[boundary.length + 4] = '\r';
+    result[boundary.length + 5] = '\n';
+    return result;
+  }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * The api client cache test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class ApiClientCacheTest {
+
+  /**
+   * Get.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void get(SoftAssertions softly) {
+    ApiClientCache target = new ApiClientCache(2);
+    AtomicInteger counter = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      softly.assertThat(target.get(String.class, "http://a", () -> "a" + counter.incrementAndGet()))
+          .isEqualTo("a1");
+    }
+    target.get(String.class, "http://b", () -> "b");
+    target.get(String.class, null, () -> "c");
+    softly.assertThat(target.size())
+        .isEqualTo(2);
+    softly.assertThat(target.get(String.class, "http://a", () -> "a" + counter.incrementAndGet()))
+        .isEqualTo("a2");
+    softly.assertThat(target.getHitCount())
+        .isEqualTo(2L);
+    softly.assertThat(target.getMissCount())
+        .isEqualTo(4L);
+    softly.assertThat(target.getEvictionCount())
+        .isEqualTo(2L);
+
+    target.clear();
+    softly.assertThat(target.size())
+        .isZero();
+  }
+
+  /**
+   * Get with disabled cache.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void getWithDisabledCache(SoftAssertions softly) {
+    ApiClientCache target = new ApiClientCache(0);
+    AtomicInteger counter = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      target.get(String.class, "http://a", () -> "a" + counter.incrementAndGet());
+    }
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+    softly.assertThat(target.size())
+        .isZero();
+    softly.assertThat(target.getMissCount())
+        .isEqualTo(3L);
+  }
+
+}
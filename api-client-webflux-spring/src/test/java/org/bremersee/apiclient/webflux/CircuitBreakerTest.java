@@ -0,0 +1,385 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.CircuitBreaker.Circuit;
+import org.bremersee.apiclient.webflux.CircuitBreaker.Scope;
+import org.bremersee.apiclient.webflux.CircuitBreaker.State;
+import org.bremersee.apiclient.webflux.ResponseCacheTest.MutableClock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * The circuit breaker test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class CircuitBreakerTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5L);
+
+  /**
+   * Creates an api, that answers with the given status.
+   *
+   * @param counter the counter of the requests
+   * @param status the status
+   * @param circuitBreaker the circuit breaker
+   * @return the api
+   */
+  private static UpstreamApi upstreamApi(
+      AtomicInteger counter,
+      AtomicReference<HttpStatus> status,
+      CircuitBreaker circuitBreaker) {
+
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        counter,
+        request -> Mono.just(ReactiveApiClientTest.textResponse(status.get(), "value")));
+    return ReactiveApiClientTest.apiClientBuilder(webClient)
+        .circuitBreaker(circuitBreaker)
+        .build(UpstreamApi.class);
+  }
+
+  private static void call(UpstreamApi api, Class<? extends Throwable> expectedError) {
+    StepVerifier.create(api.getValue())
+        .expectError(expectedError)
+        .verify(TIMEOUT);
+  }
+
+  private static void call(UpstreamApi api) {
+    StepVerifier.create(api.getValue())
+        .expectNext("value")
+        .expectComplete()
+        .verify(TIMEOUT);
+  }
+
+  /**
+   * Circuit opens on failures.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void circuitOpensOnFailures(SoftAssertions softly) throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    AtomicReference<HttpStatus> status = new AtomicReference<>(HttpStatus.SERVICE_UNAVAILABLE);
+    CircuitBreaker circuitBreaker = new CircuitBreaker()
+        .withSlidingWindow(10, 4)
+        .withOpenDuration(Duration.ofMinutes(1L));
+    UpstreamApi api = upstreamApi(counter, status, circuitBreaker);
+
+    for (int i = 0; i < 4; i++) {
+      call(api, WebClientResponseException.ServiceUnavailable.class);
+    }
+    call(api, CircuitBreakerOpenException.class);
+
+    Circuit circuit = circuitBreaker
+        .getCircuit(UpstreamApi.class, UpstreamApi.class.getMethod("getValue"));
+    softly.assertThat(counter.get())
+        .isEqualTo(4);
+    softly.assertThat(circuit.getState())
+        .isEqualTo(State.OPEN);
+    softly.assertThat(circuit.getFailureRate())
+        .isEqualTo(100);
+    softly.assertThat(circuit.getOpenedCount())
+        .isEqualTo(1L);
+    softly.assertThat(circuit.getRejectedCount())
+        .isEqualTo(1L);
+    softly.assertThat(circuit.getName())
+        .isEqualTo(UpstreamApi.class.getName() + "#getValue");
+  }
+
+  /**
+   * Client errors do not open the circuit.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void clientErrorsDoNotOpenCircuit(SoftAssertions softly) throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    AtomicReference<HttpStatus> status = new AtomicReference<>(HttpStatus.NOT_FOUND);
+    CircuitBreaker circuitBreaker = new CircuitBreaker()
+        .withSlidingWindow(10, 2);
+    UpstreamApi api = upstreamApi(counter, status, circuitBreaker);
+
+    for (int i = 0; i < 5; i++) {
+      call(api, WebClientResponseException.NotFound.class);
+    }
+
+    softly.assertThat(counter.get())
+        .isEqualTo(5);
+    softly.assertThat(circuitBreaker
+            .getCircuit(UpstreamApi.class, UpstreamApi.class.getMethod("getValue"))
+            .getState())
+        .isEqualTo(State.CLOSED);
+  }
+
+  /**
+   * Circuit closes after successful probes.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void circuitClosesAfterSuccessfulProbes(SoftAssertions softly) throws Exception {
+    MutableClock clock = new MutableClock();
+    AtomicInteger counter = new AtomicInteger();
+    AtomicReference<HttpStatus> status = new AtomicReference<>(HttpStatus.BAD_GATEWAY);
+    CircuitBreaker circuitBreaker = new CircuitBreaker(clock)
+        .withSlidingWindow(4, 2)
+        .withOpenDuration(Duration.ofSeconds(10L))
+        .withHalfOpenProbes(2);
+    UpstreamApi api = upstreamApi(counter, status, circuitBreaker);
+    Circuit circuit = circuitBreaker
+        .getCircuit(UpstreamApi.class, UpstreamApi.class.getMethod("getValue"));
+
+    call(api, WebClientResponseException.BadGateway.class);
+    call(api, WebClientResponseException.BadGateway.class);
+    softly.assertThat(circuit.getState())
+        .isEqualTo(State.OPEN);
+
+    status.set(HttpStatus.OK);
+    call(api, CircuitBreakerOpenException.class);
+    clock.add(TimeUnit.SECONDS.toMillis(11L));
+    call(api);
+    softly.assertThat(circuit.getState())
+        .isEqualTo(State.HALF_OPEN);
+    call(api);
+    softly.assertThat(circuit.getState())
+        .isEqualTo(State.CLOSED);
+    softly.assertThat(circuit.getFailureRate())
+        .isZero();
+    softly.assertThat(counter.get())
+        .isEqualTo(4);
+  }
+
+  /**
+   * Circuit opens again after a failed probe.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void circuitOpensAgainAfterFailedProbe(SoftAssertions softly) throws Exception {
+    MutableClock clock = new MutableClock();
+    AtomicInteger counter = new AtomicInteger();
+    AtomicReference<HttpStatus> status = new AtomicReference<>(HttpStatus.BAD_GATEWAY);
+    CircuitBreaker circuitBreaker = new CircuitBreaker(clock)
+        .withSlidingWindow(4, 1)
+        .withOpenDuration(Duration.ofSeconds(10L))
+        .withHalfOpenProbes(1);
+    UpstreamApi api = upstreamApi(counter, status, circuitBreaker);
+    Circuit circuit = circuitBreaker
+        .getCircuit(UpstreamApi.class, UpstreamApi.class.getMethod("getValue"));
+
+    call(api, WebClientResponseException.BadGateway.class);
+    clock.add(TimeUnit.SECONDS.toMillis(11L));
+    call(api, WebClientResponseException.BadGateway.class);
+    call(api, CircuitBreakerOpenException.class);
+
+    softly.assertThat(circuit.getState())
+        .isEqualTo(State.OPEN);
+    softly.assertThat(circuit.getOpenedCount())
+        .isEqualTo(2L);
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+  }
+
+  /**
+   * Concurrent calls after the open duration get no more than the half open probes.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void concurrentCallsGetNoMoreThanHalfOpenProbes(SoftAssertions softly) throws Exception {
+    MutableClock clock = new MutableClock();
+    CircuitBreaker circuitBreaker = new CircuitBreaker(clock)
+        .withSlidingWindow(4, 1)
+        .withOpenDuration(Duration.ofSeconds(10L))
+        .withHalfOpenProbes(2);
+    Circuit circuit = circuitBreaker
+        .getCircuit(UpstreamApi.class, UpstreamApi.class.getMethod("getValue"));
+    circuit.onResult(circuit.tryAcquire(), System.nanoTime(), new TimeoutException());
+    softly.assertThat(circuit.getState())
+        .isEqualTo(State.OPEN);
+    clock.add(TimeUnit.SECONDS.toMillis(11L));
+
+    int threads = 16;
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger probes = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int j = 0; j < 100; j++) {
+            if (circuit.tryAcquire() == State.HALF_OPEN) {
+              probes.incrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    softly.assertThat(circuit.getState())
+        .isEqualTo(State.HALF_OPEN);
+    softly.assertThat(probes.get())
+        .isEqualTo(2);
+  }
+
+  /**
+   * Circuit opens on slow calls.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void circuitOpensOnSlowCalls(SoftAssertions softly) throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    AtomicReference<HttpStatus> status = new AtomicReference<>(HttpStatus.OK);
+    CircuitBreaker circuitBreaker = new CircuitBreaker()
+        .withSlidingWindow(10, 3)
+        .withSlowCallRateThreshold(50, Duration.ZERO);
+    UpstreamApi api = upstreamApi(counter, status, circuitBreaker);
+
+    for (int i = 0; i < 3; i++) {
+      call(api);
+    }
+    call(api, CircuitBreakerOpenException.class);
+
+    Circuit circuit = circuitBreaker
+        .getCircuit(UpstreamApi.class, UpstreamApi.class.getMethod("getValue"));
+    softly.assertThat(circuit.getSlowCallRate())
+        .isEqualTo(100);
+    softly.assertThat(circuit.getState())
+        .isEqualTo(State.OPEN);
+  }
+
+  /**
+   * Requests, that hang until their deadline expires, open the circuit.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void circuitOpensOnExpiredDeadlines(SoftAssertions softly) throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    AtomicInteger cancelled = new AtomicInteger();
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        counter,
+        request -> Mono.<ClientResponse>never().doOnCancel(cancelled::incrementAndGet));
+    CircuitBreaker circuitBreaker = new CircuitBreaker()
+        .withSlidingWindow(10, 3)
+        .withOpenDuration(Duration.ofMinutes(1L));
+    UpstreamApi api = ReactiveApiClientTest.apiClientBuilder(webClient)
+        .circuitBreaker(circuitBreaker)
+        .build(UpstreamApi.class);
+
+    for (int i = 0; i < 3; i++) {
+      StepVerifier.create(api.getValue()
+              .contextWrite(Deadline.after(Duration.ofMillis(100L))))
+          .expectError(TimeoutException.class)
+          .verify(TIMEOUT);
+    }
+    call(api, CircuitBreakerOpenException.class);
+
+    Circuit circuit = circuitBreaker
+        .getCircuit(UpstreamApi.class, UpstreamApi.class.getMethod("getValue"));
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+    softly.assertThat(cancelled.get())
+        .isEqualTo(3);
+    softly.assertThat(circuit.getFailureRate())
+        .isEqualTo(100);
+    softly.assertThat(circuit.getState())
+        .isEqualTo(State.OPEN);
+  }
+
+  /**
+   * All methods share a circuit with api scope.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void apiScope(SoftAssertions softly) throws Exception {
+    CircuitBreaker circuitBreaker = new CircuitBreaker().withScope(Scope.API);
+    Circuit circuit = circuitBreaker
+        .getCircuit(UpstreamApi.class, UpstreamApi.class.getMethod("getValue"));
+    softly.assertThat(circuitBreaker
+            .getCircuit(UpstreamApi.class, UpstreamApi.class.getMethod("getOtherValue")))
+        .isSameAs(circuit);
+    softly.assertThat(circuit.getName())
+        .isEqualTo(UpstreamApi.class.getName());
+    softly.assertThat(circuitBreaker.getCircuits())
+        .hasSize(1);
+  }
+
+  /**
+   * The upstream api.
+   */
+  interface UpstreamApi {
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    @GetMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValue();
+
+    /**
+     * Gets other value.
+     *
+     * @return the other value
+     */
+    @GetMapping(path = "/other", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getOtherValue();
+  }
+
+}
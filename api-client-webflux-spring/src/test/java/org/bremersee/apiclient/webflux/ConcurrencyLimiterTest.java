@@ -0,0 +1,272 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.ConcurrencyLimiter.Limit;
+import org.bremersee.apiclient.webflux.ConcurrencyLimiter.Scope;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+/**
+ * The concurrency limiter test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class ConcurrencyLimiterTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5L);
+
+  /**
+   * Creates an api, that answers with the status, that is emitted by the given mono.
+   *
+   * @param counter the counter of the requests
+   * @param status the status
+   * @param concurrencyLimiter the concurrency limiter
+   * @return the api
+   */
+  private static UpstreamApi upstreamApi(
+      AtomicInteger counter,
+      Mono<HttpStatus> status,
+      ConcurrencyLimiter concurrencyLimiter) {
+
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        counter,
+        request -> status.map(value -> ReactiveApiClientTest.textResponse(value, "value")));
+    return ReactiveApiClientTest.apiClientBuilder(webClient)
+        .concurrencyLimiter(concurrencyLimiter)
+        .build(UpstreamApi.class);
+  }
+
+  /**
+   * Excess calls are rejected fast.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void excessCallsAreRejectedFast(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    Sinks.Empty<Void> gate = Sinks.empty();
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter()
+        .withLimit(2, 1, 2)
+        .withQueue(0, Duration.ZERO);
+    UpstreamApi api = upstreamApi(
+        counter, gate.asMono().thenReturn(HttpStatus.OK), concurrencyLimiter);
+    Limit limit = concurrencyLimiter.getLimit(UpstreamApi.class, null);
+
+    List<String> values = new CopyOnWriteArrayList<>();
+    api.getValue().subscribe(values::add);
+    api.getValue().subscribe(values::add);
+    softly.assertThat(limit.getInFlight())
+        .isEqualTo(2);
+
+    StepVerifier.create(api.getValue())
+        .expectError(ConcurrencyLimitExceededException.class)
+        .verify(TIMEOUT);
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(limit.getRejectedCount())
+        .isEqualTo(1L);
+
+    gate.tryEmitEmpty();
+    softly.assertThat(values)
+        .containsExactly("value", "value");
+    softly.assertThat(limit.getInFlight())
+        .isZero();
+  }
+
+  /**
+   * Excess calls wait for a permit.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void excessCallsWaitForPermit(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    Sinks.Empty<Void> gate = Sinks.empty();
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter()
+        .withLimit(1, 1, 1)
+        .withQueue(10, TIMEOUT);
+    UpstreamApi api = upstreamApi(
+        counter, gate.asMono().thenReturn(HttpStatus.OK), concurrencyLimiter);
+    Limit limit = concurrencyLimiter.getLimit(UpstreamApi.class, null);
+
+    api.getValue().subscribe();
+    StepVerifier.create(api.getValue())
+        .then(() -> {
+          softly.assertThat(limit.getQueueSize())
+              .isEqualTo(1);
+          softly.assertThat(counter.get())
+              .isEqualTo(1);
+          gate.tryEmitEmpty();
+        })
+        .expectNext("value")
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(limit.getQueueSize())
+        .isZero();
+    softly.assertThat(limit.getInFlight())
+        .isZero();
+  }
+
+  /**
+   * Waiting calls are rejected after the maximum wait.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void waitingCallsAreRejectedAfterMaxWait(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    Sinks.Empty<Void> gate = Sinks.empty();
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter()
+        .withLimit(1, 1, 1)
+        .withQueue(10, Duration.ofMillis(50L));
+    UpstreamApi api = upstreamApi(
+        counter, gate.asMono().thenReturn(HttpStatus.OK), concurrencyLimiter);
+    Limit limit = concurrencyLimiter.getLimit(UpstreamApi.class, null);
+
+    api.getValue().subscribe();
+    StepVerifier.create(api.getValue())
+        .expectError(ConcurrencyLimitExceededException.class)
+        .verify(TIMEOUT);
+
+    softly.assertThat(limit.getQueueSize())
+        .isZero();
+    softly.assertThat(limit.getRejectedCount())
+        .isEqualTo(1L);
+    gate.tryEmitEmpty();
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(limit.getInFlight())
+        .isZero();
+  }
+
+  /**
+   * Dropped calls shrink the limit.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void droppedCallsShrinkLimit(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter()
+        .withLimit(10, 1, 100);
+    UpstreamApi api = upstreamApi(
+        counter, Mono.just(HttpStatus.SERVICE_UNAVAILABLE), concurrencyLimiter);
+
+    for (int i = 0; i < 3; i++) {
+      StepVerifier.create(api.getValue())
+          .expectError(WebClientResponseException.ServiceUnavailable.class)
+          .verify(TIMEOUT);
+    }
+
+    Limit limit = concurrencyLimiter.getLimit(UpstreamApi.class, null);
+    softly.assertThat(limit.getDroppedCount())
+        .isEqualTo(3L);
+    softly.assertThat(limit.getLimit())
+        .isEqualTo(7);
+  }
+
+  /**
+   * Limit adapts to the round trip time.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void limitAdaptsToRoundTripTime(SoftAssertions softly) {
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter()
+        .withLimit(10, 1, 100);
+    Limit limit = concurrencyLimiter.getLimit(UpstreamApi.class, null);
+    long fast = TimeUnit.MILLISECONDS.toNanos(10L);
+    long slow = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    limit.onSample(fast, 1, false);
+    softly.assertThat(limit.getLimit())
+        .as("The limit is not the bottleneck.")
+        .isEqualTo(10);
+
+    for (int i = 0; i < 50; i++) {
+      limit.onSample(fast, limit.getLimit(), false);
+    }
+    int grown = limit.getLimit();
+    softly.assertThat(grown)
+        .isGreaterThan(10);
+
+    for (int i = 0; i < 10; i++) {
+      limit.onSample(slow, limit.getLimit(), false);
+    }
+    softly.assertThat(limit.getLimit())
+        .isLessThan(grown);
+  }
+
+  /**
+   * Limits of the endpoint scope.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void endpointScope(SoftAssertions softly) {
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter()
+        .withScope(Scope.ENDPOINT);
+    Limit limit = concurrencyLimiter
+        .getLimit(UpstreamApi.class, URI.create("http://host-a:8080/value"));
+    softly.assertThat(limit.getName())
+        .isEqualTo("http://host-a:8080");
+    softly.assertThat(concurrencyLimiter
+            .getLimit(UpstreamApi.class, URI.create("http://host-a:8080/other")))
+        .isSameAs(limit);
+    softly.assertThat(concurrencyLimiter
+            .getLimit(UpstreamApi.class, URI.create("http://host-b:8080/value")))
+        .isNotSameAs(limit);
+    softly.assertThat(concurrencyLimiter.getLimits())
+        .hasSize(2);
+  }
+
+  /**
+   * The upstream api.
+   */
+  interface UpstreamApi {
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    @GetMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValue();
+  }
+
+}
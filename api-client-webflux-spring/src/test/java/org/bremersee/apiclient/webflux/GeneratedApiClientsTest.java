@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.contract.RequestBodyInserterRegistry;
+import org.bremersee.apiclient.webflux.contract.spring.ContentTypeResolver;
+import org.bremersee.apiclient.webflux.contract.spring.ReactiveSpringContract;
+import org.bremersee.apiclient.webflux.contract.spring.RequestParametersResolver;
+import org.bremersee.apiclient.webflux.contract.spring.ResourceInserter;
+import org.bremersee.apiclient.webflux.contract.spring.SortRequestParameterResolver;
+import org.bremersee.apiclient.webflux.contract.spring.ValueInserter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * The generated api clients test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class GeneratedApiClientsTest {
+
+  /**
+   * Gets class name.
+   */
+  @Test
+  void getClassName() {
+    assertThat(GeneratedApiClients.getClassName(Example.class))
+        .isEqualTo("org.bremersee.apiclient.webflux."
+            + "GeneratedApiClientsTest_ExampleReactiveApiClient");
+  }
+
+  /**
+   * New instance.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void newInstance(SoftAssertions softly) {
+    ReactiveApiClient apiClient = new ReactiveApiClient(
+        WebClient.builder().exchangeFunction(ReactiveApiClientTest.echoWebClientExchangeFunction()),
+        new ReactiveSpringContract());
+
+    Example example = apiClient.newInstance(Example.class, "http://localhost");
+    softly.assertThat(example)
+        .isInstanceOf(GeneratedApiClientsTest_ExampleReactiveApiClient.class);
+    softly.assertThat(example.getValue().block())
+        .isEqualTo("/generated");
+
+    NotGenerated notGenerated = apiClient.newInstance(NotGenerated.class, "http://localhost");
+    softly.assertThat(notGenerated)
+        .isNotNull();
+    softly.assertThat(GeneratedApiClients
+            .newInstance(NotGenerated.class, WebClient.create(), null))
+        .isEmpty();
+  }
+
+  /**
+   * New instance is a proxy with settings, that the generated implementation does not support.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void newInstanceWithSettings(SoftAssertions softly) {
+    ReactiveApiClient apiClient = new ReactiveApiClient(
+        WebClient.builder().exchangeFunction(ReactiveApiClientTest.echoWebClientExchangeFunction()),
+        new ReactiveSpringContract());
+
+    softly.assertThat(apiClient
+            .withEagerValidation(true)
+            .newInstance(Example.class, "http://localhost"))
+        .isNotInstanceOf(GeneratedApiClientsTest_ExampleReactiveApiClient.class);
+    softly.assertThat(apiClient
+            .withTimeouts(new Timeouts())
+            .newInstance(Example.class, "http://localhost"))
+        .isNotInstanceOf(GeneratedApiClientsTest_ExampleReactiveApiClient.class);
+    softly.assertThat(new ReactiveApiClient(
+            WebClient.builder()
+                .exchangeFunction(ReactiveApiClientTest.echoWebClientExchangeFunction()),
+            ReactiveContract.builder().from(new ReactiveSpringContract()).build())
+            .newInstance(Example.class, "http://localhost"))
+        .isNotInstanceOf(GeneratedApiClientsTest_ExampleReactiveApiClient.class);
+  }
+
+  /**
+   * New instance is generated with a spring contract, whose resolvers and inserters are the
+   * default ones, and a proxy with other resolvers.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void newInstanceWithConfiguredContract(SoftAssertions softly) {
+    WebClient.Builder webClientBuilder = WebClient.builder()
+        .exchangeFunction(ReactiveApiClientTest.echoWebClientExchangeFunction());
+    ReactiveSpringContract contract = new ReactiveSpringContract(
+        new ContentTypeResolver(),
+        List.of(new RequestParametersResolver(), new SortRequestParameterResolver()),
+        RequestBodyInserterRegistry.builder()
+            .addRequestBodyInserters(new ResourceInserter(), new ValueInserter())
+            .build());
+    softly.assertThat(contract.isGeneratedApiClientCompatible())
+        .isTrue();
+    softly.assertThat(new ReactiveApiClient(webClientBuilder, contract)
+            .newInstance(Example.class, "http://localhost"))
+        .isInstanceOf(GeneratedApiClientsTest_ExampleReactiveApiClient.class);
+
+    ReactiveSpringContract customContract = new ReactiveSpringContract(
+        null,
+        List.of(new RequestParametersResolver(), invocation -> new LinkedMultiValueMap<>()),
+        null);
+    softly.assertThat(customContract.isGeneratedApiClientCompatible())
+        .isFalse();
+    softly.assertThat(new ReactiveApiClient(webClientBuilder, customContract)
+            .newInstance(Example.class, "http://localhost"))
+        .isNotInstanceOf(GeneratedApiClientsTest_ExampleReactiveApiClient.class);
+  }
+
+  /**
+   * New instance respects the deadline.
+   */
+  @Test
+  void newInstanceRespectsDeadline() {
+    ReactiveApiClient apiClient = new ReactiveApiClient(
+        WebClient.builder().exchangeFunction(ReactiveApiClientTest.echoWebClientExchangeFunction()),
+        new ReactiveSpringContract());
+
+    StepVerifier.create(apiClient.newInstance(Example.class, "http://localhost")
+            .getValue()
+            .contextWrite(Deadline.after(Duration.ZERO)))
+        .expectError(TimeoutException.class)
+        .verify();
+  }
+
+  /**
+   * The interface Example, that has a (hand written) generated implementation.
+   */
+  @GenerateApiClient
+  interface Example {
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    Mono<String> getValue();
+  }
+
+  /**
+   * The interface Not generated.
+   */
+  interface NotGenerated {
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    Mono<String> getValue();
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * A hand written implementation of {@link GeneratedApiClientsTest.Example}, that looks like one,
+ * which is generated by the annotation processor.
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("checkstyle:TypeName")
+class GeneratedApiClientsTest_ExampleReactiveApiClient implements GeneratedApiClientsTest.Example {
+
+  private final WebClient webClient;
+
+  private final ReactiveErrorHandler errorHandler;
+
+  /**
+   * Instantiates a new generated example.
+   *
+   * @param webClient the web client
+   * @param errorHandler the error handler
+   */
+  public GeneratedApiClientsTest_ExampleReactiveApiClient(
+      WebClient webClient,
+      ReactiveErrorHandler errorHandler) {
+    this.webClient = webClient;
+    this.errorHandler = errorHandler;
+  }
+
+  @Override
+  public Mono<String> getValue() {
+    return GeneratedApiClientSupport.mono(() -> GeneratedApiClientSupport
+        .retrieve(webClient.get().uri("/generated"), errorHandler)
+        .bodyToMono(String.class));
+  }
+
+}
@@ -17,18 +17,24 @@
 package org.bremersee.apiclient.webflux;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.assertj.core.api.SoftAssertions;
 import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 /**
  * The invocation test.
@@ -74,6 +80,36 @@ class InvocationTest {
         .isEqualTo(expected);
   }
 
+  /**
+   * Bind parameters.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void bindParameters(SoftAssertions softly) throws Exception {
+    Method method = Example.class
+        .getMethod("methodB", List.class, Map.class, String.class, String.class);
+    Invocation invocation = new Invocation(Example.class, method, new Object[]{
+        List.of("a", "b"), Map.of("c", List.of(1, 2)), "header", "other"});
+    MultiValueMap<String, Object> actual = new LinkedMultiValueMap<>();
+    invocation.bindParameters(RequestParam.class, RequestParam::value, v -> v, actual::addAll);
+    softly.assertThat(actual)
+        .containsExactly(
+            entry("q", List.<Object>of("a", "b")),
+            entry("c", List.<Object>of(1, 2)));
+
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+    invocation.bindParameters(
+        RequestHeader.class, RequestHeader::value, String::valueOf, headers::addAll);
+    softly.assertThat(headers)
+        .containsExactly(entry("x-header", List.of("header")));
+
+    softly.assertThat(invocation.toMethodParameterStream().collect(Collectors.toList()))
+        .hasSize(4)
+        .isEqualTo(invocation.toMethodParameterStream().collect(Collectors.toList()));
+  }
+
   /**
    * Find annotation value on target class.
    *
@@ -157,5 +193,20 @@ class InvocationTest {
      */
     @GetMapping(path = "/example/{id}")
     void methodA(@PathVariable(name = "id") String id);
+
+    /**
+     * Method b.
+     *
+     * @param q the q
+     * @param params the params
+     * @param header the header
+     * @param other the other
+     */
+    @GetMapping(path = "/example")
+    void methodB(
+        @RequestParam("q") List<String> q,
+        @RequestParam Map<String, Object> params,
+        @RequestHeader("x-header") String header,
+        String other);
   }
 }
\ No newline at end of file
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.LoadBalancer.Endpoint;
+import org.bremersee.apiclient.webflux.LoadBalancer.Strategy;
+import org.bremersee.apiclient.webflux.ResponseCacheTest.MutableClock;
+import org.bremersee.apiclient.webflux.contract.spring.ReactiveSpringContract;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+/**
+ * The load balancer test. The endpoints are local netty servers.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class LoadBalancerTest {
+
+  private static DisposableServer serverA;
+
+  private static DisposableServer serverB;
+
+  private static DisposableServer failingServer;
+
+  /**
+   * Starts the servers.
+   */
+  @BeforeAll
+  static void startServers() {
+    serverA = startServer("a");
+    serverB = startServer("b");
+    failingServer = HttpServer.create()
+        .host("localhost")
+        .port(0)
+        .handle((request, response) -> response.status(500).send())
+        .bindNow();
+  }
+
+  private static DisposableServer startServer(String name) {
+    return HttpServer.create()
+        .host("localhost")
+        .port(0)
+        .handle((request, response) -> response
+            .header("Content-Type", MediaType.TEXT_PLAIN_VALUE)
+            .sendString(Mono.just(name)))
+        .bindNow();
+  }
+
+  /**
+   * Stops the servers.
+   */
+  @AfterAll
+  static void stopServers() {
+    serverA.disposeNow();
+    serverB.disposeNow();
+    failingServer.disposeNow();
+  }
+
+  private static String url(DisposableServer server) {
+    return "http://localhost:" + server.port();
+  }
+
+  private static ReactiveApiClient apiClient() {
+    return new ReactiveApiClient(WebClient.builder(), new ReactiveSpringContract());
+  }
+
+  /**
+   * Round robin.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void roundRobin(SoftAssertions softly) {
+    NameApi api = apiClient().newInstance(NameApi.class, List.of(url(serverA), url(serverB)));
+
+    StepVerifier.create(Flux.concat(
+            api.getName(), api.getName(), api.getName(), api.getName()))
+        .expectNext("a", "b", "a", "b")
+        .expectComplete()
+        .verify(Duration.ofSeconds(10L));
+
+    softly.assertThat(apiClient().newInstance(NameApi.class, List.of(url(serverA))))
+        .isNotNull();
+  }
+
+  /**
+   * Invocation with base url is not balanced.
+   */
+  @Test
+  void invocationWithBaseUrlIsNotBalanced() {
+    NameApi api = apiClient().newInstance(NameApi.class, List.of(url(serverA), url(serverB)));
+
+    StepVerifier.create(Flux.concat(api.getName(), api.getName())
+            .contextWrite(context -> context.put(BaseUrl.CONTEXT_KEY, url(serverB))))
+        .expectNext("b", "b")
+        .expectComplete()
+        .verify(Duration.ofSeconds(10L));
+  }
+
+  /**
+   * Failing endpoint is ejected.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void failingEndpointIsEjected(SoftAssertions softly) {
+    LoadBalancer loadBalancer = new LoadBalancer(
+        List.of(url(serverA), url(failingServer)),
+        Strategy.ROUND_ROBIN)
+        .withOutlierEjection(2, Duration.ofMinutes(1L));
+    NameApi api = apiClient().newInstance(NameApi.class, loadBalancer);
+
+    StepVerifier.create(Flux.range(0, 8)
+            .concatMap(i -> api.getName().onErrorResume(e -> Mono.just("error"))))
+        .expectNext("a", "error", "a", "error", "a", "a", "a", "a")
+        .expectComplete()
+        .verify(Duration.ofSeconds(10L));
+
+    Endpoint failingEndpoint = loadBalancer.getEndpoints().get(1);
+    softly.assertThat(failingEndpoint.getRequestCount())
+        .isEqualTo(2L);
+    softly.assertThat(failingEndpoint.getFailureCount())
+        .isEqualTo(2L);
+    softly.assertThat(failingEndpoint.getEjectionCount())
+        .isEqualTo(1L);
+    softly.assertThat(failingEndpoint.getInFlightCount())
+        .isZero();
+    softly.assertThat(loadBalancer.getEndpoints().get(0).getRequestCount())
+        .isEqualTo(6L);
+  }
+
+  /**
+   * Ejected endpoint returns after the ejection time.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void ejectedEndpointReturnsAfterEjectionTime(SoftAssertions softly) {
+    MutableClock clock = new MutableClock();
+    LoadBalancer loadBalancer = new LoadBalancer(
+        List.of("http://a", "http://b"),
+        Strategy.ROUND_ROBIN,
+        clock)
+        .withOutlierEjection(1, Duration.ofSeconds(10L));
+    Endpoint b = loadBalancer.getEndpoints().get(1);
+    loadBalancer.onComplete(b, loadBalancer.onStart(b), new IllegalStateException("5xx"));
+    softly.assertThat(b.getFailureCount())
+        .isZero();
+
+    loadBalancer.withFailurePredicate(e -> true);
+    loadBalancer.onComplete(b, loadBalancer.onStart(b), new IllegalStateException("5xx"));
+    softly.assertThat(b.getEjectionCount())
+        .isEqualTo(1L);
+    softly.assertThat(loadBalancer.select().getBaseUrl())
+        .isEqualTo("http://a");
+    softly.assertThat(loadBalancer.select().getBaseUrl())
+        .isEqualTo("http://a");
+
+    clock.add(TimeUnit.SECONDS.toMillis(11L));
+    softly.assertThat(List.of(
+            loadBalancer.select().getBaseUrl(),
+            loadBalancer.select().getBaseUrl()))
+        .containsExactlyInAnyOrder("http://a", "http://b");
+  }
+
+  /**
+   * All endpoints are selected, if all are ejected.
+   */
+  @Test
+  void allEndpointsAreSelectedIfAllAreEjected() {
+    LoadBalancer loadBalancer = new LoadBalancer(List.of("http://a", "http://b"))
+        .withOutlierEjection(1, Duration.ofMinutes(1L))
+        .withFailurePredicate(e -> true);
+    for (Endpoint endpoint : loadBalancer.getEndpoints()) {
+      loadBalancer.onComplete(endpoint, loadBalancer.onStart(endpoint), new Exception());
+    }
+    assertThat(List.of(
+        loadBalancer.select().getBaseUrl(),
+        loadBalancer.select().getBaseUrl()))
+        .containsExactlyInAnyOrder("http://a", "http://b");
+  }
+
+  /**
+   * Power of two choices selects the endpoint with fewer requests in flight.
+   */
+  @Test
+  void powerOfTwoChoices() {
+    LoadBalancer loadBalancer = new LoadBalancer(
+        List.of("http://a", "http://b"),
+        Strategy.POWER_OF_TWO_CHOICES);
+    Endpoint a = loadBalancer.getEndpoints().get(0);
+    loadBalancer.onStart(a);
+    for (int i = 0; i < 10; i++) {
+      assertThat(loadBalancer.select().getBaseUrl())
+          .isEqualTo("http://b");
+    }
+  }
+
+  /**
+   * Ewma selects the endpoint with the lower latency.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void ewma(SoftAssertions softly) {
+    LoadBalancer loadBalancer = new LoadBalancer(List.of("http://a", "http://b"), Strategy.EWMA);
+    Endpoint a = loadBalancer.getEndpoints().get(0);
+    Endpoint b = loadBalancer.getEndpoints().get(1);
+    loadBalancer.onStart(a);
+    loadBalancer.onComplete(a, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50L), null);
+    loadBalancer.onStart(b);
+    loadBalancer.onComplete(b, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5L), null);
+    softly.assertThat(a.getLatency())
+        .isGreaterThan(b.getLatency());
+    for (int i = 0; i < 10; i++) {
+      softly.assertThat(loadBalancer.select())
+          .isSameAs(b);
+    }
+  }
+
+  /**
+   * An endpoint without sample has the initial latency.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void ewmaWithUnsampledEndpoint(SoftAssertions softly) {
+    LoadBalancer loadBalancer = new LoadBalancer(List.of("http://a", "http://b"), Strategy.EWMA)
+        .withInitialLatency(Duration.ofMillis(500L));
+    Endpoint a = loadBalancer.getEndpoints().get(0);
+    Endpoint b = loadBalancer.getEndpoints().get(1);
+    loadBalancer.onStart(a);
+    loadBalancer.onComplete(a, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50L), null);
+    softly.assertThat(b.getLatency())
+        .isZero();
+    for (int i = 0; i < 10; i++) {
+      softly.assertThat(loadBalancer.select())
+          .isSameAs(a);
+    }
+  }
+
+  /**
+   * A cancelled request charges its elapsed time.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void ewmaWithCancelledRequest(SoftAssertions softly) {
+    LoadBalancer loadBalancer = new LoadBalancer(List.of("http://a", "http://b"), Strategy.EWMA);
+    Endpoint a = loadBalancer.getEndpoints().get(0);
+    Endpoint b = loadBalancer.getEndpoints().get(1);
+    loadBalancer.onStart(a);
+    loadBalancer.onComplete(a, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50L), null);
+    loadBalancer.onStart(b);
+    loadBalancer.onComplete(b, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5L), null);
+    loadBalancer.onStart(b);
+    loadBalancer.onCancel(b, System.nanoTime() - TimeUnit.SECONDS.toNanos(3L));
+    softly.assertThat(b.getInFlightCount())
+        .isZero();
+    softly.assertThat(b.getLatency())
+        .isGreaterThan(a.getLatency());
+    for (int i = 0; i < 10; i++) {
+      softly.assertThat(loadBalancer.select())
+          .isSameAs(a);
+    }
+  }
+
+  /**
+   * The name api.
+   */
+  interface NameApi {
+
+    /**
+     * Gets name.
+     *
+     * @return the name
+     */
+    @GetMapping(path = "/name", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getName();
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.contract.HttpRequestMethod;
+import org.bremersee.apiclient.webflux.contract.spring.HttpMethodResolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * The method plan test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class MethodPlanTest {
+
+  /**
+   * Resolve.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void resolve(SoftAssertions softly) throws Exception {
+    Method method = Example.class.getMethod("methodA");
+    MethodPlan target = new MethodPlan(Example.class, method);
+    AtomicInteger counter = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      String actual = target.resolve("key", methodPlan -> {
+        counter.incrementAndGet();
+        return methodPlan.getMethod().getName();
+      });
+      softly.assertThat(actual)
+          .isEqualTo("methodA");
+    }
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+  }
+
+  /**
+   * Resolve null.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void resolveNull() throws Exception {
+    Method method = Example.class.getMethod("methodA");
+    MethodPlan target = new MethodPlan(Example.class, method);
+    AtomicInteger counter = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      target.resolve("key", methodPlan -> {
+        counter.incrementAndGet();
+        return null;
+      });
+    }
+    assertThat(counter.get())
+        .isEqualTo(3);
+  }
+
+  /**
+   * Resolve with shared method plan.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void resolveWithSharedMethodPlan(SoftAssertions softly) throws Exception {
+    Method method = Example.class.getMethod("methodA");
+    MethodPlan methodPlan = new MethodPlan(Example.class, method);
+    HttpMethodResolver resolver = new HttpMethodResolver();
+    Invocation invocation = new Invocation(methodPlan, null);
+    softly.assertThat(resolver.apply(invocation))
+        .isEqualTo(HttpRequestMethod.GET);
+    softly.assertThat(methodPlan.toString())
+        .contains(HttpMethodResolver.class.getName());
+    softly.assertThat(new Invocation(methodPlan, null))
+        .isEqualTo(new Invocation(Example.class, method, null));
+  }
+
+  /**
+   * Get annotated parameters.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void getAnnotatedParameters(SoftAssertions softly) throws Exception {
+    Method method = Example.class.getMethod("methodB", String.class, String.class);
+    MethodPlan target = new MethodPlan(Example.class, method);
+    List<ParameterPlan> actual = target.getParameters(RequestParam.class);
+    softly.assertThat(actual)
+        .extracting(ParameterPlan::getIndex)
+        .containsExactly(1);
+    softly.assertThat(target.getParameters(RequestParam.class))
+        .isSameAs(actual);
+    softly.assertThat(target.getParameters(RequestHeader.class))
+        .isEmpty();
+  }
+
+  /**
+   * The interface Example.
+   */
+  interface Example {
+
+    /**
+     * Method a.
+     */
+    @GetMapping
+    void methodA();
+
+    /**
+     * Method b.
+     *
+     * @param id the id
+     * @param q the q
+     */
+    @GetMapping
+    void methodB(@PathVariable String id, @RequestParam String q);
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Flux;
+
+/**
+ * The parameter plan test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class ParameterPlanTest {
+
+  /**
+   * Get parameters.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void getParameters(SoftAssertions softly) throws Exception {
+    Method method = Example.class.getMethod("methodA", String.class, Flux.class);
+    MethodPlan methodPlan = new MethodPlan(Example.class, method);
+    List<ParameterPlan> parameters = methodPlan.getParameters();
+    softly.assertThat(methodPlan.getParameters())
+        .isSameAs(parameters);
+    softly.assertThat(parameters)
+        .hasSize(2);
+
+    ParameterPlan first = parameters.get(0);
+    softly.assertThat(first.getIndex())
+        .isEqualTo(0);
+    softly.assertThat(first.getName())
+        .matches(name -> "id".equals(name) || "arg0".equals(name));
+    softly.assertThat(first.findAnnotation(PathVariable.class))
+        .isPresent();
+    softly.assertThat(first.findAnnotation(PathVariable.class))
+        .isEqualTo(first.findAnnotation(PathVariable.class));
+    softly.assertThat(first.findAnnotation(RequestParam.class))
+        .isEmpty();
+
+    ParameterPlan second = parameters.get(1);
+    softly.assertThat(second.getName())
+        .matches(name -> "values".equals(name) || "arg1".equals(name));
+    softly.assertThat(second.getResolvableType().resolveGeneric(0))
+        .isEqualTo(String.class);
+  }
+
+  /**
+   * Get parameters of method without parameters.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void getParametersOfMethodWithoutParameters() throws Exception {
+    Method method = Example.class.getMethod("methodB");
+    SoftAssertions.assertSoftly(softly -> softly
+        .assertThat(new MethodPlan(Example.class, method).getParameters())
+        .isEmpty());
+  }
+
+  /**
+   * The interface Example.
+   */
+  interface Example {
+
+    /**
+     * Method a.
+     *
+     * @param id the id
+     * @param values the values
+     */
+    void methodA(@PathVariable String id, Flux<String> values);
+
+    /**
+     * Method b.
+     */
+    void methodB();
+  }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.contract.spring.ReactiveSpringContract;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+/**
+ * The rate limiter test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class RateLimiterTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5L);
+
+  /**
+   * Creates a rate limiter, whose delays and time are virtual.
+   *
+   * @param scheduler the virtual time scheduler
+   * @return the rate limiter
+   */
+  private static RateLimiter rateLimiter(VirtualTimeScheduler scheduler) {
+    return new RateLimiter(scheduler, () -> scheduler.now(TimeUnit.NANOSECONDS));
+  }
+
+  /**
+   * Creates an api, that answers every request with the path of the request url.
+   *
+   * @param counter the counter of the requests
+   * @param rateLimiter the rate limiter
+   * @return the api
+   */
+  private static PartnerApi partnerApi(AtomicInteger counter, RateLimiter rateLimiter) {
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        counter,
+        ReactiveApiClientTest.echoWebClientExchangeFunction());
+    return ReactiveApiClientTest.apiClientBuilder(webClient)
+        .rateLimiter(rateLimiter)
+        .build(PartnerApi.class);
+  }
+
+  /**
+   * Calls, that exceed the rate, are delayed.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void callsAreDelayed(SoftAssertions softly) {
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RateLimiter rateLimiter = rateLimiter(scheduler);
+    AtomicInteger counter = new AtomicInteger();
+    PartnerApi api = partnerApi(counter, rateLimiter);
+
+    softly.assertThat(api.getValue().block(TIMEOUT))
+        .isEqualTo("/value");
+    softly.assertThat(api.getValue().block(TIMEOUT))
+        .isEqualTo("/value");
+
+    StepVerifier.create(api.getValue())
+        .expectSubscription()
+        .then(() -> {
+          softly.assertThat(rateLimiter.getQueueSize())
+              .isEqualTo(1);
+          softly.assertThat(counter.get())
+              .isEqualTo(2);
+          scheduler.advanceTimeBy(Duration.ofMillis(100L));
+        })
+        .expectNext("/value")
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+    softly.assertThat(rateLimiter.getQueueSize())
+        .isZero();
+    softly.assertThat(rateLimiter.getRequestCount())
+        .isEqualTo(3L);
+    softly.assertThat(rateLimiter.getThrottledCount())
+        .isEqualTo(1L);
+    softly.assertThat(rateLimiter.getThrottleTime())
+        .isEqualTo(Duration.ofMillis(100L));
+  }
+
+  /**
+   * Calls, that would wait too long, are rejected.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void callsAreRejected(SoftAssertions softly) {
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RateLimiter rateLimiter = rateLimiter(scheduler);
+    AtomicInteger counter = new AtomicInteger();
+    PartnerApi api = partnerApi(counter, rateLimiter);
+
+    softly.assertThat(api.getTenantValue("a").block(TIMEOUT))
+        .isEqualTo("/tenants/a/value");
+    StepVerifier.create(api.getTenantValue("a"))
+        .expectErrorSatisfies(error -> softly.assertThat(error)
+            .isInstanceOf(RateLimitExceededException.class)
+            .hasMessageContaining("[a]"))
+        .verify(TIMEOUT);
+    softly.assertThat(api.getTenantValue("b").block(TIMEOUT))
+        .isEqualTo("/tenants/b/value");
+
+    scheduler.advanceTimeBy(Duration.ofSeconds(1L));
+    softly.assertThat(api.getTenantValue("a").block(TIMEOUT))
+        .isEqualTo("/tenants/a/value");
+
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+    softly.assertThat(rateLimiter.getRejectedCount())
+        .isEqualTo(1L);
+    softly.assertThat(rateLimiter.getBucketCount())
+        .isEqualTo(2);
+  }
+
+  /**
+   * Deadline header is set, when the rate limiter permits the request.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void deadlineHeaderIsSetAfterPermit(SoftAssertions softly) {
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    List<String> deadlineHeaders = new CopyOnWriteArrayList<>();
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        new AtomicInteger(),
+        request -> {
+          deadlineHeaders.add(request.headers().getFirst(Timeouts.DEFAULT_DEADLINE_HEADER));
+          return ReactiveApiClientTest.echoWebClientExchangeFunction().exchange(request);
+        });
+    PartnerApi api = ReactiveApiClientTest.apiClientBuilder(webClient)
+        .rateLimiter(rateLimiter(scheduler))
+        .build(PartnerApi.class);
+    api.getValue().block(TIMEOUT);
+    api.getValue().block(TIMEOUT);
+
+    StepVerifier.create(api.getValue()
+            .contextWrite(Deadline.after(Duration.ofSeconds(2L))))
+        .expectSubscription()
+        .then(() -> {
+          // the request waits in the queue of the rate limiter in real time, too
+          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(300L));
+          scheduler.advanceTimeBy(Duration.ofMillis(100L));
+        })
+        .expectNext("/value")
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(deadlineHeaders)
+        .hasSize(3);
+    softly.assertThat(Long.parseLong(deadlineHeaders.get(2)))
+        .isBetween(1L, 1700L);
+  }
+
+  /**
+   * Idle buckets are removed.
+   */
+  @Test
+  void idleBucketsAreRemoved() {
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RateLimiter rateLimiter = rateLimiter(scheduler).withMaxBuckets(2);
+    PartnerApi api = partnerApi(new AtomicInteger(), rateLimiter);
+    for (int i = 0; i < 5; i++) {
+      api.getTenantValue("tenant" + i).block(TIMEOUT);
+      scheduler.advanceTimeBy(Duration.ofSeconds(1L));
+    }
+    assertThat(rateLimiter.getBucketCount())
+        .isLessThanOrEqualTo(2);
+  }
+
+  /**
+   * Invalid key index is rejected by the eager validation.
+   */
+  @Test
+  void invalidKeyIndex() {
+    assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(() -> ReactiveApiClient.builder()
+            .webClient(ReactiveApiClientTest.echoWebClient())
+            .contract(new ReactiveSpringContract())
+            .eagerValidation(true)
+            .build(InvalidPartnerApi.class))
+        .withMessageContaining("getValue");
+  }
+
+  /**
+   * The partner api.
+   */
+  interface PartnerApi {
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    @RateLimit(value = 10, burst = 2, maxWait = 500L)
+    @GetMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValue();
+
+    /**
+     * Gets the value of a tenant.
+     *
+     * @param tenant the tenant
+     * @return the value
+     */
+    @RateLimit(value = 1, maxWait = 0L, keyIndex = 0)
+    @GetMapping(path = "/tenants/{tenant}/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getTenantValue(@PathVariable("tenant") String tenant);
+  }
+
+  /**
+   * The invalid partner api.
+   */
+  interface InvalidPartnerApi {
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    @RateLimit(value = 10, keyIndex = 1)
+    @GetMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValue();
+  }
+
+}
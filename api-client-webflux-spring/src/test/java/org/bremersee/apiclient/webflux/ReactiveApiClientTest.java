@@ -0,0 +1,332 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.contract.spring.ReactiveSpringContract;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+/**
+ * The reactive api client test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class ReactiveApiClientTest {
+
+  /**
+   * Creates a web client, that answers every request with the path of the request url.
+   *
+   * @return the web client
+   */
+  static WebClient echoWebClient() {
+    return WebClient.builder()
+        .baseUrl("http://localhost")
+        .exchangeFunction(echoWebClientExchangeFunction())
+        .build();
+  }
+
+  /**
+   * Creates an exchange function, that answers every request with the path of the request url.
+   *
+   * @return the exchange function
+   */
+  static ExchangeFunction echoWebClientExchangeFunction() {
+    return request -> Mono.just(textResponse(HttpStatus.OK, request.url().getPath()));
+  }
+
+  /**
+   * Creates a web client, that counts the requests and answers them with the given exchange
+   * function.
+   *
+   * @param counter the counter of the requests
+   * @param exchangeFunction the exchange function
+   * @return the web client
+   */
+  static WebClient countingWebClient(AtomicInteger counter, ExchangeFunction exchangeFunction) {
+    return WebClient.builder()
+        .baseUrl("http://localhost")
+        .exchangeFunction(request -> {
+          counter.incrementAndGet();
+          return exchangeFunction.exchange(request);
+        })
+        .build();
+  }
+
+  /**
+   * Creates a response with a plain text body.
+   *
+   * @param status the status
+   * @param body the body
+   * @return the response
+   */
+  static ClientResponse textResponse(HttpStatus status, String body) {
+    return ClientResponse.create(status)
+        .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+        .body(body)
+        .build();
+  }
+
+  /**
+   * Creates an api client builder with the given web client and the spring contract.
+   *
+   * @param webClient the web client
+   * @return the api client builder
+   */
+  static ReactiveApiClient.Builder apiClientBuilder(WebClient webClient) {
+    return ReactiveApiClient.builder()
+        .webClient(webClient)
+        .contract(new ReactiveSpringContract());
+  }
+
+  /**
+   * Contract is resolved once.
+   */
+  @Test
+  void contractIsResolvedOnce() {
+    ReactiveSpringContract contract = spy(new ReactiveSpringContract());
+    Example client = ReactiveApiClient.builder()
+        .webClient(echoWebClient())
+        .contract(contract)
+        .build(Example.class);
+    for (int i = 0; i < 10; i++) {
+      String id = "id" + i;
+      StepVerifier.create(client.getValue(id))
+          .assertNext(value -> assertThat(value).isEqualTo("/example/" + id))
+          .verifyComplete();
+    }
+    verify(contract, times(1)).getRequestUriSpecFunction();
+    verify(contract, times(1)).getRequestUriFunction();
+    verify(contract, times(1)).getHeadersConsumer();
+    verify(contract, times(1)).getCookiesConsumer();
+    verify(contract, times(1)).getRequestBodyInserterFunction();
+    verify(contract, times(1)).getResponseFunction();
+  }
+
+  /**
+   * Contract is resolved once per api client.
+   */
+  @Test
+  void contractIsResolvedOncePerApiClient() {
+    ReactiveSpringContract contract = spy(new ReactiveSpringContract());
+    ReactiveApiClient apiClient = new ReactiveApiClient(WebClient.builder(), contract);
+    for (int i = 0; i < 3; i++) {
+      assertThat(apiClient.newInstance(Example.class, "http://localhost"))
+          .isNotNull();
+    }
+    verify(contract, times(1)).getHeadersConsumer();
+    verify(contract, times(1)).getResponseFunction();
+  }
+
+  /**
+   * New instance is cached.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void newInstanceIsCached(SoftAssertions softly) {
+    ReactiveApiClient apiClient = new ReactiveApiClient(
+        WebClient.builder().exchangeFunction(echoWebClientExchangeFunction()),
+        new ReactiveSpringContract())
+        .withMaximumCacheSize(1);
+
+    Example client = apiClient.newInstance(Example.class, "http://localhost");
+    softly.assertThat(apiClient.newInstance(Example.class, "http://localhost"))
+        .isSameAs(client);
+    softly.assertThat(client.getValue("abc").block())
+        .isEqualTo("/example/abc");
+
+    Example otherClient = apiClient.newInstance(Example.class, "http://127.0.0.1");
+    softly.assertThat(otherClient)
+        .isNotSameAs(client);
+    softly.assertThat(apiClient.newInstance(Example.class, "http://localhost"))
+        .isNotSameAs(client);
+
+    ApiClientCache cache = apiClient.getCache();
+    softly.assertThat(cache.size())
+        .isEqualTo(1);
+    softly.assertThat(cache.getHitCount())
+        .isEqualTo(1L);
+    softly.assertThat(cache.getMissCount())
+        .isEqualTo(3L);
+    softly.assertThat(cache.getEvictionCount())
+        .isEqualTo(2L);
+  }
+
+  /**
+   * With returns new reactive api client.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void withReturnsNewReactiveApiClient(SoftAssertions softly) {
+    ReactiveApiClient apiClient = new ReactiveApiClient(
+        WebClient.builder().exchangeFunction(echoWebClientExchangeFunction()),
+        new ReactiveSpringContract());
+    Example client = apiClient.newInstance(Example.class, "http://localhost");
+
+    ReactiveApiClient otherApiClient = apiClient.withTimeouts(new Timeouts());
+    softly.assertThat(otherApiClient)
+        .isNotSameAs(apiClient);
+    softly.assertThat(otherApiClient.getCache())
+        .isNotSameAs(apiClient.getCache());
+    softly.assertThat(otherApiClient.newInstance(Example.class, "http://localhost"))
+        .isNotSameAs(client);
+    softly.assertThat(apiClient.newInstance(Example.class, "http://localhost"))
+        .isSameAs(client);
+  }
+
+  /**
+   * Request is built on subscription.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void requestIsBuiltOnSubscription(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    Example client = apiClientBuilder(countingWebClient(counter, echoWebClientExchangeFunction()))
+        .build(Example.class);
+
+    Mono<String> response = client.getValue("abc");
+    softly.assertThat(counter.get())
+        .isZero();
+
+    StepVerifier.create(response.repeat(2))
+        .expectNext("/example/abc", "/example/abc", "/example/abc")
+        .verifyComplete();
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+  }
+
+  /**
+   * Base url from context.
+   */
+  @Test
+  void baseUrlFromContext() {
+    Example client = ReactiveApiClient.builder()
+        .webClient(WebClient.builder()
+            .baseUrl("http://localhost")
+            .exchangeFunction(request -> Mono.just(
+                textResponse(HttpStatus.OK, request.url().toString())))
+            .build())
+        .contract(new ReactiveSpringContract())
+        .build(Example.class);
+
+    StepVerifier.create(client.getValue("abc")
+            .contextWrite(Context.of(BaseUrl.CONTEXT_KEY, "http://shard-7:8080")))
+        .assertNext(value -> assertThat(value).isEqualTo("http://shard-7:8080/example/abc"))
+        .verifyComplete();
+  }
+
+  /**
+   * Eager validation.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void eagerValidation(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ReactiveSpringContract contract = new ReactiveSpringContract();
+    Example client = ReactiveApiClient.builder()
+        .webClient(countingWebClient(counter, echoWebClientExchangeFunction()))
+        .contract(contract)
+        .eagerValidation(true)
+        .warmUpIterations(3)
+        .build(Example.class);
+    softly.assertThat(counter.get())
+        .isZero();
+    softly.assertThat(client.getValue("abc").block())
+        .isEqualTo("/example/abc");
+
+    softly.assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(() -> ReactiveApiClient.builder()
+            .webClient(echoWebClient())
+            .contract(contract)
+            .eagerValidation(true)
+            .build(InvalidExample.class))
+        .withMessageContaining("getValue");
+    softly.assertThat(ReactiveApiClient.builder()
+            .webClient(echoWebClient())
+            .contract(contract)
+            .build(InvalidExample.class))
+        .isNotNull();
+  }
+
+  /**
+   * Eager validation of new instance.
+   */
+  @Test
+  void eagerValidationOfNewInstance() {
+    ReactiveApiClient apiClient = new ReactiveApiClient(
+        WebClient.builder(),
+        new ReactiveSpringContract())
+        .withEagerValidation(true)
+        .withWarmUpIterations(1);
+    assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(() -> apiClient.newInstance(InvalidExample.class, "http://localhost"));
+  }
+
+  /**
+   * The interface Example.
+   */
+  interface Example {
+
+    /**
+     * Gets value.
+     *
+     * @param id the id
+     * @return the value
+     */
+    @GetMapping(path = "/example/{id}", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValue(@PathVariable("id") String id);
+  }
+
+  /**
+   * The interface Invalid example.
+   */
+  interface InvalidExample {
+
+    /**
+     * Gets value without a request mapping.
+     *
+     * @param id the id
+     * @return the value
+     */
+    Mono<String> getValue(@PathVariable("id") String id);
+  }
+
+}
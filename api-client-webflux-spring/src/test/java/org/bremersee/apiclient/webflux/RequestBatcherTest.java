@@ -0,0 +1,382 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.contract.spring.ReactiveSpringContract;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+/**
+ * The request batcher test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class RequestBatcherTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5L);
+
+  private static ItemApi itemApi(AtomicInteger counter, RequestBatcher requestBatcher) {
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        counter,
+        request -> Mono.just(respond(request)));
+    return ReactiveApiClientTest.apiClientBuilder(webClient)
+        .requestBatcher(requestBatcher)
+        .build(ItemApi.class);
+  }
+
+  private static ClientResponse respond(ClientRequest request) {
+    List<String> ids = UriComponentsBuilder.fromUri(request.url()).build()
+        .getQueryParams()
+        .getOrDefault("id", List.of())
+        .stream()
+        .filter(id -> !"unknown".equals(id))
+        .collect(Collectors.toList());
+    String body;
+    switch (request.url().getPath()) {
+      case "/items":
+        body = ids.stream()
+            .map(id -> "{\"id\":\"" + id + "\",\"name\":\"" + name(id) + "\"}")
+            .collect(Collectors.joining(",", "[", "]"));
+        break;
+      case "/names":
+        body = ids.stream()
+            .map(id -> "\"" + id + "\":\"" + name(id) + "\"")
+            .collect(Collectors.joining(",", "{", "}"));
+        break;
+      default:
+        return ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    }
+    return ClientResponse.create(HttpStatus.OK)
+        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        .body(body)
+        .build();
+  }
+
+  private static String name(String id) {
+    return id.toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Concurrent invocations are sent as one bulk call.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void concurrentInvocationsAreSentAsOneBulkCall(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    RequestBatcher requestBatcher = new RequestBatcher();
+    ItemApi api = itemApi(counter, requestBatcher);
+
+    StepVerifier
+        .create(Flux.merge(
+                api.getItem("a").map(Item::getName),
+                api.getItem("b").map(Item::getName),
+                api.getItem("a").map(Item::getName),
+                api.getItem("unknown").map(Item::getName).defaultIfEmpty("none"))
+            .collectList())
+        .assertNext(names -> assertThat(names)
+            .containsExactlyInAnyOrder("A", "B", "A", "none"))
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(requestBatcher.getInvocationCount())
+        .isEqualTo(4L);
+    softly.assertThat(requestBatcher.getBatchCount())
+        .isEqualTo(1L);
+  }
+
+  /**
+   * Full batch is sent immediately.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void fullBatchIsSentImmediately(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    RequestBatcher requestBatcher = new RequestBatcher();
+    ItemApi api = itemApi(counter, requestBatcher);
+
+    StepVerifier
+        .create(Flux.merge(api.getName("a"), api.getName("b")).collectList())
+        .assertNext(names -> assertThat(names).containsExactlyInAnyOrder("A", "B"))
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(requestBatcher.getBatchCount())
+        .isEqualTo(1L);
+  }
+
+  /**
+   * Keys of different types are matched by their string values.
+   */
+  @Test
+  void keysOfDifferentTypesAreMatched() {
+    AtomicInteger counter = new AtomicInteger();
+    ItemApi api = itemApi(counter, new RequestBatcher());
+
+    StepVerifier
+        .create(Flux.merge(
+                api.getItemByNumber(1L).map(Item::getId),
+                api.getItemByNumber(2L).map(Item::getId))
+            .collectList())
+        .assertNext(ids -> assertThat(ids).containsExactlyInAnyOrder("1", "2"))
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    assertThat(counter.get())
+        .isEqualTo(1);
+  }
+
+  /**
+   * Cancelled invocations are removed from the batch.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void cancelledInvocationsAreRemovedFromTheBatch(SoftAssertions softly) {
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestBatcher requestBatcher = new RequestBatcher(scheduler);
+    RequestBatcher.Key batchKey = new RequestBatcher.Key(null, null, List.of(), null, List.of());
+    AtomicReference<List<Object>> sentKeys = new AtomicReference<>();
+    Function<List<Object>, Mono<Map<?, ?>>> bulkCall = keys -> {
+      sentKeys.set(keys);
+      return Mono.just(Map.of("1", "one", "2", "two"));
+    };
+
+    Disposable cancelled = requestBatcher.add(batchKey, 1L, 50L, 10, bulkCall).subscribe();
+    StepVerifier
+        .create(requestBatcher.add(batchKey, 2L, 50L, 10, bulkCall))
+        .then(() -> {
+          cancelled.dispose();
+          scheduler.advanceTimeBy(Duration.ofMillis(50L));
+        })
+        .expectNext("two")
+        .verifyComplete();
+
+    softly.assertThat(sentKeys.get())
+        .containsExactly(2L);
+    softly.assertThat(requestBatcher.getBatchCount())
+        .isEqualTo(1L);
+  }
+
+  /**
+   * Bulk call is not sent, if all invocations are cancelled.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void bulkCallIsNotSentIfAllInvocationsAreCancelled(SoftAssertions softly) {
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestBatcher requestBatcher = new RequestBatcher(scheduler);
+    RequestBatcher.Key batchKey = new RequestBatcher.Key(null, null, List.of(), null, List.of());
+    AtomicInteger counter = new AtomicInteger();
+
+    requestBatcher
+        .add(batchKey, "1", 50L, 10, keys -> {
+          counter.incrementAndGet();
+          return Mono.just(Map.of("1", "one"));
+        })
+        .subscribe()
+        .dispose();
+    scheduler.advanceTimeBy(Duration.ofMillis(50L));
+
+    softly.assertThat(counter.get())
+        .isZero();
+    softly.assertThat(requestBatcher.getBatchCount())
+        .isZero();
+  }
+
+  /**
+   * Errors of the bulk call are routed to all invocations.
+   */
+  @Test
+  void errorsOfTheBulkCallAreRoutedToAllInvocations() {
+    AtomicInteger counter = new AtomicInteger();
+    ItemApi api = itemApi(counter, null);
+
+    StepVerifier
+        .create(Flux.mergeDelayError(2, api.getBrokenItem("a"), api.getBrokenItem("b")))
+        .expectError(WebClientResponseException.class)
+        .verify(TIMEOUT);
+
+    assertThat(counter.get())
+        .isEqualTo(1);
+  }
+
+  /**
+   * Missing bulk method is rejected.
+   */
+  @Test
+  void missingBulkMethodIsRejected() {
+    assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(() -> ReactiveApiClient.builder()
+            .webClient(WebClient.builder().baseUrl("http://localhost").build())
+            .contract(new ReactiveSpringContract())
+            .eagerValidation(true)
+            .build(InvalidItemApi.class))
+        .withMessageContaining("getItems");
+  }
+
+  /**
+   * The item.
+   */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Item {
+
+    private String id;
+
+    private String name;
+  }
+
+  /**
+   * The item api.
+   */
+  interface ItemApi {
+
+    /**
+     * Gets item.
+     *
+     * @param id the id
+     * @return the item
+     */
+    @BatchWith(value = "getItems", window = 50L)
+    @GetMapping(path = "/items/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    Mono<Item> getItem(@PathVariable("id") String id);
+
+    /**
+     * Gets items.
+     *
+     * @param ids the ids
+     * @return the items
+     */
+    @GetMapping(path = "/items", produces = MediaType.APPLICATION_JSON_VALUE)
+    Flux<Item> getItems(@RequestParam("id") List<String> ids);
+
+    /**
+     * Gets item by number.
+     *
+     * @param id the id
+     * @return the item
+     */
+    @BatchWith(value = "getItemsByNumbers", window = 50L)
+    @GetMapping(path = "/items/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    Mono<Item> getItemByNumber(@PathVariable("id") Long id);
+
+    /**
+     * Gets items by numbers.
+     *
+     * @param ids the ids
+     * @return the items
+     */
+    @GetMapping(path = "/items", produces = MediaType.APPLICATION_JSON_VALUE)
+    Flux<Item> getItemsByNumbers(@RequestParam("id") List<Long> ids);
+
+    /**
+     * Gets name.
+     *
+     * @param id the id
+     * @return the name
+     */
+    @BatchWith(value = "getNames", window = 60_000L, maxSize = 2)
+    @GetMapping(path = "/names/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    Mono<String> getName(@PathVariable("id") String id);
+
+    /**
+     * Gets names.
+     *
+     * @param ids the ids
+     * @return the names
+     */
+    @GetMapping(path = "/names", produces = MediaType.APPLICATION_JSON_VALUE)
+    Mono<Map<String, String>> getNames(@RequestParam("id") List<String> ids);
+
+    /**
+     * Gets broken item.
+     *
+     * @param id the id
+     * @return the broken item
+     */
+    @BatchWith(value = "getBrokenItems", window = 50L)
+    @GetMapping(path = "/broken/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    Mono<Item> getBrokenItem(@PathVariable("id") String id);
+
+    /**
+     * Gets broken items.
+     *
+     * @param ids the ids
+     * @return the broken items
+     */
+    @GetMapping(path = "/broken", produces = MediaType.APPLICATION_JSON_VALUE)
+    Flux<Item> getBrokenItems(@RequestParam("id") List<String> ids);
+  }
+
+  /**
+   * The invalid item api.
+   */
+  interface InvalidItemApi {
+
+    /**
+     * Gets item.
+     *
+     * @param id the id
+     * @return the item
+     */
+    @BatchWith("getItems")
+    @GetMapping(path = "/items/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    Mono<Item> getItem(@PathVariable("id") String id);
+  }
+
+}
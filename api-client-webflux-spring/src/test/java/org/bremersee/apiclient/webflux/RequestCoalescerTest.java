@@ -0,0 +1,272 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+import reactor.util.context.Context;
+
+/**
+ * The request coalescer test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class RequestCoalescerTest {
+
+  private static Example example(
+      AtomicInteger counter,
+      Sinks.Empty<Void> gate,
+      HttpStatus status,
+      RequestCoalescer requestCoalescer) {
+
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        counter,
+        request -> gate.asMono().then(Mono.fromSupplier(
+            () -> ReactiveApiClientTest.textResponse(status, request.url().getPath()))));
+    return ReactiveApiClientTest.apiClientBuilder(webClient)
+        .requestCoalescer(requestCoalescer)
+        .build(Example.class);
+  }
+
+  /**
+   * Concurrent equal invocations share one request.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void concurrentEqualInvocationsShareOneRequest(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    Sinks.Empty<Void> gate = Sinks.empty();
+    RequestCoalescer requestCoalescer = new RequestCoalescer();
+    Example example = example(counter, gate, HttpStatus.OK, requestCoalescer);
+
+    StepVerifier
+        .create(Flux.merge(
+                example.getValue("a"),
+                example.getValue("a"),
+                example.getValue("a"),
+                example.getValue("b"))
+            .collectList())
+        .then(() -> {
+          softly.assertThat(requestCoalescer.getInFlightCount())
+              .isEqualTo(2);
+          gate.tryEmitEmpty();
+        })
+        .assertNext(values -> assertThat(values)
+            .containsExactlyInAnyOrder("/example/a", "/example/a", "/example/a", "/example/b"))
+        .verifyComplete();
+
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(requestCoalescer.getRequestCount())
+        .isEqualTo(2L);
+    softly.assertThat(requestCoalescer.getCoalescedCount())
+        .isEqualTo(2L);
+    softly.assertThat(requestCoalescer.getInFlightCount())
+        .isZero();
+
+    softly.assertThat(example.getValue("a").block())
+        .isEqualTo("/example/a");
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+  }
+
+  /**
+   * Concurrent equal invocations share one error.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void concurrentEqualInvocationsShareOneError(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    Sinks.Empty<Void> gate = Sinks.empty();
+    RequestCoalescer requestCoalescer = new RequestCoalescer();
+    Example example = example(counter, gate, HttpStatus.SERVICE_UNAVAILABLE, requestCoalescer);
+
+    StepVerifier
+        .create(Flux.mergeDelayError(
+            2,
+            example.getValue("a"),
+            example.getValue("a")))
+        .then(gate::tryEmitEmpty)
+        .verifyError(WebClientResponseException.class);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(requestCoalescer.getInFlightCount())
+        .isZero();
+  }
+
+  /**
+   * Invocations with different context values do not share a request.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void invocationsWithDifferentContextValuesDoNotShareRequest(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    Sinks.Empty<Void> gate = Sinks.empty();
+    RequestCoalescer requestCoalescer = new RequestCoalescer().withContextKeys("tenant");
+    Example example = example(counter, gate, HttpStatus.OK, requestCoalescer);
+
+    StepVerifier
+        .create(Flux.merge(
+            example.getValue("a").contextWrite(Context.of("tenant", "x")),
+            example.getValue("a").contextWrite(Context.of("tenant", "x")),
+            example.getValue("a").contextWrite(Context.of("tenant", "y"))))
+        .then(gate::tryEmitEmpty)
+        .expectNextCount(3)
+        .verifyComplete();
+
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(requestCoalescer.getCoalescedCount())
+        .isEqualTo(1L);
+  }
+
+  /**
+   * Shared requests are cancelled after the max in flight time.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void sharedRequestsAreCancelledAfterMaxInFlightTime(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    Sinks.Empty<Void> gate = Sinks.empty();
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestCoalescer requestCoalescer = new RequestCoalescer(scheduler)
+        .withMaxInFlightTime(Duration.ofSeconds(1L));
+    Example example = example(counter, gate, HttpStatus.OK, requestCoalescer);
+
+    StepVerifier
+        .create(Flux.mergeDelayError(
+            2,
+            example.getValue("a"),
+            example.getValue("a")))
+        .then(() -> {
+          softly.assertThat(requestCoalescer.getInFlightCount())
+              .isEqualTo(1);
+          scheduler.advanceTimeBy(Duration.ofSeconds(2L));
+        })
+        .verifyError(TimeoutException.class);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(requestCoalescer.getInFlightCount())
+        .isZero();
+  }
+
+  /**
+   * Only annotated methods are coalesced without request coalescer.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void onlyAnnotatedMethodsAreCoalescedWithoutRequestCoalescer(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    Sinks.Empty<Void> gate = Sinks.empty();
+    Example example = example(counter, gate, HttpStatus.OK, null);
+
+    StepVerifier
+        .create(Flux.merge(
+            example.getValues(),
+            example.getValues(),
+            example.getValue("a"),
+            example.getValue("a")))
+        .then(gate::tryEmitEmpty)
+        .expectNextCount(4)
+        .verifyComplete();
+
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+  }
+
+  /**
+   * Excluded methods are not coalesced.
+   */
+  @Test
+  void excludedMethodsAreNotCoalesced() {
+    AtomicInteger counter = new AtomicInteger();
+    Sinks.Empty<Void> gate = Sinks.empty();
+    Example example = example(counter, gate, HttpStatus.OK, new RequestCoalescer());
+
+    StepVerifier
+        .create(Flux.merge(
+            example.getOtherValue("a"),
+            example.getOtherValue("a")))
+        .then(gate::tryEmitEmpty)
+        .expectNext("/other/a", "/other/a")
+        .verifyComplete();
+
+    assertThat(counter.get())
+        .isEqualTo(2);
+  }
+
+  /**
+   * The interface Example.
+   */
+  interface Example {
+
+    /**
+     * Gets value.
+     *
+     * @param id the id
+     * @return the value
+     */
+    @GetMapping(path = "/example/{id}", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValue(@PathVariable("id") String id);
+
+    /**
+     * Gets other value.
+     *
+     * @param id the id
+     * @return the other value
+     */
+    @CoalesceRequests(false)
+    @GetMapping(path = "/other/{id}", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getOtherValue(@PathVariable("id") String id);
+
+    /**
+     * Gets values.
+     *
+     * @return the values
+     */
+    @CoalesceRequests
+    @GetMapping(path = "/values", produces = MediaType.TEXT_PLAIN_VALUE)
+    Flux<String> getValues();
+  }
+
+}
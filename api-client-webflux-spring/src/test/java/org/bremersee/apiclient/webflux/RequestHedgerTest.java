@@ -0,0 +1,369 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.contract.HttpRequestMethod;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+/**
+ * The request hedger test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class RequestHedgerTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5L);
+
+  /**
+   * Creates an api, whose first request is slow and whose following requests are fast.
+   *
+   * @param counter the counter of the requests
+   * @param cancelled the counter of the cancelled requests
+   * @param requestHedger the request hedger
+   * @param scheduler the virtual time scheduler of the responses
+   * @return the api
+   */
+  private static SlowApi slowApi(
+      AtomicInteger counter,
+      AtomicInteger cancelled,
+      RequestHedger requestHedger,
+      VirtualTimeScheduler scheduler) {
+
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        counter,
+        request -> {
+          Duration delay = counter.get() == 1 ? Duration.ofSeconds(2L) : Duration.ofMillis(1L);
+          return Mono.delay(delay, scheduler)
+              .then(ReactiveApiClientTest.echoWebClientExchangeFunction().exchange(request))
+              .doOnCancel(cancelled::incrementAndGet);
+        });
+    return ReactiveApiClientTest.apiClientBuilder(webClient)
+        .requestHedger(requestHedger)
+        .build(SlowApi.class);
+  }
+
+  /**
+   * Creates an api, whose first requests fail after the given delay.
+   *
+   * @param counter the counter of the requests
+   * @param failures the number of the failing requests
+   * @param delay the delay of the failures
+   * @param requestHedger the request hedger
+   * @param scheduler the virtual time scheduler of the failures
+   * @return the api
+   */
+  private static SlowApi failingApi(
+      AtomicInteger counter,
+      int failures,
+      Duration delay,
+      RequestHedger requestHedger,
+      VirtualTimeScheduler scheduler) {
+
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        counter,
+        request -> {
+          if (counter.get() <= failures) {
+            Mono<ClientResponse> error = Mono.error(new IllegalStateException("Request failed."));
+            return delay.isZero() ? error : Mono.delay(delay, scheduler).then(error);
+          }
+          return ReactiveApiClientTest.echoWebClientExchangeFunction().exchange(request);
+        });
+    return ReactiveApiClientTest.apiClientBuilder(webClient)
+        .requestHedger(requestHedger)
+        .build(SlowApi.class);
+  }
+
+  /**
+   * Hedge wins and the slow request is cancelled.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void hedgeWins(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    AtomicInteger cancelled = new AtomicInteger();
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestHedger requestHedger = new RequestHedger(scheduler).withBudget(100);
+    SlowApi api = slowApi(counter, cancelled, requestHedger, scheduler);
+
+    StepVerifier.create(api.getValue())
+        .expectSubscription()
+        .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(2L)))
+        .expectNext("/value")
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(cancelled.get())
+        .isEqualTo(1);
+    softly.assertThat(requestHedger.getRequestCount())
+        .isEqualTo(1L);
+    softly.assertThat(requestHedger.getHedgeCount())
+        .isEqualTo(1L);
+    softly.assertThat(requestHedger.getHedgeWonCount())
+        .isEqualTo(1L);
+  }
+
+  /**
+   * Fast response is not hedged.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void fastResponseIsNotHedged(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger(1);
+    AtomicInteger cancelled = new AtomicInteger();
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestHedger requestHedger = new RequestHedger(scheduler).withBudget(100);
+    SlowApi api = slowApi(counter, cancelled, requestHedger, scheduler);
+
+    StepVerifier.create(api.getValue())
+        .expectSubscription()
+        .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(2L)))
+        .expectNext("/value")
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(requestHedger.getHedgeCount())
+        .isZero();
+  }
+
+  /**
+   * Hedge is not sent, if the budget is exhausted.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void hedgeIsNotSentIfBudgetIsExhausted(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    AtomicInteger cancelled = new AtomicInteger();
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestHedger requestHedger = new RequestHedger(scheduler).withBudget(0);
+    SlowApi api = slowApi(counter, cancelled, requestHedger, scheduler);
+
+    StepVerifier.create(api.getValue())
+        .expectSubscription()
+        .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(2L)))
+        .expectNext("/value")
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(requestHedger.getHedgeCount())
+        .isZero();
+    softly.assertThat(requestHedger.getBudgetExhaustedCount())
+        .isEqualTo(1L);
+  }
+
+  /**
+   * Request, that fails before the hedge delay, is not hedged.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void fastFailureIsNotHedged(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestHedger requestHedger = new RequestHedger(scheduler).withBudget(100);
+    SlowApi api = failingApi(counter, 1, Duration.ZERO, requestHedger, scheduler);
+
+    StepVerifier.create(api.getValue())
+        .expectError(IllegalStateException.class)
+        .verify(TIMEOUT);
+    scheduler.advanceTimeBy(Duration.ofSeconds(2L));
+
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(requestHedger.getHedgeCount())
+        .isZero();
+    softly.assertThat(requestHedger.getBudgetExhaustedCount())
+        .isZero();
+  }
+
+  /**
+   * Hedge wins, if the hedged request fails.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void hedgeWinsIfHedgedRequestFails(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestHedger requestHedger = new RequestHedger(scheduler).withBudget(100);
+    SlowApi api = failingApi(counter, 1, Duration.ofSeconds(1L), requestHedger, scheduler);
+
+    StepVerifier.create(api.getValue())
+        .expectSubscription()
+        .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(2L)))
+        .expectNext("/value")
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(requestHedger.getHedgeWonCount())
+        .isEqualTo(1L);
+  }
+
+  /**
+   * Error is emitted, if both requests fail.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void errorIfBothRequestsFail(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestHedger requestHedger = new RequestHedger(scheduler).withBudget(100);
+    SlowApi api = failingApi(counter, 2, Duration.ofSeconds(1L), requestHedger, scheduler);
+
+    StepVerifier.create(api.getValue())
+        .expectSubscription()
+        .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(2L)))
+        .expectError()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(requestHedger.getHedgeWonCount())
+        .isZero();
+  }
+
+  /**
+   * Error is emitted, if the request fails and the budget is exhausted.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void errorIfRequestFailsAndBudgetIsExhausted(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestHedger requestHedger = new RequestHedger(scheduler).withBudget(0);
+    SlowApi api = failingApi(counter, 1, Duration.ofSeconds(1L), requestHedger, scheduler);
+
+    StepVerifier.create(api.getValue())
+        .expectSubscription()
+        .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(2L)))
+        .expectError()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(requestHedger.getBudgetExhaustedCount())
+        .isEqualTo(1L);
+  }
+
+  /**
+   * Post method is not hedged.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void postMethodIsNotHedged(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    AtomicInteger cancelled = new AtomicInteger();
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    RequestHedger requestHedger = new RequestHedger(scheduler).withBudget(100);
+    SlowApi api = slowApi(counter, cancelled, requestHedger, scheduler);
+
+    StepVerifier.create(api.postValue())
+        .expectSubscription()
+        .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(2L)))
+        .expectNext("/value")
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(requestHedger.getRequestCount())
+        .isZero();
+  }
+
+  /**
+   * Delay is the percentile of the recorded latencies.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void delayIsPercentileOfLatencies(SoftAssertions softly) throws Exception {
+    MethodPlan methodPlan = new MethodPlan(
+        SlowApi.class,
+        SlowApi.class.getMethod("getValue"));
+    HedgePolicy policy = HedgePolicy.resolve(methodPlan, HttpRequestMethod.GET, false);
+    Duration initialDelay = Duration.ofSeconds(1L);
+    softly.assertThat(policy.getDelay(initialDelay))
+        .isEqualTo(initialDelay);
+
+    for (int i = 1; i <= 100; i++) {
+      policy.record(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    softly.assertThat(policy.getDelay(initialDelay))
+        .isEqualTo(Duration.ofMillis(95L));
+
+    MethodPlan postPlan = new MethodPlan(
+        SlowApi.class,
+        SlowApi.class.getMethod("postValue"));
+    softly.assertThat(HedgePolicy.resolve(postPlan, HttpRequestMethod.POST, true).isEnabled())
+        .isFalse();
+    softly.assertThat(HedgePolicy.resolve(postPlan, HttpRequestMethod.GET, true).isEnabled())
+        .isTrue();
+  }
+
+  /**
+   * The slow api.
+   */
+  interface SlowApi {
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    @Hedge
+    @GetMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValue();
+
+    /**
+     * Post value.
+     *
+     * @return the value
+     */
+    @PostMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> postValue();
+  }
+
+}
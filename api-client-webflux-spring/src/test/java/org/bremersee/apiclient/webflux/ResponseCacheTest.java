@@ -0,0 +1,495 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * The response cache test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class ResponseCacheTest {
+
+  private static WebClient webClient(
+      AtomicInteger counter,
+      Function<ClientRequest, ClientResponse> responseFunction) {
+    return ReactiveApiClientTest.countingWebClient(
+        counter,
+        request -> Mono.just(responseFunction.apply(request)));
+  }
+
+  private static ClientResponse.Builder ok(ClientRequest request) {
+    return ClientResponse.create(HttpStatus.OK)
+        .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+        .body(request.url().getPath());
+  }
+
+  private static ReferenceApi referenceApi(WebClient webClient, ResponseCache responseCache) {
+    return ReactiveApiClientTest.apiClientBuilder(webClient)
+        .responseCache(responseCache)
+        .build(ReferenceApi.class);
+  }
+
+  private static void assertCountry(ReferenceApi api, String code) {
+    StepVerifier.create(api.getCountry(code))
+        .assertNext(value -> assertThat(value).isEqualTo("/countries/" + code))
+        .verifyComplete();
+  }
+
+  /**
+   * Fresh responses are returned without request.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void freshResponsesAreReturnedWithoutRequest(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ResponseCache responseCache = new ResponseCache();
+    ReferenceApi api = referenceApi(
+        webClient(counter, request -> ok(request)
+            .header(HttpHeaders.CACHE_CONTROL, "public, max-age=60")
+            .build()),
+        responseCache);
+
+    Mono<String> response = api.getCountry("de");
+    softly.assertThat(counter.get())
+        .isZero();
+    for (int i = 0; i < 3; i++) {
+      assertCountry(api, "de");
+    }
+    assertCountry(api, "fr");
+
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(response.block())
+        .isEqualTo("/countries/de");
+    softly.assertThat(responseCache.size())
+        .isEqualTo(2);
+    softly.assertThat(responseCache.getHitCount())
+        .isEqualTo(3L);
+    softly.assertThat(responseCache.getMissCount())
+        .isEqualTo(2L);
+  }
+
+  /**
+   * Fresh responses are returned before the load balancer selects an endpoint.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void freshResponsesAreNotBalanced(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ResponseCache responseCache = new ResponseCache();
+    LoadBalancer loadBalancer = new LoadBalancer(List.of("http://a", "http://b"));
+    ReferenceApi api = ReactiveApiClientTest.apiClientBuilder(
+            webClient(counter, request -> ok(request)
+                .header(HttpHeaders.CACHE_CONTROL, "public, max-age=60")
+                .build()))
+        .responseCache(responseCache)
+        .loadBalancer(loadBalancer)
+        .build(ReferenceApi.class);
+
+    for (int i = 0; i < 4; i++) {
+      assertCountry(api, "de");
+    }
+
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(responseCache.size())
+        .isEqualTo(1);
+    softly.assertThat(responseCache.getHitCount())
+        .isEqualTo(3L);
+    softly.assertThat(loadBalancer.getEndpoints())
+        .extracting(LoadBalancer.Endpoint::getRequestCount)
+        .containsExactly(1L, 0L);
+  }
+
+  /**
+   * Stale responses are revalidated with etag.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void staleResponsesAreRevalidatedWithEtag(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ResponseCache responseCache = new ResponseCache();
+    ReferenceApi api = referenceApi(
+        webClient(counter, request -> request.headers().getIfNoneMatch().contains("\"v1\"")
+            ? ClientResponse.create(HttpStatus.NOT_MODIFIED)
+            .header(HttpHeaders.ETAG, "\"v1\"")
+            .build()
+            : ok(request)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .header(HttpHeaders.ETAG, "\"v1\"")
+                .build()),
+        responseCache);
+
+    for (int i = 0; i < 3; i++) {
+      assertCountry(api, "de");
+    }
+
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+    softly.assertThat(responseCache.getHitCount())
+        .isZero();
+    softly.assertThat(responseCache.getMissCount())
+        .isEqualTo(3L);
+    softly.assertThat(responseCache.getRevalidationCount())
+        .isEqualTo(2L);
+  }
+
+  /**
+   * Expired responses are revalidated with last modified.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void expiredResponsesAreRevalidatedWithLastModified(SoftAssertions softly) {
+    MutableClock clock = new MutableClock();
+    long lastModified = clock.millis() - TimeUnit.DAYS.toMillis(1L);
+    AtomicInteger counter = new AtomicInteger();
+    ResponseCache responseCache = new ResponseCache(10, clock);
+    ReferenceApi api = referenceApi(
+        webClient(counter, request -> {
+          ClientResponse.Builder builder = request.headers().getIfModifiedSince() >= 0
+              ? ClientResponse.create(HttpStatus.NOT_MODIFIED)
+              : ok(request);
+          return builder
+              .headers(headers -> headers.setLastModified(lastModified))
+              .header(HttpHeaders.CACHE_CONTROL, "max-age=10")
+              .build();
+        }),
+        responseCache);
+
+    assertCountry(api, "de");
+    assertCountry(api, "de");
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+
+    clock.add(TimeUnit.SECONDS.toMillis(11L));
+    assertCountry(api, "de");
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(responseCache.getRevalidationCount())
+        .isEqualTo(1L);
+
+    assertCountry(api, "de");
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(responseCache.getHitCount())
+        .isEqualTo(2L);
+  }
+
+  /**
+   * Responses with no store are not cached.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void responsesWithNoStoreAreNotCached(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ResponseCache responseCache = new ResponseCache();
+    ReferenceApi api = referenceApi(
+        webClient(counter, request -> ok(request)
+            .header(HttpHeaders.CACHE_CONTROL, "no-store, max-age=60")
+            .header(HttpHeaders.ETAG, "\"v1\"")
+            .build()),
+        responseCache);
+
+    assertCountry(api, "de");
+    assertCountry(api, "de");
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(responseCache.size())
+        .isZero();
+  }
+
+  /**
+   * Private responses are not cached.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void privateResponsesAreNotCached(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ResponseCache responseCache = new ResponseCache();
+    ReferenceApi api = referenceApi(
+        webClient(counter, request -> ok(request)
+            .header(HttpHeaders.CACHE_CONTROL, "private, max-age=60")
+            .build()),
+        responseCache);
+
+    assertCountry(api, "de");
+    assertCountry(api, "de");
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(responseCache.size())
+        .isZero();
+  }
+
+  /**
+   * Responses are cached per credentials.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void responsesAreCachedPerCredentials(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ResponseCache responseCache = new ResponseCache();
+    ReferenceApi api = referenceApi(
+        webClient(counter, request -> ClientResponse.create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+            .header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+            .body(String.valueOf(request.headers().getFirst(HttpHeaders.AUTHORIZATION)))
+            .build()),
+        responseCache);
+
+    softly.assertThat(api.getAccount("Bearer alice").block())
+        .isEqualTo("Bearer alice");
+    softly.assertThat(api.getAccount("Bearer bob").block())
+        .isEqualTo("Bearer bob");
+    softly.assertThat(api.getAccount("Bearer alice").block())
+        .isEqualTo("Bearer alice");
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(responseCache.size())
+        .isEqualTo(2);
+  }
+
+  /**
+   * Responses with no store do not cause the eviction of fresh responses.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void responsesWithNoStoreDoNotCauseEvictionOfFreshResponses(SoftAssertions softly) {
+    ResponseCache responseCache = new ResponseCache(1);
+    HttpHeaders requestHeaders = new HttpHeaders();
+    ResponseCache.Key de = new ResponseCache.Key(
+        null, URI.create("/countries/de"), requestHeaders, new LinkedMultiValueMap<>());
+    ResponseCache.Key fr = new ResponseCache.Key(
+        null, URI.create("/countries/fr"), requestHeaders, new LinkedMultiValueMap<>());
+    ResponseEntity<String> stored = ResponseEntity.ok()
+        .cacheControl(CacheControl.maxAge(Duration.ofMinutes(1L)))
+        .body("value");
+    ResponseEntity<String> notStored = ResponseEntity.ok()
+        .cacheControl(CacheControl.noStore())
+        .body("value");
+
+    responseCache.put(de, requestHeaders, null, stored, 0L);
+    responseCache.put(de, requestHeaders, null, notStored, 0L);
+    responseCache.put(de, requestHeaders, null, stored, 0L);
+    responseCache.put(fr, requestHeaders, null, stored, 0L);
+    responseCache.put(de, requestHeaders, null, stored, 0L);
+
+    softly.assertThat(responseCache.get(de, requestHeaders))
+        .isNotNull();
+    softly.assertThat(responseCache.get(fr, requestHeaders))
+        .isNull();
+    softly.assertThat(responseCache.size())
+        .isEqualTo(1);
+  }
+
+  /**
+   * Oldest responses are evicted.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void oldestResponsesAreEvicted(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ResponseCache responseCache = new ResponseCache(1);
+    ReferenceApi api = referenceApi(
+        webClient(counter, request -> ok(request)
+            .header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+            .build()),
+        responseCache);
+
+    assertCountry(api, "de");
+    assertCountry(api, "fr");
+    assertCountry(api, "de");
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+    softly.assertThat(responseCache.size())
+        .isEqualTo(1);
+    softly.assertThat(responseCache.getEvictionCount())
+        .isEqualTo(2L);
+  }
+
+  /**
+   * Only annotated methods are cached without response cache.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void onlyAnnotatedMethodsAreCachedWithoutResponseCache(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ReferenceApi api = referenceApi(
+        webClient(counter, request -> ClientResponse.create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+            .header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+            .body("de\nen")
+            .build()),
+        null);
+
+    for (int i = 0; i < 2; i++) {
+      StepVerifier.create(api.getLanguages())
+          .expectNext("de", "en")
+          .verifyComplete();
+    }
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+
+    api.getCountry("de").block();
+    api.getCountry("de").block();
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+  }
+
+  /**
+   * Excluded methods are not cached.
+   */
+  @Test
+  void excludedMethodsAreNotCached() {
+    AtomicInteger counter = new AtomicInteger();
+    ResponseCache responseCache = new ResponseCache();
+    ReferenceApi api = referenceApi(
+        webClient(counter, request -> ok(request)
+            .header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+            .build()),
+        responseCache);
+
+    api.getCurrency("eur").block();
+    api.getCurrency("eur").block();
+    assertThat(counter.get())
+        .isEqualTo(2);
+  }
+
+  /**
+   * The reference api.
+   */
+  interface ReferenceApi {
+
+    /**
+     * Gets country.
+     *
+     * @param code the code
+     * @return the country
+     */
+    @GetMapping(path = "/countries/{code}", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getCountry(@PathVariable("code") String code);
+
+    /**
+     * Gets languages.
+     *
+     * @return the languages
+     */
+    @CacheResponse
+    @GetMapping(path = "/languages", produces = MediaType.TEXT_PLAIN_VALUE)
+    Flux<String> getLanguages();
+
+    /**
+     * Gets currency.
+     *
+     * @param code the code
+     * @return the currency
+     */
+    @CacheResponse(false)
+    @GetMapping(path = "/currencies/{code}", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getCurrency(@PathVariable("code") String code);
+
+    /**
+     * Gets account.
+     *
+     * @param authorization the authorization
+     * @return the account
+     */
+    @GetMapping(path = "/account", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getAccount(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization);
+  }
+
+  /**
+   * A clock, that can be moved forward.
+   */
+  static class MutableClock extends Clock {
+
+    private final AtomicLong millis = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param delta the milliseconds
+     */
+    void add(long delta) {
+      millis.addAndGet(delta);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis.get());
+    }
+
+    @Override
+    public long millis() {
+      return millis.get();
+    }
+  }
+
+}
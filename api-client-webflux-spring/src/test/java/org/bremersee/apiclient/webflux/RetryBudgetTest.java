@@ -0,0 +1,271 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * The retry budget test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class RetryBudgetTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5L);
+
+  /**
+   * Creates an api, whose requests fail with the given status until the given number of failures
+   * is reached.
+   *
+   * @param counter the counter of the requests
+   * @param failures the number of failures
+   * @param status the status of the failures
+   * @param errorHandler the error handler
+   * @param retryBudget the retry budget
+   * @return the api
+   */
+  private static FlakyApi flakyApi(
+      AtomicInteger counter,
+      int failures,
+      HttpStatus status,
+      ReactiveErrorHandler errorHandler,
+      RetryBudget retryBudget) {
+
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        counter,
+        request -> Mono.just(counter.get() <= failures
+            ? ClientResponse.create(status).build()
+            : ReactiveApiClientTest.textResponse(HttpStatus.OK, "ok")));
+    return ReactiveApiClientTest.apiClientBuilder(webClient)
+        .errorHandler(errorHandler)
+        .retryBudget(retryBudget)
+        .build(FlakyApi.class);
+  }
+
+  /**
+   * Retryable status is retried.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void retryableStatusIsRetried(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    RetryBudget retryBudget = new RetryBudget();
+    FlakyApi api = flakyApi(counter, 2, HttpStatus.SERVICE_UNAVAILABLE, null, retryBudget);
+
+    StepVerifier.create(api.getValue())
+        .expectNext("ok")
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+    softly.assertThat(retryBudget.getRetryCount())
+        .isEqualTo(2L);
+  }
+
+  /**
+   * Retries stop at the maximum attempts.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void retriesStopAtMaxAttempts(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    FlakyApi api = flakyApi(counter, 10, HttpStatus.BAD_GATEWAY, null, null);
+
+    StepVerifier.create(api.getValue())
+        .expectErrorMatches(e -> e instanceof WebClientResponseException
+            && ((WebClientResponseException) e).getRawStatusCode() == 502)
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(3);
+  }
+
+  /**
+   * Status, that is not retryable, is not retried.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void notRetryableStatusIsNotRetried(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    FlakyApi api = flakyApi(counter, 1, HttpStatus.NOT_FOUND, null, null);
+
+    StepVerifier.create(api.getValue())
+        .expectError(WebClientResponseException.NotFound.class)
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+  }
+
+  /**
+   * Non idempotent method is only retried, if it is marked as idempotent.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void nonIdempotentMethodIsOnlyRetriedIfMarked(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    FlakyApi api = flakyApi(counter, 1, HttpStatus.SERVICE_UNAVAILABLE, null, null);
+
+    StepVerifier.create(api.postValue())
+        .expectError(WebClientResponseException.ServiceUnavailable.class)
+        .verify(TIMEOUT);
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+
+    counter.set(0);
+    StepVerifier.create(api.postIdempotentValue())
+        .expectNext("ok")
+        .expectComplete()
+        .verify(TIMEOUT);
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+  }
+
+  /**
+   * Retries are limited by the budget.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void retriesAreLimitedByBudget(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    RetryBudget retryBudget = new RetryBudget(0, 1);
+    FlakyApi api = flakyApi(counter, 10, HttpStatus.SERVICE_UNAVAILABLE, null, retryBudget);
+
+    StepVerifier.create(api.getValueWithManyAttempts())
+        .expectError(WebClientResponseException.ServiceUnavailable.class)
+        .verify(TIMEOUT);
+
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+    softly.assertThat(retryBudget.getRetryCount())
+        .isEqualTo(1L);
+    softly.assertThat(retryBudget.getBudgetExhaustedCount())
+        .isEqualTo(1L);
+  }
+
+  /**
+   * Retry policy of the error handler is used for all methods.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void retryPolicyOfErrorHandler(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    ReactiveErrorHandler errorHandler = ReactiveErrorHandler.builder()
+        .retryPolicy(RetryPolicy.builder()
+            .initialBackoff(Duration.ZERO)
+            .maxAttempts(2)
+            .build())
+        .build();
+    FlakyApi api = flakyApi(counter, 1, HttpStatus.SERVICE_UNAVAILABLE, errorHandler, null);
+
+    StepVerifier.create(api.getOtherValue())
+        .expectNext("ok")
+        .expectComplete()
+        .verify(TIMEOUT);
+    softly.assertThat(counter.get())
+        .isEqualTo(2);
+
+    counter.set(0);
+    StepVerifier.create(api.getValueWithoutRetry())
+        .expectError(WebClientResponseException.ServiceUnavailable.class)
+        .verify(TIMEOUT);
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+  }
+
+  /**
+   * The flaky api.
+   */
+  interface FlakyApi {
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    @Retryable(backoff = 1L)
+    @GetMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValue();
+
+    /**
+     * Gets value with many attempts.
+     *
+     * @return the value
+     */
+    @Retryable(maxAttempts = 5, backoff = 1L)
+    @GetMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValueWithManyAttempts();
+
+    /**
+     * Gets other value.
+     *
+     * @return the other value
+     */
+    @GetMapping(path = "/other", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getOtherValue();
+
+    /**
+     * Gets value without retry.
+     *
+     * @return the value
+     */
+    @Retryable(false)
+    @GetMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValueWithoutRetry();
+
+    /**
+     * Post value.
+     *
+     * @return the value
+     */
+    @Retryable(backoff = 1L)
+    @PostMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> postValue();
+
+    /**
+     * Post idempotent value.
+     *
+     * @return the value
+     */
+    @Retryable(backoff = 1L, idempotent = true)
+    @PostMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> postIdempotentValue();
+  }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+/**
+ * The timeouts test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class TimeoutsTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5L);
+
+  /**
+   * Creates an api, that answers every request with the value of the deadline header. The
+   * requests to {@code /slow} are answered after two seconds of the parallel scheduler, which is
+   * virtual in the tests with virtual time.
+   *
+   * @param counter the counter of the requests
+   * @param cancelled the counter of the cancelled requests
+   * @param timeouts the timeouts
+   * @return the api
+   */
+  private static DeadlineApi deadlineApi(
+      AtomicInteger counter,
+      AtomicInteger cancelled,
+      Timeouts timeouts) {
+
+    WebClient webClient = ReactiveApiClientTest.countingWebClient(
+        counter,
+        request -> {
+          Duration delay = request.url().getPath().equals("/slow")
+              ? Duration.ofSeconds(2L)
+              : Duration.ZERO;
+          return Mono.delay(delay)
+              .then(Mono.fromSupplier(() -> ReactiveApiClientTest.textResponse(
+                  HttpStatus.OK,
+                  String.valueOf(request.headers().getFirst(Timeouts.DEFAULT_DEADLINE_HEADER)))))
+              .doOnCancel(cancelled::incrementAndGet);
+        });
+    return ReactiveApiClientTest.apiClientBuilder(webClient)
+        .timeouts(timeouts)
+        .build(DeadlineApi.class);
+  }
+
+  /**
+   * Slow response is cancelled after the timeout.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void slowResponseIsCancelled(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    AtomicInteger cancelled = new AtomicInteger();
+    DeadlineApi api = deadlineApi(counter, cancelled, null);
+
+    StepVerifier.withVirtualTime(api::getSlowValue)
+        .expectSubscription()
+        .thenAwait(Duration.ofSeconds(2L))
+        .expectError(TimeoutException.class)
+        .verify(TIMEOUT);
+    softly.assertThat(counter.get())
+        .isEqualTo(1);
+    softly.assertThat(cancelled.get())
+        .isEqualTo(1);
+  }
+
+  /**
+   * Remaining time is sent as header.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void remainingTimeIsSent(SoftAssertions softly) {
+    DeadlineApi api = deadlineApi(new AtomicInteger(), new AtomicInteger(), null);
+
+    String value = api.getValue().block(TIMEOUT);
+    softly.assertThat(value)
+        .isNotNull();
+    softly.assertThat(Long.parseLong(value))
+        .isBetween(1L, 1000L);
+
+    value = api.getValue()
+        .contextWrite(Deadline.after(Duration.ofMillis(500L)))
+        .block(TIMEOUT);
+    softly.assertThat(value)
+        .isNotNull();
+    softly.assertThat(Long.parseLong(value))
+        .isBetween(1L, 500L);
+
+    softly.assertThat(api.getValueWithoutTimeout().block(TIMEOUT))
+        .isEqualTo("null");
+  }
+
+  /**
+   * Deadline of the context cancels the slow response.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void deadlineOfContext(SoftAssertions softly) {
+    AtomicInteger counter = new AtomicInteger();
+    AtomicInteger cancelled = new AtomicInteger();
+    DeadlineApi api = deadlineApi(counter, cancelled, new Timeouts()
+        .withTimeout(DeadlineApi.class.getName() + "#getSlowValue", Duration.ofSeconds(30L)));
+
+    StepVerifier.withVirtualTime(() -> api.getSlowValue()
+            .contextWrite(Deadline.after(Duration.ofMillis(100L))))
+        .expectSubscription()
+        .thenAwait(Duration.ofSeconds(2L))
+        .expectError(TimeoutException.class)
+        .verify(TIMEOUT);
+    softly.assertThat(cancelled.get())
+        .isEqualTo(1);
+
+    StepVerifier.create(api.getValue()
+            .contextWrite(Context.of(Deadline.CONTEXT_KEY, Instant.now().minusSeconds(1L))))
+        .expectError(TimeoutException.class)
+        .verify(TIMEOUT);
+    softly.assertThat(counter.get())
+        .as("The request with the expired deadline is not sent.")
+        .isEqualTo(1);
+  }
+
+  /**
+   * Timeouts of the api client take precedence over the annotations.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void getTimeout(SoftAssertions softly) throws Exception {
+    MethodPlan getValue = new MethodPlan(
+        DeadlineApi.class, DeadlineApi.class.getMethod("getValue"));
+    MethodPlan getSlowValue = new MethodPlan(
+        DeadlineApi.class, DeadlineApi.class.getMethod("getSlowValue"));
+    MethodPlan getValueWithoutTimeout = new MethodPlan(
+        DeadlineApi.class, DeadlineApi.class.getMethod("getValueWithoutTimeout"));
+    MethodPlan getOtherValue = new MethodPlan(
+        OtherApi.class, OtherApi.class.getMethod("getValue"));
+
+    Timeouts timeouts = new Timeouts();
+    softly.assertThat(timeouts.getTimeout(getValue))
+        .isEqualTo(Duration.ofSeconds(1L));
+    softly.assertThat(timeouts.getTimeout(getSlowValue))
+        .isEqualTo(Duration.ofMillis(100L));
+    softly.assertThat(timeouts.getTimeout(getValueWithoutTimeout))
+        .isNull();
+    softly.assertThat(timeouts.getTimeout(getOtherValue))
+        .isNull();
+
+    timeouts = new Timeouts()
+        .withDefaultTimeout(Duration.ofSeconds(3L))
+        .withTimeout(DeadlineApi.class.getName(), Duration.ofSeconds(2L))
+        .withTimeout(DeadlineApi.class.getName() + "#getSlowValue", Duration.ofMillis(300L));
+    softly.assertThat(timeouts.getTimeout(getValue))
+        .isEqualTo(Duration.ofSeconds(2L));
+    softly.assertThat(timeouts.getTimeout(getSlowValue))
+        .isEqualTo(Duration.ofMillis(300L));
+    softly.assertThat(timeouts.getTimeout(getValueWithoutTimeout))
+        .isNull();
+    softly.assertThat(timeouts.getTimeout(getOtherValue))
+        .isEqualTo(Duration.ofSeconds(3L));
+  }
+
+  /**
+   * The deadline api.
+   */
+  @Timeout(1000L)
+  interface DeadlineApi {
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    @GetMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValue();
+
+    /**
+     * Gets slow value.
+     *
+     * @return the slow value
+     */
+    @Timeout(100L)
+    @GetMapping(path = "/slow", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getSlowValue();
+
+    /**
+     * Gets value without timeout.
+     *
+     * @return the value
+     */
+    @Timeout(0L)
+    @GetMapping(path = "/without-timeout", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValueWithoutTimeout();
+  }
+
+  /**
+   * The other api.
+   */
+  interface OtherApi {
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    @GetMapping(path = "/value", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> getValue();
+  }
+
+}
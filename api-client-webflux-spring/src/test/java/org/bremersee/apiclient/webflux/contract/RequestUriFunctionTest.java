@@ -24,11 +24,13 @@ import static org.mockito.Mockito.when;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 import org.bremersee.apiclient.webflux.Invocation;
 import org.junit.jupiter.api.Test;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.DefaultUriBuilderFactory;
 import org.springframework.web.util.UriBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -98,4 +100,47 @@ class RequestUriFunctionTest {
         .asString()
         .isEqualTo("http:/localhost:8080/api/books/1234?sort=e&size=25&page=10&foo=bar");
   }
-}
\ No newline at end of file
+
+  /**
+   * Apply with base url.
+   */
+  @Test
+  void applyWithBaseUrl() {
+    RequestUriFunction target = RequestUriFunction.builder()
+        .requestPathResolver(invocation -> "/api/books/{id}")
+        .pathVariablesResolver(invocation -> Map.of("id", "1234"))
+        .addRequestParametersResolvers(invocation -> new LinkedMultiValueMap<>())
+        .baseUrlResolver(invocation -> Optional.of("http://shard-1:8080/v1"))
+        .build();
+
+    UriBuilder uriBuilder = UriComponentsBuilder.fromUriString("http://localhost");
+    URI actual = target.apply(mock(Invocation.class), uriBuilder);
+
+    assertThat(actual)
+        .asString()
+        .isEqualTo("http://shard-1:8080/v1/api/books/1234");
+  }
+
+  /**
+   * Apply with base url and uri builder factory of the web client.
+   */
+  @Test
+  void applyWithBaseUrlAndUriBuilderFactory() {
+    RequestUriFunction target = RequestUriFunction.builder()
+        .requestPathResolver(invocation -> "/api/{version}/books/{id}")
+        .pathVariablesResolver(invocation -> Map.of("id", "1 2"))
+        .addRequestParametersResolvers(invocation -> new LinkedMultiValueMap<>())
+        .baseUrlResolver(invocation -> Optional.of("http://shard-1/v1"))
+        .build();
+
+    DefaultUriBuilderFactory uriBuilderFactory
+        = new DefaultUriBuilderFactory("http://localhost:8080/base?a=b");
+    uriBuilderFactory.setDefaultUriVariables(Map.of("version", "v2"));
+    URI actual = target.apply(mock(Invocation.class), uriBuilderFactory.builder());
+
+    assertThat(actual)
+        .asString()
+        .isEqualTo("http://shard-1/v1/api/v2/books/1%202");
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring;
+
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * The adaptive buffer size strategy test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class AdaptiveBufferSizeStrategyTest {
+
+  /**
+   * Get buffer size with defaults.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void getBufferSize(SoftAssertions softly) {
+    AdaptiveBufferSizeStrategy target = new AdaptiveBufferSizeStrategy();
+    softly.assertThat(target.getBufferSize(0L))
+        .isEqualTo(1024);
+    softly.assertThat(target.getBufferSize(12L))
+        .isEqualTo(1024);
+    softly.assertThat(target.getBufferSize(3000L))
+        .isEqualTo(4096);
+    softly.assertThat(target.getBufferSize(4096L))
+        .isEqualTo(4096);
+    softly.assertThat(target.getBufferSize(5L * 1024L * 1024L * 1024L))
+        .isEqualTo(64 * 1024);
+    softly.assertThat(target.getBufferSize(-1L))
+        .isEqualTo(64 * 1024);
+  }
+
+  /**
+   * Get buffer size with send buffer and limits.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void getBufferSizeWithSendBufferAndLimits(SoftAssertions softly) {
+    AdaptiveBufferSizeStrategy target = new AdaptiveBufferSizeStrategy()
+        .withBufferSize(512, 16 * 1024)
+        .withSendBufferSize(256 * 1024);
+    softly.assertThat(target.getBufferSize(100L))
+        .isEqualTo(512);
+    softly.assertThat(target.getBufferSize(10_000L))
+        .isEqualTo(16 * 1024);
+    softly.assertThat(target.getBufferSize(-1L))
+        .isEqualTo(16 * 1024);
+
+    target.withSendBufferSize(100);
+    softly.assertThat(target.getBufferSize(-1L))
+        .isEqualTo(512);
+    softly.assertThat(target.getBufferSize(10_000L))
+        .isEqualTo(512);
+  }
+
+  /**
+   * Invalid settings are rejected.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void invalidSettings(SoftAssertions softly) {
+    softly.assertThatIllegalArgumentException()
+        .isThrownBy(() -> new AdaptiveBufferSizeStrategy().withBufferSize(0, 1024));
+    softly.assertThatIllegalArgumentException()
+        .isThrownBy(() -> new AdaptiveBufferSizeStrategy().withBufferSize(2048, 1024));
+    softly.assertThatIllegalArgumentException()
+        .isThrownBy(() -> new AdaptiveBufferSizeStrategy().withSendBufferSize(0));
+    softly.assertThatIllegalArgumentException()
+        .isThrownBy(() -> BufferSizeStrategy.fixed(0));
+  }
+
+}
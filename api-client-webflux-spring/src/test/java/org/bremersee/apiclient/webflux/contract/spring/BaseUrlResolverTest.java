@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.BaseUrl;
+import org.bremersee.apiclient.webflux.Invocation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.web.bind.annotation.PathVariable;
+
+/**
+ * The base url resolver test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class BaseUrlResolverTest {
+
+  private static final BaseUrlResolver target = new BaseUrlResolver();
+
+  /**
+   * Apply.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void apply(SoftAssertions softly) throws Exception {
+    Method method = Example.class.getMethod("methodA", URI.class, String.class);
+    Invocation invocation = new Invocation(Example.class, method, new Object[]{
+        URI.create("http://shard-1:8080"), "a"});
+    softly.assertThat(target.apply(invocation))
+        .hasValue("http://shard-1:8080");
+
+    invocation = new Invocation(Example.class, method, new Object[]{null, "a"});
+    softly.assertThat(target.apply(invocation))
+        .isEmpty();
+
+    method = Example.class.getMethod("methodB", String.class);
+    invocation = new Invocation(Example.class, method, new Object[]{"a"});
+    softly.assertThat(target.apply(invocation))
+        .isEmpty();
+  }
+
+  /**
+   * The interface Example.
+   */
+  interface Example {
+
+    /**
+     * Method a.
+     *
+     * @param baseUrl the base url
+     * @param id the id
+     */
+    void methodA(@BaseUrl URI baseUrl, @PathVariable(name = "id") String id);
+
+    /**
+     * Method b.
+     *
+     * @param id the id
+     */
+    void methodB(@PathVariable(name = "id") String id);
+  }
+}
@@ -18,6 +18,8 @@ package org.bremersee.apiclient.webflux.contract.spring;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.lang.reflect.Method;
@@ -27,9 +29,11 @@ import java.util.stream.Stream;
 import org.assertj.core.api.SoftAssertions;
 import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
 import org.bremersee.apiclient.webflux.Invocation;
+import org.bremersee.apiclient.webflux.contract.spring.multipart.StreamingMultipartInserter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.MediaType;
@@ -38,6 +42,7 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.client.WebClient.RequestBodyUriSpec;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersUriSpec;
 import reactor.core.publisher.Flux;
@@ -186,6 +191,37 @@ class MultipartDataInserterTest {
         .isEqualTo(expected);
   }
 
+  /**
+   * Apply with and without streaming.
+   *
+   * @param softly the softly
+   * @throws Exception the exception
+   */
+  @Test
+  void applyWithAndWithoutStreaming(SoftAssertions softly) throws Exception {
+    RequestBodyUriSpec requestBodyUriSpec = mock(RequestBodyUriSpec.class);
+    //noinspection rawtypes
+    RequestHeadersUriSpec expected = mock(RequestHeadersUriSpec.class);
+    //noinspection unchecked
+    when(requestBodyUriSpec.body(any())).thenReturn(expected);
+
+    Method method = Example.class.getMethod("goodC", Flux.class);
+    //noinspection ReactiveStreamsUnusedPublisher
+    Object value = Flux.fromStream(Stream.of(mock(Part.class)));
+    Invocation invocation = new Invocation(Example.class, method, new Object[]{value});
+    target.apply(invocation, requestBodyUriSpec);
+    target.withStreaming(false).apply(invocation, requestBodyUriSpec);
+
+    //noinspection rawtypes
+    ArgumentCaptor<BodyInserter> captor = ArgumentCaptor.forClass(BodyInserter.class);
+    //noinspection unchecked
+    verify(requestBodyUriSpec, times(2)).body(captor.capture());
+    softly.assertThat(captor.getAllValues().get(0))
+        .isInstanceOf(StreamingMultipartInserter.class);
+    softly.assertThat(captor.getAllValues().get(1))
+        .isNotInstanceOf(StreamingMultipartInserter.class);
+  }
+
   /**
    * The interface Example.
    */
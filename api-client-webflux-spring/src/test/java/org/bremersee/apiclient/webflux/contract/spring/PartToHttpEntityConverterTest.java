@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.contract.spring.multipart.PartBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.Part;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+/**
+ * The part to http entity converter test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class PartToHttpEntityConverterTest {
+
+  private static final PartToHttpEntityConverter target = new PartToHttpEntityConverter();
+
+  private static final PartBuilder partBuilder = new PartBuilder();
+
+  private static Part part(String name, int index) {
+    return partBuilder.part(name, "value-" + index)
+        .header("X-Index", String.valueOf(index))
+        .build();
+  }
+
+  /**
+   * Convert.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void convert(SoftAssertions softly) {
+    Part part = partBuilder.part("foo", "bar")
+        .contentType(MediaType.TEXT_PLAIN)
+        .build();
+    HttpEntity<?> actual = target.convert(part);
+    softly.assertThat(actual)
+        .isNotNull();
+    softly.assertThat(actual.getHeaders().getContentDisposition().getName())
+        .isEqualTo("foo");
+    softly.assertThat(actual.getHeaders().getContentType())
+        .isEqualTo(MediaType.TEXT_PLAIN);
+    softly.assertThat(actual.getBody())
+        .isInstanceOf(Publisher.class);
+
+    //noinspection unchecked
+    StepVerifier.create(DataBufferUtils.join((Publisher<DataBuffer>) actual.getBody())
+            .map(buffer -> {
+              String value = buffer.toString(StandardCharsets.UTF_8);
+              DataBufferUtils.release(buffer);
+              return value;
+            }))
+        .expectNext("bar")
+        .verifyComplete();
+  }
+
+  /**
+   * Parts with the same name are not mixed up.
+   */
+  @Test
+  void partsWithSameNameAreNotMixedUp() {
+    Part first = part("file", 0);
+    Part second = part("file", 1);
+    for (int i = 0; i < 1_000_000; i++) {
+      int index = i % 2;
+      HttpEntity<?> actual = target.convert(index == 0 ? first : second);
+      assertThat(actual.getHeaders().getFirst("X-Index"))
+          .isEqualTo(String.valueOf(index));
+    }
+  }
+
+  /**
+   * Concurrent conversions.
+   */
+  @Test
+  void concurrentConversions() {
+    StepVerifier.create(Flux.range(0, 100_000)
+            .parallel()
+            .runOn(Schedulers.parallel())
+            .filter(index -> {
+              HttpEntity<?> actual = target.convert(part("part-" + index, index));
+              return !String.valueOf(index).equals(actual.getHeaders().getFirst("X-Index"))
+                  || !("part-" + index).equals(actual.getHeaders().getContentDisposition()
+                  .getName());
+            })
+            .sequential())
+        .expectComplete()
+        .verify(Duration.ofSeconds(30L));
+  }
+
+}
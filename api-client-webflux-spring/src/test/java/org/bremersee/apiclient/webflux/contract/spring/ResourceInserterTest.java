@@ -0,0 +1,246 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring;
+
+import static org.mockito.Mockito.mock;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.bremersee.apiclient.webflux.Invocation;
+import org.bremersee.apiclient.webflux.InvocationParameter;
+import org.bremersee.apiclient.webflux.ReactiveApiClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+/**
+ * The resource inserter test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class ResourceInserterTest {
+
+  private static final ResourceInserter target = new ResourceInserter();
+
+  /**
+   * Is possible body value.
+   *
+   * @param softly the softly
+   * @param dir the temporary directory
+   * @throws Exception the exception
+   */
+  @Test
+  void isPossibleBodyValue(SoftAssertions softly, @TempDir Path dir) throws Exception {
+    softly.assertThat(target.isPossibleBodyValue(parameter(dir)))
+        .isTrue();
+    softly.assertThat(target.isPossibleBodyValue(parameter(new ByteArrayResource(new byte[0]))))
+        .isTrue();
+    softly.assertThat(target.isPossibleBodyValue(parameter("text")))
+        .isFalse();
+  }
+
+  /**
+   * Map body.
+   *
+   * @param softly the softly
+   * @param dir the temporary directory
+   * @throws Exception the exception
+   */
+  @Test
+  void mapBody(SoftAssertions softly, @TempDir Path dir) throws Exception {
+    Resource actual = target.mapBody(parameter(dir));
+    softly.assertThat(actual)
+        .isInstanceOf(FileSystemResource.class);
+    softly.assertThat(actual.getFile().toPath())
+        .isEqualTo(dir);
+
+    Resource resource = new ByteArrayResource(new byte[0]);
+    softly.assertThat(target.mapBody(parameter(resource)))
+        .isSameAs(resource);
+  }
+
+  /**
+   * File is sent with zero copy.
+   *
+   * @param softly the softly
+   * @param dir the temporary directory
+   * @throws Exception the exception
+   */
+  @Test
+  void fileIsSentWithZeroCopy(SoftAssertions softly, @TempDir Path dir) throws Exception {
+    Path file = Files.writeString(dir.resolve("data.txt"), "Hello zero-copy");
+    ZeroCopyRequest request = new ZeroCopyRequest(URI.create("http://localhost/upload"));
+
+    StepVerifier.create(target.fromFile(new FileSystemResource(file))
+            .insert(request, mock(BodyInserter.Context.class)))
+        .verifyComplete();
+    softly.assertThat(request.getFile())
+        .hasValue(file);
+    softly.assertThat(request.getHeaders().getContentLength())
+        .isEqualTo(15L);
+    softly.assertThat(request.getHeaders().getContentType())
+        .isEqualTo(MediaType.TEXT_PLAIN);
+  }
+
+  /**
+   * File is read with buffers, if the request is secured.
+   *
+   * @param softly the softly
+   * @param dir the temporary directory
+   * @throws Exception the exception
+   */
+  @Test
+  void fileIsReadWithBuffersIfRequestIsSecured(SoftAssertions softly, @TempDir Path dir)
+      throws Exception {
+
+    Path file = Files.writeString(dir.resolve("data.bin"), "Hello tls");
+    ZeroCopyRequest request = new ZeroCopyRequest(URI.create("https://localhost/upload"));
+
+    StepVerifier.create(new ResourceInserter()
+            .withBufferSize(4)
+            .fromFile(new FileSystemResource(file))
+            .insert(request, mock(BodyInserter.Context.class)))
+        .verifyComplete();
+    softly.assertThat(request.getFile())
+        .isEmpty();
+    softly.assertThat(request.getBodyAsString().block())
+        .isEqualTo("Hello tls");
+    softly.assertThat(request.getHeaders().getContentType())
+        .isEqualTo(MediaType.APPLICATION_OCTET_STREAM);
+  }
+
+  /**
+   * Upload file to a local netty server.
+   *
+   * @param dir the temporary directory
+   * @throws Exception the exception
+   */
+  @Test
+  void uploadFile(@TempDir Path dir) throws Exception {
+    String content = "0123456789".repeat(100_000);
+    Path file = Files.writeString(dir.resolve("data.txt"), content);
+    DisposableServer server = HttpServer.create()
+        .host("localhost")
+        .port(0)
+        .handle((request, response) -> response
+            .header("Content-Type", MediaType.TEXT_PLAIN_VALUE)
+            .sendString(request.receive().aggregate().asString(StandardCharsets.UTF_8)
+                .map(body -> String.valueOf(body.length()))))
+        .bindNow();
+    try {
+      UploadApi api = new ReactiveApiClient(WebClient.builder(), new ReactiveSpringContract())
+          .newInstance(UploadApi.class, "http://localhost:" + server.port());
+      StepVerifier.create(api.upload(file))
+          .expectNext(String.valueOf(content.length()))
+          .expectComplete()
+          .verify(Duration.ofSeconds(10L));
+    } finally {
+      server.disposeNow();
+    }
+  }
+
+  private static InvocationParameter parameter(Object value) throws Exception {
+    Method method = Example.class.getMethod("methodA", Object.class);
+    Invocation invocation = new Invocation(Example.class, method, new Object[]{value});
+    return new InvocationParameter(invocation, method.getParameters()[0], value, 0);
+  }
+
+  /**
+   * A request, that supports zero-copy.
+   */
+  static class ZeroCopyRequest extends MockClientHttpRequest
+      implements ZeroCopyHttpOutputMessage {
+
+    private final AtomicReference<Path> file = new AtomicReference<>();
+
+    /**
+     * Instantiates a new zero copy request.
+     *
+     * @param uri the uri
+     */
+    ZeroCopyRequest(URI uri) {
+      super(HttpMethod.POST, uri);
+    }
+
+    /**
+     * Gets the file, that was sent with zero-copy.
+     *
+     * @return the file
+     */
+    Optional<Path> getFile() {
+      return Optional.ofNullable(file.get());
+    }
+
+    @Override
+    public Mono<Void> writeWith(Path file, long position, long count) {
+      this.file.set(file);
+      return setComplete();
+    }
+  }
+
+  /**
+   * The interface Example.
+   */
+  interface Example {
+
+    /**
+     * Method a.
+     *
+     * @param body the body
+     */
+    void methodA(@RequestBody Object body);
+  }
+
+  /**
+   * The upload api.
+   */
+  interface UploadApi {
+
+    /**
+     * Upload.
+     *
+     * @param file the file
+     * @return the number of received characters
+     */
+    @PostMapping(path = "/upload", produces = MediaType.TEXT_PLAIN_VALUE)
+    Mono<String> upload(@RequestBody Path file);
+  }
+}
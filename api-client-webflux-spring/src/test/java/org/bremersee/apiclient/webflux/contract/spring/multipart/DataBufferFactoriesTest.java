@@ -0,0 +1,201 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring.multipart;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetector.Level;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * The data buffer factories test. It runs with the paranoid leak detection of netty and checks
+ * after every test, that all buffers of the pooled factory have been released.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class DataBufferFactoriesTest {
+
+  private static Level leakDetectionLevel;
+
+  private final PartBuilder partBuilder = new PartBuilder();
+
+  private LeakDetectingDataBufferFactory bufferFactory;
+
+  /**
+   * Enables the paranoid leak detection of netty.
+   */
+  @BeforeAll
+  static void enableLeakDetection() {
+    leakDetectionLevel = ResourceLeakDetector.getLevel();
+    ResourceLeakDetector.setLevel(Level.PARANOID);
+  }
+
+  /**
+   * Resets the leak detection of netty.
+   */
+  @AfterAll
+  static void resetLeakDetection() {
+    ResourceLeakDetector.setLevel(leakDetectionLevel);
+  }
+
+  /**
+   * Creates the buffer factory.
+   */
+  @BeforeEach
+  void createBufferFactory() {
+    bufferFactory = new LeakDetectingDataBufferFactory();
+  }
+
+  /**
+   * Checks for leaks.
+   */
+  @AfterEach
+  void checkForLeaks() {
+    StepVerifier.create(Flux.interval(Duration.ofMillis(10L))
+            .filter(i -> bufferFactory.getUnreleasedCount() == 0L)
+            .next())
+        .expectNextCount(1L)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5L));
+    bufferFactory.checkForLeaks();
+  }
+
+  /**
+   * Default is pooled netty factory.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void defaultIsPooledNettyFactory(SoftAssertions softly) {
+    softly.assertThat(DataBufferFactories.getDefault())
+        .isInstanceOf(NettyDataBufferFactory.class);
+
+    StepVerifier.create(partBuilder.part("foo", "bar").build().content())
+        .assertNext(buffer -> {
+          assertThat(buffer).isInstanceOf(NettyDataBuffer.class);
+          DataBufferUtils.release(buffer);
+        })
+        .verifyComplete();
+  }
+
+  /**
+   * Form field content is allocated on demand.
+   */
+  @Test
+  void formFieldContentIsAllocatedOnDemand() {
+    Part part = partBuilder.part("foo", "bar")
+        .withDataBufferFactory(bufferFactory)
+        .build();
+    StepVerifier.create(part.content(), 0L)
+        .thenCancel()
+        .verify();
+    assertThat(bufferFactory.getBufferCount())
+        .isZero();
+  }
+
+  /**
+   * File content is released on cancel.
+   *
+   * @param dir the temporary directory
+   * @throws Exception the exception
+   */
+  @Test
+  void fileContentIsReleasedOnCancel(@TempDir Path dir) throws Exception {
+    Path file = Files.write(dir.resolve("data.bin"), new byte[1024 * 1024]);
+    Part part = partBuilder.part("file", file)
+        .withDataBufferFactory(bufferFactory)
+        .build();
+    StepVerifier.create(part.content())
+        .consumeNextWith(DataBufferUtils::release)
+        .thenCancel()
+        .verify();
+    assertThat(bufferFactory.getBufferCount())
+        .isPositive();
+  }
+
+  /**
+   * Parts are released after write.
+   *
+   * @param dir the temporary directory
+   * @throws Exception the exception
+   */
+  @Test
+  void partsAreReleasedAfterWrite(@TempDir Path dir) throws Exception {
+    Path file = Files.write(dir.resolve("data.bin"), new byte[256 * 1024]);
+    MockClientHttpRequest request = new MockClientHttpRequest(
+        HttpMethod.POST, URI.create("http://localhost/upload"));
+    request.setWriteHandler(body -> body
+        .doOnNext(DataBufferUtils::release)
+        .then());
+    Flux<Part> parts = Flux.just(
+        partBuilder.part("foo", "bar").withDataBufferFactory(bufferFactory).build(),
+        partBuilder.part("file", file).withDataBufferFactory(bufferFactory).build());
+
+    StepVerifier.create(new StreamingMultipartInserter(parts)
+            .insert(request, mock(BodyInserter.Context.class)))
+        .verifyComplete();
+  }
+
+  /**
+   * Parts are released on error.
+   */
+  @Test
+  void partsAreReleasedOnError() {
+    MockClientHttpRequest request = new MockClientHttpRequest(
+        HttpMethod.POST, URI.create("http://localhost/upload"));
+    request.setWriteHandler(body -> body
+        .doOnNext(DataBufferUtils::release)
+        .then());
+    Flux<DataBuffer> failingContent = Flux.concat(
+        partBuilder.part("tmp", "value").withDataBufferFactory(bufferFactory).build().content(),
+        Flux.error(new IllegalStateException("Reading content failed.")));
+    Flux<Part> parts = Flux.just(
+        partBuilder.part("foo", "bar").withDataBufferFactory(bufferFactory).build(),
+        partBuilder.part("broken", failingContent).build());
+
+    StepVerifier.create(new StreamingMultipartInserter(parts)
+            .insert(request, mock(BodyInserter.Context.class)))
+        .expectError(IllegalStateException.class)
+        .verify();
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring.multipart;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+/**
+ * A pooled netty data buffer factory, that remembers every buffer it creates, so that a test can
+ * check whether all of them have been released.
+ *
+ * @author Christian Bremer
+ */
+class LeakDetectingDataBufferFactory implements DataBufferFactory {
+
+  private final NettyDataBufferFactory delegate = new NettyDataBufferFactory(
+      new PooledByteBufAllocator(true));
+
+  private final Queue<NettyDataBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+  private NettyDataBuffer track(NettyDataBuffer buffer) {
+    buffers.add(buffer);
+    return buffer;
+  }
+
+  @Override
+  public DataBuffer allocateBuffer() {
+    return track(delegate.allocateBuffer());
+  }
+
+  @Override
+  public DataBuffer allocateBuffer(int initialCapacity) {
+    return track(delegate.allocateBuffer(initialCapacity));
+  }
+
+  @Override
+  public DataBuffer wrap(ByteBuffer byteBuffer) {
+    return track(delegate.wrap(byteBuffer));
+  }
+
+  @Override
+  public DataBuffer wrap(byte[] bytes) {
+    return track(delegate.wrap(bytes));
+  }
+
+  @Override
+  public DataBuffer join(List<? extends DataBuffer> dataBuffers) {
+    return delegate.join(dataBuffers);
+  }
+
+  /**
+   * Gets the number of created buffers.
+   *
+   * @return the number of created buffers
+   */
+  int getBufferCount() {
+    return buffers.size();
+  }
+
+  /**
+   * Gets the number of buffers, that have not been released.
+   *
+   * @return the number of buffers, that have not been released
+   */
+  long getUnreleasedCount() {
+    return buffers.stream()
+        .filter(buffer -> buffer.getNativeBuffer().refCnt() > 0)
+        .count();
+  }
+
+  /**
+   * Checks that every created buffer has been released.
+   *
+   * @throws AssertionError if there are buffers, that have not been released
+   */
+  void checkForLeaks() {
+    List<NettyDataBuffer> leaks = buffers.stream()
+        .filter(buffer -> buffer.getNativeBuffer().refCnt() > 0)
+        .collect(Collectors.toList());
+    if (!leaks.isEmpty()) {
+      throw new AssertionError(leaks.size() + " of " + buffers.size()
+          + " buffers have not been released: " + leaks);
+    }
+  }
+
+}
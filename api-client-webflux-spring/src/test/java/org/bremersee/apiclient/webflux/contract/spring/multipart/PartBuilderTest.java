@@ -25,6 +25,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.assertj.core.api.SoftAssertions;
 import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
@@ -286,4 +287,31 @@ class PartBuilderTest {
         .isInstanceOf(FilePart.class);
   }
 
+  /**
+   * Buffer size strategy gets the content length.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void bufferSizeStrategyGetsContentLength(SoftAssertions softly) {
+    List<Long> contentLengths = new CopyOnWriteArrayList<>();
+    PartBuilder partBuilder = new PartBuilder(contentLength -> {
+      contentLengths.add(contentLength);
+      return 4;
+    });
+    Part actual = partBuilder.part("file", new ClassPathResource("text.txt")).build();
+    softly.assertThat(contentLengths)
+        .isEmpty();
+
+    StepVerifier.create(actual.content())
+        .thenConsumeWhile(dataBuffer -> {
+          softly.assertThat(dataBuffer.readableByteCount()).isLessThanOrEqualTo(4);
+          DataBufferUtils.release(dataBuffer);
+          return true;
+        })
+        .verifyComplete();
+    softly.assertThat(contentLengths)
+        .containsExactly(12L);
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.apiclient.webflux.contract.spring.multipart;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+/**
+ * The streaming multipart inserter test.
+ *
+ * @author Christian Bremer
+ */
+@ExtendWith(SoftAssertionsExtension.class)
+class StreamingMultipartInserterTest {
+
+  private static final PartBuilder partBuilder = new PartBuilder();
+
+  private static MockClientHttpRequest request() {
+    MockClientHttpRequest request = new MockClientHttpRequest(
+        HttpMethod.POST, URI.create("http://localhost/upload"));
+    request.getHeaders().setContentType(MediaType.MULTIPART_FORM_DATA);
+    return request;
+  }
+
+  /**
+   * Insert.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void insert(SoftAssertions softly) {
+    MockClientHttpRequest request = request();
+    StreamingMultipartInserter target = new StreamingMultipartInserter(Flux.just(
+        partBuilder.part("foo", "bar").build(),
+        partBuilder.part("baz", "qux").contentType(MediaType.TEXT_PLAIN).build()));
+
+    StepVerifier.create(target.insert(request, mock(BodyInserter.Context.class)))
+        .verifyComplete();
+
+    MediaType contentType = request.getHeaders().getContentType();
+    softly.assertThat(contentType)
+        .isNotNull()
+        .matches(MediaType.MULTIPART_FORM_DATA::isCompatibleWith);
+    String boundary = contentType.getParameter("boundary");
+    softly.assertThat(boundary)
+        .isNotBlank();
+    softly.assertThat(request.getBodyAsString().block())
+        .isEqualTo("--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"foo\"\r\n"
+            + "\r\n"
+            + "bar\r\n"
+            + "--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"baz\"\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "\r\n"
+            + "qux\r\n"
+            + "--" + boundary + "--\r\n");
+  }
+
+  /**
+   * Insert adds the content disposition, if it is missing.
+   */
+  @Test
+  void insertAddsContentDisposition() {
+    Part part = partBuilder.part("foo", "bar")
+        .headers(headers -> headers.remove("Content-Disposition"))
+        .build();
+    MockClientHttpRequest request = request();
+
+    StepVerifier.create(new StreamingMultipartInserter(Mono.just(part))
+            .insert(request, mock(BodyInserter.Context.class)))
+        .verifyComplete();
+    StepVerifier.create(request.getBodyAsString())
+        .assertNext(body -> assertThat(body)
+            .contains("Content-Disposition: form-data; name=\"foo\"\r\n"))
+        .verifyComplete();
+  }
+
+  /**
+   * Parts are written as they arrive.
+   *
+   * @param softly the softly
+   */
+  @Test
+  void partsAreWrittenAsTheyArrive(SoftAssertions softly) {
+    StringBuffer written = new StringBuffer();
+    MockClientHttpRequest request = request();
+    request.setWriteHandler(body -> body
+        .doOnNext(buffer -> {
+          written.append(buffer.toString(StandardCharsets.UTF_8));
+          DataBufferUtils.release(buffer);
+        })
+        .then());
+    Sinks.Many<Part> parts = Sinks.many().unicast().onBackpressureBuffer();
+    Sinks.Empty<Void> done = Sinks.empty();
+    Disposable subscription = new StreamingMultipartInserter(parts.asFlux())
+        .insert(request, mock(BodyInserter.Context.class))
+        .subscribe(unused -> {
+        }, done::tryEmitError, done::tryEmitEmpty);
+
+    parts.tryEmitNext(partBuilder.part("first", "value-1").build());
+    softly.assertThat(written.toString())
+        .contains("value-1")
+        .doesNotContain("value-2");
+
+    parts.tryEmitNext(partBuilder.part("second", "value-2").build());
+    softly.assertThat(written.toString())
+        .contains("value-2")
+        .doesNotEndWith("--\r\n");
+
+    parts.tryEmitComplete();
+    StepVerifier.create(done.asMono())
+        .expectComplete()
+        .verify(Duration.ofSeconds(5L));
+    softly.assertThat(written.toString())
+        .endsWith("--\r\n");
+    subscription.dispose();
+  }
+
+}